@@ -0,0 +1,392 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>Android Log File Writer</h1>
+ * Background sink for the AndroidLogger file output. The logging calls only stamp the message
+ * and push it onto a bounded lock-free queue; a single writer thread formats the entries,
+ * batches them into a buffered file channel and flushes on size or time thresholds. The dated
+ * output file is rotated by comparing the entry time against the next midnight, instead of
+ * checking the file system on every call. Messages that arrive while the queue is full are
+ * dropped and counted.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref AndroidLogger
+ */
+public class AndroidLogFileWriter {
+
+    private static final String TAG = AndroidLogFileWriter.class.getSimpleName();
+
+    public static final int QUEUE_CAPACITY = 2048;
+    public static final int WRITE_BUFFER_SIZE = 32 * 1024;
+    public static final int FLUSH_BATCH_RECORDS = 64;
+    public static final long FLUSH_INTERVAL_MILLIS = 500;
+    public static final long CLOSE_TIMEOUT_MILLIS = 1000;
+
+    private static final String LOGDATA_START_FILE_DELIMITER = "/******** : START OF LOGGING OUTPUT: ********/\n\n";
+    private static final String LOGDATA_START_ENTRY_DELIMITER = "++++++++++";
+    private static final String LOGDATA_END_ENTRY_DELIMITER = "\n\n";
+    private static final String LOGDATA_ITEM_DELIMITER = "   ---- ";
+    private static final int LINE_WRAP_CHARACTERS = 80;
+
+    private static final int RECORD_MESSAGE = 0;
+    private static final int RECORD_EXCEPTION = 1;
+    private static final int RECORD_CLOSE = 2;
+
+    private static class LogFileRecord {
+        final int recordType;
+        final long timeMillis;
+        final AndroidLogger.LogLevel level;
+        final String tag;
+        final String msg;
+        final Throwable excpt;
+        final CountDownLatch doneSignal;
+        LogFileRecord(int type, AndroidLogger.LogLevel level, String tag, String msg, Throwable excpt, CountDownLatch doneSignal) {
+            this.recordType = type;
+            this.timeMillis = System.currentTimeMillis();
+            this.level = level;
+            this.tag = tag;
+            this.msg = msg;
+            this.excpt = excpt;
+            this.doneSignal = doneSignal;
+        }
+    }
+
+    private static final AndroidLogFileWriter LOGFILE_WRITER_INSTANCE = new AndroidLogFileWriter();
+
+    public static AndroidLogFileWriter getInstance() {
+        return LOGFILE_WRITER_INSTANCE;
+    }
+
+    private final ConcurrentLinkedQueue<LogFileRecord> pendingRecords = new ConcurrentLinkedQueue<LogFileRecord>();
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+    private final AtomicLong droppedCount = new AtomicLong(0);
+    private final AtomicLong writtenCount = new AtomicLong(0);
+    private volatile Thread writerThread;
+
+    /* State below is only touched by the writer thread: */
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+    private final CharsetEncoder utf8Encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder entryBuilder = new StringBuilder(512);
+    private final SimpleDateFormat entryTimestampFormat = new SimpleDateFormat("yyyy.MM.dd @ hh:mm:ss a", BuildConfig.DEFAULT_LOCALE);
+    private FileChannel logFileChannel;
+    private long nextRotationTimeMillis;
+    private long lastFlushTimeMillis;
+    private long reportedDroppedCount;
+    private int unflushedRecords;
+
+    private AndroidLogFileWriter() {}
+
+    /**
+     * Queues a log message for the writer thread. Never blocks the caller.
+     * @return boolean whether the message was queued (false if it was dropped)
+     */
+    public boolean enqueueMessage(@NonNull AndroidLogger.LogLevel level, String tag, String msg) {
+        return enqueueRecord(new LogFileRecord(RECORD_MESSAGE, level, tag, msg, null, null));
+    }
+
+    public boolean enqueueException(@NonNull Throwable excpt) {
+        return enqueueRecord(new LogFileRecord(RECORD_EXCEPTION, AndroidLogger.LogLevel.ERROR, TAG, null, excpt, null));
+    }
+
+    private boolean enqueueRecord(LogFileRecord logRecord) {
+        if(pendingCount.incrementAndGet() > QUEUE_CAPACITY) {
+            pendingCount.decrementAndGet();
+            droppedCount.incrementAndGet();
+            return false;
+        }
+        pendingRecords.offer(logRecord);
+        Thread writer = startWriterThread();
+        if(pendingCount.get() >= FLUSH_BATCH_RECORDS || logRecord.level == AndroidLogger.LogLevel.ERROR) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /**
+     * Writes out the queued records and closes the current log file (it is reopened when the
+     * next message arrives). Waits at most CLOSE_TIMEOUT_MILLIS for the writer thread.
+     */
+    public void flushAndClose() {
+        Thread writer = writerThread;
+        if(writer == null) {
+            return;
+        }
+        CountDownLatch closeSignal = new CountDownLatch(1);
+        pendingRecords.offer(new LogFileRecord(RECORD_CLOSE, AndroidLogger.LogLevel.VERBOSE, TAG, null, null, closeSignal));
+        LockSupport.unpark(writer);
+        try {
+            closeSignal.await(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch(InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getWrittenCount() {
+        return writtenCount.get();
+    }
+
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return File the dated log file for the current day (it need not exist yet)
+     */
+    public File getLogDataOutputFile() {
+        File logFolder = getLogDataOutputFolder();
+        if(logFolder == null) {
+            return null;
+        }
+        return new File(logFolder, Utils.getTimestamp(AndroidLogger.LOGDATA_FILE_FORMAT));
+    }
+
+    private static File getLogDataOutputFolder() {
+        try {
+            String localAppStoragePath = AndroidLogger.getActivityContext().getFilesDir().getAbsolutePath();
+            File logDataOutputFolder = new File(localAppStoragePath + "//" + AndroidLogger.LOGDATA_FILE_LOCAL_DIRPATH);
+            if(!logDataOutputFolder.exists() && !logDataOutputFolder.mkdir()) {
+                return null;
+            }
+            return logDataOutputFolder;
+        } catch(Exception ex) {
+            return null;
+        }
+    }
+
+    private Thread startWriterThread() {
+        Thread writer = writerThread;
+        if(writer != null) {
+            return writer;
+        }
+        synchronized(this) {
+            if(writerThread == null) {
+                writer = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        runWriterLoop();
+                    }
+                }, TAG);
+                writer.setDaemon(true);
+                writer.setPriority(Thread.MIN_PRIORITY);
+                writer.start();
+                writerThread = writer;
+            }
+            return writerThread;
+        }
+    }
+
+    private void runWriterLoop() {
+        while(true) {
+            LogFileRecord logRecord;
+            while((logRecord = pendingRecords.poll()) != null) {
+                if(logRecord.recordType == RECORD_CLOSE) {
+                    closeLogFile();
+                    logRecord.doneSignal.countDown();
+                    continue;
+                }
+                pendingCount.decrementAndGet();
+                try {
+                    writeRecord(logRecord);
+                } catch(IOException ioe) {
+                    ioe.printStackTrace();
+                    closeLogFile();
+                }
+            }
+            try {
+                if(logFileChannel != null && unflushedRecords > 0 &&
+                        (unflushedRecords >= FLUSH_BATCH_RECORDS || System.currentTimeMillis() - lastFlushTimeMillis >= FLUSH_INTERVAL_MILLIS)) {
+                    flushWriteBuffer();
+                }
+            } catch(IOException ioe) {
+                ioe.printStackTrace();
+                closeLogFile();
+            }
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS));
+        }
+    }
+
+    private void writeRecord(LogFileRecord logRecord) throws IOException {
+        if(!AndroidLogger.WRITE_LOGDATA_TO_FILE) {
+            return;
+        }
+        if(logFileChannel == null || logRecord.timeMillis >= nextRotationTimeMillis) {
+            if(!openLogFile(logRecord.timeMillis)) {
+                return;
+            }
+        }
+        long curDroppedCount = droppedCount.get();
+        entryBuilder.setLength(0);
+        if(curDroppedCount != reportedDroppedCount) {
+            entryBuilder.append(LOGDATA_START_ENTRY_DELIMITER).append(" DROPPED ")
+                        .append(curDroppedCount - reportedDroppedCount).append(" LOG ENTRIES (QUEUE FULL)")
+                        .append(LOGDATA_END_ENTRY_DELIMITER);
+            reportedDroppedCount = curDroppedCount;
+        }
+        String logTimeStamp = entryTimestampFormat.format(new Date(logRecord.timeMillis));
+        if(logRecord.recordType == RECORD_EXCEPTION) {
+            StringWriter stackTraceWriter = new StringWriter();
+            logRecord.excpt.printStackTrace(new PrintWriter(stackTraceWriter));
+            entryBuilder.append(LOGDATA_START_ENTRY_DELIMITER).append(" EXCEPTION STACK TRACE @ ").append(logTimeStamp).append("\n\n");
+            entryBuilder.append(stackTraceWriter.toString());
+            entryBuilder.append(LOGDATA_START_ENTRY_DELIMITER);
+        }
+        else {
+            entryBuilder.append(LOGDATA_START_ENTRY_DELIMITER).append(" LOG ENTRY @ ").append(logTimeStamp).append('\n');
+            entryBuilder.append(LOGDATA_ITEM_DELIMITER).append(" LEVEL ").append(logRecord.level.name())
+                        .append(" / ").append(logRecord.tag).append('\n');
+            appendWrappedData(entryBuilder, LOGDATA_ITEM_DELIMITER, logRecord.msg == null ? "null" : logRecord.msg);
+            entryBuilder.append(LOGDATA_END_ENTRY_DELIMITER);
+        }
+        writeText(entryBuilder);
+        writtenCount.incrementAndGet();
+        if(++unflushedRecords >= FLUSH_BATCH_RECORDS) {
+            flushWriteBuffer();
+        }
+    }
+
+    /**
+     * Splits each line of the data into chunks of LINE_WRAP_CHARACTERS (including the prefix)
+     * without going through a regex replacement.
+     */
+    private static void appendWrappedData(StringBuilder sb, String linePrefix, String data) {
+        int lineWrapNumChars = LINE_WRAP_CHARACTERS - linePrefix.length();
+        int dataPos = 0;
+        while(dataPos <= data.length()) {
+            int lineEnd = data.indexOf('\n', dataPos);
+            if(lineEnd < 0) {
+                lineEnd = data.length();
+            }
+            while(lineEnd - dataPos > lineWrapNumChars) {
+                sb.append(linePrefix).append(data, dataPos, dataPos + lineWrapNumChars).append('\n');
+                dataPos += lineWrapNumChars;
+            }
+            sb.append(data, dataPos, Math.min(lineEnd + 1, data.length()));
+            dataPos = lineEnd + 1;
+        }
+    }
+
+    private void writeText(CharSequence text) throws IOException {
+        CharBuffer textChars = CharBuffer.wrap(text);
+        utf8Encoder.reset();
+        while(true) {
+            CoderResult encResult = utf8Encoder.encode(textChars, writeBuffer, true);
+            if(encResult.isOverflow()) {
+                drainWriteBuffer();
+                continue;
+            }
+            break;
+        }
+        while(utf8Encoder.flush(writeBuffer).isOverflow()) {
+            drainWriteBuffer();
+        }
+    }
+
+    private void drainWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        while(writeBuffer.hasRemaining()) {
+            logFileChannel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private void flushWriteBuffer() throws IOException {
+        drainWriteBuffer();
+        unflushedRecords = 0;
+        lastFlushTimeMillis = System.currentTimeMillis();
+    }
+
+    private boolean openLogFile(long recordTimeMillis) {
+        closeLogFile();
+        File logFile = getLogDataOutputFile();
+        if(logFile == null) {
+            return false;
+        }
+        try {
+            boolean newLogFile = !logFile.exists();
+            logFileChannel = new FileOutputStream(logFile, true).getChannel();
+            Calendar nextMidnight = Calendar.getInstance();
+            nextMidnight.setTimeInMillis(recordTimeMillis);
+            nextMidnight.set(Calendar.HOUR_OF_DAY, 0);
+            nextMidnight.set(Calendar.MINUTE, 0);
+            nextMidnight.set(Calendar.SECOND, 0);
+            nextMidnight.set(Calendar.MILLISECOND, 0);
+            nextMidnight.add(Calendar.DAY_OF_MONTH, 1);
+            nextRotationTimeMillis = nextMidnight.getTimeInMillis();
+            lastFlushTimeMillis = System.currentTimeMillis();
+            if(newLogFile) {
+                writeText(LOGDATA_START_FILE_DELIMITER);
+            }
+        } catch(IOException ioe) {
+            ioe.printStackTrace();
+            closeLogFile();
+            return false;
+        }
+        return true;
+    }
+
+    private void closeLogFile() {
+        if(logFileChannel == null) {
+            writeBuffer.clear();
+            return;
+        }
+        try {
+            flushWriteBuffer();
+        } catch(IOException ioe) {
+            ioe.printStackTrace();
+        }
+        try {
+            logFileChannel.close();
+        } catch(IOException ioe) {
+            ioe.printStackTrace();
+        }
+        logFileChannel = null;
+        writeBuffer.clear();
+        unflushedRecords = 0;
+    }
+
+}
@@ -26,11 +26,7 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
-import java.util.Locale;
 import java.util.Map;
 
 /*
@@ -89,87 +85,27 @@ public class AndroidLogger {
     public static boolean WRITE_LOGDATA_TO_FILE = true;
     public static LogLevel LOGDATA_LEVEL_THRESHOLD = DEFAULT_LOGDATA_LEVEL;
 
-    private static File logDataOutputFileHandle = null;
-    private static PrintStream logDataOutputStreamHandle = null;
-
-    private static PrintStream openLogDataOutputFile() {
-        String logDataOutFilePath = Utils.getTimestamp(LOGDATA_FILE_FORMAT);
-        boolean logOutputFolderExists = true;
-        File logDataOutputFolder = null;
-        try {
-            String localAppStoragePath = getActivityContext().getFilesDir().getAbsolutePath();
-            String logDataOutputFilePath = localAppStoragePath + "//" + LOGDATA_FILE_LOCAL_DIRPATH;
-            logDataOutputFolder = new File(logDataOutputFilePath);
-            if (!logDataOutputFolder.exists()) {
-                logOutputFolderExists = logDataOutputFolder.mkdir();
-            }
-        } catch (Exception ex) {
-            logDataOutputFileHandle = null;
-            logDataOutputStreamHandle = null;
-            return null;
-        }
-        if(logDataOutputFileHandle == null || logDataOutputStreamHandle == null) {
-            if (logDataOutputFolder != null && logOutputFolderExists) {
-                logDataOutputFileHandle = new File(logDataOutputFolder.getAbsolutePath(), logDataOutFilePath);
-            } else {
-                logDataOutputFileHandle = null;
-                logDataOutputStreamHandle = null;
-                return null;
-            }
-            try {
-                logDataOutputStreamHandle = new PrintStream(logDataOutputFileHandle);
-            } catch (IOException ioe) {
-                ioe.printStackTrace();
-                logDataOutputFileHandle = null;
-                logDataOutputStreamHandle = null;
-                return null;
-            }
-            return logDataOutputStreamHandle;
-        }
-        File nextLogDataOutputFile = new File(logDataOutputFolder.getAbsolutePath(), logDataOutFilePath);
-        boolean newLogFileCreated = nextLogDataOutputFile.exists();
-        if(!newLogFileCreated && logDataOutputStreamHandle != null) {
-            logDataOutputStreamHandle.close();
-        }
-        logDataOutputFileHandle = nextLogDataOutputFile;
-        try {
-            logDataOutputStreamHandle = new PrintStream(logDataOutputFileHandle);
-            if(!newLogFileCreated) {
-                logDataOutputStreamHandle.print(LOGDATA_START_FILE_DELIMITER);
-                logDataOutputStreamHandle.flush();
-            }
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
-            logDataOutputFileHandle = null;
-            logDataOutputStreamHandle = null;
-            return null;
-        }
-        return logDataOutputStreamHandle;
-    }
-
+    /**
+     * Writes out any buffered log entries and closes the current log file.
+     * @ref AndroidLogFileWriter.flushAndClose
+     */
     public static void closeLogDataOutputFile() {
-        if(logDataOutputStreamHandle != null) {
-            logDataOutputStreamHandle.close();
-        }
-        logDataOutputStreamHandle = null;
+        AndroidLogFileWriter.getInstance().flushAndClose();
     }
 
     public static String downloadCurrentLogFile(boolean updateGUIWithStatus) {
-        if (logDataOutputFileHandle == null) {
-            openLogDataOutputFile();
-            if (logDataOutputFileHandle == null) {
-                if (updateGUIWithStatus) {
-                    Utils.displayToastMessageShort(getActivityContext(), "Log file download failed.");
-                    LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
-                    if (llActivity != null) {
-                        llActivity.setStatusIcon(R.id.statusIconUlDl, R.drawable.statusxferfailed16);
-                        llActivity.requestAllCMLDPermissionsFromUser();
-                    }
+        closeLogDataOutputFile();
+        File logDataOutputFileHandle = AndroidLogFileWriter.getInstance().getLogDataOutputFile();
+        if (logDataOutputFileHandle == null || !logDataOutputFileHandle.exists()) {
+            if (updateGUIWithStatus) {
+                Utils.displayToastMessageShort(getActivityContext(), "Log file download failed.");
+                LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+                if (llActivity != null) {
+                    llActivity.setStatusIcon(R.id.statusIconUlDl, R.drawable.statusxferfailed16);
+                    llActivity.requestAllCMLDPermissionsFromUser();
                 }
-                return "";
             }
-        } else {
-            closeLogDataOutputFile();
+            return "";
         }
         String downloadsFolderBase = getActivityContext().getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS).getAbsolutePath();
         downloadsFolderBase = downloadsFolderBase.replace("/", "//");
@@ -222,43 +158,15 @@ public class AndroidLogger {
         return dldOutFile.getAbsolutePath();
     }
 
-    private static final int LINE_WRAP_CHARACTERS = 80;
-
-    private static String wrapDataAt(String linePrefix, String data) {
-        Locale defaultLocale = BuildConfig.DEFAULT_LOCALE;
-        int lineWrapNumChars = (int) (LINE_WRAP_CHARACTERS - linePrefix.length());
-        String wrapRegexFmt = String.format(defaultLocale, ".{%d}(?=.)", lineWrapNumChars);
-        String replaceLineFmt = String.format(defaultLocale, "%s$0\n", linePrefix);
-        return data.replaceAll(wrapRegexFmt, replaceLineFmt);
-    }
-
-    private static String wrapDataAt(String data) {
-        return wrapDataAt(LOGDATA_ITEM_DELIMITER, data);
-    }
-
-    private static final String LOGDATA_START_FILE_DELIMITER = "/******** : START OF LOGGING OUTPUT: ********/\n\n";
-    private static final String LOGDATA_START_ENTRY_DELIMITER = "++++++++++";
-    private static final String LOGDATA_END_ENTRY_DELIMITER = "\n\n";
-    private static final String LOGDATA_ITEM_DELIMITER = "   ---- ";
-
+    /**
+     * Hands the message to the background log file writer, so the calling thread (often the
+     * serial IO callbacks or the UI thread) never formats or touches the file itself.
+     */
     private static void logAtLevel(LogLevel level, String tag, String msg) {
         if(!WRITE_LOGDATA_TO_FILE || LOGDATA_LEVEL_THRESHOLD.ordinal() < level.ordinal()) {
             return;
         }
-        PrintStream logDataOutStream = openLogDataOutputFile();
-        if(logDataOutStream == null) {
-            return;
-        }
-        String logTimeStamp = Utils.getTimestamp();
-        String logLevelDesc = level.name();
-        StringBuilder logDataBuilder = new StringBuilder();
-        Locale defaultLocale = BuildConfig.DEFAULT_LOCALE;
-        logDataBuilder.append(String.format(defaultLocale, "%s LOG ENTRY @ %s\n", LOGDATA_START_ENTRY_DELIMITER, logTimeStamp));
-        logDataBuilder.append(String.format(defaultLocale, "%s LEVEL %s / %s\n", LOGDATA_ITEM_DELIMITER, logLevelDesc, tag));
-        logDataBuilder.append(String.format(defaultLocale, wrapDataAt(msg)));
-        logDataBuilder.append(LOGDATA_END_ENTRY_DELIMITER);
-        logDataOutputStreamHandle.print(logDataBuilder.toString().getBytes(StandardCharsets.UTF_8));
-        logDataOutputStreamHandle.flush();
+        AndroidLogFileWriter.getInstance().enqueueMessage(level, tag, msg);
     }
 
     private static String formatLogTag(@NonNull String logTag) {
@@ -298,17 +206,7 @@ public class AndroidLogger {
         if(!WRITE_LOGDATA_TO_FILE) {
             return;
         }
-        PrintStream outStream = openLogDataOutputFile();
-        if(outStream != null) {
-            String excptTimeStamp = Utils.getTimestamp();
-            String excptMsgPrefix = String.format(BuildConfig.DEFAULT_LOCALE, "%s EXCEPTION STACK TRACE @ %s\n\n", LOGDATA_START_ENTRY_DELIMITER, excptTimeStamp);
-            outStream.print(excptMsgPrefix);
-            outStream.flush();
-            e.printStackTrace(outStream);
-            outStream.flush();
-            outStream.print(LOGDATA_START_ENTRY_DELIMITER);
-            outStream.flush();
-        }
+        AndroidLogFileWriter.getInstance().enqueueException(e);
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,374 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import android.content.res.Resources;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <h1>APDU Classifier</h1>
+ * Precompiled form of the APDU tables in res/raw that is used to label the log payloads.
+ * The CSV resources are read exactly once and stored as byte-indexed lookup arrays
+ * (CLA/INS and SW1/SW2 keys) plus a byte-mask trie for the rows of detailed_common_ins
+ * that contain "xx" wildcard bytes. Classifying a payload then only walks these tables,
+ * and the only object allocated per call is the result String (none at all when the labels
+ * are streamed out with appendLabels).
+ * The labels (and their order) are the same as the linear scans in ApduUtils.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ApduUtils.classifyApdu
+ */
+public class ApduClassifier {
+
+    private static final String TAG = ApduClassifier.class.getSimpleName();
+
+    private static final String LABEL_DELIM = ", ";
+    public static final String NO_APDU_LABEL = "NONE";
+
+    private static final String WILDCARD_BYTE = "xx";
+
+    /**
+     * Two-byte keyed tables (CLA/INS or SW1/SW2). The first index is the
+     * leading byte, the second level is only allocated for leading bytes present
+     * in the table. Each slot holds the pre-joined labels for that key.
+     */
+    private final String[][] desfireInsTable;
+    private final String[][] desfireStatusTable;
+    private final String[][] statusCodesTable;
+
+    /**
+     * The common_ins table is keyed by a single byte which can match either the
+     * INS or the CLS position of the payload, so the row numbers are kept to
+     * preserve the table order when both positions match.
+     */
+    private final String[] commonInsLabels;
+    private final int[][] commonInsRowsByByte;
+    private final String[] commonInsJoinedByByte;
+
+    /**
+     * Node of the compiled byte-mask trie over the detailed_common_ins rows.
+     * A row of N check bytes terminates at depth N, and matches any payload with
+     * at least N bytes whose prefix agrees on every non-wildcard position.
+     */
+    private static class MaskTrieNode {
+        MaskTrieNode[] exactChildren;
+        MaskTrieNode wildcardChild;
+        int[] terminalRows;
+    }
+
+    private final MaskTrieNode detailedInsTrie;
+    private final String[] detailedInsLabels;
+    private final int detailedInsBitmapWords;
+
+    /**
+     * Scratch bitmap used to collect the matching detailed rows in table order.
+     */
+    private final ThreadLocal<long[]> detailedMatchScratch;
+
+    private static ApduClassifier defaultInstance = null;
+
+    /**
+     * Returns the classifier compiled from the application raw resources, or null if the
+     * resources are not available yet.
+     * @return ApduClassifier shared instance
+     */
+    public static ApduClassifier getInstance() {
+        ApduClassifier classifier = defaultInstance;
+        if(classifier != null) {
+            return classifier;
+        }
+        synchronized(ApduClassifier.class) {
+            if(defaultInstance == null) {
+                try {
+                    Resources appResources = LiveLoggerActivity.defaultContext.getResources();
+                    defaultInstance = new ApduClassifier(
+                            Utils.readCSVFile(appResources.openRawResource(R.raw.desfire_ins)),
+                            Utils.readCSVFile(appResources.openRawResource(R.raw.desfire_status)),
+                            Utils.readCSVFile(appResources.openRawResource(R.raw.common_ins)),
+                            Utils.readCSVFile(appResources.openRawResource(R.raw.response_codes_status)),
+                            Utils.readCSVFile(appResources.openRawResource(R.raw.detailed_common_ins))
+                    );
+                } catch(NullPointerException npe) {
+                    AndroidLogger.printStackTrace(npe);
+                    return null;
+                } catch(IOException ioe) {
+                    AndroidLogger.printStackTrace(ioe);
+                    return null;
+                }
+            }
+            return defaultInstance;
+        }
+    }
+
+    /**
+     * Compiles a classifier from CSV streams in the res/raw table formats
+     * (for example, to classify a recorded corpus outside of the application).
+     * @throws IOException
+     */
+    public static ApduClassifier fromStreams(@NonNull InputStream desfireIns, @NonNull InputStream desfireStatus,
+                                             @NonNull InputStream commonIns, @NonNull InputStream statusCodes,
+                                             @NonNull InputStream detailedIns) throws IOException {
+        return new ApduClassifier(Utils.readCSVFile(desfireIns), Utils.readCSVFile(desfireStatus),
+                                  Utils.readCSVFile(commonIns), Utils.readCSVFile(statusCodes),
+                                  Utils.readCSVFile(detailedIns));
+    }
+
+    private ApduClassifier(List<String[]> desfireInsRows, List<String[]> desfireStatusRows,
+                           List<String[]> commonInsRows, List<String[]> statusCodesRows,
+                           List<String[]> detailedInsRows) {
+        desfireInsTable = compileTwoByteTable(desfireInsRows);
+        desfireStatusTable = compileTwoByteTable(desfireStatusRows);
+        statusCodesTable = compileTwoByteTable(statusCodesRows);
+
+        commonInsLabels = new String[commonInsRows.size()];
+        List<List<Integer>> rowsByByte = new ArrayList<List<Integer>>(256);
+        for(int b = 0; b < 256; b++) {
+            rowsByByte.add(null);
+        }
+        for(int row = 0; row < commonInsRows.size(); row++) {
+            String[] csvLine = commonInsRows.get(row);
+            int insKey = Utils.hexString2Byte(csvLine[0]) & 0xff;
+            commonInsLabels[row] = csvLine[1];
+            if(rowsByByte.get(insKey) == null) {
+                rowsByByte.set(insKey, new ArrayList<Integer>());
+            }
+            rowsByByte.get(insKey).add(row);
+        }
+        commonInsRowsByByte = new int[256][];
+        commonInsJoinedByByte = new String[256];
+        for(int b = 0; b < 256; b++) {
+            List<Integer> keyRows = rowsByByte.get(b);
+            if(keyRows == null) {
+                continue;
+            }
+            commonInsRowsByByte[b] = new int[keyRows.size()];
+            StringBuilder joinedLabels = new StringBuilder();
+            for(int r = 0; r < keyRows.size(); r++) {
+                commonInsRowsByByte[b][r] = keyRows.get(r);
+                if(r > 0) {
+                    joinedLabels.append(LABEL_DELIM);
+                }
+                joinedLabels.append(commonInsLabels[keyRows.get(r)]);
+            }
+            commonInsJoinedByByte[b] = joinedLabels.toString();
+        }
+
+        detailedInsLabels = new String[detailedInsRows.size()];
+        detailedInsTrie = new MaskTrieNode();
+        for(int row = 0; row < detailedInsRows.size(); row++) {
+            String[] csvLine = detailedInsRows.get(row);
+            int checkNumBytes = csvLine.length - 1;
+            detailedInsLabels[row] = csvLine[checkNumBytes];
+            MaskTrieNode curNode = detailedInsTrie;
+            for(int b = 0; b < checkNumBytes; b++) {
+                if(csvLine[b].equals(WILDCARD_BYTE)) {
+                    if(curNode.wildcardChild == null) {
+                        curNode.wildcardChild = new MaskTrieNode();
+                    }
+                    curNode = curNode.wildcardChild;
+                }
+                else {
+                    int byteKey = Utils.hexString2Byte(csvLine[b]) & 0xff;
+                    if(curNode.exactChildren == null) {
+                        curNode.exactChildren = new MaskTrieNode[256];
+                    }
+                    if(curNode.exactChildren[byteKey] == null) {
+                        curNode.exactChildren[byteKey] = new MaskTrieNode();
+                    }
+                    curNode = curNode.exactChildren[byteKey];
+                }
+            }
+            curNode.terminalRows = appendRow(curNode.terminalRows, row);
+        }
+        detailedInsBitmapWords = (detailedInsLabels.length + 63) / 64;
+        detailedMatchScratch = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                return new long[detailedInsBitmapWords];
+            }
+        };
+    }
+
+    private static String[][] compileTwoByteTable(List<String[]> csvLines) {
+        String[][] lookupTable = new String[256][];
+        for(int row = 0; row < csvLines.size(); row++) {
+            String[] csvLine = csvLines.get(row);
+            int firstByte = Utils.hexString2Byte(csvLine[0]) & 0xff;
+            int secondByte = Utils.hexString2Byte(csvLine[1]) & 0xff;
+            if(lookupTable[firstByte] == null) {
+                lookupTable[firstByte] = new String[256];
+            }
+            String prevLabels = lookupTable[firstByte][secondByte];
+            lookupTable[firstByte][secondByte] = prevLabels == null ? csvLine[2] : prevLabels + LABEL_DELIM + csvLine[2];
+        }
+        return lookupTable;
+    }
+
+    private static int[] appendRow(int[] rows, int nextRow) {
+        if(rows == null) {
+            return new int[] { nextRow };
+        }
+        int[] nextRows = new int[rows.length + 1];
+        System.arraycopy(rows, 0, nextRows, 0, rows.length);
+        nextRows[rows.length] = nextRow;
+        return nextRows;
+    }
+
+    private static String lookupTwoByteTable(String[][] lookupTable, byte firstByte, byte secondByte) {
+        String[] secondLevel = lookupTable[firstByte & 0xff];
+        return secondLevel == null ? null : secondLevel[secondByte & 0xff];
+    }
+
+    /**
+     * Attempts to classify log payload data as APDU commands (instructions and status codes).
+     * @param dataBytes
+     * @return String comma separated list of the recognized APDU labels, or "NONE"
+     */
+    public String classify(@NonNull byte[] dataBytes) {
+        StringBuilder apduList = new StringBuilder();
+        try {
+            appendLabels(dataBytes, dataBytes.length, apduList);
+        } catch(IOException ioe) {
+            /* Not thrown by StringBuilder */
+        }
+        return apduList.length() > 0 ? apduList.toString() : NO_APDU_LABEL;
+    }
+
+    /**
+     * Writes the comma separated labels of the first dataLength payload bytes to the output.
+     * The labels are the precompiled table entries, so no intermediate String is built (the
+     * exporters stream them straight into their write buffers).
+     * @param dataBytes
+     * @param dataLength Number of payload bytes at the start of dataBytes
+     * @param apduList
+     * @return int number of labels written (nothing is written when no APDU is recognized)
+     * @throws IOException
+     */
+    public int appendLabels(@NonNull byte[] dataBytes, int dataLength, @NonNull Appendable apduList) throws IOException {
+        int labelCount = 0;
+        if(dataLength >= 2) {
+            String desfireIns = lookupTwoByteTable(desfireInsTable, dataBytes[ApduUtils.CLSIDX], dataBytes[ApduUtils.INSIDX]);
+            if(desfireIns != null) {
+                labelCount = appendLabel(apduList, labelCount, desfireIns);
+            }
+            String desfireStatus = lookupTwoByteTable(desfireStatusTable, dataBytes[dataLength - 2], dataBytes[dataLength - 1]);
+            if(desfireStatus != null) {
+                labelCount = appendLabel(apduList, labelCount, desfireStatus);
+            }
+        }
+        labelCount = appendCommonInstructions(apduList, labelCount, dataBytes, dataLength);
+        if(dataLength >= 2) {
+            String statusCode = lookupTwoByteTable(statusCodesTable, dataBytes[dataLength - 2], dataBytes[dataLength - 1]);
+            if(statusCode != null) {
+                labelCount = appendLabel(apduList, labelCount, statusCode);
+            }
+        }
+        return appendDetailedInstructions(apduList, labelCount, dataBytes, dataLength);
+    }
+
+    private static int appendLabel(Appendable apduList, int labelCount, String label) throws IOException {
+        if(labelCount > 0) {
+            apduList.append(LABEL_DELIM);
+        }
+        apduList.append(label);
+        return labelCount + 1;
+    }
+
+    private int appendCommonInstructions(Appendable apduList, int labelCount, byte[] dataBytes, int dataLength) throws IOException {
+        int[] insRows = dataLength >= 2 ? commonInsRowsByByte[dataBytes[ApduUtils.INSIDX] & 0xff] : null;
+        int[] clsRows = (dataLength == 1 || dataLength == 2) ? commonInsRowsByByte[dataBytes[ApduUtils.CLSIDX] & 0xff] : null;
+        if(clsRows == insRows) {
+            clsRows = null;
+        }
+        if(insRows == null && clsRows == null) {
+            return labelCount;
+        }
+        else if(clsRows == null) {
+            return appendLabel(apduList, labelCount, commonInsJoinedByByte[dataBytes[ApduUtils.INSIDX] & 0xff]);
+        }
+        else if(insRows == null) {
+            return appendLabel(apduList, labelCount, commonInsJoinedByByte[dataBytes[ApduUtils.CLSIDX] & 0xff]);
+        }
+        /* Both byte positions match different keys: merge the rows back into table order */
+        int insPos = 0, clsPos = 0;
+        while(insPos < insRows.length || clsPos < clsRows.length) {
+            int nextRow;
+            if(clsPos >= clsRows.length || (insPos < insRows.length && insRows[insPos] < clsRows[clsPos])) {
+                nextRow = insRows[insPos++];
+            }
+            else {
+                nextRow = clsRows[clsPos++];
+            }
+            labelCount = appendLabel(apduList, labelCount, commonInsLabels[nextRow]);
+        }
+        return labelCount;
+    }
+
+    private int appendDetailedInstructions(Appendable apduList, int labelCount, byte[] dataBytes, int dataLength) throws IOException {
+        long[] matchedRows = detailedMatchScratch.get();
+        if(!markDetailedMatches(detailedInsTrie, dataBytes, dataLength, 0, matchedRows)) {
+            return labelCount;
+        }
+        try {
+            for(int word = 0; word < matchedRows.length; word++) {
+                long rowBits = matchedRows[word];
+                while(rowBits != 0) {
+                    int row = (word << 6) + Long.numberOfTrailingZeros(rowBits);
+                    labelCount = appendLabel(apduList, labelCount, detailedInsLabels[row]);
+                    rowBits &= rowBits - 1;
+                }
+            }
+        } finally {
+            /* Leave the scratch bitmap clear for the next call, even if the output failed */
+            Arrays.fill(matchedRows, 0L);
+        }
+        return labelCount;
+    }
+
+    private static boolean markDetailedMatches(MaskTrieNode curNode, byte[] dataBytes, int dataLength, int depth, long[] matchedRows) {
+        boolean foundMatch = false;
+        if(curNode.terminalRows != null) {
+            for(int row : curNode.terminalRows) {
+                matchedRows[row >>> 6] |= 1L << (row & 0x3f);
+            }
+            foundMatch = true;
+        }
+        if(depth >= dataLength) {
+            return foundMatch;
+        }
+        if(curNode.exactChildren != null) {
+            MaskTrieNode exactChild = curNode.exactChildren[dataBytes[depth] & 0xff];
+            if(exactChild != null) {
+                foundMatch |= markDetailedMatches(exactChild, dataBytes, dataLength, depth + 1, matchedRows);
+            }
+        }
+        if(curNode.wildcardChild != null) {
+            foundMatch |= markDetailedMatches(curNode.wildcardChild, dataBytes, dataLength, depth + 1, matchedRows);
+        }
+        return foundMatch;
+    }
+
+}
@@ -200,6 +200,25 @@ public class ApduUtils {
 
     /**
      * Attempts to classify log payload data as APDU commands (instructions and status codes).
+     * The lookups go through the precompiled tables in ApduClassifier, so the raw resources
+     * are only parsed once per application run.
+     * @param dataBytes
+     * @return String list of recognized APDU commands
+     * @ref ApduClassifier.classify
+     * @ref ApduUtils.classifyApduLinear
+     * @ref https://www.dropbox.com/s/bqrd6jzemwo4ux0/isoiec7816-4%7Bed2.0%7Den.pdf?dl=0
+     */
+    public static String classifyApdu(byte[] dataBytes) {
+        ApduClassifier apduClassifier = ApduClassifier.getInstance();
+        if(apduClassifier == null || dataBytes == null) {
+            return ApduClassifier.NO_APDU_LABEL;
+        }
+        return apduClassifier.classify(dataBytes);
+    }
+
+    /**
+     * Reference implementation that classifies the payload by re-reading and linearly
+     * scanning each of the raw resource tables (useful to cross-check ApduClassifier).
      * @param dataBytes
      * @return String list of recognized APDU commands
      * @ref ApduUtils.parseDesfireInstructions
@@ -207,9 +226,8 @@ public class ApduUtils {
      * @ref ApduUtils.parseCommonInstructions
      * @ref ApduUtils.parseStatusCodes
      * @ref ApduUtils.parseDetailedInstructions
-     * @ref https://www.dropbox.com/s/bqrd6jzemwo4ux0/isoiec7816-4%7Bed2.0%7Den.pdf?dl=0
      */
-    public static String classifyApdu(byte[] dataBytes) {
+    public static String classifyApduLinear(byte[] dataBytes) {
         List<String> apduClassifications = parseDesfireInstructions(dataBytes);
         apduClassifications.addAll(parseDesfireStatusCodes(dataBytes));
         apduClassifications.addAll(parseCommonInstructions(dataBytes));
@@ -255,10 +255,12 @@ public class BluetoothBLEInterface extends SerialIOReceiver {
         ChameleonIO.UPLOAD = false;
         ChameleonIO.WAITING_FOR_XMODEM = false;
         ChameleonIO.WAITING_FOR_RESPONSE = false;
+        ChameleonCommandPipeline.getInstance().cancelPendingCommands();
         ChameleonIO.EXPECTING_BINARY_DATA = false;
         ChameleonIO.LASTCMD = "";
         ChameleonIO.APPEND_PRIOR_BUFFER_DATA = false;
         ChameleonIO.PRIOR_BUFFER_DATA = new byte[0];
+        resetSerialFrameAssembler();
         activeDevice = null;
         serialConfigured = false;
         receiversRegistered = false;
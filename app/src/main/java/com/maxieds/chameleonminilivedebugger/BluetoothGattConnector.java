@@ -42,12 +42,17 @@ import androidx.annotation.NonNull;
 
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 public class BluetoothGattConnector extends BluetoothGattCallback {
 
@@ -114,7 +119,7 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
 
     private static final String BLUETOOTH_SYSTEM_SERVICE = Context.BLUETOOTH_SERVICE;
     private static final byte[] BLUETOOTH_GATT_ENABLE_NOTIFY_PROP = BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE;
-    private static final int BLUETOOTH_LOCAL_MTU_THRESHOLD = 56; // 244;
+    private static final int BLUETOOTH_REQUEST_MTU = BluetoothGattOperationQueue.GATT_MAX_MTU;
     private static final int BLUETOOTH_GATT_RSP_WRITE = 0x13;
     private static final int BLUETOOTH_GATT_RSP_EXEC_WRITE = 0x19;
     private static final int BLUETOOTH_GATT_ERROR = 0x85;
@@ -149,11 +154,8 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
 
     private static final long BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT = ChameleonIO.LOCK_TIMEOUT;
     private final Semaphore bleReadLock = new Semaphore(1, true);
-    private final Semaphore bleWriteLock = new Semaphore(1, true);
-
-    private final Semaphore bleRawLock = new Semaphore(1, true);
-    private boolean READ_DATA_RAW;
-    private byte[] READ_DATA_RAW_RESULT;
+    private final BluetoothGattOperationQueue gattOpQueue = new BluetoothGattOperationQueue();
+    private volatile CompletableFuture<byte[]> pendingRawResponse = null;
 
     private static BluetoothGattConnector activeInstance = null;
 
@@ -187,8 +189,7 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
         ctrlGattCharDesc = null;
         sendGattCharDesc = null;
         recvGattCharDesc = null;
-        READ_DATA_RAW = false;
-        READ_DATA_RAW_RESULT = null;
+        pendingRawResponse = null;
         activeInstance = this;
     }
 
@@ -340,6 +341,7 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
 
     @SuppressLint("MissingPermission")
     public boolean disconnectDevice() {
+        blePacketReassembler.reset();
         if (isDeviceConnected()) {
             btDevice = null;
             if (btGatt != null) {
@@ -374,8 +376,9 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
             stopBTDevicesFromAdapterPolling();
             btConnRecvRegistered = false;
             isConnected = false;
+            AndroidLogger.i(TAG, "BLE GATT operation stats: " + gattOpQueue.getStatisticsSummary());
+            gattOpQueue.cancelAllOperations();
             bleReadLock.release();
-            bleWriteLock.release();
             btSerialIface.shutdownSerial();
             return true;
         }
@@ -384,7 +387,6 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
 
     public void releaseAllLocks() {
         bleReadLock.release();
-        bleWriteLock.release();
     }
 
     private void initializeRestartCancelledBTDiscRuntime() {
@@ -541,6 +543,7 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
             if (btGatt == null) {
                 btGatt = gatt;
             }
+            blePacketReassembler.reset();
             configureGattConnector();
         }
     }
@@ -587,15 +590,49 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
         } catch (NullPointerException npe) {
             AndroidLogger.printStackTrace(npe);
         }
-        bleWriteLock.release();
+        gattOpQueue.onOperationComplete(BluetoothGattOperationQueue.OP_WRITE_DESCRIPTOR, status);
+    }
+
+    @Override
+    public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+        if (status != BluetoothGatt.GATT_SUCCESS) {
+            AndroidLogger.w(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "onCharacteristicWrite: error/status code %d = %04x", status, status));
+        }
+        gattOpQueue.onOperationComplete(BluetoothGattOperationQueue.OP_WRITE_CHARACTERISTIC, status);
     }
 
+    @Override
+    public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+        gattOpQueue.onMtuChanged(mtu, status);
+    }
+
+    private void onCharacteristicDataReceived(byte[] charData) {
+        CompletableFuture<byte[]> rawRespFuture = pendingRawResponse;
+        if (charData == null) {
+            return;
+        } else if (rawRespFuture != null && rawRespFuture.complete(charData.clone())) {
+            pendingRawResponse = null;
+        } else if (bleReadLock.availablePermits() == 0) {
+            blePacketReassembler.appendData(charData, serialDataPacketConsumer);
+        }
+    }
+
+    private final BluetoothUtils.BLEPacket.PacketReassembler blePacketReassembler = new BluetoothUtils.BLEPacket.PacketReassembler();
+
+    private final BluetoothUtils.BLEPacket.PacketConsumer serialDataPacketConsumer = new BluetoothUtils.BLEPacket.PacketConsumer() {
+        @Override
+        public void onPacketDecoded(byte command, ByteBuffer payload) {
+            byte[] serialDataRead = new byte[payload.remaining()];
+            payload.get(serialDataRead);
+            notifyBluetoothSerialInterfaceDataRead(serialDataRead);
+        }
+    };
+
     @SuppressLint("MissingPermission")
     @Override
     public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
         byte[] charData = null;
         try {
-            gatt.readCharacteristic(characteristic);
             charData = characteristic.getValue();
             AndroidLogger.d(TAG, String.format(BuildConfig.DEFAULT_LOCALE,
                     "onCharacteristicChanged: readCharacteristic: %s WITH DATA %s",
@@ -603,21 +640,7 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
         } catch (Exception seNPE) {
             AndroidLogger.printStackTrace(seNPE);
         }
-        if (charData != null && bleReadLock.availablePermits() == 0) {
-            try {
-                if (bleRawLock.tryAcquire(BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT, TimeUnit.MILLISECONDS) && READ_DATA_RAW) {
-                    READ_DATA_RAW_RESULT = charData;
-                    READ_DATA_RAW = false;
-                    bleRawLock.release();
-                } else {
-                    notifyBluetoothSerialInterfaceDataRead(BluetoothUtils.BLEPacket.unpackageData(charData));
-                }
-            } catch(InterruptedException ie) {
-                AndroidLogger.printStackTrace(ie);
-                notifyBluetoothSerialInterfaceDataRead(BluetoothUtils.BLEPacket.unpackageData(charData));
-            }
-        }
-        bleRawLock.release();
+        onCharacteristicDataReceived(charData);
         bleReadLock.release();
     }
 
@@ -626,35 +649,22 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
     public void onCharacteristicRead(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
         if (status == BLUETOOTH_GATT_ERROR) {
             AndroidLogger.i(TAG, "onCharacteristicRead: status BLUETOOTH_GATT_ERROR");
+            gattOpQueue.onOperationComplete(BluetoothGattOperationQueue.OP_READ_CHARACTERISTIC, status);
             bleReadLock.release();
             insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
             return;
         }
+        gattOpQueue.onOperationComplete(BluetoothGattOperationQueue.OP_READ_CHARACTERISTIC, status);
         byte[] charData = null;
         try {
-            gatt.readCharacteristic(characteristic);
             charData = characteristic.getValue();
             AndroidLogger.d(TAG, String.format(BuildConfig.DEFAULT_LOCALE,
-                    "onCharacteristicChanged: readCharacteristic: %s WITH DATA %s",
+                    "onCharacteristicRead: readCharacteristic: %s WITH DATA %s",
                     characteristic.getUuid().toString(), new String(charData)));
         } catch (Exception seNPE) {
             AndroidLogger.printStackTrace(seNPE);
         }
-        if (charData != null && bleReadLock.availablePermits() == 0) {
-            try {
-                if (bleRawLock.tryAcquire(BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT, TimeUnit.MILLISECONDS) && READ_DATA_RAW) {
-                    READ_DATA_RAW_RESULT = charData;
-                    READ_DATA_RAW = false;
-                    bleRawLock.release();
-                } else {
-                    notifyBluetoothSerialInterfaceDataRead(BluetoothUtils.BLEPacket.unpackageData(charData));
-                }
-            } catch(InterruptedException ie) {
-                AndroidLogger.printStackTrace(ie);
-                notifyBluetoothSerialInterfaceDataRead(BluetoothUtils.BLEPacket.unpackageData(charData));
-            }
-        }
-        bleRawLock.release();
+        onCharacteristicDataReceived(charData);
         bleReadLock.release();
     }
 
@@ -683,7 +693,7 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
             AndroidLogger.w(TAG, "!!! Unable to fetch UUID list with BT device SDP.");
         }
         if (btGatt != null) {
-            btGatt.requestMtu(BLUETOOTH_LOCAL_MTU_THRESHOLD);
+            gattOpQueue.enqueueRequestMtu(btGatt, BLUETOOTH_REQUEST_MTU);
             requestConnectionPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
             //btGatt.readRemoteRssi();
             if (discoverServicesHandler == null) {
@@ -755,14 +765,11 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
     private boolean enableNotifyOnBLEGattService(BluetoothGatt gatt) {
         try {
             gatt.setCharacteristicNotification(ctrlGattChar, true);
-            ctrlGattCharDesc.setValue(BLUETOOTH_GATT_ENABLE_NOTIFY_PROP);
-            gatt.writeDescriptor(ctrlGattCharDesc);
+            gattOpQueue.enqueueWriteDescriptor(gatt, ctrlGattCharDesc, BLUETOOTH_GATT_ENABLE_NOTIFY_PROP);
             gatt.setCharacteristicNotification(sendGattChar, true);
-            sendGattCharDesc.setValue(BLUETOOTH_GATT_ENABLE_NOTIFY_PROP);
-            gatt.writeDescriptor(sendGattCharDesc);
+            gattOpQueue.enqueueWriteDescriptor(gatt, sendGattCharDesc, BLUETOOTH_GATT_ENABLE_NOTIFY_PROP);
             gatt.setCharacteristicNotification(recvGattChar, true);
-            recvGattCharDesc.setValue(BLUETOOTH_GATT_ENABLE_NOTIFY_PROP);
-            gatt.writeDescriptor(recvGattCharDesc);
+            gattOpQueue.enqueueWriteDescriptor(gatt, recvGattCharDesc, BLUETOOTH_GATT_ENABLE_NOTIFY_PROP);
         } catch (SecurityException se) {
             AndroidLogger.printStackTrace(se);
             return false;
@@ -793,110 +800,93 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
         return false;
     }
 
-    @SuppressLint("MissingPermission")
+    private static int getGattWriteType(@NonNull BluetoothGattCharacteristic gattChar) {
+        if ((gattChar.getProperties() & BluetoothGattCharacteristic.PROPERTY_WRITE_NO_RESPONSE) != 0) {
+            return BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+        }
+        return BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT;
+    }
+
+    /**
+     * Queues the data as one or more BLE packets sized to the negotiated MTU. Write without
+     * response is used when the Chameleon characteristic allows it, so the packets are
+     * pipelined by the GATT operation queue. The future completes with GATT_SUCCESS or the
+     * first failing GATT status once every packet has been handed to the device.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Integer> writeAsync(byte[] dataBuf) {
+        byte[][] blePackets = BluetoothUtils.BLEPacket.packageFragments(dataBuf, gattOpQueue.getMaxWritePayloadSize());
+        int writeType = getGattWriteType(sendGattChar);
+        final CompletableFuture<Integer>[] packetFutures = new CompletableFuture[blePackets.length];
+        for (int pidx = 0; pidx < blePackets.length; pidx++) {
+            packetFutures[pidx] = gattOpQueue.enqueueWriteCharacteristic(btGatt, sendGattChar, blePackets[pidx], writeType);
+        }
+        return CompletableFuture.allOf(packetFutures).thenApply(new Function<Void, Integer>() {
+            @Override
+            public Integer apply(Void allDone) {
+                for (CompletableFuture<Integer> packetFuture : packetFutures) {
+                    int gattStatus = packetFuture.join();
+                    if (gattStatus != BluetoothGatt.GATT_SUCCESS) {
+                        return gattStatus;
+                    }
+                }
+                return BluetoothGatt.GATT_SUCCESS;
+            }
+        });
+    }
+
     public int write(byte[] dataBuf) throws IOException {
         AndroidLogger.d(TAG, "write: " + Utils.bytes2Hex(dataBuf));
-        if (dataBuf.length > BLUETOOTH_LOCAL_MTU_THRESHOLD) {
-            return ChameleonSerialIOInterface.STATUS_ERROR;
-        }
         if ((btGatt == null || sendGattChar == null) && !configureGattConnector()) {
             return ChameleonSerialIOInterface.STATUS_RESOURCE_UNAVAILABLE;
-        } else if (!sendGattChar.setValue(BluetoothUtils.BLEPacket.packageData(dataBuf))) {
-            return ChameleonSerialIOInterface.STATUS_ERROR;
         }
         try {
-            if (bleWriteLock.tryAcquire(BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT, TimeUnit.MILLISECONDS)) {
-                btGatt.writeCharacteristic(sendGattChar);
-            } else {
-                AndroidLogger.w(TAG, "Cannot acquire BT BLE read lock for operation");
-                bleWriteLock.release();
-                insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
-                return ChameleonSerialIOInterface.STATUS_RESOURCE_UNAVAILABLE;
+            int gattStatus = writeAsync(dataBuf).get(ChameleonIO.TIMEOUT + BluetoothGattOperationQueue.OPERATION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            if (gattStatus != BluetoothGatt.GATT_SUCCESS) {
+                AndroidLogger.w(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "write: error/status code %d = %04x", gattStatus, gattStatus));
+                return ChameleonSerialIOInterface.STATUS_ERROR;
             }
-        } catch(SecurityException se) {
-            AndroidLogger.printStackTrace(se);
-            disconnectDevice();
-            bleWriteLock.release();
+        } catch(ExecutionException | TimeoutException writeEx) {
+            AndroidLogger.printStackTrace(writeEx);
             insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
-            return ChameleonSerialIOInterface.STATUS_RESOURCE_PERMISSIONS_ERROR;
+            return ChameleonSerialIOInterface.STATUS_RESOURCE_UNAVAILABLE;
         } catch(InterruptedException ie) {
             AndroidLogger.printStackTrace(ie);
-            bleWriteLock.release();
             insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
             return ChameleonSerialIOInterface.STATUS_RESOURCE_UNAVAILABLE;
         }
         return ChameleonSerialIOInterface.STATUS_OK;
     }
 
-    @SuppressLint("MissingPermission")
     public byte[] rawWrite(byte[] dataBuf) throws IOException {
-        AndroidLogger.d(TAG, "write: " + Utils.bytes2Hex(dataBuf));
-        if (dataBuf.length > BLUETOOTH_LOCAL_MTU_THRESHOLD) {
+        AndroidLogger.d(TAG, "rawWrite: " + Utils.bytes2Hex(dataBuf));
+        if ((btGatt == null || ctrlGattChar == null) && !configureGattConnector()) {
             return null;
-        }
-        if ((btGatt == null || sendGattChar == null) && !configureGattConnector()) {
-            return null;
-        } else if (!ctrlGattChar.setValue(dataBuf)) {
+        } else if (dataBuf.length > gattOpQueue.getMaxWritePayloadSize()) {
             return null;
         }
+        CompletableFuture<byte[]> rawRespFuture = new CompletableFuture<byte[]>();
+        pendingRawResponse = rawRespFuture;
         try {
-            if (bleRawLock.tryAcquire(BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT, TimeUnit.MILLISECONDS)) {
-                READ_DATA_RAW = true;
-                READ_DATA_RAW_RESULT = null;
-                bleRawLock.release();
-            } else {
+            int gattStatus = gattOpQueue.enqueueWriteCharacteristic(btGatt, ctrlGattChar, dataBuf, getGattWriteType(ctrlGattChar))
+                    .get(ChameleonIO.TIMEOUT, TimeUnit.MILLISECONDS);
+            if (gattStatus != BluetoothGatt.GATT_SUCCESS) {
                 return null;
             }
-            if (bleWriteLock.tryAcquire(BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT, TimeUnit.MILLISECONDS) &&
-                    bleReadLock.tryAcquire(BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT, TimeUnit.MILLISECONDS)) {
-                btGatt.writeCharacteristic(ctrlGattChar);
-            } else {
-                AndroidLogger.w(TAG, "Cannot acquire BT BLE read lock for operation");
-                bleReadLock.release();
-                bleWriteLock.release();
-                insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
-                return null;
-            }
-        } catch(SecurityException se) {
-            AndroidLogger.printStackTrace(se);
-            disconnectDevice();
-            bleReadLock.release();
-            bleRawLock.release();
-            bleWriteLock.release();
-            insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
+            return rawRespFuture.get(ChameleonIO.TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch(ExecutionException | TimeoutException rawWriteEx) {
+            AndroidLogger.printStackTrace(rawWriteEx);
             return null;
         } catch(InterruptedException ie) {
             AndroidLogger.printStackTrace(ie);
-            bleReadLock.release();
-            bleRawLock.release();
-            bleWriteLock.release();
-            insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
             return null;
-        }
-        for (long tmtSoFar = 0L; tmtSoFar < ChameleonIO.TIMEOUT; tmtSoFar += 50L) {
-            try {
-                if (bleRawLock.tryAcquire(BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT, TimeUnit.MILLISECONDS)) {
-                    if (READ_DATA_RAW_RESULT != null) {
-                        READ_DATA_RAW = false;
-                        byte[] dataRespBytes = READ_DATA_RAW_RESULT.clone();
-                        bleRawLock.release();
-                        return dataRespBytes;
-                    }
-                    bleRawLock.release();
-                }
-                Thread.sleep(50L);
-            } catch (InterruptedException ie) {
-                AndroidLogger.printStackTrace(ie);
-                break;
+        } finally {
+            if (pendingRawResponse == rawRespFuture) {
+                pendingRawResponse = null;
             }
         }
-        READ_DATA_RAW = false;
-        bleReadLock.release();
-        bleWriteLock.release();
-        return null;
     }
 
-    @SuppressLint("MissingPermission")
     public int read() throws IOException {
         if ((btGatt == null || recvGattChar == null) && !configureGattConnector()) {
             AndroidLogger.w(TAG, "read: Unable to obtain recv char charactristic.");
@@ -905,19 +895,13 @@ public class BluetoothGattConnector extends BluetoothGattCallback {
         }
         try {
             if (bleReadLock.tryAcquire(BLE_READ_WRITE_OPERATION_TRYLOCK_TIMEOUT, TimeUnit.MILLISECONDS)) {
-                btGatt.readCharacteristic(recvGattChar);
+                gattOpQueue.enqueueReadCharacteristic(btGatt, recvGattChar);
             } else {
                 AndroidLogger.w(TAG, "Cannot acquire BT BLE read lock for operation");
                 bleReadLock.release();
                 insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
                 return ChameleonSerialIOInterface.STATUS_RESOURCE_UNAVAILABLE;
             }
-        } catch(SecurityException se) {
-            AndroidLogger.printStackTrace(se);
-            disconnectDevice();
-            bleReadLock.release();
-            insertBluetoothSerialInterfaceTerminalResponse(ChameleonIO.SerialRespCode.TIMEOUT);
-            return ChameleonSerialIOInterface.STATUS_RESOURCE_PERMISSIONS_ERROR;
         } catch(InterruptedException ie) {
             AndroidLogger.printStackTrace(ie);
             bleReadLock.release();
@@ -0,0 +1,398 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+
+package com.maxieds.chameleonminilivedebugger;
+
+import android.annotation.SuppressLint;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <h1>Bluetooth GATT Operation Queue</h1>
+ * The Android GATT client only accepts one outstanding operation per connection: a second
+ * write, read, descriptor write or MTU request issued before the callback for the first one
+ * is rejected (the call returns false). This queue owns the BluetoothGatt handle for those
+ * operations. Callers enqueue the operation and get a future that completes with the GATT
+ * status when the matching BluetoothGattCallback method reports back, and the next
+ * operation is issued directly from that callback.
+ *
+ * Writes of type WRITE_TYPE_NO_RESPONSE are pipelined: up to WRITE_NO_RESPONSE_WINDOW of
+ * them may be handed to the stack before the first callback returns. If the stack reports
+ * that it is busy, the write stays at the head of the queue and is retried when the next
+ * callback arrives, so the window shrinks to whatever the platform allows. Every issued
+ * operation is guarded by a watchdog that fails it after OPERATION_TIMEOUT_MILLIS, so a
+ * lost callback cannot wedge the queue.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref BluetoothGattConnector
+ * @ref BluetoothUtils.BLEPacket.packageFragments
+ */
+public class BluetoothGattOperationQueue {
+
+    private static final String TAG = BluetoothGattOperationQueue.class.getSimpleName();
+
+    public static final int OP_WRITE_CHARACTERISTIC = 1;
+    public static final int OP_WRITE_DESCRIPTOR = 2;
+    public static final int OP_READ_CHARACTERISTIC = 3;
+    public static final int OP_REQUEST_MTU = 4;
+
+    private static final String[] OPERATION_NAMES = { "NONE", "WRITE_CHAR", "WRITE_DESC", "READ_CHAR", "REQUEST_MTU" };
+
+    public static final int GATT_DEFAULT_MTU = 23;
+    public static final int GATT_MAX_MTU = 517;
+    public static final int ATT_WRITE_HEADER_SIZE = 3;
+    public static final int WRITE_NO_RESPONSE_WINDOW = 4;
+    public static final long OPERATION_TIMEOUT_MILLIS = ChameleonIO.BLE_GATT_CHAR_WRITE_TIMEOUT;
+    private static final long BUSY_RETRY_DELAY_MILLIS = 5L;
+
+    private static final int ISSUE_OK = 0;
+    private static final int ISSUE_BUSY = 1;
+    private static final int ISSUE_FAILED = 2;
+
+    private static class GattOperation {
+        int opType;
+        BluetoothGatt btGatt;
+        BluetoothGattCharacteristic gattChar;
+        BluetoothGattDescriptor gattDesc;
+        byte[] opValue;
+        int writeType;
+        long issueTimeNanos;
+        long firstRefusedNanos;
+        final CompletableFuture<Integer> resultFuture = new CompletableFuture<Integer>();
+
+        boolean isWindowedWrite() {
+            return opType == OP_WRITE_CHARACTERISTIC && writeType == BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE;
+        }
+    }
+
+    private static class OperationResult {
+        final GattOperation gattOp;
+        final int gattStatus;
+        final Throwable failureCause;
+        OperationResult(GattOperation op, int status, Throwable cause) {
+            gattOp = op;
+            gattStatus = status;
+            failureCause = cause;
+        }
+    }
+
+    private final Object queueLock = new Object();
+    private final ArrayDeque<GattOperation> pendingOps = new ArrayDeque<GattOperation>();
+    private final ArrayDeque<GattOperation> inflightOps = new ArrayDeque<GattOperation>();
+    private int negotiatedMtu = GATT_DEFAULT_MTU;
+    private final Handler watchdogHandler;
+    private boolean retryScheduled = false;
+
+    private long completedCount = 0;
+    private long failedCount = 0;
+    private long timeoutCount = 0;
+    private long busyRetryCount = 0;
+    private long bytesWritten = 0;
+    private int maxInflightCount = 0;
+
+    private final Runnable operationTimeoutRunner = new Runnable() {
+        @Override
+        public void run() {
+            onOperationTimeout();
+        }
+    };
+
+    private final Runnable busyRetryRunner = new Runnable() {
+        @Override
+        public void run() {
+            synchronized(queueLock) {
+                retryScheduled = false;
+            }
+            issuePendingOperations();
+        }
+    };
+
+    public BluetoothGattOperationQueue() {
+        watchdogHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public CompletableFuture<Integer> enqueueWriteCharacteristic(@NonNull BluetoothGatt btGatt, @NonNull BluetoothGattCharacteristic gattChar,
+                                                                 @NonNull byte[] charValue, int writeType) {
+        GattOperation gattOp = new GattOperation();
+        gattOp.opType = OP_WRITE_CHARACTERISTIC;
+        gattOp.btGatt = btGatt;
+        gattOp.gattChar = gattChar;
+        gattOp.opValue = charValue;
+        gattOp.writeType = writeType;
+        return enqueueOperation(gattOp);
+    }
+
+    public CompletableFuture<Integer> enqueueWriteDescriptor(@NonNull BluetoothGatt btGatt, @NonNull BluetoothGattDescriptor gattDesc, @NonNull byte[] descValue) {
+        GattOperation gattOp = new GattOperation();
+        gattOp.opType = OP_WRITE_DESCRIPTOR;
+        gattOp.btGatt = btGatt;
+        gattOp.gattDesc = gattDesc;
+        gattOp.opValue = descValue;
+        return enqueueOperation(gattOp);
+    }
+
+    public CompletableFuture<Integer> enqueueReadCharacteristic(@NonNull BluetoothGatt btGatt, @NonNull BluetoothGattCharacteristic gattChar) {
+        GattOperation gattOp = new GattOperation();
+        gattOp.opType = OP_READ_CHARACTERISTIC;
+        gattOp.btGatt = btGatt;
+        gattOp.gattChar = gattChar;
+        return enqueueOperation(gattOp);
+    }
+
+    /**
+     * Asks for the largest ATT MTU the peer will accept. The negotiated value is picked up
+     * in onMtuChanged and bounds the size of the packets returned by getMaxWritePayloadSize.
+     */
+    public CompletableFuture<Integer> enqueueRequestMtu(@NonNull BluetoothGatt btGatt, int requestedMtu) {
+        GattOperation gattOp = new GattOperation();
+        gattOp.opType = OP_REQUEST_MTU;
+        gattOp.btGatt = btGatt;
+        gattOp.writeType = requestedMtu;
+        return enqueueOperation(gattOp);
+    }
+
+    private CompletableFuture<Integer> enqueueOperation(GattOperation gattOp) {
+        synchronized(queueLock) {
+            pendingOps.addLast(gattOp);
+        }
+        issuePendingOperations();
+        return gattOp.resultFuture;
+    }
+
+    public int getNegotiatedMtu() {
+        synchronized(queueLock) {
+            return negotiatedMtu;
+        }
+    }
+
+    /**
+     * Largest value that fits in a single ATT write request at the negotiated MTU.
+     */
+    public int getMaxWritePayloadSize() {
+        return getNegotiatedMtu() - ATT_WRITE_HEADER_SIZE;
+    }
+
+    public void onMtuChanged(int mtu, int status) {
+        if (status == BluetoothGatt.GATT_SUCCESS && mtu >= GATT_DEFAULT_MTU) {
+            synchronized(queueLock) {
+                negotiatedMtu = mtu;
+            }
+            AndroidLogger.i(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Negotiated BLE ATT MTU = %d bytes", mtu));
+        } else {
+            AndroidLogger.w(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "MTU request failed: status %d (mtu %d)", status, mtu));
+        }
+        onOperationComplete(OP_REQUEST_MTU, status);
+    }
+
+    /**
+     * Called from the BluetoothGattCallback method that matches the operation type. Completes
+     * the oldest in-flight operation of that type and issues whatever can go out next.
+     */
+    public void onOperationComplete(int opType, int gattStatus) {
+        GattOperation completedOp = null;
+        synchronized(queueLock) {
+            Iterator<GattOperation> inflightIter = inflightOps.iterator();
+            while (inflightIter.hasNext()) {
+                GattOperation gattOp = inflightIter.next();
+                if (gattOp.opType == opType) {
+                    inflightIter.remove();
+                    completedOp = gattOp;
+                    break;
+                }
+            }
+            if (completedOp == null) {
+                AndroidLogger.d(TAG, "Unsolicited GATT callback for operation " + OPERATION_NAMES[opType]);
+                return;
+            }
+            if (gattStatus == BluetoothGatt.GATT_SUCCESS) {
+                ++completedCount;
+                if (completedOp.opType == OP_WRITE_CHARACTERISTIC) {
+                    bytesWritten += completedOp.opValue.length;
+                }
+            } else {
+                ++failedCount;
+            }
+            rearmWatchdog();
+        }
+        completedOp.resultFuture.complete(gattStatus);
+        issuePendingOperations();
+    }
+
+    /**
+     * Fails every queued and in-flight operation, e.g., when the device disconnects.
+     */
+    public void cancelAllOperations() {
+        List<GattOperation> cancelledOps = new ArrayList<GattOperation>();
+        synchronized(queueLock) {
+            cancelledOps.addAll(inflightOps);
+            cancelledOps.addAll(pendingOps);
+            inflightOps.clear();
+            pendingOps.clear();
+            negotiatedMtu = GATT_DEFAULT_MTU;
+            retryScheduled = false;
+            watchdogHandler.removeCallbacks(operationTimeoutRunner);
+            watchdogHandler.removeCallbacks(busyRetryRunner);
+        }
+        for (GattOperation gattOp : cancelledOps) {
+            gattOp.resultFuture.completeExceptionally(new CancellationException("BLE GATT connection closed"));
+        }
+    }
+
+    private void issuePendingOperations() {
+        List<OperationResult> failedOps = new ArrayList<OperationResult>();
+        synchronized(queueLock) {
+            while (!pendingOps.isEmpty()) {
+                GattOperation nextOp = pendingOps.peekFirst();
+                if (!inflightOps.isEmpty()) {
+                    /* Only no-response writes may overlap, and only up to the window size */
+                    if (!nextOp.isWindowedWrite() || !inflightOps.peekLast().isWindowedWrite() ||
+                            inflightOps.size() >= WRITE_NO_RESPONSE_WINDOW) {
+                        break;
+                    }
+                }
+                int issueStatus = issueOperation(nextOp);
+                if (issueStatus == ISSUE_BUSY) {
+                    ++busyRetryCount;
+                    if (inflightOps.isEmpty() && !retryScheduled) {
+                        retryScheduled = true;
+                        watchdogHandler.postDelayed(busyRetryRunner, BUSY_RETRY_DELAY_MILLIS);
+                    }
+                    break;
+                }
+                pendingOps.pollFirst();
+                if (issueStatus == ISSUE_FAILED) {
+                    ++failedCount;
+                    failedOps.add(new OperationResult(nextOp, BluetoothGatt.GATT_FAILURE, null));
+                    continue;
+                }
+                nextOp.issueTimeNanos = System.nanoTime();
+                inflightOps.addLast(nextOp);
+                maxInflightCount = Math.max(maxInflightCount, inflightOps.size());
+                if (inflightOps.size() == 1) {
+                    rearmWatchdog();
+                }
+            }
+        }
+        for (OperationResult opResult : failedOps) {
+            opResult.gattOp.resultFuture.complete(opResult.gattStatus);
+        }
+    }
+
+    @SuppressLint("MissingPermission")
+    private int issueOperation(GattOperation gattOp) {
+        boolean opStarted;
+        try {
+            switch (gattOp.opType) {
+                case OP_WRITE_CHARACTERISTIC:
+                    gattOp.gattChar.setWriteType(gattOp.writeType);
+                    if (!gattOp.gattChar.setValue(gattOp.opValue)) {
+                        return ISSUE_FAILED;
+                    }
+                    opStarted = gattOp.btGatt.writeCharacteristic(gattOp.gattChar);
+                    break;
+                case OP_WRITE_DESCRIPTOR:
+                    if (!gattOp.gattDesc.setValue(gattOp.opValue)) {
+                        return ISSUE_FAILED;
+                    }
+                    opStarted = gattOp.btGatt.writeDescriptor(gattOp.gattDesc);
+                    break;
+                case OP_READ_CHARACTERISTIC:
+                    opStarted = gattOp.btGatt.readCharacteristic(gattOp.gattChar);
+                    break;
+                case OP_REQUEST_MTU:
+                    opStarted = gattOp.btGatt.requestMtu(gattOp.writeType);
+                    break;
+                default:
+                    return ISSUE_FAILED;
+            }
+        } catch (SecurityException se) {
+            AndroidLogger.printStackTrace(se);
+            return ISSUE_FAILED;
+        }
+        if (opStarted) {
+            return ISSUE_OK;
+        }
+        /* The stack refuses a new operation while it is still busy with the last one (which
+         * may belong to another client of the same connection), so retry the refused
+         * operation until it has been refused for longer than the operation timeout. */
+        long nowNanos = System.nanoTime();
+        if (gattOp.firstRefusedNanos == 0L) {
+            gattOp.firstRefusedNanos = nowNanos;
+        } else if (TimeUnit.NANOSECONDS.toMillis(nowNanos - gattOp.firstRefusedNanos) >= OPERATION_TIMEOUT_MILLIS) {
+            return ISSUE_FAILED;
+        }
+        return ISSUE_BUSY;
+    }
+
+    private void rearmWatchdog() {
+        watchdogHandler.removeCallbacks(operationTimeoutRunner);
+        GattOperation oldestOp = inflightOps.peekFirst();
+        if (oldestOp != null) {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldestOp.issueTimeNanos);
+            watchdogHandler.postDelayed(operationTimeoutRunner, Math.max(0L, OPERATION_TIMEOUT_MILLIS - elapsedMillis));
+        }
+    }
+
+    private void onOperationTimeout() {
+        List<GattOperation> expiredOps = new ArrayList<GattOperation>();
+        synchronized(queueLock) {
+            long nowNanos = System.nanoTime();
+            while (!inflightOps.isEmpty()) {
+                GattOperation oldestOp = inflightOps.peekFirst();
+                if (TimeUnit.NANOSECONDS.toMillis(nowNanos - oldestOp.issueTimeNanos) < OPERATION_TIMEOUT_MILLIS) {
+                    break;
+                }
+                expiredOps.add(inflightOps.pollFirst());
+                ++timeoutCount;
+            }
+            rearmWatchdog();
+        }
+        for (GattOperation gattOp : expiredOps) {
+            AndroidLogger.w(TAG, "Timed out waiting for the GATT callback of operation " + OPERATION_NAMES[gattOp.opType]);
+            gattOp.resultFuture.completeExceptionally(new TimeoutException(OPERATION_NAMES[gattOp.opType]));
+        }
+        if (!expiredOps.isEmpty()) {
+            issuePendingOperations();
+        }
+    }
+
+    public String getStatisticsSummary() {
+        synchronized(queueLock) {
+            return String.format(BuildConfig.DEFAULT_LOCALE,
+                    "mtu=%d completed=%d failed=%d timeouts=%d busyRetries=%d bytesWritten=%d maxInflight=%d pending=%d",
+                    negotiatedMtu, completedCount, failedCount, timeoutCount, busyRetryCount, bytesWritten,
+                    maxInflightCount, pendingOps.size());
+        }
+    }
+
+}
@@ -30,9 +30,11 @@ import android.os.Build;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 
+import androidx.annotation.NonNull;
 import androidx.appcompat.app.AlertDialog;
 import androidx.core.app.ActivityCompat;
 
+import java.nio.ByteBuffer;
 import java.util.Locale;
 
 public class BluetoothUtils {
@@ -294,37 +296,142 @@ public class BluetoothUtils {
             UNPACK
         }
 
-        public static class BlePacketHeader {
+        public static final int PACKET_HEADER_SIZE = 4;
+        public static final int MAX_PACKET_PAYLOAD_SIZE = 0xff;
 
-            private byte sign;
-            private byte command;
-            private byte length;
-            private byte status;
+        private static final int HEADER_SIGN_OFFSET = 0;
+        private static final int HEADER_COMMAND_OFFSET = 1;
+        private static final int HEADER_LENGTH_OFFSET = 2;
+        private static final int HEADER_STATUS_OFFSET = 3;
 
-            public BlePacketHeader() {
-                sign = CMD_HEAD_SIGN;
-                command = CMD_UART_RXTX;
-                length = 0x00;
-                status = 0x00;
+        /**
+         * Receives the packets found by decodePackets. The payload buffer is a read-only view
+         * into the caller's buffer (no copy), so it is only valid for the duration of the call.
+         */
+        public interface PacketConsumer {
+            void onPacketDecoded(byte command, ByteBuffer payload);
+        }
+
+        /**
+         * Fills in the header [sign, command, length, status] of a packet whose payload was
+         * already written to pkt right after the PACKET_HEADER_SIZE bytes reserved at pktStart,
+         * so the payload never has to be copied. The status byte is chosen so that all of the
+         * bytes in the packet sum to zero (mod 256), which is the check done by the firmware.
+         */
+        public static void sealPacket(@NonNull ByteBuffer pkt, int pktStart, byte command, int payloadLength) {
+            byte checksum = (byte) (CMD_HEAD_SIGN + command + payloadLength);
+            for (int bidx = pktStart + PACKET_HEADER_SIZE; bidx < pktStart + PACKET_HEADER_SIZE + payloadLength; bidx++) {
+                checksum += pkt.get(bidx);
             }
+            pkt.put(pktStart + HEADER_SIGN_OFFSET, CMD_HEAD_SIGN);
+            pkt.put(pktStart + HEADER_COMMAND_OFFSET, command);
+            pkt.put(pktStart + HEADER_LENGTH_OFFSET, (byte) payloadLength);
+            pkt.put(pktStart + HEADER_STATUS_OFFSET, (byte) (0x00 - checksum));
+        }
 
-            BlePacketHeader setCommand(byte cmd) {
-                command = cmd;
-                return this;
+        /**
+         * Writes one packet carrying the remaining bytes of payload at the position of dst and
+         * advances both buffers.
+         * @return The number of bytes written, or -1 if the payload does not fit
+         */
+        public static int encodePacket(@NonNull ByteBuffer dst, byte command, @NonNull ByteBuffer payload) {
+            int payloadLength = payload.remaining();
+            if (payloadLength > MAX_PACKET_PAYLOAD_SIZE || dst.remaining() < PACKET_HEADER_SIZE + payloadLength) {
+                return -1;
             }
+            int pktStart = dst.position();
+            dst.position(pktStart + PACKET_HEADER_SIZE);
+            dst.put(payload);
+            sealPacket(dst, pktStart, command, payloadLength);
+            return PACKET_HEADER_SIZE + payloadLength;
+        }
 
-            BlePacketHeader setLength(byte len) {
-                length = len;
-                return this;
+        /**
+         * Decodes every complete packet between the position and limit of src. A single
+         * notification may carry several concatenated packets. Bytes that cannot start a
+         * valid packet (wrong sign byte or checksum) are skipped one at a time to resynchronize.
+         * A truncated packet at the end is left in the buffer: on return the position of src
+         * points at its first byte, so the caller may compact the buffer and append the next
+         * chunk of data to it.
+         * @return The number of packets passed to the consumer
+         */
+        public static int decodePackets(@NonNull ByteBuffer src, @NonNull PacketConsumer consumer) {
+            int packetCount = 0;
+            int pos = src.position();
+            final int limit = src.limit();
+            while (limit - pos >= PACKET_HEADER_SIZE) {
+                if (src.get(pos + HEADER_SIGN_OFFSET) != CMD_HEAD_SIGN) {
+                    pos++;
+                    continue;
+                }
+                int payloadLength = src.get(pos + HEADER_LENGTH_OFFSET) & 0xff;
+                if (limit - pos < PACKET_HEADER_SIZE + payloadLength) {
+                    break;
+                }
+                byte checksum = 0x00;
+                for (int bidx = pos; bidx < pos + PACKET_HEADER_SIZE + payloadLength; bidx++) {
+                    checksum += src.get(bidx);
+                }
+                if (checksum != (byte) 0x00) {
+                    AndroidLogger.w(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Packet checksum does not match at offset %d (length %d)", pos, payloadLength));
+                    pos++;
+                    continue;
+                }
+                ByteBuffer payloadView = src.duplicate();
+                payloadView.limit(pos + PACKET_HEADER_SIZE + payloadLength);
+                payloadView.position(pos + PACKET_HEADER_SIZE);
+                consumer.onPacketDecoded(src.get(pos + HEADER_COMMAND_OFFSET), payloadView.slice().asReadOnlyBuffer());
+                pos += PACKET_HEADER_SIZE + payloadLength;
+                packetCount++;
             }
+            src.position(pos);
+            return packetCount;
+        }
 
-            BlePacketHeader setStatus(byte st) {
-                status = st;
-                return this;
+        /**
+         * Puts the packets back together when the device splits them across several
+         * notifications (or runs one packet into the next). The bytes of a packet that is not
+         * complete yet are kept until the rest of it arrives with the following notification.
+         * One instance belongs to each connection, and it is reset when the link drops so a
+         * stale partial packet is not glued to the data from the next session.
+         */
+        public static class PacketReassembler {
+
+            /* Room for one whole packet left over from the last notification plus the next one */
+            public static final int REASSEMBLY_BUFFER_SIZE = 4 * (PACKET_HEADER_SIZE + MAX_PACKET_PAYLOAD_SIZE);
+
+            private final ByteBuffer reassemblyBuffer = ByteBuffer.allocate(REASSEMBLY_BUFFER_SIZE);
+
+            /**
+             * Appends the notification data and passes every packet completed by it to the
+             * consumer. Data longer than the free space is taken in pieces: a truncated packet
+             * never holds more than PACKET_HEADER_SIZE + MAX_PACKET_PAYLOAD_SIZE - 1 bytes, so
+             * each decode frees enough room for the next piece.
+             * @return The number of packets passed to the consumer
+             */
+            public synchronized int appendData(@NonNull byte[] notifyData, @NonNull PacketConsumer consumer) {
+                int packetCount = 0;
+                int dataPos = 0;
+                while (dataPos < notifyData.length) {
+                    int copyLength = Math.min(notifyData.length - dataPos, reassemblyBuffer.remaining());
+                    reassemblyBuffer.put(notifyData, dataPos, copyLength);
+                    dataPos += copyLength;
+                    reassemblyBuffer.flip();
+                    packetCount += decodePackets(reassemblyBuffer, consumer);
+                    reassemblyBuffer.compact();
+                }
+                return packetCount;
+            }
+
+            /**
+             * @return The number of bytes held back waiting for the rest of a packet
+             */
+            public synchronized int getPendingByteCount() {
+                return reassemblyBuffer.position();
             }
 
-            byte[] getHeaderData() {
-                return new byte[] { sign, command, length, status };
+            public synchronized void reset() {
+                reassemblyBuffer.clear();
             }
 
         }
@@ -338,6 +445,40 @@ public class BluetoothUtils {
                     .build();
         }
 
+        /**
+         * Splits a (possibly long) UART payload into consecutive BLE packets of at most
+         * maxPacketSize bytes each, so every packet fits in one ATT write. The terminating
+         * CRLF is only appended once after the last byte of the payload, and the firmware
+         * reassembles the payload bytes on its UART side.
+         */
+        public static byte[][] packageFragments(byte[] dataBytes, int maxPacketSize) {
+            if (dataBytes == null) {
+                dataBytes = new byte[0];
+            }
+            int uartDataLength = dataBytes.length + 2;
+            int fragmentSize = Math.min(MAX_PACKET_PAYLOAD_SIZE, Math.max(2, maxPacketSize - PACKET_HEADER_SIZE));
+            int fragmentCount = (uartDataLength + fragmentSize - 1) / fragmentSize;
+            byte[][] blePackets = new byte[fragmentCount][];
+            for (int fidx = 0; fidx < fragmentCount; fidx++) {
+                int fragmentOffset = fidx * fragmentSize;
+                int fragmentLength = Math.min(fragmentSize, uartDataLength - fragmentOffset);
+                int dataLength = Math.max(0, Math.min(fragmentLength, dataBytes.length - fragmentOffset));
+                blePackets[fidx] = new byte[PACKET_HEADER_SIZE + fragmentLength];
+                if (dataLength > 0) {
+                    System.arraycopy(dataBytes, fragmentOffset, blePackets[fidx], PACKET_HEADER_SIZE, dataLength);
+                }
+                for (int cidx = dataLength; cidx < fragmentLength; cidx++) {
+                    blePackets[fidx][PACKET_HEADER_SIZE + cidx] = fragmentOffset + cidx == dataBytes.length ? (byte) 0x0d : (byte) 0x0a;
+                }
+                sealPacket(ByteBuffer.wrap(blePackets[fidx]), 0, CMD_UART_RXTX, fragmentLength);
+            }
+            return blePackets;
+        }
+
+        /**
+         * Returns the payload bytes of the packets in dataBytes, concatenated in order when
+         * the data holds more than one packet, or null if it contains no valid packet.
+         */
         public static byte[] unpackageData(byte[] dataBytes) {
             if (dataBytes == null) {
                 return null;
@@ -347,28 +488,6 @@ public class BluetoothUtils {
                     .build();
         }
 
-        private static byte calculateChecksum(byte initCheckSum, byte[] bytesArr, boolean subOp) {
-            if (bytesArr == null) {
-                return (byte) 0x00;
-            }
-            byte checksum = initCheckSum;
-            int bufPos = 0;
-            int byteCount = bytesArr.length;
-            while (byteCount-- > 0) {
-                byte b = bytesArr[bufPos++];
-                if (!subOp) {
-                    checksum += b;
-                } else {
-                    checksum -= b;
-                }
-            }
-            return checksum;
-        }
-
-        private static byte calculateChecksum(byte[] bytesArr) {
-            return calculateChecksum((byte) 0x00, bytesArr, false);
-        }
-
         public static class Builder {
 
             private static String TAG = BLEPacket.class.getSimpleName() + "." + Builder.class.getSimpleName();
@@ -408,38 +527,36 @@ public class BluetoothUtils {
                     rawData = new byte[0];
                 }
                 if (dataEncodeMode == DataEncodeMode.DOPACK) {
-                    if (cmdCode == CMD_UART_RXTX && autoCRLF) {
-                        final byte[] crlfBytes = new byte[] { 0x0d, 0x0a };
-                        rawData = Utils.mergeBytes(rawData, crlfBytes);
-                    }
-                    BlePacketHeader pktHeaderData = new BlePacketHeader()
-                            .setCommand(cmdCode)
-                            .setLength((byte) rawData.length);
-                    byte checksum = calculateChecksum(Utils.mergeBytes(pktHeaderData.getHeaderData(), rawData));
-                    pktHeaderData.setStatus((byte) (0x00 - checksum));
-                    return Utils.mergeBytes(pktHeaderData.getHeaderData(), rawData);
-                } else if (dataEncodeMode == DataEncodeMode.UNPACK) {
-                    if (rawData.length < 4) {
+                    boolean appendCRLF = cmdCode == CMD_UART_RXTX && autoCRLF;
+                    int payloadLength = rawData.length + (appendCRLF ? 2 : 0);
+                    if (payloadLength > MAX_PACKET_PAYLOAD_SIZE) {
+                        AndroidLogger.w(TAG, "Payload too large for a single packet: " + payloadLength + " bytes");
                         return null;
                     }
-                    byte pktLength = rawData[2];
-                    if (pktLength + 4 != rawData.length) {
-                        return null;
+                    byte[] pktBytes = new byte[PACKET_HEADER_SIZE + payloadLength];
+                    System.arraycopy(rawData, 0, pktBytes, PACKET_HEADER_SIZE, rawData.length);
+                    if (appendCRLF) {
+                        pktBytes[pktBytes.length - 2] = 0x0d;
+                        pktBytes[pktBytes.length - 1] = 0x0a;
                     }
-                    byte[] pktPayloadData = new byte[pktLength];
-                    System.arraycopy(pktPayloadData, 0, rawData, 4, pktLength);
-                    byte pktHeadStatus = rawData[3];
-                    byte[] pktPackagedBytes = rawData.clone();
-                    pktPackagedBytes[3] = (byte) 0x00; /* Reset the status byte so it does not contribute to the checksum */
-                    byte pktChecksum = calculateChecksum(pktHeadStatus, pktPackagedBytes, false);
-                    if (pktChecksum != (byte) 0x00) {
+                    sealPacket(ByteBuffer.wrap(pktBytes), 0, cmdCode, payloadLength);
+                    return pktBytes;
+                } else if (dataEncodeMode == DataEncodeMode.UNPACK) {
+                    final ByteBuffer unpackedData = ByteBuffer.allocate(rawData.length);
+                    int packetCount = decodePackets(ByteBuffer.wrap(rawData), new PacketConsumer() {
+                        @Override
+                        public void onPacketDecoded(byte command, ByteBuffer payload) {
+                            unpackedData.put(payload);
+                        }
+                    });
+                    if (packetCount == 0) {
                         AndroidLogger.d(TAG, "Incoming BT bytes to unpack: " + Utils.bytes2Hex(rawData));
-                        AndroidLogger.w(TAG, "Packet checksum does not match for raw byte data " + Utils.bytes2Ascii(pktPayloadData));
                         return null;
                     }
-                    /** ??? TODO: Big or little endian byte order of the results returned (Chameleon Mini AVR is LE) ???
-                     * return ArrayUtils.reverse(pktPayloadData);
-                     */
+                    /** ??? TODO: Big or little endian byte order of the results returned (Chameleon Mini AVR is LE) ??? */
+                    byte[] pktPayloadData = new byte[unpackedData.position()];
+                    unpackedData.flip();
+                    unpackedData.get(pktPayloadData);
                     return pktPayloadData;
                 }
                 return null;
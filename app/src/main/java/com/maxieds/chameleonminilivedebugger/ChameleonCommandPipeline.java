@@ -0,0 +1,476 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * <h1>Chameleon Command Pipeline</h1>
+ * Request / response engine for the text commands sent to the Chameleon. Each command gets a
+ * CompletableFuture that is completed by the serial receive path as soon as the response
+ * frame arrives (instead of polling a shared static flag). The device answers the commands
+ * strictly in the order they were written, so the responses are matched to the pending
+ * requests in FIFO order. Each request has its own timeout, and the round trip latencies
+ * are collected into a histogram per command.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ChameleonIO.getSettingFromDevice
+ * @ref SerialIOReceiver.onReceivedFrame
+ */
+public class ChameleonCommandPipeline {
+
+    private static final String TAG = ChameleonCommandPipeline.class.getSimpleName();
+
+    /**
+     * How long a timed out request stays at the head of the queue to absorb its late response,
+     * so that it is not matched to the next command in line. The expired requests are dropped
+     * as soon as another command is written, since the next response is then as likely to
+     * answer the new command.
+     */
+    public static final int LATE_RESPONSE_GRACE_MILLIS = 1000;
+    /**
+     * Response timeout for the commands the device does not answer (e.g., RESET): the future
+     * completes with an empty response as soon as the command is written.
+     */
+    public static final int RESPONSE_TIMEOUT_NONE = 0;
+
+    /**
+     * The parsed response to a command sent to the device.
+     */
+    public static class CommandResponse {
+
+        public String commandText;
+        public String responseText;
+        public String responseCode;
+        public String[] responseData;
+        public byte[] binaryData;
+        public long latencyNanos;
+
+        /**
+         * Splits a text response frame into its status code line and data lines.
+         * @param frameData
+         * @param expectBinaryData Whether the data after the response code is raw binary (e.g., DUMP_MFU)
+         * @return CommandResponse parsed response
+         * @ref ChameleonIO.isCommandResponse
+         */
+        public static CommandResponse parseResponseFrame(@NonNull byte[] frameData, boolean expectBinaryData) {
+            CommandResponse cmdResp = new CommandResponse();
+            cmdResp.responseText = new String(frameData);
+            String[] strLogData = cmdResp.responseText.split("[\n\r\t][\n\r\t]+");
+            cmdResp.responseCode = strLogData[0];
+            int respCodeStartIndex = Utils.getFirstResponseCodeIndex(cmdResp.responseCode);
+            cmdResp.responseCode = cmdResp.responseCode.substring(respCodeStartIndex);
+            boolean respCodeHasPreText = respCodeStartIndex > 0;
+            if (respCodeHasPreText) {
+                strLogData[0] = strLogData[0].substring(0, respCodeStartIndex - 1);
+            }
+            if (strLogData.length >= 2) {
+                if (respCodeHasPreText) {
+                    cmdResp.responseData = Arrays.copyOfRange(strLogData, 0, strLogData.length);
+                } else {
+                    cmdResp.responseData = Arrays.copyOfRange(strLogData, 1, strLogData.length);
+                }
+            } else {
+                cmdResp.responseData = new String[] { strLogData[0] };
+            }
+            if (expectBinaryData) {
+                int binaryBufSize = Math.max(0, frameData.length - cmdResp.responseCode.length() - 2);
+                cmdResp.binaryData = new byte[binaryBufSize];
+                System.arraycopy(frameData, frameData.length - binaryBufSize, cmdResp.binaryData, 0, binaryBufSize);
+            }
+            else {
+                cmdResp.binaryData = new byte[0];
+            }
+            return cmdResp;
+        }
+
+        public static CommandResponse newEmptyResponse(String cmdText) {
+            CommandResponse cmdResp = new CommandResponse();
+            cmdResp.commandText = cmdText;
+            cmdResp.responseText = "";
+            cmdResp.responseCode = "";
+            cmdResp.responseData = new String[0];
+            cmdResp.binaryData = new byte[0];
+            return cmdResp;
+        }
+
+        /**
+         * @return int numeric response code (e.g., 100 or 101), or -1 if it cannot be parsed
+         */
+        public int getResponseCodeValue() {
+            try {
+                if (responseCode == null) {
+                    return -1;
+                } else if (responseCode.length() >= 3) {
+                    return Integer.valueOf(responseCode.substring(0, 3));
+                } else {
+                    return Integer.valueOf(responseCode);
+                }
+            } catch(NumberFormatException nfe) {
+                return -1;
+            }
+        }
+
+    }
+
+    /**
+     * Log2 spaced histogram of the round trip times for one command.
+     * Bucket k counts the latencies in [2^(k-1), 2^k) milliseconds (bucket 0 is < 1 ms).
+     */
+    public static class LatencyHistogram {
+
+        public static final int NUM_BUCKETS = 16;
+
+        private final long[] bucketCounts = new long[NUM_BUCKETS];
+        private long sampleCount;
+        private long timeoutCount;
+        private long totalLatencyNanos;
+        private long maxLatencyNanos;
+
+        public synchronized void addSample(long latencyNanos) {
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(latencyNanos);
+            int bucketIdx = latencyMillis <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(latencyMillis);
+            bucketCounts[Math.min(bucketIdx, NUM_BUCKETS - 1)]++;
+            sampleCount++;
+            totalLatencyNanos += latencyNanos;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+        }
+
+        public synchronized void addTimeout() {
+            timeoutCount++;
+        }
+
+        public synchronized long getSampleCount() { return sampleCount; }
+        public synchronized long getTimeoutCount() { return timeoutCount; }
+        public synchronized long[] getBucketCounts() { return bucketCounts.clone(); }
+
+        /**
+         * @param percentile in [0, 1]
+         * @return upper bound (ms) of the bucket holding the percentile
+         */
+        public synchronized long getPercentileMillis(double percentile) {
+            long rankTarget = (long) Math.ceil(percentile * sampleCount);
+            long rankSum = 0;
+            for(int bidx = 0; bidx < NUM_BUCKETS; bidx++) {
+                rankSum += bucketCounts[bidx];
+                if(rankSum >= rankTarget && rankSum > 0) {
+                    return 1L << bidx;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            double avgMillis = sampleCount == 0 ? 0.0 : (double) totalLatencyNanos / sampleCount / 1.0e6;
+            return String.format(BuildConfig.DEFAULT_LOCALE, "n=%d, avg=%.2fms, p50<%dms, p95<%dms, max=%.2fms, timeouts=%d",
+                    sampleCount, avgMillis, getPercentileMillis(0.50), getPercentileMillis(0.95),
+                    maxLatencyNanos / 1.0e6, timeoutCount);
+        }
+
+    }
+
+    private static class PendingCommand {
+        String commandText;
+        String histogramKey;
+        CompletableFuture<CommandResponse> responseFuture;
+        long sendTimeNanos;
+        long expiredTimeNanos;
+        boolean claimed; /* Taken by a response or cancelled (set with pendingCommands locked) */
+        ScheduledFuture<?> timeoutTask;
+    }
+
+    /**
+     * Writes a command (without its line terminator) to the device.
+     */
+    interface CommandWriter {
+        boolean writeCommand(String cmdText);
+    }
+
+    private static final ChameleonCommandPipeline PIPELINE_INSTANCE = new ChameleonCommandPipeline(new CommandWriter() {
+        @Override
+        public boolean writeCommand(String cmdText) {
+            return writeCommandToDevice(cmdText);
+        }
+    });
+
+    public static ChameleonCommandPipeline getInstance() {
+        return PIPELINE_INSTANCE;
+    }
+
+    private final ArrayDeque<PendingCommand> pendingCommands = new ArrayDeque<PendingCommand>();
+    private long unmatchedResponseCount = 0;
+    private final Map<String, LatencyHistogram> latencyHistograms = new TreeMap<String, LatencyHistogram>();
+    private final ScheduledExecutorService timeoutScheduler;
+    private final CommandWriter commandWriter;
+
+    ChameleonCommandPipeline(@NonNull CommandWriter commandWriter) {
+        this.commandWriter = commandWriter;
+        ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread timeoutThread = new Thread(runnable, TAG + "-Timeouts");
+                timeoutThread.setDaemon(true);
+                return timeoutThread;
+            }
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        timeoutScheduler = scheduler;
+    }
+
+    /**
+     * Groups the commands for the latency statistics by name and type (e.g., "UID?" or "CONFIG=").
+     */
+    public static String getCommandHistogramKey(String cmdText) {
+        int nameEnd = 0;
+        while(nameEnd < cmdText.length() && (Character.isLetterOrDigit(cmdText.charAt(nameEnd)) || cmdText.charAt(nameEnd) == '_')) {
+            nameEnd++;
+        }
+        String cmdName = cmdText.substring(0, nameEnd).toUpperCase(BuildConfig.DEFAULT_LOCALE);
+        if(nameEnd < cmdText.length() && (cmdText.charAt(nameEnd) == '?' || cmdText.charAt(nameEnd) == '=')) {
+            cmdName += cmdText.charAt(nameEnd);
+        }
+        return cmdName;
+    }
+
+    /**
+     * Writes the command with its line terminator to the active serial port. This is the only
+     * place the text commands are written to the device, so every response frame the device
+     * sends back has a matching entry in the pending queue.
+     * @param cmdText
+     * @return boolean whether the command was written
+     * @url http://rawgit.com/emsec/ChameleonMini/master/Doc/Doxygen/html/Page_CommandLine.html
+     */
+    private static boolean writeCommandToDevice(String cmdText) {
+        if(ChameleonIO.PAUSED) {
+            AndroidLogger.i(TAG, "writeCommandToDevice: PAUSED.");
+            return false;
+        }
+        String deviceConfigCmd = cmdText + (ChameleonIO.REVE_BOARD ? "\r\n" : "\n\r");
+        byte[] sendBuf = deviceConfigCmd.getBytes(StandardCharsets.UTF_8);
+        ChameleonSerialIOInterface serialPort = ChameleonSettings.getActiveSerialIOPort();
+        if(serialPort == null) {
+            AndroidLogger.i(TAG, "Serial port is null while executing command");
+            return false;
+        }
+        return serialPort.sendDataBuffer(sendBuf) == SerialIOReceiver.STATUS_OK;
+    }
+
+    /**
+     * Writes the command to the device and queues it to wait for its response.
+     * @param cmdText Command without the line terminator
+     * @param timeoutMillis Response timeout, or RESPONSE_TIMEOUT_NONE for the commands the device does not answer
+     * @return CompletableFuture completed with the response, or exceptionally with a
+     *         TimeoutException if the device does not answer in time
+     */
+    public CompletableFuture<CommandResponse> submitCommand(@NonNull String cmdText, int timeoutMillis) {
+        final PendingCommand pendingCmd = new PendingCommand();
+        pendingCmd.commandText = cmdText;
+        pendingCmd.histogramKey = getCommandHistogramKey(cmdText);
+        pendingCmd.responseFuture = new CompletableFuture<CommandResponse>();
+        if(timeoutMillis == RESPONSE_TIMEOUT_NONE) {
+            if(!commandWriter.writeCommand(cmdText)) {
+                pendingCmd.responseFuture.completeExceptionally(new IllegalStateException("Unable to send command " + cmdText));
+            } else {
+                pendingCmd.responseFuture.complete(CommandResponse.newEmptyResponse(cmdText));
+            }
+            return pendingCmd.responseFuture;
+        }
+        synchronized(pendingCommands) {
+            /* Queue and write under the same lock so the queue order matches the wire order: */
+            dropExpiredHeadCommands();
+            pendingCmd.sendTimeNanos = System.nanoTime();
+            pendingCommands.addLast(pendingCmd);
+            ChameleonIO.WAITING_FOR_RESPONSE = true;
+            if(!commandWriter.writeCommand(cmdText)) {
+                pendingCommands.removeLastOccurrence(pendingCmd);
+                ChameleonIO.WAITING_FOR_RESPONSE = !pendingCommands.isEmpty();
+                pendingCmd.responseFuture.completeExceptionally(new IllegalStateException("Unable to send command " + cmdText));
+                return pendingCmd.responseFuture;
+            }
+        }
+        pendingCmd.timeoutTask = timeoutScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                expireCommand(pendingCmd);
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+        return pendingCmd.responseFuture;
+    }
+
+    public CompletableFuture<CommandResponse> submitCommand(@NonNull String cmdText) {
+        return submitCommand(cmdText, ChameleonIO.TIMEOUT);
+    }
+
+    /**
+     * Drops the timed out requests waiting at the head of the queue for their late responses.
+     * Called with the queue locked before another command is written: a response arriving
+     * after that point is not discarded as late, so one unanswered command does not make the
+     * following commands time out in turn.
+     */
+    private void dropExpiredHeadCommands() {
+        while(!pendingCommands.isEmpty() && pendingCommands.peekFirst().expiredTimeNanos != 0) {
+            PendingCommand expiredCmd = pendingCommands.removeFirst();
+            AndroidLogger.w(TAG, "Dropping expired command " + expiredCmd.commandText + " before the next command is sent");
+        }
+    }
+
+    /**
+     * Times out the command unless a response (or cancelPendingCommands) claimed it first:
+     * both sides decide under the queue lock, so a command is completed exactly once.
+     */
+    private void expireCommand(PendingCommand pendingCmd) {
+        synchronized(pendingCommands) {
+            if(pendingCmd.claimed || pendingCmd.responseFuture.isDone()) {
+                return;
+            }
+            pendingCmd.expiredTimeNanos = System.nanoTime();
+        }
+        getLatencyHistogram(pendingCmd.histogramKey).addTimeout();
+        pendingCmd.responseFuture.completeExceptionally(new TimeoutException("No response to " + pendingCmd.commandText));
+    }
+
+    /**
+     * Hands a text response frame received from the device to the oldest pending command.
+     * A response that arrives with no command outstanding is logged as an error and counted
+     * (see getUnmatchedResponseCount) instead of being matched to the next command sent.
+     * @param cmdResp
+     * @return whether a pending command consumed the response
+     */
+    public boolean onCommandResponse(@NonNull CommandResponse cmdResp) {
+        PendingCommand headCmd = null;
+        long recvTimeNanos = System.nanoTime();
+        synchronized(pendingCommands) {
+            while(!pendingCommands.isEmpty()) {
+                PendingCommand nextCmd = pendingCommands.peekFirst();
+                if(nextCmd.expiredTimeNanos == 0) {
+                    headCmd = pendingCommands.removeFirst();
+                    headCmd.claimed = true;
+                    break;
+                }
+                pendingCommands.removeFirst();
+                if(recvTimeNanos - nextCmd.expiredTimeNanos <= TimeUnit.MILLISECONDS.toNanos(LATE_RESPONSE_GRACE_MILLIS)) {
+                    AndroidLogger.w(TAG, "Discarding late response to " + nextCmd.commandText + ": " + cmdResp.responseCode);
+                    ChameleonIO.WAITING_FOR_RESPONSE = !pendingCommands.isEmpty();
+                    return true;
+                }
+            }
+            ChameleonIO.WAITING_FOR_RESPONSE = !pendingCommands.isEmpty();
+        }
+        if(headCmd == null) {
+            /* All of the commands go out through writeCommandToDevice, so this is a protocol error
+             * (e.g., a response long after its command expired), not a response to attribute: */
+            long unmatchedCount;
+            synchronized(pendingCommands) {
+                unmatchedCount = ++unmatchedResponseCount;
+            }
+            AndroidLogger.e(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Response with no command outstanding (#%d): %s",
+                    unmatchedCount, cmdResp.responseText == null ? "" : cmdResp.responseText.trim()));
+            return false;
+        }
+        if(headCmd.timeoutTask != null) {
+            headCmd.timeoutTask.cancel(false);
+        }
+        cmdResp.commandText = headCmd.commandText;
+        cmdResp.latencyNanos = recvTimeNanos - headCmd.sendTimeNanos;
+        getLatencyHistogram(headCmd.histogramKey).addSample(cmdResp.latencyNanos);
+        headCmd.responseFuture.complete(cmdResp);
+        return true;
+    }
+
+    /**
+     * Fails all of the outstanding commands (e.g., when the device is disconnected).
+     */
+    public void cancelPendingCommands() {
+        PendingCommand[] cancelledCmds;
+        synchronized(pendingCommands) {
+            cancelledCmds = pendingCommands.toArray(new PendingCommand[0]);
+            for(PendingCommand pendingCmd : cancelledCmds) {
+                pendingCmd.claimed = true;
+            }
+            pendingCommands.clear();
+            ChameleonIO.WAITING_FOR_RESPONSE = false;
+        }
+        for(PendingCommand pendingCmd : cancelledCmds) {
+            if(pendingCmd.timeoutTask != null) {
+                pendingCmd.timeoutTask.cancel(false);
+            }
+            pendingCmd.responseFuture.cancel(false);
+        }
+        AndroidLogger.i(TAG, "Command latency statistics:\n" + getLatencySummary());
+        AndroidLogger.i(TAG, "Command scheduler statistics:\n" + ChameleonCommandScheduler.getInstance().getStatisticsSummary());
+    }
+
+    public int getPendingCommandCount() {
+        synchronized(pendingCommands) {
+            return pendingCommands.size();
+        }
+    }
+
+    public long getUnmatchedResponseCount() {
+        synchronized(pendingCommands) {
+            return unmatchedResponseCount;
+        }
+    }
+
+    public LatencyHistogram getLatencyHistogram(String histogramKey) {
+        synchronized(latencyHistograms) {
+            LatencyHistogram cmdHistogram = latencyHistograms.get(histogramKey);
+            if(cmdHistogram == null) {
+                cmdHistogram = new LatencyHistogram();
+                latencyHistograms.put(histogramKey, cmdHistogram);
+            }
+            return cmdHistogram;
+        }
+    }
+
+    public String getLatencySummary() {
+        StringBuilder summaryText = new StringBuilder();
+        summaryText.append(String.format(BuildConfig.DEFAULT_LOCALE, "%-16s %d\n", "UNMATCHED", getUnmatchedResponseCount()));
+        synchronized(latencyHistograms) {
+            for(Map.Entry<String, LatencyHistogram> histEntry : latencyHistograms.entrySet()) {
+                summaryText.append(String.format(BuildConfig.DEFAULT_LOCALE, "%-16s %s\n", histEntry.getKey(), histEntry.getValue().toString()));
+            }
+        }
+        return summaryText.toString();
+    }
+
+    public void resetLatencyStatistics() {
+        synchronized(latencyHistograms) {
+            latencyHistograms.clear();
+        }
+        synchronized(pendingCommands) {
+            unmatchedResponseCount = 0;
+        }
+    }
+
+}
@@ -0,0 +1,440 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * <h1>Chameleon Command Scheduler</h1>
+ * Single owner of the serial link for the text commands. The interactive UI, the scripts and
+ * the background status poller submit their commands here instead of racing each other for
+ * the serial port lock, and one dispatcher thread writes them to the device through the
+ * ChameleonCommandPipeline (the only writer of the text commands, so every response frame
+ * can be matched to the command that asked for it).
+ *
+ * There is a bounded queue per priority class. Within a class the requests are ordered by
+ * deadline (earliest first). Across classes the highest priority wins, except that a lower
+ * class request is served first when it would otherwise miss its deadline, or after it has
+ * been passed over MAX_CONSECUTIVE_BYPASSES times, so no class is starved. Requests whose
+ * deadlines expire in the queue are failed without touching the link, and a full queue
+ * rejects new requests (or, when asked to, makes the caller wait for space) as back-pressure.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ChameleonCommandPipeline
+ * @ref ChameleonIO.getSettingFromDeviceAsync
+ * @ref ChameleonIO.executeChameleonMiniCommandAsync
+ * @ref ChameleonIO.getSettingsFromDeviceBatch
+ */
+public class ChameleonCommandScheduler {
+
+    private static final String TAG = ChameleonCommandScheduler.class.getSimpleName();
+
+    public static final int PRIORITY_INTERACTIVE = 0;
+    public static final int PRIORITY_SCRIPT = 1;
+    public static final int PRIORITY_BACKGROUND = 2;
+    public static final int NUM_PRIORITY_CLASSES = 3;
+
+    private static final String[] PRIORITY_CLASS_NAMES = { "INTERACTIVE", "SCRIPT", "BACKGROUND" };
+    public static final int[] QUEUE_CAPACITIES = { 16, 64, 8 };
+    /**
+     * How long a request may wait in its queue by default (on top of the response timeout).
+     */
+    public static final int[] DEFAULT_QUEUE_WAIT_MILLIS = { 2000, 5000, 1000 };
+    public static final int MAX_CONSECUTIVE_BYPASSES = 8;
+    /**
+     * Expected round trip of a request when deciding whether a lower class request is urgent.
+     */
+    private static final long EXPECTED_SERVICE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private static final ChameleonCommandScheduler SCHEDULER_INSTANCE = new ChameleonCommandScheduler();
+
+    public static ChameleonCommandScheduler getInstance() {
+        return SCHEDULER_INSTANCE;
+    }
+
+    private static class ScheduledRequest implements Comparable<ScheduledRequest> {
+        String[] commands;
+        int priorityClass;
+        int responseTimeoutMillis;
+        long submitTimeNanos;
+        long deadlineNanos;
+        long sequenceNumber;
+        boolean holdPortLock; /* Hand the port lock over to the caller once the commands are answered */
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse[]> resultFuture;
+
+        @Override
+        public int compareTo(ScheduledRequest otherReq) {
+            if(deadlineNanos != otherReq.deadlineNanos) {
+                return deadlineNanos - otherReq.deadlineNanos < 0 ? -1 : 1;
+            }
+            return Long.compare(sequenceNumber, otherReq.sequenceNumber);
+        }
+    }
+
+    /**
+     * Counters for one priority class.
+     */
+    public static class QueueMetrics {
+        public long submittedCount;
+        public long rejectedCount;
+        public long expiredCount;
+        public long dispatchedCount;
+        public int maxDepth;
+        public long linkBusyNanos;
+        public final ChameleonCommandPipeline.LatencyHistogram waitTimes = new ChameleonCommandPipeline.LatencyHistogram();
+    }
+
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition requestsAvailable = queueLock.newCondition();
+    private final Condition queueSpaceAvailable = queueLock.newCondition();
+    @SuppressWarnings("unchecked")
+    private final PriorityQueue<ScheduledRequest>[] requestQueues = new PriorityQueue[NUM_PRIORITY_CLASSES];
+    private final QueueMetrics[] queueMetrics = new QueueMetrics[NUM_PRIORITY_CLASSES];
+    private final int[] bypassCounts = new int[NUM_PRIORITY_CLASSES];
+    private long nextSequenceNumber = 0;
+    private long statsStartNanos;
+    private long linkBusyNanos;
+    private Thread dispatcherThread = null;
+
+    private ChameleonCommandScheduler() {
+        for(int pclass = 0; pclass < NUM_PRIORITY_CLASSES; pclass++) {
+            requestQueues[pclass] = new PriorityQueue<ScheduledRequest>();
+            queueMetrics[pclass] = new QueueMetrics();
+        }
+        statsStartNanos = System.nanoTime();
+    }
+
+    private void ensureDispatcherStarted() {
+        if(dispatcherThread != null) {
+            return;
+        }
+        dispatcherThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runDispatcher();
+            }
+        }, TAG);
+        dispatcherThread.setDaemon(true);
+        dispatcherThread.start();
+    }
+
+    /**
+     * Queues a single command.
+     * @param cmdText Command without the line terminator
+     * @param priorityClass PRIORITY_INTERACTIVE / PRIORITY_SCRIPT / PRIORITY_BACKGROUND
+     * @return CompletableFuture completed with the response, or exceptionally with a TimeoutException
+     *         (no response or deadline missed) or RejectedExecutionException (queue full)
+     */
+    public CompletableFuture<ChameleonCommandPipeline.CommandResponse> submit(@NonNull final String cmdText, int priorityClass) {
+        return submit(cmdText, priorityClass, ChameleonIO.TIMEOUT, DEFAULT_QUEUE_WAIT_MILLIS[priorityClass] + ChameleonIO.TIMEOUT, false);
+    }
+
+    public CompletableFuture<ChameleonCommandPipeline.CommandResponse> submit(@NonNull final String cmdText, int priorityClass, int responseTimeoutMillis,
+                                                                               long deadlineMillis, boolean waitForSpace) {
+        return submitSingle(cmdText, priorityClass, responseTimeoutMillis, deadlineMillis, waitForSpace, false);
+    }
+
+    /**
+     * Queues a command that puts the device into an XModem transfer (UPLOAD / DOWNLOAD).
+     * Once the device answers, the dispatcher keeps the serial port lock instead of releasing
+     * it, so no queued request is written to a device that expects XModem frames. The caller
+     * then owns the lock and releases it with releaseSerialPortLock() when the transfer ends
+     * (or right away if the answer is not 110:WAITING FOR XMODEM). The lock is released as
+     * usual when the command goes unanswered.
+     * @param cmdText
+     * @return CompletableFuture completed with the response
+     * @ref ExportTools.startXModemTransferCommand
+     */
+    public CompletableFuture<ChameleonCommandPipeline.CommandResponse> submitTransferCommand(@NonNull final String cmdText) {
+        return submitSingle(cmdText, PRIORITY_INTERACTIVE, ChameleonIO.TIMEOUT,
+                            DEFAULT_QUEUE_WAIT_MILLIS[PRIORITY_INTERACTIVE] + ChameleonIO.TIMEOUT, false, true);
+    }
+
+    private CompletableFuture<ChameleonCommandPipeline.CommandResponse> submitSingle(@NonNull final String cmdText, int priorityClass, int responseTimeoutMillis,
+                                                                                      long deadlineMillis, boolean waitForSpace, boolean holdPortLock) {
+        final CompletableFuture<ChameleonCommandPipeline.CommandResponse> cmdFuture = new CompletableFuture<ChameleonCommandPipeline.CommandResponse>();
+        submitBatch(new String[] { cmdText }, priorityClass, responseTimeoutMillis, deadlineMillis, waitForSpace, holdPortLock).whenComplete(
+                new BiConsumer<ChameleonCommandPipeline.CommandResponse[], Throwable>() {
+                    @Override
+                    public void accept(ChameleonCommandPipeline.CommandResponse[] cmdResps, Throwable cmdError) {
+                        if(cmdError != null) {
+                            cmdFuture.completeExceptionally(cmdError);
+                        } else if(cmdResps[0] == null) {
+                            cmdFuture.completeExceptionally(new TimeoutException("No response to " + cmdText));
+                        } else {
+                            cmdFuture.complete(cmdResps[0]);
+                        }
+                    }
+                });
+        return cmdFuture;
+    }
+
+    /**
+     * Queues the commands as one request: they are written to the device back to back and
+     * the responses matched in order.
+     * @param commands
+     * @param priorityClass
+     * @param responseTimeoutMillis Time to wait for each response once the commands are sent
+     * @param deadlineMillis Time from now by which the responses are needed
+     * @param waitForSpace Block the caller while the queue is full (up to the deadline) instead of rejecting
+     * @return CompletableFuture of the responses (null entries for the commands that got no response)
+     */
+    public CompletableFuture<ChameleonCommandPipeline.CommandResponse[]> submitBatch(@NonNull String[] commands, int priorityClass, int responseTimeoutMillis,
+                                                                                      long deadlineMillis, boolean waitForSpace) {
+        return submitBatch(commands, priorityClass, responseTimeoutMillis, deadlineMillis, waitForSpace, false);
+    }
+
+    private CompletableFuture<ChameleonCommandPipeline.CommandResponse[]> submitBatch(@NonNull String[] commands, int priorityClass, int responseTimeoutMillis,
+                                                                                       long deadlineMillis, boolean waitForSpace, boolean holdPortLock) {
+        ScheduledRequest schedReq = new ScheduledRequest();
+        schedReq.commands = commands;
+        schedReq.holdPortLock = holdPortLock;
+        schedReq.priorityClass = priorityClass;
+        schedReq.responseTimeoutMillis = responseTimeoutMillis;
+        schedReq.submitTimeNanos = System.nanoTime();
+        schedReq.deadlineNanos = schedReq.submitTimeNanos + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        schedReq.resultFuture = new CompletableFuture<ChameleonCommandPipeline.CommandResponse[]>();
+        QueueMetrics metrics = queueMetrics[priorityClass];
+        queueLock.lock();
+        try {
+            ensureDispatcherStarted();
+            metrics.submittedCount++;
+            PriorityQueue<ScheduledRequest> requestQueue = requestQueues[priorityClass];
+            while(requestQueue.size() >= QUEUE_CAPACITIES[priorityClass]) {
+                long waitNanos = schedReq.deadlineNanos - System.nanoTime();
+                if(!waitForSpace || waitNanos <= 0) {
+                    metrics.rejectedCount++;
+                    schedReq.resultFuture.completeExceptionally(new RejectedExecutionException(
+                            PRIORITY_CLASS_NAMES[priorityClass] + " command queue is full"));
+                    return schedReq.resultFuture;
+                }
+                queueSpaceAvailable.awaitNanos(waitNanos);
+            }
+            schedReq.sequenceNumber = nextSequenceNumber++;
+            requestQueue.add(schedReq);
+            metrics.maxDepth = Math.max(metrics.maxDepth, requestQueue.size());
+            requestsAvailable.signal();
+        } catch(InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            schedReq.resultFuture.completeExceptionally(new CancellationException("Interrupted waiting for queue space"));
+        } finally {
+            queueLock.unlock();
+        }
+        return schedReq.resultFuture;
+    }
+
+    /**
+     * Fails the expired requests and picks the next one to dispatch (queueLock held).
+     */
+    private ScheduledRequest selectNextRequest(long curTimeNanos) {
+        for(int pclass = 0; pclass < NUM_PRIORITY_CLASSES; pclass++) {
+            PriorityQueue<ScheduledRequest> requestQueue = requestQueues[pclass];
+            while(!requestQueue.isEmpty() && requestQueue.peek().deadlineNanos - curTimeNanos <= 0) {
+                ScheduledRequest expiredReq = requestQueue.poll();
+                queueMetrics[pclass].expiredCount++;
+                expiredReq.resultFuture.completeExceptionally(new TimeoutException("Deadline expired in the " +
+                        PRIORITY_CLASS_NAMES[pclass] + " queue: " + expiredReq.commands[0]));
+                queueSpaceAvailable.signalAll();
+            }
+        }
+        int selectedClass = -1;
+        for(int pclass = 0; pclass < NUM_PRIORITY_CLASSES; pclass++) {
+            if(!requestQueues[pclass].isEmpty()) {
+                selectedClass = pclass;
+                break;
+            }
+        }
+        if(selectedClass < 0) {
+            return null;
+        }
+        for(int pclass = selectedClass + 1; pclass < NUM_PRIORITY_CLASSES; pclass++) {
+            ScheduledRequest lowerHead = requestQueues[pclass].peek();
+            if(lowerHead == null) {
+                continue;
+            }
+            boolean isUrgent = lowerHead.deadlineNanos - curTimeNanos <= 2 * EXPECTED_SERVICE_NANOS &&
+                               requestQueues[selectedClass].peek().deadlineNanos - curTimeNanos > 2 * EXPECTED_SERVICE_NANOS;
+            if(isUrgent || bypassCounts[pclass] >= MAX_CONSECUTIVE_BYPASSES) {
+                selectedClass = pclass;
+                break;
+            }
+        }
+        for(int pclass = 0; pclass < NUM_PRIORITY_CLASSES; pclass++) {
+            if(pclass == selectedClass || requestQueues[pclass].isEmpty()) {
+                bypassCounts[pclass] = 0;
+            } else if(pclass > selectedClass) {
+                bypassCounts[pclass]++;
+            }
+        }
+        return requestQueues[selectedClass].poll();
+    }
+
+    private void runDispatcher() {
+        while(true) {
+            ScheduledRequest nextReq;
+            queueLock.lock();
+            try {
+                while((nextReq = selectNextRequest(System.nanoTime())) == null) {
+                    requestsAvailable.await();
+                }
+                queueSpaceAvailable.signalAll();
+            } catch(InterruptedException ie) {
+                AndroidLogger.printStackTrace(ie);
+                continue;
+            } finally {
+                queueLock.unlock();
+            }
+            try {
+                dispatchRequest(nextReq);
+            } catch(RuntimeException rte) {
+                AndroidLogger.printStackTrace(rte);
+                nextReq.resultFuture.completeExceptionally(rte);
+            }
+        }
+    }
+
+    private void dispatchRequest(ScheduledRequest schedReq) {
+        long dispatchTimeNanos = System.nanoTime();
+        QueueMetrics metrics = queueMetrics[schedReq.priorityClass];
+        metrics.waitTimes.addSample(dispatchTimeNanos - schedReq.submitTimeNanos);
+        ChameleonSerialIOInterface serialIOPort = ChameleonSettings.getActiveSerialIOPort();
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(schedReq.deadlineNanos - dispatchTimeNanos);
+        if(serialIOPort == null) {
+            schedReq.resultFuture.completeExceptionally(new IllegalStateException("Serial port is null"));
+            return;
+        }
+        else if(!serialIOPort.tryAcquireSerialPort((int) Math.min(remainingMillis, ChameleonIO.LOCK_TIMEOUT))) {
+            /* The port lock is otherwise only held across the XModem transfers (see submitTransferCommand) */
+            queueLock.lock();
+            try {
+                metrics.expiredCount++;
+            } finally {
+                queueLock.unlock();
+            }
+            schedReq.resultFuture.completeExceptionally(new TimeoutException("Unable to acquire serial port"));
+            return;
+        }
+        ChameleonCommandPipeline.CommandResponse[] cmdResps = new ChameleonCommandPipeline.CommandResponse[schedReq.commands.length];
+        long sendTimeNanos = System.nanoTime();
+        boolean portLockHandedOver = false;
+        try {
+            int responseTimeout = schedReq.responseTimeoutMillis == ChameleonCommandPipeline.RESPONSE_TIMEOUT_NONE ?
+                    ChameleonCommandPipeline.RESPONSE_TIMEOUT_NONE : (int) Math.max(1, Math.min(schedReq.responseTimeoutMillis, remainingMillis));
+            ChameleonCommandPipeline cmdPipeline = ChameleonCommandPipeline.getInstance();
+            @SuppressWarnings("unchecked")
+            CompletableFuture<ChameleonCommandPipeline.CommandResponse>[] respFutures = new CompletableFuture[schedReq.commands.length];
+            for(int cidx = 0; cidx < schedReq.commands.length; cidx++) {
+                respFutures[cidx] = cmdPipeline.submitCommand(schedReq.commands[cidx], responseTimeout);
+            }
+            ChameleonIO.LASTCMD = schedReq.commands[schedReq.commands.length - 1];
+            for(int cidx = 0; cidx < schedReq.commands.length; cidx++) {
+                try {
+                    cmdResps[cidx] = respFutures[cidx].get();
+                } catch(ExecutionException | CancellationException ee) {
+                    AndroidLogger.w(TAG, "No response to " + schedReq.commands[cidx]);
+                }
+            }
+            portLockHandedOver = schedReq.holdPortLock && cmdResps[schedReq.commands.length - 1] != null;
+        } catch(InterruptedException ie) {
+            AndroidLogger.printStackTrace(ie);
+        } finally {
+            if(!portLockHandedOver) {
+                serialIOPort.releaseSerialPortLock();
+            }
+        }
+        long busyNanos = System.nanoTime() - sendTimeNanos;
+        queueLock.lock();
+        try {
+            metrics.dispatchedCount++;
+            metrics.linkBusyNanos += busyNanos;
+            linkBusyNanos += busyNanos;
+        } finally {
+            queueLock.unlock();
+        }
+        schedReq.resultFuture.complete(cmdResps);
+    }
+
+    public int getQueueDepth(int priorityClass) {
+        queueLock.lock();
+        try {
+            return requestQueues[priorityClass].size();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    /**
+     * @return fraction of the time since the statistics were reset that the link spent on commands
+     */
+    public double getLinkUtilization() {
+        queueLock.lock();
+        try {
+            long elapsedNanos = System.nanoTime() - statsStartNanos;
+            return elapsedNanos <= 0 ? 0.0 : (double) linkBusyNanos / elapsedNanos;
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+    public String getStatisticsSummary() {
+        StringBuilder summaryText = new StringBuilder();
+        queueLock.lock();
+        try {
+            long elapsedNanos = Math.max(1, System.nanoTime() - statsStartNanos);
+            summaryText.append(String.format(BuildConfig.DEFAULT_LOCALE, "Link utilization %.1f%%\n", 100.0 * linkBusyNanos / elapsedNanos));
+            for(int pclass = 0; pclass < NUM_PRIORITY_CLASSES; pclass++) {
+                QueueMetrics metrics = queueMetrics[pclass];
+                summaryText.append(String.format(BuildConfig.DEFAULT_LOCALE,
+                        "%-12s depth %d/%d (max %d), %d submitted, %d dispatched, %d rejected, %d expired, link %.1f%%, wait: %s\n",
+                        PRIORITY_CLASS_NAMES[pclass], requestQueues[pclass].size(), QUEUE_CAPACITIES[pclass], metrics.maxDepth,
+                        metrics.submittedCount, metrics.dispatchedCount, metrics.rejectedCount, metrics.expiredCount,
+                        100.0 * metrics.linkBusyNanos / elapsedNanos, metrics.waitTimes.toString()));
+            }
+        } finally {
+            queueLock.unlock();
+        }
+        return summaryText.toString();
+    }
+
+    public void resetStatistics() {
+        queueLock.lock();
+        try {
+            for(int pclass = 0; pclass < NUM_PRIORITY_CLASSES; pclass++) {
+                queueMetrics[pclass] = new QueueMetrics();
+            }
+            linkBusyNanos = 0;
+            statsStartNanos = System.nanoTime();
+        } finally {
+            queueLock.unlock();
+        }
+    }
+
+}
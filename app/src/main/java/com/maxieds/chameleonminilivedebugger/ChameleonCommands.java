@@ -23,6 +23,7 @@ import android.os.Environment;
 import android.os.Looper;
 
 import java.util.Arrays;
+import java.util.function.BiConsumer;
 
 public class ChameleonCommands {
 
@@ -31,7 +32,7 @@ public class ChameleonCommands {
     public static void cloneMFU() {
         String dumpMFUOutput = ChameleonIO.getSettingFromDevice("DUMP_MFU");
         GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("DUMP_MFU", dumpMFUOutput));
-        ChameleonIO.executeChameleonMiniCommand("CLONE", ChameleonIO.TIMEOUT);
+        ChameleonIO.getSettingFromDevice("CLONE");
         String cloneCmdOutput = ChameleonIO.DEVICE_RESPONSE_CODE;
         cloneCmdOutput += Arrays.asList(ChameleonIO.DEVICE_RESPONSE).toString().replaceAll("(^\\[|\\]$)", "").replace(", ", "\n");
         GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("CLONE", cloneCmdOutput));
@@ -67,7 +68,7 @@ public class ChameleonCommands {
         else {
             return;
         }
-        ChameleonIO.executeChameleonMiniCommand("CONFIG=" + chipType, ChameleonIO.TIMEOUT);
+        ChameleonIO.getSettingFromDevice("CONFIG=" + chipType);
         ExportTools.uploadCardFromRawByXModem(cardFilePath);
         ChameleonIO.deviceStatus.startPostingStats(250);
     }
@@ -127,13 +128,25 @@ public class ChameleonCommands {
             createCmd = "CONFIG?";
         }
         else if(createCmd.equals("RESET") || createCmd.equals("resetmy")) { // need to re-establish the usb connection:
-            ChameleonIO.executeChameleonMiniCommand(createCmd, ChameleonIO.TIMEOUT);
             ChameleonIO.deviceStatus.statsUpdateHandler.removeCallbacks(ChameleonIO.deviceStatus.statsUpdateRunnable);
-            ChameleonSerialIOInterface serialIOPort = ChameleonSettings.getActiveSerialIOPort();
-            if(serialIOPort != null) {
-                serialIOPort.shutdownSerial();
-                serialIOPort.configureSerial();
-            }
+            /* The device does not answer the reset, so reconnect as soon as the command is written: */
+            ChameleonCommandScheduler.getInstance().submit(createCmd, ChameleonCommandScheduler.PRIORITY_INTERACTIVE,
+                    ChameleonCommandPipeline.RESPONSE_TIMEOUT_NONE, ChameleonCommandScheduler.DEFAULT_QUEUE_WAIT_MILLIS[ChameleonCommandScheduler.PRIORITY_INTERACTIVE], false)
+                    .whenComplete(new BiConsumer<ChameleonCommandPipeline.CommandResponse, Throwable>() {
+                        @Override
+                        public void accept(ChameleonCommandPipeline.CommandResponse cmdResp, Throwable cmdError) {
+                            LiveLoggerActivity.getLiveLoggerInstance().runOnUiThread(new Runnable() {
+                                @Override
+                                public void run() {
+                                    ChameleonSerialIOInterface serialIOPort = ChameleonSettings.getActiveSerialIOPort();
+                                    if(serialIOPort != null) {
+                                        serialIOPort.shutdownSerial();
+                                        serialIOPort.configureSerial();
+                                    }
+                                }
+                            });
+                        }
+                    });
             msgParam = "Reconfigured the Chameleon USB settings.";
         }
         else if(createCmd.equals("RANDOM UID")) {
@@ -143,13 +143,15 @@ public class ChameleonConfigSlot {
             return false;
         }
         try {
-            tagConfigType = ChameleonIO.getSettingFromDevice("CONFIG?");
-            uidHexBytes = ChameleonIO.getSettingFromDevice("UID?");
+            String[] slotSettings = ChameleonIO.getSettingsFromDeviceBatch(
+                    new String[] { "CONFIG?", "UID?", "UIDSIZE?", "MEMSIZE?", "READONLY?", "FIELD?" }, null);
+            tagConfigType = slotSettings[0];
+            uidHexBytes = slotSettings[1];
             uidHexDisplayStr = Utils.formatUIDString(uidHexBytes, " ");
-            uidSize = Integer.parseInt(ChameleonIO.getSettingFromDevice("UIDSIZE?"));
-            tagMemorySize = Integer.parseInt(ChameleonIO.getSettingFromDevice("MEMSIZE?"));
-            isLocked = ChameleonIO.getSettingFromDevice("READONLY?") == "1" ? true : false;
-            fieldSetting = ChameleonIO.getSettingFromDevice("FIELD?") == "1" ? true : false;
+            uidSize = Integer.parseInt(slotSettings[2]);
+            tagMemorySize = Integer.parseInt(slotSettings[3]);
+            isLocked = slotSettings[4].equals("1");
+            fieldSetting = slotSettings[5].equals("1");
         } catch(NumberFormatException nfe) {
             AndroidLogger.printStackTrace(nfe);
             return false;
@@ -0,0 +1,683 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Chameleon Device Emulator</h1>
+ * In-process model of a ChameleonMini (RevG) speaking the serial command protocol: the
+ * query / setter commands with their "100:OK" and "101:OK WITH TEXT" responses, DOWNLOAD,
+ * UPLOAD and LOGDOWNLOAD over XModem, DUMP_MFU, and LIVE log frames generated at a fixed rate.
+ * All of the device state is owned by one scheduler thread that plays the role of the device
+ * firmware, and every response is delayed by a configurable latency. Only plain Java is used
+ * so that the command and transfer paths can be benchmarked without hardware.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref SerialEmulatorInterface
+ * @url http://rawgit.com/emsec/ChameleonMini/master/Doc/Doxygen/html/Page_CommandLine.html
+ */
+public class ChameleonDeviceEmulator {
+
+    private static final String TAG = ChameleonDeviceEmulator.class.getSimpleName();
+
+    public static final String EMULATED_VERSION_STRING = "ChameleonMini RevG 220101 (Emulated)";
+    public static final int NUM_SLOTS = 8;
+    public static final int LOG_MEMORY_SIZE = 2048;
+    public static final int DEFAULT_RESPONSE_LATENCY_MILLIS = 2;
+    public static final int DEFAULT_OUTPUT_CHUNK_SIZE = 64; /* Matches the USB bulk packets */
+    private static final int MAX_COMMAND_LENGTH = 256;
+    private static final int LIVE_LOG_TICK_MILLIS = 10;
+    private static final Locale DEVICE_LOCALE = Locale.ENGLISH; /* DEVICE_LOCALE */
+
+    /* Status lines from the firmware command table (parsed as ChameleonIO.SerialRespCode by the host): */
+    private static final String RESP_OK = "100:OK";
+    private static final String RESP_WAITING_FOR_MODEM = "110:WAITING FOR XMODEM";
+    private static final String RESP_FALSE = "120:FALSE";
+    private static final String RESP_UNKNOWN_COMMAND = "200:UNKNOWN COMMAND";
+    private static final String RESP_INVALID_COMMAND_USAGE = "201:INVALID COMMAND USAGE";
+    private static final String RESP_INVALID_PARAMETER = "202:INVALID PARAMETER";
+
+    private static final String[] CONFIG_NAMES = {
+            "NONE", "MF_ULTRALIGHT", "MF_ULTRALIGHT_EV1_80B", "MF_ULTRALIGHT_EV1_164B",
+            "MF_CLASSIC_1K", "MF_CLASSIC_1K_7B", "MF_CLASSIC_4K", "MF_CLASSIC_4K_7B",
+            "ISO14443A_SNIFF", "ISO14443A_READER"
+    };
+    private static final int[] CONFIG_UID_SIZES = { 0, 7, 7, 7, 4, 7, 4, 7, 0, 0 };
+    private static final int[] CONFIG_MEM_SIZES = { 0, 64, 80, 164, 1024, 1024, 4096, 4096, 0, 0 };
+
+    /**
+     * A canned reader / card exchange to fill the generated LIVE logs with (REQA, ATQA,
+     * anticollision, SELECT, SAK, READ).
+     */
+    private static final byte[][] LIVE_LOG_EXCHANGE = {
+            { (byte) 0x40, 0x26 },
+            { (byte) 0x41, 0x44, 0x00 },
+            { (byte) 0x40, (byte) 0x93, 0x20 },
+            { (byte) 0x41, (byte) 0x88, 0x04, (byte) 0xa1, (byte) 0xb2, (byte) 0x9f },
+            { (byte) 0x40, (byte) 0x93, 0x70, (byte) 0x88, 0x04, (byte) 0xa1, (byte) 0xb2, (byte) 0x9f, 0x03, (byte) 0xb4 },
+            { (byte) 0x41, 0x04, (byte) 0xda, 0x17 },
+            { (byte) 0x40, 0x30, 0x04, 0x26, (byte) 0xee },
+            { (byte) 0x41, 0x01, 0x03, (byte) 0xa0, 0x0c, 0x44, 0x03, 0x15, (byte) 0xd1, 0x01, 0x11, 0x55, 0x01, 0x65, 0x78, 0x61, 0x6d, 0x4e, 0x2c },
+    };
+
+    private static class EmulatedSlot {
+        int configIdx = 0;
+        byte[] uidBytes = new byte[0];
+        boolean readOnly = false;
+        byte[] memoryBytes = new byte[0];
+
+        void setConfig(int nextConfigIdx) {
+            configIdx = nextConfigIdx;
+            uidBytes = new byte[CONFIG_UID_SIZES[configIdx]];
+            for(int bidx = 0; bidx < uidBytes.length; bidx++) {
+                uidBytes[bidx] = (byte) (0x04 + 0x11 * bidx);
+            }
+            memoryBytes = new byte[CONFIG_MEM_SIZES[configIdx]];
+            System.arraycopy(uidBytes, 0, memoryBytes, 0, Math.min(uidBytes.length, memoryBytes.length));
+        }
+    }
+
+    /* Device modes: */
+    private static final int MODE_COMMAND = 0;
+    private static final int MODE_XMODEM_SEND = 1;
+    private static final int MODE_XMODEM_SEND_EOT = 2;
+    private static final int MODE_XMODEM_RECEIVE = 3;
+
+    private final SerialDataReceiverInterface hostReceiver;
+    private final ScheduledThreadPoolExecutor deviceScheduler;
+    private volatile int responseLatencyMillis = DEFAULT_RESPONSE_LATENCY_MILLIS;
+    private volatile int outputChunkSize = DEFAULT_OUTPUT_CHUNK_SIZE;
+    private volatile int liveLogRecordsPerSecond = 0;
+    private volatile boolean xmodemCRCEnabled = false;
+    private ScheduledFuture<?> liveLogTask;
+    private final Random liveLogRandom = new Random(0x434d4c44L);
+
+    /* Device state below is only touched on the device scheduler thread: */
+    private final EmulatedSlot[] emulatedSlots = new EmulatedSlot[NUM_SLOTS];
+    private int activeSlot = 0;
+    private String logMode = "OFF";
+    private final byte[] logMemory = new byte[LOG_MEMORY_SIZE];
+    private int logMemoryUsed = 0;
+    private boolean fieldEnabled = false;
+    private int readerThreshold = 400;
+    private int readerTimeout = 10;
+    private final long bootTimeMillis = System.currentTimeMillis();
+    private int deviceMode = MODE_COMMAND;
+    private final StringBuilder commandLine = new StringBuilder(MAX_COMMAND_LENGTH);
+    private byte[] xmodemData = new byte[0];
+    private int xmodemBlock;
+    private int xmodemOffset;
+    private int xmodemBlockSize;
+    private boolean xmodemCRC;
+    private final byte[] xmodemFrame = new byte[XModemProtocol.MAX_FRAME_SIZE];
+    private int xmodemFrameLength;
+    private int xmodemFramePos;
+    private int liveLogExchangePos;
+    private double liveLogCarry;
+
+    /**
+     * Emulator statistics (read from any thread).
+     */
+    private volatile long commandsProcessed;
+    private volatile long hostBytesReceived;
+    private volatile long deviceBytesSent;
+    private volatile long xmodemBlocksSent;
+    private volatile long xmodemBlocksReceived;
+    private volatile long liveLogRecordsSent;
+
+    public ChameleonDeviceEmulator(@NonNull SerialDataReceiverInterface receiver) {
+        hostReceiver = receiver;
+        deviceScheduler = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread deviceThread = new Thread(r, TAG);
+                deviceThread.setDaemon(true);
+                return deviceThread;
+            }
+        });
+        for(int sidx = 0; sidx < NUM_SLOTS; sidx++) {
+            emulatedSlots[sidx] = new EmulatedSlot();
+        }
+        emulatedSlots[0].setConfig(Arrays.asList(CONFIG_NAMES).indexOf("MF_ULTRALIGHT"));
+        emulatedSlots[1].setConfig(Arrays.asList(CONFIG_NAMES).indexOf("MF_CLASSIC_1K"));
+        emulatedSlots[2].setConfig(Arrays.asList(CONFIG_NAMES).indexOf("ISO14443A_SNIFF"));
+    }
+
+    public void setResponseLatencyMillis(int latencyMillis) {
+        responseLatencyMillis = Math.max(0, latencyMillis);
+    }
+
+    public int getResponseLatencyMillis() {
+        return responseLatencyMillis;
+    }
+
+    /**
+     * @param chunkSize Maximum number of bytes handed to the receiver per callback (0 for no limit)
+     */
+    public void setOutputChunkSize(int chunkSize) {
+        outputChunkSize = Math.max(0, chunkSize);
+    }
+
+    /**
+     * Sets how many LIVE log records are generated per second while LOGMODE=LIVE (or are
+     * stored while LOGMODE=MEMORY). Zero disables the log generation.
+     * @param recordsPerSecond
+     */
+    public synchronized void setLiveLogRate(int recordsPerSecond) {
+        liveLogRecordsPerSecond = Math.max(0, recordsPerSecond);
+        if(liveLogTask != null) {
+            liveLogTask.cancel(false);
+            liveLogTask = null;
+        }
+        if(liveLogRecordsPerSecond > 0 && !deviceScheduler.isShutdown()) {
+            liveLogTask = deviceScheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    generateLiveLogs();
+                }
+            }, LIVE_LOG_TICK_MILLIS, LIVE_LOG_TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public int getLiveLogRate() {
+        return liveLogRecordsPerSecond;
+    }
+
+    /**
+     * Lets the emulated device speak the CRC16 / XModem-1K variant (the stock firmware only
+     * does 128 byte blocks with checksums): it honors a 'C' start byte when sending and
+     * prompts with 'C' when receiving.
+     */
+    public void setXModemCRCEnabled(boolean enable) {
+        xmodemCRCEnabled = enable;
+    }
+
+    public synchronized void shutdown() {
+        if(liveLogTask != null) {
+            liveLogTask.cancel(false);
+            liveLogTask = null;
+        }
+        deviceScheduler.shutdownNow();
+    }
+
+    public long getCommandsProcessed() { return commandsProcessed; }
+    public long getHostBytesReceived() { return hostBytesReceived; }
+    public long getDeviceBytesSent() { return deviceBytesSent; }
+    public long getXModemBlocksSent() { return xmodemBlocksSent; }
+    public long getXModemBlocksReceived() { return xmodemBlocksReceived; }
+    public long getLiveLogRecordsSent() { return liveLogRecordsSent; }
+
+    public String getStatisticsSummary() {
+        return String.format(DEVICE_LOCALE, "%d commands -- %d bytes in / %d bytes out -- XMODEM %d blocks sent / %d received -- %d LIVE log records",
+                commandsProcessed, hostBytesReceived, deviceBytesSent, xmodemBlocksSent, xmodemBlocksReceived, liveLogRecordsSent);
+    }
+
+    /**
+     * Bytes written by the host to the emulated device. They are processed on the device
+     * thread after the configured response latency.
+     * @param hostData
+     */
+    public void receiveHostData(@NonNull byte[] hostData) {
+        final byte[] hostBytes = Arrays.copyOf(hostData, hostData.length);
+        if(deviceScheduler.isShutdown()) {
+            return;
+        }
+        deviceScheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                processHostBytes(hostBytes);
+            }
+        }, responseLatencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendToHost(byte[] deviceBytes) {
+        deviceBytesSent += deviceBytes.length;
+        int chunkSize = outputChunkSize;
+        if(chunkSize <= 0 || deviceBytes.length <= chunkSize) {
+            hostReceiver.onReceivedData(deviceBytes);
+            return;
+        }
+        for(int chunkPos = 0; chunkPos < deviceBytes.length; chunkPos += chunkSize) {
+            hostReceiver.onReceivedData(Arrays.copyOfRange(deviceBytes, chunkPos, Math.min(chunkPos + chunkSize, deviceBytes.length)));
+        }
+    }
+
+    private void sendResponse(String respStatusLine) {
+        sendToHost((respStatusLine + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void sendTextResponse(String respText) {
+        sendToHost(("101:OK WITH TEXT\r\n" + respText + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void processHostBytes(byte[] hostBytes) {
+        hostBytesReceived += hostBytes.length;
+        for(byte hostByte : hostBytes) {
+            switch(deviceMode) {
+                case MODE_XMODEM_SEND:
+                case MODE_XMODEM_SEND_EOT:
+                    processXModemSendByte(hostByte);
+                    break;
+                case MODE_XMODEM_RECEIVE:
+                    processXModemReceiveByte(hostByte);
+                    break;
+                default:
+                    processCommandByte(hostByte);
+                    break;
+            }
+        }
+    }
+
+    private void processCommandByte(byte hostByte) {
+        if(hostByte == '\r' || hostByte == '\n') {
+            if(commandLine.length() > 0) {
+                String cmdText = commandLine.toString().trim();
+                commandLine.setLength(0);
+                commandsProcessed++;
+                executeCommand(cmdText);
+            }
+        }
+        else if(commandLine.length() < MAX_COMMAND_LENGTH && hostByte >= 0x20 && hostByte <= 0x7e) {
+            commandLine.append((char) hostByte);
+        }
+    }
+
+    private void executeCommand(String cmdText) {
+        String cmdUpper = cmdText.toUpperCase(DEVICE_LOCALE); /* RevE firmware takes lowercase commands */
+        EmulatedSlot slot = emulatedSlots[activeSlot];
+        int eqPos = cmdUpper.indexOf('=');
+        String cmdName = eqPos >= 0 ? cmdUpper.substring(0, eqPos) : cmdUpper;
+        String cmdParam = eqPos >= 0 ? cmdText.substring(eqPos + 1).trim() : null;
+        if(cmdParam != null && cmdParam.equals("?")) {
+            executeListCommand(cmdName);
+            return;
+        }
+        try {
+            switch(cmdUpper) {
+                case "VERSION?": sendTextResponse(EMULATED_VERSION_STRING); return;
+                case "CONFIG?": sendTextResponse(CONFIG_NAMES[slot.configIdx]); return;
+                case "UID?":
+                    sendTextResponse(slot.uidBytes.length == 0 ? "NO UID." : toHexString(slot.uidBytes));
+                    return;
+                case "UIDSIZE?": sendTextResponse(String.valueOf(slot.uidBytes.length)); return;
+                case "MEMSIZE?": sendTextResponse(String.valueOf(slot.memoryBytes.length)); return;
+                case "READONLY?": sendTextResponse(slot.readOnly ? "1" : "0"); return;
+                case "FIELD?": sendTextResponse(fieldEnabled ? "1" : "0"); return;
+                case "SETTING?": sendTextResponse(String.valueOf(activeSlot + 1)); return;
+                case "LOGMODE?": sendTextResponse(logMode); return;
+                case "LOGMEM?": sendTextResponse(String.valueOf(LOG_MEMORY_SIZE - logMemoryUsed)); return;
+                case "CHARGING?": sendResponse(RESP_FALSE); return;
+                case "THRESHOLD?": sendTextResponse(String.valueOf(readerThreshold)); return;
+                case "TIMEOUT?": sendTextResponse(String.valueOf(readerTimeout)); return;
+                case "RSSI?": sendTextResponse("4980 mV"); return;
+                case "SYSTICK?":
+                    sendTextResponse(String.format(DEVICE_LOCALE, "%04X", getSysTick()));
+                    return;
+                case "BUTTON?": case "BUTTON_LONG?": case "LBUTTON?": sendTextResponse("SWITCHCONFIG"); return;
+                case "LEDGREEN?": case "LEDRED?": sendTextResponse("NONE"); return;
+                case "HELP":
+                    sendTextResponse("VERSION,CONFIG,UID,READONLY,UPLOAD,DOWNLOAD,RESET,UPGRADE,MEMSIZE,UIDSIZE,RBUTTON,LBUTTON," +
+                                     "LEDGREEN,LEDRED,LOGMODE,LOGMEM,LOGDOWNLOAD,LOGCLEAR,SETTING,CLEAR,HELP,RSSI,SYSTICK," +
+                                     "THRESHOLD,TIMEOUT,FIELD,CHARGING,DUMP_MFU");
+                    return;
+                case "CLEAR":
+                    Arrays.fill(slot.memoryBytes, (byte) 0x00);
+                    sendResponse(RESP_OK);
+                    return;
+                case "LOGCLEAR":
+                    logMemoryUsed = 0;
+                    sendResponse(RESP_OK);
+                    return;
+                case "RESET":
+                    logMode = "OFF";
+                    sendResponse(RESP_OK);
+                    return;
+                case "DUMP_MFU":
+                    if(CONFIG_NAMES[slot.configIdx].startsWith("MF_ULTRALIGHT") || CONFIG_NAMES[slot.configIdx].equals("ISO14443A_READER")) {
+                        sendTextResponse(toHexString(Arrays.copyOf(slot.memoryBytes, 64)));
+                    }
+                    else {
+                        sendResponse(RESP_INVALID_COMMAND_USAGE);
+                    }
+                    return;
+                case "DOWNLOAD":
+                    startXModemSend(slot.memoryBytes);
+                    return;
+                case "LOGDOWNLOAD":
+                    startXModemSend(Arrays.copyOf(logMemory, logMemoryUsed));
+                    return;
+                case "UPLOAD":
+                    if(slot.memoryBytes.length == 0) {
+                        sendResponse(RESP_INVALID_COMMAND_USAGE);
+                        return;
+                    }
+                    deviceMode = MODE_XMODEM_RECEIVE;
+                    xmodemBlock = 1;
+                    xmodemFramePos = 0;
+                    xmodemCRC = false;
+                    xmodemData = new byte[0];
+                    sendResponse(RESP_WAITING_FOR_MODEM);
+                    return;
+                default:
+                    break;
+            }
+            if(cmdParam == null) {
+                sendResponse(cmdUpper.endsWith("?") ? RESP_UNKNOWN_COMMAND : RESP_INVALID_COMMAND_USAGE);
+                return;
+            }
+            switch(cmdName) {
+                case "CONFIG":
+                    int configIdx = Arrays.asList(CONFIG_NAMES).indexOf(cmdParam.toUpperCase(DEVICE_LOCALE));
+                    if(configIdx < 0) {
+                        sendResponse(RESP_INVALID_PARAMETER);
+                        return;
+                    }
+                    slot.setConfig(configIdx);
+                    break;
+                case "UID":
+                    byte[] nextUID = parseHexString(cmdParam);
+                    if(nextUID == null || nextUID.length != slot.uidBytes.length || slot.readOnly) {
+                        sendResponse(RESP_INVALID_PARAMETER);
+                        return;
+                    }
+                    slot.uidBytes = nextUID;
+                    System.arraycopy(nextUID, 0, slot.memoryBytes, 0, Math.min(nextUID.length, slot.memoryBytes.length));
+                    break;
+                case "READONLY":
+                    slot.readOnly = parseFlagParam(cmdParam);
+                    break;
+                case "FIELD":
+                    fieldEnabled = parseFlagParam(cmdParam);
+                    break;
+                case "SETTING":
+                    int nextSlot = Integer.parseInt(cmdParam);
+                    if(nextSlot < 1 || nextSlot > NUM_SLOTS) {
+                        sendResponse(RESP_INVALID_PARAMETER);
+                        return;
+                    }
+                    activeSlot = nextSlot - 1;
+                    break;
+                case "LOGMODE":
+                    String nextLogMode = cmdParam.toUpperCase(DEVICE_LOCALE);
+                    if(!nextLogMode.equals("OFF") && !nextLogMode.equals("MEMORY") && !nextLogMode.equals("LIVE")) {
+                        sendResponse(RESP_INVALID_PARAMETER);
+                        return;
+                    }
+                    logMode = nextLogMode;
+                    break;
+                case "THRESHOLD":
+                    readerThreshold = Integer.parseInt(cmdParam);
+                    break;
+                case "TIMEOUT":
+                    readerTimeout = Integer.parseInt(cmdParam);
+                    break;
+                default:
+                    sendResponse(RESP_UNKNOWN_COMMAND);
+                    return;
+            }
+            sendResponse(RESP_OK);
+        } catch(NumberFormatException nfe) {
+            sendResponse(RESP_INVALID_PARAMETER);
+        }
+    }
+
+    private void executeListCommand(String cmdName) {
+        switch(cmdName) {
+            case "CONFIG":
+                sendTextResponse(String.join(",", CONFIG_NAMES));
+                break;
+            case "LOGMODE":
+                sendTextResponse("OFF,MEMORY,LIVE");
+                break;
+            case "SETTING":
+                sendTextResponse("1,2,3,4,5,6,7,8");
+                break;
+            default:
+                sendResponse(RESP_UNKNOWN_COMMAND);
+                break;
+        }
+    }
+
+    private static boolean parseFlagParam(String cmdParam) {
+        if(cmdParam.equals("1")) {
+            return true;
+        }
+        else if(cmdParam.equals("0")) {
+            return false;
+        }
+        throw new NumberFormatException("Expected a 0/1 flag");
+    }
+
+    private static String toHexString(byte[] dataBytes) {
+        StringBuilder hexStr = new StringBuilder(2 * dataBytes.length);
+        for(byte dataByte : dataBytes) {
+            hexStr.append(String.format(DEVICE_LOCALE, "%02X", dataByte));
+        }
+        return hexStr.toString();
+    }
+
+    /**
+     * @return the parsed bytes, or null if the parameter is not an even-length hex string
+     */
+    private static byte[] parseHexString(String hexStr) {
+        if(hexStr.length() % 2 != 0) {
+            return null;
+        }
+        byte[] dataBytes = new byte[hexStr.length() / 2];
+        for(int bidx = 0; bidx < dataBytes.length; bidx++) {
+            int hiNibble = Character.digit(hexStr.charAt(2 * bidx), 16);
+            int loNibble = Character.digit(hexStr.charAt(2 * bidx + 1), 16);
+            if(hiNibble < 0 || loNibble < 0) {
+                return null;
+            }
+            dataBytes[bidx] = (byte) ((hiNibble << 4) | loNibble);
+        }
+        return dataBytes;
+    }
+
+    private int getSysTick() {
+        return (int) ((System.currentTimeMillis() - bootTimeMillis) & 0xffff);
+    }
+
+    /**
+     * The device is the XModem sender for DOWNLOAD and LOGDOWNLOAD: it waits for the host's
+     * NAK (or 'C' for CRC16 with 1K blocks), sends the next block on each ACK, and finishes with EOT.
+     */
+    private void startXModemSend(byte[] sendData) {
+        int numBlocks = Math.max(1, (sendData.length + XModemProtocol.BLOCK_SIZE - 1) / XModemProtocol.BLOCK_SIZE);
+        xmodemData = Arrays.copyOf(sendData, numBlocks * XModemProtocol.BLOCK_SIZE);
+        Arrays.fill(xmodemData, sendData.length, xmodemData.length, XModemProtocol.BYTE_EOF);
+        xmodemBlock = 0;
+        xmodemOffset = 0;
+        xmodemBlockSize = 0;
+        xmodemCRC = false;
+        deviceMode = MODE_XMODEM_SEND;
+        sendResponse(RESP_WAITING_FOR_MODEM);
+    }
+
+    private void processXModemSendByte(byte hostByte) {
+        if(hostByte == XModemProtocol.BYTE_CAN) {
+            deviceMode = MODE_COMMAND;
+            return;
+        }
+        if(deviceMode == MODE_XMODEM_SEND_EOT) {
+            if(hostByte == XModemProtocol.BYTE_ACK) {
+                deviceMode = MODE_COMMAND;
+            }
+            else if(hostByte == XModemProtocol.BYTE_NAK) {
+                sendToHost(new byte[] { XModemProtocol.BYTE_EOT });
+            }
+            return;
+        }
+        if(hostByte == XModemProtocol.BYTE_ACK && xmodemBlockSize > 0) {
+            xmodemOffset += xmodemBlockSize;
+            xmodemBlock++;
+            xmodemBlocksSent++;
+        }
+        else if(hostByte == XModemProtocol.BYTE_CRC_REQUEST && xmodemBlockSize == 0 && xmodemCRCEnabled) {
+            xmodemCRC = true;
+        }
+        else if(hostByte != XModemProtocol.BYTE_NAK) {
+            return;
+        }
+        if(xmodemOffset >= xmodemData.length) {
+            deviceMode = MODE_XMODEM_SEND_EOT;
+            sendToHost(new byte[] { XModemProtocol.BYTE_EOT });
+            return;
+        }
+        int remainingBytes = xmodemData.length - xmodemOffset;
+        xmodemBlockSize = xmodemCRC && remainingBytes > XModemProtocol.BLOCK_SIZE ? XModemProtocol.BLOCK_SIZE_1K : XModemProtocol.BLOCK_SIZE;
+        byte frameNumber = (byte) (XModemProtocol.FIRST_FRAME_NUMBER + xmodemBlock);
+        byte[] blockFrame = new byte[xmodemBlockSize + (xmodemCRC ? 5 : 4)];
+        blockFrame[0] = xmodemBlockSize == XModemProtocol.BLOCK_SIZE_1K ? XModemProtocol.BYTE_STX : XModemProtocol.BYTE_SOH;
+        blockFrame[1] = frameNumber;
+        blockFrame[2] = (byte) (255 - frameNumber);
+        int copyLength = Math.min(xmodemBlockSize, remainingBytes);
+        System.arraycopy(xmodemData, xmodemOffset, blockFrame, 3, copyLength);
+        Arrays.fill(blockFrame, 3 + copyLength, 3 + xmodemBlockSize, XModemProtocol.BYTE_EOF);
+        if(xmodemCRC) {
+            int blockCRC = XModemProtocol.calcCRC16(blockFrame, 3, xmodemBlockSize);
+            blockFrame[xmodemBlockSize + 3] = (byte) (blockCRC >>> 8);
+            blockFrame[xmodemBlockSize + 4] = (byte) blockCRC;
+        }
+        else {
+            blockFrame[xmodemBlockSize + 3] = XModemProtocol.calcChecksum(blockFrame, 3, xmodemBlockSize);
+        }
+        sendToHost(blockFrame);
+    }
+
+    /**
+     * The device is the XModem receiver for UPLOAD: the host's start NAK is answered with a
+     * NAK (or 'C' when the CRC16 variant is enabled), each valid block is ACKed, and EOT
+     * stores the data into the active slot.
+     */
+    private void processXModemReceiveByte(byte hostByte) {
+        if(xmodemFramePos == 0) {
+            if(hostByte == XModemProtocol.BYTE_NAK) {
+                xmodemCRC = xmodemCRCEnabled && xmodemBlock == 1;
+                sendToHost(new byte[] { xmodemCRC ? XModemProtocol.BYTE_CRC_REQUEST : XModemProtocol.BYTE_NAK });
+                return;
+            }
+            else if(hostByte == XModemProtocol.BYTE_CAN) {
+                deviceMode = MODE_COMMAND;
+                return;
+            }
+            else if(hostByte == XModemProtocol.BYTE_EOT) {
+                EmulatedSlot slot = emulatedSlots[activeSlot];
+                System.arraycopy(xmodemData, 0, slot.memoryBytes, 0, Math.min(xmodemData.length, slot.memoryBytes.length));
+                deviceMode = MODE_COMMAND;
+                sendToHost(new byte[] { XModemProtocol.BYTE_ACK });
+                return;
+            }
+            else if(hostByte == XModemProtocol.BYTE_SOH) {
+                xmodemBlockSize = XModemProtocol.BLOCK_SIZE;
+            }
+            else if(hostByte == XModemProtocol.BYTE_STX && xmodemCRC) {
+                xmodemBlockSize = XModemProtocol.BLOCK_SIZE_1K;
+            }
+            else {
+                return;
+            }
+            xmodemFrameLength = xmodemBlockSize + (xmodemCRC ? 5 : 4);
+        }
+        xmodemFrame[xmodemFramePos++] = hostByte;
+        if(xmodemFramePos < xmodemFrameLength) {
+            return;
+        }
+        xmodemFramePos = 0;
+        boolean blockValid;
+        if(xmodemCRC) {
+            int frameCRC = ((xmodemFrame[xmodemBlockSize + 3] & 0xff) << 8) | (xmodemFrame[xmodemBlockSize + 4] & 0xff);
+            blockValid = frameCRC == XModemProtocol.calcCRC16(xmodemFrame, 3, xmodemBlockSize);
+        }
+        else {
+            blockValid = xmodemFrame[xmodemBlockSize + 3] == XModemProtocol.calcChecksum(xmodemFrame, 3, xmodemBlockSize);
+        }
+        byte frameNumber = (byte) xmodemBlock;
+        if(xmodemFrame[1] == (byte) (frameNumber - 1)) {
+            sendToHost(new byte[] { XModemProtocol.BYTE_ACK }); /* Duplicate of the last block */
+            return;
+        }
+        else if(xmodemFrame[1] != frameNumber || xmodemFrame[2] != (byte) (255 - frameNumber) || !blockValid) {
+            sendToHost(new byte[] { XModemProtocol.BYTE_NAK });
+            return;
+        }
+        int dataPos = xmodemData.length;
+        xmodemData = Arrays.copyOf(xmodemData, dataPos + xmodemBlockSize);
+        System.arraycopy(xmodemFrame, 3, xmodemData, dataPos, xmodemBlockSize);
+        xmodemBlock++;
+        xmodemBlocksReceived++;
+        sendToHost(new byte[] { XModemProtocol.BYTE_ACK });
+    }
+
+    /**
+     * Emits the records due since the last tick, cycling through the canned exchange.
+     */
+    private void generateLiveLogs() {
+        if(deviceMode != MODE_COMMAND || logMode.equals("OFF")) {
+            return;
+        }
+        liveLogCarry += liveLogRecordsPerSecond * LIVE_LOG_TICK_MILLIS / 1000.0;
+        int numRecords = (int) liveLogCarry;
+        liveLogCarry -= numRecords;
+        if(numRecords == 0) {
+            return;
+        }
+        boolean liveMode = logMode.equals("LIVE");
+        ByteArrayOutputStream logBytes = new ByteArrayOutputStream(numRecords * 16);
+        int sysTick = getSysTick();
+        for(int ridx = 0; ridx < numRecords; ridx++) {
+            byte[] exchangeBytes = LIVE_LOG_EXCHANGE[liveLogExchangePos];
+            liveLogExchangePos = (liveLogExchangePos + 1) % LIVE_LOG_EXCHANGE.length;
+            int payloadLength = exchangeBytes.length - 1;
+            byte[] logRecord = new byte[4 + payloadLength];
+            logRecord[0] = exchangeBytes[0];
+            logRecord[1] = (byte) payloadLength;
+            logRecord[2] = (byte) (sysTick >>> 8);
+            logRecord[3] = (byte) sysTick;
+            System.arraycopy(exchangeBytes, 1, logRecord, 4, payloadLength);
+            if(liveLogRandom.nextInt(16) == 0 && payloadLength > 2) {
+                logRecord[4 + liveLogRandom.nextInt(payloadLength)] ^= (byte) 0x01; /* The odd corrupted frame */
+            }
+            if(liveMode) {
+                logBytes.write(logRecord, 0, logRecord.length);
+            }
+            else if(logMemoryUsed + logRecord.length <= LOG_MEMORY_SIZE) {
+                System.arraycopy(logRecord, 0, logMemory, logMemoryUsed, logRecord.length);
+                logMemoryUsed += logRecord.length;
+            }
+        }
+        if(liveMode) {
+            liveLogRecordsSent += numRecords;
+            sendToHost(logBytes.toByteArray());
+        }
+    }
+
+}
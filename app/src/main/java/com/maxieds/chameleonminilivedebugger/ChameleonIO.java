@@ -22,12 +22,16 @@ import android.os.SystemClock;
 import android.widget.SeekBar;
 import android.widget.TextView;
 
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
 
 import static com.maxieds.chameleonminilivedebugger.ChameleonIO.SerialRespCode.FALSE;
-import static com.maxieds.chameleonminilivedebugger.ChameleonIO.SerialRespCode.OK;
 import static java.lang.Math.round;
 
 /**
@@ -166,11 +170,11 @@ public class ChameleonIO {
     public static boolean APPEND_PRIOR_BUFFER_DATA = false;
 
     /**
-     * Static storage for command return values.
-     * Used to avoid overhead of passing messages for the command responses.
+     * Static storage for the most recent command return values (kept for the callers that
+     * inspect the full response after getSettingFromDevice returns).
      *
-     * @ref LiveLoggerActivity.getSettingFromDevice
-     * @ref LiveLoggerActivity.usbReaderCallback
+     * @ref ChameleonIO.getSettingFromDevice
+     * @ref ChameleonCommandPipeline
      */
     public static String DEVICE_RESPONSE_CODE = "";
     public static String[] DEVICE_RESPONSE = new String[0];
@@ -254,6 +258,10 @@ public class ChameleonIO {
             return RESP_CODE_MAP.get(rcode);
         }
 
+        public String getResponseMessage() {
+            return responseMsg;
+        }
+
         public String getChameleonTerminalResponse() {
             String codeMsgDelim = responseMsg.length() == 0 ? "" : ":";
             return String.format(BuildConfig.DEFAULT_LOCALE, "%d%s%s\n\r", responseCode, codeMsgDelim, responseMsg);
@@ -376,6 +384,7 @@ public class ChameleonIO {
             CHARGING = DEFAULT_CHARGING;
             THRESHOLD = DEFAULT_THRESHOLD;
             TIMEOUT = DEFAULT_TIMEOUT;
+            invalidateStatusFields();
             Thread setToolbarResetDefaultSettingsDataThread = new Thread() {
                 @Override
                 public void run() {
@@ -411,36 +420,211 @@ public class ChameleonIO {
         }
 
         /**
-         * Queries the live device for its status settings.
+         * The status queries issued by updateAllStatus (in the order they are sent).
+         */
+        public static final int STATUS_FIELD_CONFIG = 0;
+        public static final int STATUS_FIELD_UID = 1;
+        public static final int STATUS_FIELD_UIDSIZE = 2;
+        public static final int STATUS_FIELD_MEMSIZE = 3;
+        public static final int STATUS_FIELD_LOGMODE = 4;
+        public static final int STATUS_FIELD_LOGMEM = 5;
+        public static final int STATUS_FIELD_SETTING = 6;
+        public static final int STATUS_FIELD_READONLY = 7;
+        public static final int STATUS_FIELD_FIELD = 8;
+        public static final int STATUS_FIELD_CHARGING = 9;
+        public static final int STATUS_FIELD_THRESHOLD = 10;
+        public static final int STATUS_FIELD_TIMEOUT = 11;
+        public static final int STATUS_FIELD_COUNT = 12;
+
+        private static final String[] STATUS_FIELD_QUERIES = {
+                "CONFIG?", "UID?", "UIDSIZE?", "MEMSIZE?", "LOGMODE?", "LOGMEM?",
+                "SETTING?", "READONLY?", "FIELD?", "CHARGING?", "THRESHOLD?", "TIMEOUT?"
+        };
+        private static final String[] STATUS_FIELD_QUERIES_REVE = {
+                "config?", "uid?", "uidsize?", "memsize?", null, null,
+                "setting?", "readonly?", null, null, null, null
+        };
+
+        /**
+         * Staleness budgets (ms) for the periodic status refresh: a field is only queried again
+         * once its last value is older than its budget (zero means every refresh), or if it
+         * changed the last time it was read. Changing the slot or configuration invalidates all
+         * of the other fields.
+         * @ref DeviceStatusSettings.setStatusFieldStalenessBudget
+         */
+        public static final int[] STATUS_FIELD_STALENESS_BUDGETS = {
+                0,      /* CONFIG */
+                0,      /* UID */
+                60000,  /* UIDSIZE */
+                60000,  /* MEMSIZE */
+                20000,  /* LOGMODE */
+                0,      /* LOGMEM */
+                0,      /* SETTING */
+                20000,  /* READONLY */
+                20000,  /* FIELD */
+                30000,  /* CHARGING */
+                20000,  /* THRESHOLD */
+                20000,  /* TIMEOUT */
+        };
+
+        private static final long[] statusFieldLastQueryTimes = new long[STATUS_FIELD_COUNT];
+        private static final String[] statusFieldLastValues = new String[STATUS_FIELD_COUNT];
+        private static final boolean[] statusFieldChanged = new boolean[STATUS_FIELD_COUNT];
+
+        public static void setStatusFieldStalenessBudget(int statusField, int budgetMillis) {
+            if(statusField >= 0 && statusField < STATUS_FIELD_COUNT) {
+                STATUS_FIELD_STALENESS_BUDGETS[statusField] = Math.max(0, budgetMillis);
+            }
+        }
+
+        /**
+         * Forgets the cached status values so that the next refresh queries every field.
+         */
+        public static synchronized void invalidateStatusFields() {
+            for(int fidx = 0; fidx < STATUS_FIELD_COUNT; fidx++) {
+                statusFieldLastQueryTimes[fidx] = 0;
+                statusFieldLastValues[fidx] = null;
+                statusFieldChanged[fidx] = false;
+            }
+        }
+
+        private static String getStatusFieldHint(int statusField) {
+            switch(statusField) {
+                case STATUS_FIELD_CONFIG: return CONFIG;
+                case STATUS_FIELD_UID: return UID;
+                case STATUS_FIELD_UIDSIZE: return String.format("%d", UIDSIZE);
+                case STATUS_FIELD_MEMSIZE: return String.format("%d", MEMSIZE);
+                case STATUS_FIELD_LOGMODE: return LOGMODE;
+                case STATUS_FIELD_LOGMEM: return String.format("%d", LOGSIZE);
+                case STATUS_FIELD_SETTING: return String.format("%d", DIP_SETTING);
+                case STATUS_FIELD_READONLY: return String.format("%d", READONLY ? 1 : 0);
+                case STATUS_FIELD_FIELD: return String.format("%d", FIELD ? 1 : 0);
+                case STATUS_FIELD_CHARGING: return CHARGING ? "TRUE" : "FALSE";
+                case STATUS_FIELD_THRESHOLD: return String.format("%d", THRESHOLD);
+                case STATUS_FIELD_TIMEOUT: return TIMEOUT;
+                default: return null;
+            }
+        }
+
+        private static void setStatusFieldValue(int statusField, String value) {
+            switch(statusField) {
+                case STATUS_FIELD_CONFIG:
+                    CONFIG = value;
+                    break;
+                case STATUS_FIELD_UID:
+                    UID = value.equals("TIMEOUT") ? UID_NONE : value;
+                    break;
+                case STATUS_FIELD_UIDSIZE:
+                    UIDSIZE = Utils.parseInt(value);
+                    break;
+                case STATUS_FIELD_MEMSIZE:
+                    MEMSIZE = Utils.parseInt(value);
+                    break;
+                case STATUS_FIELD_LOGMODE:
+                    LOGMODE = value.replaceAll(" \\(.*\\)", "");
+                    break;
+                case STATUS_FIELD_LOGMEM:
+                    LOGSIZE = Utils.parseInt(value.replaceAll(" \\(.*\\)", ""));
+                    break;
+                case STATUS_FIELD_SETTING:
+                    DIP_SETTING = Utils.parseInt(value);
+                    break;
+                case STATUS_FIELD_READONLY:
+                    READONLY = value.equals("1");
+                    break;
+                case STATUS_FIELD_FIELD:
+                    FIELD = value.equals("1");
+                    break;
+                case STATUS_FIELD_CHARGING:
+                    CHARGING = value.equals("TRUE");
+                    break;
+                case STATUS_FIELD_THRESHOLD:
+                    THRESHOLD = Utils.parseInt(value);
+                    break;
+                case STATUS_FIELD_TIMEOUT:
+                    TIMEOUT = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Sends the queries for the selected status fields back to back and stores the results.
+         * @return int[] the fields whose values changed
+         */
+        private static int[] queryStatusFields(int[] statusFields, String[] statusQueries) {
+            String[] queries = new String[statusFields.length];
+            String[] hints = new String[statusFields.length];
+            for(int qidx = 0; qidx < statusFields.length; qidx++) {
+                queries[qidx] = statusQueries[statusFields[qidx]];
+                hints[qidx] = getStatusFieldHint(statusFields[qidx]);
+            }
+            String[] results = ChameleonIO.getSettingsFromDeviceBatch(queries, hints, ChameleonCommandScheduler.PRIORITY_BACKGROUND);
+            long queryTime = SystemClock.elapsedRealtime();
+            int[] changedFields = new int[statusFields.length];
+            int numChanged = 0;
+            for(int qidx = 0; qidx < statusFields.length; qidx++) {
+                int statusField = statusFields[qidx];
+                boolean valueChanged = statusFieldLastValues[statusField] != null && !results[qidx].equals(statusFieldLastValues[statusField]);
+                statusFieldChanged[statusField] = valueChanged;
+                statusFieldLastValues[statusField] = results[qidx];
+                statusFieldLastQueryTimes[statusField] = queryTime;
+                if(valueChanged) {
+                    changedFields[numChanged++] = statusField;
+                }
+                setStatusFieldValue(statusField, results[qidx]);
+            }
+            return Arrays.copyOf(changedFields, numChanged);
+        }
+
+        /**
+         * Queries the live device for all of its status settings.
          */
         public static boolean updateAllStatus() {
+            return updateAllStatus(true);
+        }
+
+        /**
+         * Queries the live device for its status settings. The queries are written to the device
+         * in one batch and the responses are matched in order, so the refresh costs about one
+         * round trip.
+         * @param fullRefresh Query every field, or only the fields past their staleness budgets
+         * @ref DeviceStatusSettings.STATUS_FIELD_STALENESS_BUDGETS
+         */
+        public static synchronized boolean updateAllStatus(boolean fullRefresh) {
             try {
                 if (!ChameleonIO.REVE_BOARD) {
-                    CONFIG = ChameleonIO.getSettingFromDevice("CONFIG?", CONFIG);
-                    UID = ChameleonIO.getSettingFromDevice("UID?", UID);
-                    if(UID.equals("TIMEOUT")) {
-                        UID = UID_NONE;
+                    long curTime = SystemClock.elapsedRealtime();
+                    int[] staleFields = new int[STATUS_FIELD_COUNT];
+                    int[] freshFields = new int[STATUS_FIELD_COUNT];
+                    int numStale = 0, numFresh = 0;
+                    for(int fidx = 0; fidx < STATUS_FIELD_COUNT; fidx++) {
+                        if(fullRefresh || statusFieldLastValues[fidx] == null || statusFieldChanged[fidx] ||
+                                curTime - statusFieldLastQueryTimes[fidx] >= STATUS_FIELD_STALENESS_BUDGETS[fidx]) {
+                            staleFields[numStale++] = fidx;
+                        }
+                        else {
+                            freshFields[numFresh++] = fidx;
+                        }
+                    }
+                    int[] changedFields = queryStatusFields(Arrays.copyOf(staleFields, numStale), STATUS_FIELD_QUERIES);
+                    boolean slotChanged = false;
+                    for(int changedField : changedFields) {
+                        slotChanged |= changedField == STATUS_FIELD_CONFIG || changedField == STATUS_FIELD_SETTING;
+                    }
+                    if(slotChanged && numFresh > 0) {
+                        /* The remaining cached fields describe the previous slot / configuration: */
+                        queryStatusFields(Arrays.copyOf(freshFields, numFresh), STATUS_FIELD_QUERIES);
                     }
-                    UIDSIZE = Utils.parseInt(ChameleonIO.getSettingFromDevice("UIDSIZE?", String.format("%d", UIDSIZE)));
-                    MEMSIZE = Utils.parseInt(ChameleonIO.getSettingFromDevice("MEMSIZE?", String.format("%d", MEMSIZE)));
-                    LOGMODE = ChameleonIO.getSettingFromDevice("LOGMODE?", String.format("%d", LOGSIZE)).replaceAll(" \\(.*\\)", "");
-                    LOGSIZE = Utils.parseInt(ChameleonIO.getSettingFromDevice("LOGMEM?", String.format("%d", LOGSIZE)).replaceAll(" \\(.*\\)", ""));
-                    DIP_SETTING = Utils.parseInt(ChameleonIO.getSettingFromDevice("SETTING?", String.format("%d", DIP_SETTING)));
-                    READONLY = ChameleonIO.getSettingFromDevice("READONLY?", String.format("%d", READONLY ? 1 : 0)).equals("1");
-                    FIELD = ChameleonIO.getSettingFromDevice("FIELD?", String.format("%d", FIELD ? 1 : 0)).equals("1");
-                    CHARGING = ChameleonIO.getSettingFromDevice("CHARGING?", String.format("%d", CHARGING ? 1 : 0)).equals("TRUE");
-                    THRESHOLD = Utils.parseInt(ChameleonIO.getSettingFromDevice("THRESHOLD?", String.format("%d", THRESHOLD)));
-                    TIMEOUT = ChameleonIO.getSettingFromDevice("TIMEOUT?", TIMEOUT);
                 }
                 else {
-                    CONFIG = ChameleonIO.getSettingFromDevice("config?", CONFIG);
-                    UID = ChameleonIO.getSettingFromDevice("uid?", UID);
-                    UIDSIZE = Utils.parseInt(ChameleonIO.getSettingFromDevice("uidsize?", String.format("%d",UIDSIZE)));
-                    MEMSIZE = Utils.parseInt(ChameleonIO.getSettingFromDevice("memsize?", String.format("%d",MEMSIZE)));
+                    queryStatusFields(new int[] {
+                            STATUS_FIELD_CONFIG, STATUS_FIELD_UID, STATUS_FIELD_UIDSIZE, STATUS_FIELD_MEMSIZE,
+                            STATUS_FIELD_SETTING, STATUS_FIELD_READONLY
+                    }, STATUS_FIELD_QUERIES_REVE);
                     LOGMODE = UNSET_VALUE_NA;
                     LOGSIZE = 0;
-                    DIP_SETTING = Utils.parseInt(ChameleonIO.getSettingFromDevice("setting?", String.format("%d", DIP_SETTING)));
-                    READONLY = ChameleonIO.getSettingFromDevice("readonly?", String.format("%d", READONLY ? 1 : 0)).equals("1");
                     FIELD = false;
                     CHARGING = false;
                     THRESHOLD = 0;
@@ -461,7 +645,7 @@ public class ChameleonIO {
          * @ref DeviceStatusSettings.STATS_UPDATE_INTERVAL
          * @ref DeviceStatusSettings.updateAllStatus
          */
-        public static void updateAllStatusAndPost(boolean resetTimer) {
+        public static void updateAllStatusAndPost(final boolean resetTimer) {
             if(ChameleonSettings.getActiveSerialIOPort() == null) {
                 stopPostingStats();
                 setToolbarStatsToDefault();
@@ -471,7 +655,8 @@ public class ChameleonIO {
                 @Override
                 public void run() {
                     try {
-                        boolean haveUpdates = updateAllStatus();
+                        /* The periodic refreshes only query the fields past their staleness budgets: */
+                        boolean haveUpdates = updateAllStatus(!resetTimer);
                     }
                     catch(Exception nfe) {
                         AndroidLogger.printStackTrace(nfe);
@@ -522,98 +707,173 @@ public class ChameleonIO {
     public static DeviceStatusSettings deviceStatus = new ChameleonIO.DeviceStatusSettings();
 
     /**
-     * Executes the passed command by sending the command to the device.
-     * The response returned by the device is handled separately elsewhere in the program.
+     * Sends the command to the device through the command scheduler without waiting for its
+     * response. The future completes on the scheduler's dispatcher thread (never the UI thread),
+     * and a command that fails or gets no response is logged there.
      *
      * @param rawCmd
-     * @param timeout
-     * @return SerialRespCode status code (OK)
+     * @param priorityClass ChameleonCommandScheduler.PRIORITY_*
+     * @return CompletableFuture device response
+     * @ref ChameleonCommandScheduler
      * @url http://rawgit.com/emsec/ChameleonMini/master/Doc/Doxygen/html/Page_CommandLine.html
      */
-    public static SerialRespCode executeChameleonMiniCommand(String rawCmd, int timeout) {
-        if(PAUSED) {
-            AndroidLogger.i(TAG, "executeChameleonMiniCommand: PAUSED.");
-            return FALSE;
-        }
-        if (timeout < 0) {
-            timeout *= -1;
-            SystemClock.sleep(timeout);
-        }
-        String deviceConfigCmd = rawCmd + (REVE_BOARD ? "\r\n" : "\n\r");
-        byte[] sendBuf = deviceConfigCmd.getBytes(StandardCharsets.UTF_8);
-        ChameleonSerialIOInterface serialPort = ChameleonSettings.getActiveSerialIOPort();
-        if(serialPort == null) {
-            AndroidLogger.i(TAG, "Serial port is null while executing command");
-            return null;
-        }
-        if (serialPort.sendDataBuffer(sendBuf) == SerialIOReceiver.STATUS_OK) {
-            return OK;
-        } else {
-            return null;
+    public static CompletableFuture<ChameleonCommandPipeline.CommandResponse> executeChameleonMiniCommandAsync(final String rawCmd, int priorityClass) {
+        ChameleonIO.LASTCMD = rawCmd;
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse> cmdFuture = ChameleonCommandScheduler.getInstance().submit(rawCmd, priorityClass);
+        cmdFuture.whenComplete(new BiConsumer<ChameleonCommandPipeline.CommandResponse, Throwable>() {
+            @Override
+            public void accept(ChameleonCommandPipeline.CommandResponse cmdResp, Throwable cmdError) {
+                if(cmdError != null) {
+                    AndroidLogger.w(TAG, "Command " + rawCmd + " failed: " + cmdError.getMessage());
+                }
+            }
+        });
+        return cmdFuture;
+    }
+
+    public static CompletableFuture<ChameleonCommandPipeline.CommandResponse> executeChameleonMiniCommandAsync(String rawCmd) {
+        return executeChameleonMiniCommandAsync(rawCmd, ChameleonCommandScheduler.PRIORITY_INTERACTIVE);
+    }
+
+    /**
+     * Sends the commands to the device one after the other without blocking the caller: each
+     * command is submitted once the previous one is answered, so a long sequence neither
+     * overflows the scheduler queue nor outruns the device.
+     * @param rawCmds
+     * @param priorityClass ChameleonCommandScheduler.PRIORITY_*
+     * @return CompletableFuture of the responses (null entries for the commands that failed)
+     */
+    public static CompletableFuture<ChameleonCommandPipeline.CommandResponse[]> executeChameleonMiniCommandsAsync(String[] rawCmds, int priorityClass) {
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse[]> resultFuture = new CompletableFuture<ChameleonCommandPipeline.CommandResponse[]>();
+        submitNextCommandInSequence(rawCmds, 0, new ChameleonCommandPipeline.CommandResponse[rawCmds.length], priorityClass, resultFuture);
+        return resultFuture;
+    }
+
+    private static void submitNextCommandInSequence(final String[] rawCmds, final int cmdIdx, final ChameleonCommandPipeline.CommandResponse[] cmdResps,
+                                                    final int priorityClass, final CompletableFuture<ChameleonCommandPipeline.CommandResponse[]> resultFuture) {
+        if(cmdIdx >= rawCmds.length) {
+            resultFuture.complete(cmdResps);
+            return;
         }
+        executeChameleonMiniCommandAsync(rawCmds[cmdIdx], priorityClass).whenComplete(new BiConsumer<ChameleonCommandPipeline.CommandResponse, Throwable>() {
+            @Override
+            public void accept(ChameleonCommandPipeline.CommandResponse cmdResp, Throwable cmdError) {
+                cmdResps[cmdIdx] = cmdResp;
+                submitNextCommandInSequence(rawCmds, cmdIdx + 1, cmdResps, priorityClass, resultFuture);
+            }
+        });
+    }
+
+    /**
+     * Queries the Chameleon device with the query command and returns a future for its
+     * response (sans the preceeding ascii status code). The future completes as soon as the
+     * response frame is received, or with the hint value if the device does not answer in time.
+     * @param query
+     * @param hint Value to return on timeout (or null for "TIMEOUT")
+     * @param priorityClass ChameleonCommandScheduler.PRIORITY_*
+     * @return CompletableFuture device response
+     * @ref ChameleonCommandScheduler
+     */
+    public static CompletableFuture<String> getSettingFromDeviceAsync(String query, String hint, int priorityClass) {
+        final String defaultValue = (hint == null) ? "TIMEOUT" : hint;
+        ChameleonIO.LASTCMD = query;
+        if(ChameleonSettings.getActiveSerialIOPort() == null) {
+            AndroidLogger.i(TAG, "Serial port is null");
+            return CompletableFuture.completedFuture(defaultValue);
+        }
+        return ChameleonCommandScheduler.getInstance().submit(query, priorityClass).handle(
+                new BiFunction<ChameleonCommandPipeline.CommandResponse, Throwable, String>() {
+                    @Override
+                    public String apply(ChameleonCommandPipeline.CommandResponse cmdResp, Throwable cmdError) {
+                        if(cmdError != null || cmdResp == null) {
+                            return defaultValue;
+                        }
+                        return getSettingFromResponse(cmdResp);
+                    }
+                });
+    }
+
+    public static CompletableFuture<String> getSettingFromDeviceAsync(String query, String hint) {
+        return getSettingFromDeviceAsync(query, hint, ChameleonCommandScheduler.PRIORITY_INTERACTIVE);
+    }
+
+    /**
+     * Extracts the setting value from a device response: the first data line for the OK
+     * response codes, and the response code itself otherwise.
+     * @param cmdResp
+     * @return String setting value
+     */
+    public static String getSettingFromResponse(ChameleonCommandPipeline.CommandResponse cmdResp) {
+        int deviceRespCode = cmdResp.getResponseCodeValue();
+        if(deviceRespCode != ChameleonIO.SerialRespCode.OK.toInteger() &&
+                deviceRespCode != ChameleonIO.SerialRespCode.OK_WITH_TEXT.toInteger()) {
+            return cmdResp.responseCode == null ? "" : cmdResp.responseCode;
+        }
+        String retValue = (cmdResp.responseData != null && cmdResp.responseData.length > 0 && cmdResp.responseData[0] != null) ?
+                cmdResp.responseData[0] : "";
+        if(retValue.equals("201:INVALID COMMAND USAGE")) {
+            retValue += " (Are you in READER mode?)";
+        }
+        return retValue;
     }
 
     /**
      * Queries the Chameleon device with the query command and returns its response
      * (sans the preceeding ascii status code).
      * @param query
+     * @param hint Value to return on timeout (or null for "TIMEOUT")
      * @return String device response
+     * @ref ChameleonIO.getSettingFromDeviceAsync
      * @ref ChameleonIO.DEVICE_RESPONSE
      * @ref ChameleonIO.DEVICE_RESPONSE_CODE
-     * @ref LiveLoggerActivity.usbReaderCallback
      */
     public static String getSettingFromDevice(String query, String hint) {
-        ChameleonIO.DEVICE_RESPONSE = new String[1];
-        ChameleonIO.DEVICE_RESPONSE[0] = (hint == null) ? "TIMEOUT" : hint;
-        ChameleonIO.LASTCMD = query;
-        ChameleonSerialIOInterface serialIOPort = ChameleonSettings.getActiveSerialIOPort();
-        if(serialIOPort == null) {
-            AndroidLogger.i(TAG, "Serial port is null");
-            return ChameleonIO.DEVICE_RESPONSE[0];
+        String defaultValue = (hint == null) ? "TIMEOUT" : hint;
+        ChameleonIO.DEVICE_RESPONSE = new String[] { defaultValue };
+        try {
+            return getSettingFromDeviceAsync(query, hint).get();
+        } catch(InterruptedException | ExecutionException | CancellationException ie) {
+            AndroidLogger.printStackTrace(ie);
+            return defaultValue;
         }
-        else if(!serialIOPort.tryAcquireSerialPort(LOCK_TIMEOUT)) {
-            AndroidLogger.i(TAG, "Unable to acquire serial port");
-            return ChameleonIO.DEVICE_RESPONSE[0];
+    }
+
+    /**
+     * Writes all of the queries to the device back to back (as one scheduled request) and
+     * matches the responses in order, so the batch costs about one round trip plus the
+     * transfer time instead of one round trip per query.
+     * @param queries
+     * @param hints Values to return for the queries that time out (entries may be null)
+     * @param priorityClass ChameleonCommandScheduler.PRIORITY_*
+     * @return String[] device responses in the order of the queries
+     * @ref ChameleonCommandScheduler
+     */
+    public static String[] getSettingsFromDeviceBatch(String[] queries, String[] hints, int priorityClass) {
+        String[] results = new String[queries.length];
+        for(int qidx = 0; qidx < queries.length; qidx++) {
+            results[qidx] = (hints == null || hints[qidx] == null) ? "TIMEOUT" : hints[qidx];
         }
-        ChameleonIO.WAITING_FOR_RESPONSE = true;
-        ChameleonIO.executeChameleonMiniCommand(query, TIMEOUT);
-        for(int i = 0; i < ChameleonIO.TIMEOUT / 50; i++) {
-            if(!ChameleonIO.WAITING_FOR_RESPONSE) {
-                break;
-            }
-            try {
-                Thread.sleep(50);
-            } catch (InterruptedException ie) {
-                ChameleonIO.WAITING_FOR_RESPONSE = false;
-                break;
-            }
+        if(ChameleonSettings.getActiveSerialIOPort() == null || queries.length == 0) {
+            return results;
         }
-        int deviceRespCode = -1;
         try {
-            if(ChameleonIO.DEVICE_RESPONSE_CODE == null) {
-                ChameleonIO.DEVICE_RESPONSE_CODE = "";
-            }
-            else if(ChameleonIO.DEVICE_RESPONSE_CODE.length() >= 3) {
-                deviceRespCode = Integer.valueOf(ChameleonIO.DEVICE_RESPONSE_CODE.substring(0, 3));
-            }
-            else {
-                deviceRespCode = Integer.valueOf(ChameleonIO.DEVICE_RESPONSE_CODE);
+            ChameleonCommandPipeline.CommandResponse[] cmdResps = ChameleonCommandScheduler.getInstance().submitBatch(queries, priorityClass, TIMEOUT,
+                    ChameleonCommandScheduler.DEFAULT_QUEUE_WAIT_MILLIS[priorityClass] + TIMEOUT, false).get();
+            for(int qidx = 0; qidx < queries.length; qidx++) {
+                if(cmdResps[qidx] != null) {
+                    results[qidx] = getSettingFromResponse(cmdResps[qidx]);
+                }
             }
-        } catch(NumberFormatException nfe) {
-            AndroidLogger.printStackTrace(nfe);
-            serialIOPort.releaseSerialPortLock();
-            return ChameleonIO.DEVICE_RESPONSE_CODE;
-        }
-        serialIOPort.releaseSerialPortLock();
-        if(deviceRespCode != ChameleonIO.SerialRespCode.OK.toInteger() &&
-                deviceRespCode != ChameleonIO.SerialRespCode.OK_WITH_TEXT.toInteger()) {
-            return ChameleonIO.DEVICE_RESPONSE_CODE;
+        } catch(ExecutionException | CancellationException ee) {
+            AndroidLogger.w(TAG, "Batched queries failed: " + ee.getMessage());
+        } catch(InterruptedException ie) {
+            AndroidLogger.printStackTrace(ie);
         }
-        String retValue = ChameleonIO.DEVICE_RESPONSE[0] != null ? ChameleonIO.DEVICE_RESPONSE[0] : "";
-        if(retValue.equals("201:INVALID COMMAND USAGE")) {
-            retValue += " (Are you in READER mode?)";
-        }
-        return retValue;
+        return results;
+    }
+
+    public static String[] getSettingsFromDeviceBatch(String[] queries, String[] hints) {
+        return getSettingsFromDeviceBatch(queries, hints, ChameleonCommandScheduler.PRIORITY_INTERACTIVE);
     }
 
     /**
@@ -198,6 +198,21 @@ public class ChameleonLogUtils {
 
     }
 
+    /**
+     * Byte-indexed lookup of the valid log codes (avoids boxing into LOG_CODE_MAP on the
+     * serial receive path).
+     */
+    private static final boolean[] LOG_CODE_TABLE = new boolean[256];
+    static {
+        for (LogCode logCode : LogCode.values()) {
+            LOG_CODE_TABLE[logCode.toInteger()] = true;
+        }
+    }
+
+    public static boolean isLiveLoggingCode(byte logCodeByte) {
+        return LOG_CODE_TABLE[Byte.toUnsignedInt(logCodeByte)];
+    }
+
     public static int ResponseIsLiveLoggingBytes(@NonNull byte[] loggingBytes) {
         return ResponseIsLiveLoggingBytes(loggingBytes, 0, loggingBytes.length);
     }
@@ -208,7 +223,7 @@ public class ChameleonLogUtils {
         }
         byte logCodeByte = loggingBytes[startIndex];
         int logDataLength = Byte.toUnsignedInt(loggingBytes[startIndex + 1]);
-        if(LogCode.LOG_CODE_MAP.get(logCodeByte) != null) {
+        if(isLiveLoggingCode(logCodeByte)) {
             return 4 + logDataLength;
         }
         return 0;
@@ -96,10 +96,6 @@ public interface ChameleonSerialIOInterface {
     boolean tryAcquireSerialPort(int timeout);
     boolean releaseSerialPortLock();
 
-    interface SerialDataReceiverInterface {
-        void onReceivedData(byte[] liveLogData);
-    }
-
     int sendDataBuffer(byte[] dataWriteBuffer);
 
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ public class ChameleonSettings {
     public static boolean allowWiredUSB = true;
     public static int serialBaudRate = ChameleonSerialIOInterface.HIGH_SPEED_BAUD_RATE;
     public static boolean allowBluetooth = false;
+    public static boolean allowDeviceEmulator = false;
     public static int bluetoothConnectionPriority = BluetoothGatt.CONNECTION_PRIORITY_BALANCED;
     public static boolean disableBTAdapter = false;
 
@@ -41,13 +42,17 @@ public class ChameleonSettings {
 
     public static final int USBIO_IFACE_INDEX = 0;
     public static final int BTIO_IFACE_INDEX = 1;
+    public static final int REPLAYIO_IFACE_INDEX = 2;
+    public static final int EMULATORIO_IFACE_INDEX = 3;
     public static SerialIOReceiver[] serialIOPorts = null;
     public static int SERIALIO_IFACE_ACTIVE_INDEX = -1;
 
     public static synchronized void initSerialIOPortObjects() {
-        serialIOPorts = new SerialIOReceiver[2];
+        serialIOPorts = new SerialIOReceiver[4];
         serialIOPorts[USBIO_IFACE_INDEX] = new SerialUSBInterface(LiveLoggerActivity.getLiveLoggerInstance());
         serialIOPorts[BTIO_IFACE_INDEX] = new BluetoothBLEInterface(LiveLoggerActivity.getLiveLoggerInstance());
+        serialIOPorts[REPLAYIO_IFACE_INDEX] = new SerialReplayInterface(LiveLoggerActivity.getLiveLoggerInstance());
+        serialIOPorts[EMULATORIO_IFACE_INDEX] = new SerialEmulatorInterface(LiveLoggerActivity.getLiveLoggerInstance());
         SERIALIO_IFACE_ACTIVE_INDEX = -1;
     }
 
@@ -58,6 +63,20 @@ public class ChameleonSettings {
         return null;
     }
 
+    public static SerialReplayInterface getReplayIOInterface() {
+        if (serialIOPorts != null) {
+            return (SerialReplayInterface) serialIOPorts[REPLAYIO_IFACE_INDEX];
+        }
+        return null;
+    }
+
+    public static SerialEmulatorInterface getEmulatorIOInterface() {
+        if (serialIOPorts != null) {
+            return (SerialEmulatorInterface) serialIOPorts[EMULATORIO_IFACE_INDEX];
+        }
+        return null;
+    }
+
     public static ChameleonSerialIOInterface getActiveSerialIOPort() {
         if(SERIALIO_IFACE_ACTIVE_INDEX < 0) {
             return null;
@@ -83,6 +102,11 @@ public class ChameleonSettings {
         if (getActiveSerialIOPort() != null) {
             return;
         }
+        if(allowDeviceEmulator) {
+            AndroidLogger.i(TAG, "Connecting to the Chameleon device emulator ... ");
+            serialIOPorts[EMULATORIO_IFACE_INDEX].startScanningDevices();
+            return;
+        }
         for(int si = 0; si < serialIOPorts.length; si++) {
             if(si == USBIO_IFACE_INDEX && allowWiredUSB) {
                 AndroidLogger.i(TAG, "Started scanning for SerialUSB devices ... ");
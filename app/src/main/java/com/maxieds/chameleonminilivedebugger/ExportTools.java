@@ -23,14 +23,14 @@ import static android.content.Context.DOWNLOAD_SERVICE;
 import android.app.DownloadManager;
 import android.os.Environment;
 import android.os.Handler;
-import android.view.View;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * <h1>File Export Tools</h1>
@@ -53,37 +53,44 @@ public class ExportTools {
     /**
      * Named XModem connection status bytes.
      */
-    public static final byte BYTE_NAK = (byte) 0x15;
-    public static final byte BYTE_SOH = (byte) 0x01;
-    public static final byte BYTE_ACK = (byte) 0x06;
-    public static final byte BYTE_CAN = (byte) 0x18;
-    public static final byte BYTE_EOF = (byte) 0x1A;
-    public static final byte BYTE_EOT = (byte) 0x04;
+    public static final byte BYTE_NAK = XModemProtocol.BYTE_NAK;
+    public static final byte BYTE_SOH = XModemProtocol.BYTE_SOH;
+    public static final byte BYTE_ACK = XModemProtocol.BYTE_ACK;
+    public static final byte BYTE_CAN = XModemProtocol.BYTE_CAN;
+    public static final byte BYTE_EOF = XModemProtocol.BYTE_EOF;
+    public static final byte BYTE_EOT = XModemProtocol.BYTE_EOT;
     public static final byte BYTE_ESC = (byte) 0x1B;
 
     /**
      * XModem connection configuration.
      */
-    public static final short XMODEM_BLOCK_SIZE = 128;
-    public static final byte FIRST_FRAME_NUMBER = (byte) 1;
-    public static final byte CHECKSUM_INIT_VALUE = 0;
+    public static final short XMODEM_BLOCK_SIZE = (short) XModemProtocol.BLOCK_SIZE;
+    public static final byte FIRST_FRAME_NUMBER = XModemProtocol.FIRST_FRAME_NUMBER;
+    public static final byte CHECKSUM_INIT_VALUE = XModemProtocol.CHECKSUM_INIT_VALUE;
     public static int MAX_NAK_COUNT = 20; // to match the Chameleon device standard
 
+    /**
+     * Ask the device for the CRC16 / XModem-1K variant when downloading (the stock firmware
+     * only speaks 128 byte blocks with checksums, so the request costs a short start timeout
+     * there before falling back).
+     * @ref XModemTransfer
+     */
+    public static boolean XMODEM_REQUEST_CRC = false;
+    public static boolean XMODEM_ALLOW_1K_UPLOADS = true;
+
     /**
      * Static variables used internally within the class.
      */
     public static int fileSize = 0;
-    public static FileOutputStream streamDest;
-    public static InputStream streamSrc;
     public static File outfile;
     private static String currentLogMode = "LIVE";
     private static boolean throwToLive = true;
-    public static byte CurrentFrameNumber;
-    public static byte Checksum;
-    public static int currentNAKCount;
     public static boolean transmissionErrorOccurred;
-    public static int uploadState;
-    public static byte[] uploadFramebuffer = new byte[XMODEM_BLOCK_SIZE + 4];
+    private static XModemTransfer xmodemTransfer = null;
+
+    public static XModemTransfer getXModemTransfer() {
+        return xmodemTransfer;
+    }
 
     /**
      * Completes the XModem download command. Implemented this way to keep the GUI from
@@ -98,24 +105,30 @@ public class ExportTools {
                 return;
             }
             if (!ExportTools.EOT) {
+                if(xmodemTransfer != null) {
+                    xmodemTransfer.checkTimeouts(serialIOPort);
+                    updateTransferState();
+                }
                 eotSleepHandler.postDelayed(this, 50);
+                return;
             }
-            else if(ChameleonIO.DOWNLOAD){
-                try {
-                    streamDest.close();
-                } catch (Exception ioe) {
-                    GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", ioe.getMessage()));
-                    AndroidLogger.printStackTrace(ioe);
-                } finally {
-                    ChameleonIO.DOWNLOAD = false;
-                    ChameleonIO.executeChameleonMiniCommand("LOGMODE=" + currentLogMode, ChameleonIO.TIMEOUT);
-                    serialIOPort.releaseSerialPortLock();
-                }
+            if(xmodemTransfer != null) {
+                xmodemTransfer.abort(); /* No-op unless the port shut down under the transfer */
+                AndroidLogger.i(TAG, xmodemTransfer.getStatisticsSummary());
+            }
+            if(ChameleonIO.DOWNLOAD){
+                ChameleonIO.DOWNLOAD = false;
+                /* Release the link first: the scheduler needs the port lock to restore the log mode */
+                serialIOPort.releaseSerialPortLock();
+                ChameleonIO.executeChameleonMiniCommandAsync("LOGMODE=" + currentLogMode);
                 if(!ExportTools.transmissionErrorOccurred) {
                     DownloadManager downloadManager = (DownloadManager) LiveLoggerActivity.defaultContext.getSystemService(DOWNLOAD_SERVICE);
                     downloadManager.addCompletedDownload(outfile.getName(), outfile.getName(), true, "application/octet-stream",
                             outfile.getAbsolutePath(), outfile.length(), true);
                     String statusMsg = "Write internal log data to file " + outfile.getName() + "(+" + outfile.length() + " / " + fileSize + " bytes).\n\n";
+                    if(xmodemTransfer != null) {
+                        statusMsg += xmodemTransfer.getStatisticsSummary() + "\n\n";
+                    }
                     statusMsg += "If you are not seeing the expected output, try running the LOGSTORE command from the tools menu first.";
                     GUILogUtils.appendNewLog(new LogEntryMetadataRecord(LiveLoggerActivity.defaultInflater, "EXPORT", statusMsg));
                     if (throwToLive) {
@@ -130,15 +143,8 @@ public class ExportTools {
             }
             else if(ChameleonIO.UPLOAD) {
                 AndroidLogger.i(TAG, "Cleaning up after UPLOAD ...");
-                try {
-                    streamSrc.close();
-                } catch (Exception ioe) {
-                    GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", ioe.getMessage()));
-                    AndroidLogger.printStackTrace(ioe);
-                } finally {
-                    ChameleonIO.UPLOAD = false;
-                    serialIOPort.releaseSerialPortLock();
-                }
+                ChameleonIO.UPLOAD = false;
+                serialIOPort.releaseSerialPortLock();
                 if(!ExportTools.transmissionErrorOccurred) {
                     ChameleonIO.deviceStatus.updateAllStatusAndPost(false);
                     ChameleonIO.deviceStatus.updateAllStatusAndPost(false); /* Make sure the device returned the correct data to display */
@@ -167,71 +173,61 @@ public class ExportTools {
         return checksum;
     }
 
+    /**
+     * Copies the state of the running transfer into the flags polled by eotSleepRunnable.
+     */
+    private static void updateTransferState() {
+        XModemTransfer transfer = xmodemTransfer;
+        if(transfer == null || !transfer.isFinished()) {
+            return;
+        }
+        fileSize = (int) transfer.getPayloadBytes();
+        transmissionErrorOccurred = transfer.getStatus() != XModemTransfer.STATUS_COMPLETE;
+        EOT = true;
+    }
+
     /**
      * Handles the logic of receiving the data in a XModem download.
      * @param liveLogData
-     * @ref LiveLoggerActivity.usbReaderCallback
+     * @ref XModemTransfer.onReceivedFrame
      */
     public static void performXModemSerialDownload(byte[] liveLogData) {
         ChameleonSerialIOInterface serialIOPort = ChameleonSettings.getActiveSerialIOPort();
         if(serialIOPort == null || !serialIOPort.serialConfigured()) {
             return;
         }
-        if(ExportTools.EOT)
+        if(ExportTools.EOT || xmodemTransfer == null || liveLogData == null)
             return; // waiting for conclusion of timer to cleanup the download files
-        AndroidLogger.i(TAG, "Received XModem data (#bytes=" + liveLogData.length + ") ..." + Utils.bytes2Hex(liveLogData));
-        AndroidLogger.i(TAG, "    => " + Utils.bytes2Ascii(liveLogData));
-        byte[] frameBuffer = new byte[XMODEM_BLOCK_SIZE];
-        if (liveLogData != null && liveLogData.length > 0 && liveLogData[0] != ExportTools.BYTE_EOT) {
-            if (liveLogData[0] == ExportTools.BYTE_SOH && liveLogData[1] == ExportTools.CurrentFrameNumber && liveLogData[2] == (byte) (255 - ExportTools.CurrentFrameNumber)) {
-                AndroidLogger.i(TAG, "Writing XModem data ...");
-                int dataBufferSize = liveLogData.length - 4;
-                System.arraycopy(liveLogData, 3, frameBuffer, 0, ExportTools.XMODEM_BLOCK_SIZE);
-                byte checksumByte = liveLogData[dataBufferSize + 3];
-                ExportTools.Checksum = ExportTools.CalcChecksum(frameBuffer, ExportTools.XMODEM_BLOCK_SIZE);
-                if (ExportTools.Checksum != checksumByte && currentNAKCount < MAX_NAK_COUNT) {
-                    AndroidLogger.w(TAG, "Sent another NAK (invalid checksum) : # = " + currentNAKCount);
-                    serialIOPort.sendDataBuffer(new byte[]{ExportTools.BYTE_NAK});
-                    currentNAKCount++;
-                    return;
-                }
-                else if(ExportTools.Checksum != checksumByte) {
-                    ExportTools.EOT = true;
-                    ExportTools.transmissionErrorOccurred = true;
-                    serialIOPort.sendDataBuffer(new byte[] {ExportTools.BYTE_CAN});
-                    return;
-                }
-                try {
-                    ExportTools.fileSize += liveLogData.length;
-                    ExportTools.streamDest.write(frameBuffer);
-                    ExportTools.streamDest.flush();
-                    ExportTools.CurrentFrameNumber++;
-                    serialIOPort.sendDataBuffer(new byte[]{BYTE_ACK});
-                } catch (Exception e) {
-                    ExportTools.EOT = true;
-                    AndroidLogger.printStackTrace(e);
-                }
-            }
-            else {
-                if(currentNAKCount >= MAX_NAK_COUNT) {
-                    ExportTools.EOT = true;
-                    ExportTools.transmissionErrorOccurred = true;
-                    serialIOPort.sendDataBuffer(new byte[] {ExportTools.BYTE_CAN});
-                    return;
-                }
-                AndroidLogger.w(TAG, "Sent another NAK (header bytes) : # = " + currentNAKCount);
-                serialIOPort.sendDataBuffer(new byte[]{ExportTools.BYTE_NAK});
-                currentNAKCount++;
-            }
+        xmodemTransfer.onReceivedFrame(liveLogData, serialIOPort);
+        updateTransferState();
+    }
+
+    /**
+     * Sends the UPLOAD / DOWNLOAD command and takes the serial port lock over from the command
+     * scheduler as soon as the device answers with the 110 status line, so no queued command
+     * (e.g., the background status refresh) reaches the device once it expects XModem frames.
+     * @param serialIOPort
+     * @param xmodemCmd
+     * @return whether the device is waiting for the transfer (the caller then holds the port lock)
+     * @ref ChameleonCommandScheduler.submitTransferCommand
+     */
+    private static boolean startXModemTransferCommand(ChameleonSerialIOInterface serialIOPort, String xmodemCmd) {
+        ChameleonIO.WAITING_FOR_XMODEM = true;
+        ChameleonCommandPipeline.CommandResponse cmdResp;
+        try {
+            cmdResp = ChameleonCommandScheduler.getInstance().submitTransferCommand(xmodemCmd).get();
+        } catch(InterruptedException | ExecutionException | CancellationException ee) {
+            AndroidLogger.w(TAG, "No response to " + xmodemCmd + ": " + ee.getMessage());
+            ChameleonIO.WAITING_FOR_XMODEM = false;
+            return false;
         }
-        else {
-            try {
-                serialIOPort.sendDataBuffer(new byte[]{ExportTools.BYTE_ACK});
-            } catch (Exception ioe) {
-                AndroidLogger.printStackTrace(ioe);
-            }
-            ExportTools.EOT = true;
+        if(cmdResp.getResponseCodeValue() != ChameleonIO.SerialRespCode.WAITING_FOR_MODEM.toInteger()) {
+            AndroidLogger.w(TAG, "Unexpected response to " + xmodemCmd + ": " + cmdResp.responseCode);
+            ChameleonIO.WAITING_FOR_XMODEM = false;
+            serialIOPort.releaseSerialPortLock();
+            return false;
         }
+        return true;
     }
 
     /**
@@ -269,7 +265,7 @@ public class ExportTools {
 
         try {
             outfile.createNewFile();
-            streamDest = new FileOutputStream(outfile);
+            xmodemTransfer = XModemTransfer.newDownload(new FileOutputStream(outfile), XMODEM_REQUEST_CRC);
         } catch(Exception ioe) {
             GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", ioe.getMessage()));
             AndroidLogger.printStackTrace(ioe);
@@ -280,13 +276,15 @@ public class ExportTools {
         throwToLive = throwToLiveParam;
         /* Turn off logging for the duration of the transfer: */
         currentLogMode = ChameleonIO.getSettingFromDevice("LOGMODE?");
-        ChameleonIO.executeChameleonMiniCommand("LOGMODE=OFF", ChameleonIO.TIMEOUT);
-        ChameleonIO.WAITING_FOR_XMODEM = true;
-        ChameleonIO.getSettingFromDevice(issueCmd);
-        serialIOPort.acquireSerialPortNoInterrupt();
+        ChameleonIO.getSettingFromDevice("LOGMODE=OFF");
+        if(!startXModemTransferCommand(serialIOPort, issueCmd)) {
+            ChameleonIO.executeChameleonMiniCommandAsync("LOGMODE=" + currentLogMode);
+            outfile.delete();
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "The device did not start the XModem transfer for " + issueCmd + "."));
+            llActivity.setStatusIcon(R.id.statusIconUlDl, R.drawable.statusxferfailed16);
+            return false;
+        }
         fileSize = 0;
-        CurrentFrameNumber = FIRST_FRAME_NUMBER;
-        currentNAKCount = 0;
         transmissionErrorOccurred = false;
         EOT = false;
         while(ChameleonIO.WAITING_FOR_XMODEM) {
@@ -296,7 +294,7 @@ public class ExportTools {
             }
         }
         ChameleonIO.DOWNLOAD = true;
-        serialIOPort.sendDataBuffer(new byte[]{BYTE_NAK});
+        xmodemTransfer.start(serialIOPort);
         eotSleepHandler.postDelayed(eotSleepRunnable, 50);
         return true;
     }
@@ -316,7 +314,7 @@ public class ExportTools {
                 fin.read(payloadBytes, 4, dlen);
                 LogEntryUI nextLogEntry = LogEntryUI.newInstance(payloadBytes, "");
                 /* Highlight the entries so it's clear they're from the device's logs: */
-                nextLogEntry.getMainEntryContainer().setBackgroundColor(ThemesConfiguration.getThemeColorVariant(R.attr.deviceMemoryLogHighlight));
+                nextLogEntry.setHighlightColor(ThemesConfiguration.getThemeColorVariant(R.attr.deviceMemoryLogHighlight));
                 GUILogUtils.appendNewLog(nextLogEntry);
             }
             fin.close();
@@ -328,60 +326,18 @@ public class ExportTools {
 
     /**
      * Implements the actual data exchange with the card in the upload process.
-     * Currently freezes the UI after the BYTE_EOF frame is sent.
      * @param liveLogData
+     * @ref XModemTransfer.onReceivedFrame
      */
     public static void performXModemSerialUpload(byte[] liveLogData) {
         ChameleonSerialIOInterface serialIOPort = ChameleonSettings.getActiveSerialIOPort();
         if(serialIOPort == null || !serialIOPort.serialConfigured()) {
             return;
         }
-        AndroidLogger.i(TAG, "Received Upload Data (#=" + liveLogData.length + ") ... " + Utils.bytes2Hex(liveLogData));
-        AndroidLogger.i(TAG, "    => " + Utils.bytes2Ascii(liveLogData));
-        if(ExportTools.EOT || liveLogData == null || liveLogData.length == 0)
+        if(ExportTools.EOT || xmodemTransfer == null || liveLogData == null || liveLogData.length == 0)
             return;
-        byte statusByte = liveLogData[0];
-        if(uploadState == 0 || uploadState == 1 && statusByte == BYTE_ACK) {
-            if(uploadState == 1) {
-                CurrentFrameNumber++;
-            }
-            else {
-                uploadState = 1;
-            }
-            uploadFramebuffer[0] = BYTE_SOH;
-            uploadFramebuffer[1] = CurrentFrameNumber;
-            uploadFramebuffer[2] = (byte) (255 - CurrentFrameNumber);
-            byte[] payloadBytes = new byte[XMODEM_BLOCK_SIZE];
-            try {
-                if(streamSrc.available() == 0) {
-                    AndroidLogger.i(TAG, "Upload / Sending EOT to device.");
-                    EOT = true;
-                    serialIOPort.sendDataBuffer(new byte[]{BYTE_EOT});
-                    return;
-                }
-                streamSrc.read(payloadBytes, 0, XMODEM_BLOCK_SIZE);
-                System.arraycopy(payloadBytes, 0, uploadFramebuffer, 3, XMODEM_BLOCK_SIZE);
-            } catch(IOException ioe) {
-                EOT = true;
-                transmissionErrorOccurred = true;
-                serialIOPort.sendDataBuffer(new byte[]{BYTE_CAN});
-                return;
-            }
-            uploadFramebuffer[XMODEM_BLOCK_SIZE + 3] = CalcChecksum(payloadBytes, XMODEM_BLOCK_SIZE);
-            AndroidLogger.i(TAG, "Upload Writing Data: frame=" + CurrentFrameNumber + ": " + Utils.bytes2Hex(uploadFramebuffer));
-            serialIOPort.sendDataBuffer(uploadFramebuffer);
-        }
-        else if(statusByte == BYTE_NAK && currentNAKCount <= MAX_NAK_COUNT) {
-            AndroidLogger.i(TAG, "Upload / Sending Another NAK response (#=" + currentNAKCount + ")");
-            currentNAKCount++;
-            serialIOPort.sendDataBuffer(uploadFramebuffer);
-        }
-        else {
-            EOT = true;
-            transmissionErrorOccurred = true;
-            serialIOPort.sendDataBuffer(new byte[]{BYTE_CAN});
-            return;
-        }
+        xmodemTransfer.onReceivedFrame(liveLogData, serialIOPort);
+        updateTransferState();
     }
 
     /**
@@ -432,16 +388,15 @@ public class ExportTools {
         if(serialIOPort == null || !serialIOPort.serialConfigured() || cardInputStream == null)
             return;
         LiveLoggerActivity.getLiveLoggerInstance().setStatusIcon(R.id.statusIconUlDl, R.drawable.statusupload16);
-        streamSrc = cardInputStream;
-        serialIOPort.acquireSerialPortNoInterrupt();
-        ChameleonIO.WAITING_FOR_XMODEM = true;
+        xmodemTransfer = XModemTransfer.newUpload(cardInputStream, XMODEM_ALLOW_1K_UPLOADS);
         ChameleonIO.getSettingFromDevice("READONLY=0");
-        ChameleonIO.executeChameleonMiniCommand("UPLOAD", ChameleonIO.TIMEOUT);
+        if(!startXModemTransferCommand(serialIOPort, "UPLOAD")) {
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "The device did not start the XModem transfer for UPLOAD."));
+            LiveLoggerActivity.getLiveLoggerInstance().setStatusIcon(R.id.statusIconUlDl, R.drawable.statusxferfailed16);
+            return;
+        }
         fileSize = 0;
-        CurrentFrameNumber = FIRST_FRAME_NUMBER;
-        currentNAKCount = -1;
         transmissionErrorOccurred = false;
-        uploadState = 0;
         EOT = false;
         while(ChameleonIO.WAITING_FOR_XMODEM) {
             try {
@@ -449,7 +404,7 @@ public class ExportTools {
             } catch (InterruptedException ie) {}
         }
         ChameleonIO.UPLOAD = true;
-        serialIOPort.sendDataBuffer(new byte[]{BYTE_NAK});
+        xmodemTransfer.start(serialIOPort);
         eotSleepHandler.postDelayed(eotSleepRunnable, 50);
     }
 
@@ -462,22 +417,7 @@ public class ExportTools {
      * @ref LiveLoggerActivity.actionButtonWriteFile
      */
     public static boolean writeFormattedLogFile(File fd) throws Exception {
-        AndroidLogger.i(TAG, String.valueOf("00".getBytes(StandardCharsets.US_ASCII)));
-
-        FileOutputStream fout = new FileOutputStream(fd);
-        for (int vi = 0; vi < GUILogUtils.logDataFeed.getChildCount(); vi++) {
-            View logEntryView = GUILogUtils.logDataFeed.getChildAt(vi);
-            if (GUILogUtils.logDataEntries.get(vi) instanceof LogEntryUI) {
-                String dataLine = ((LogEntryUI) GUILogUtils.logDataEntries.get(vi)).toString() + "\n";
-                fout.write(dataLine.getBytes(StandardCharsets.US_ASCII));
-            }
-            else {
-                String lineStr = "\n## " + ((LogEntryMetadataRecord) GUILogUtils.logDataEntries.get(vi)).toString() + "\n";
-                fout.write(lineStr.getBytes(StandardCharsets.US_ASCII));
-            }
-        }
-        fout.close();
-        return true;
+        return new LogRecordExporter(GUILogUtils.logRecordStore, LogRecordExporter.FORMAT_TEXT, fd).runExport(null);
     }
 
     /**
@@ -489,28 +429,9 @@ public class ExportTools {
      * @ref LiveLoggerActivity.actionButtonWriteFile
      */
     public static boolean writeHTMLLogFile(File fd) throws Exception {
-        FileOutputStream fout = new FileOutputStream(fd);
-        String htmlHeader = "<html><head><title>Chameleon Mini Live Debugger --- Logging Output</title></head><body>\n\n";
-        fout.write(htmlHeader.getBytes(StandardCharsets.US_ASCII));
-        String defaultBgColor = String.format(BuildConfig.DEFAULT_LOCALE, "#%06X", (0xFFFFFF & ThemesConfiguration.getThemeColorVariant(R.attr.colorPrimaryDarkLog)));
-        for (int vi = 0; vi < GUILogUtils.logDataFeed.getChildCount(); vi++) {
-            View logEntryView = GUILogUtils.logDataFeed.getChildAt(vi);
-            if (GUILogUtils.logDataEntries.get(vi) instanceof LogEntryUI) {
-                String bgColor = String.format(BuildConfig.DEFAULT_LOCALE, "#%06X", (0xFFFFFF & logEntryView.getDrawingCacheBackgroundColor()));
-                if(bgColor.equals(defaultBgColor))
-                    bgColor = "#ffffff";
-                String lineData = "<code bgcolor='" + bgColor + "'>" + ((LogEntryUI) GUILogUtils.logDataEntries.get(vi)).toString() + "</code><br/>\n";
-                fout.write(lineData.getBytes(StandardCharsets.US_ASCII));
-            }
-            else {
-                String lineData = "<b><code>" + ((LogEntryMetadataRecord) GUILogUtils.logDataEntries.get(vi)).toString() + "</code></b><br/>\n";
-                fout.write(lineData.getBytes(StandardCharsets.US_ASCII));
-            }
-        }
-        String htmlFooter = "</body></html>";
-        fout.write(htmlFooter.getBytes(StandardCharsets.US_ASCII));
-        fout.close();
-        return true;
+        LogRecordExporter htmlExporter = new LogRecordExporter(GUILogUtils.logRecordStore, LogRecordExporter.FORMAT_HTML, fd);
+        htmlExporter.setHTMLDefaultBackgroundColor(ThemesConfiguration.getThemeColorVariant(R.attr.colorPrimaryDarkLog));
+        return htmlExporter.runExport(null);
     }
 
     /**
@@ -522,19 +443,108 @@ public class ExportTools {
      * @url http://rawgit.com/emsec/ChameleonMini/master/Doc/Doxygen/html/Page_Log.html
      */
     public static boolean writeBinaryLogFile(File fd) throws Exception {
-        FileOutputStream fout = new FileOutputStream(fd);
-        short localTicks = 0;
-        for (int vi = 0; vi < GUILogUtils.logDataFeed.getChildCount(); vi++) {
-            View logEntryView = GUILogUtils.logDataFeed.getChildAt(vi);
-            if (GUILogUtils.logDataEntries.get(vi) instanceof LogEntryUI) {
-                LogEntryUI logEntry = (LogEntryUI) GUILogUtils.logDataEntries.get(vi);
-                byte[] entryBytes = logEntry.packageBinaryLogData(localTicks);
-                localTicks = logEntry.getNextOffsetTime(localTicks);
-                fout.write(entryBytes);
+        return new LogRecordExporter(GUILogUtils.logRecordStore, LogRecordExporter.FORMAT_BINARY, fd).runExport(null);
+    }
+
+    /**
+     * Writes the logged data to the compressed columnar format.
+     * @param fd
+     * @return boolean success of the operation
+     * @throws Exception (IOException)
+     * @ref LogRecordExporter
+     */
+    public static boolean writeColumnarLogFile(File fd) throws Exception {
+        return new LogRecordExporter(GUILogUtils.logRecordStore, LogRecordExporter.FORMAT_COLUMNAR, fd).runExport(null);
+    }
+
+    /**
+     * Writes the logged data to a pcapng capture of the ISO 14443 traffic.
+     * @param fd
+     * @return boolean success of the operation
+     * @throws Exception (IOException)
+     * @ref PcapngCaptureWriter
+     */
+    public static boolean writePcapngLogFile(File fd) throws Exception {
+        return new LogRecordExporter(GUILogUtils.logRecordStore, LogRecordExporter.FORMAT_PCAPNG, fd).runExport(null);
+    }
+
+    /**
+     * The pcapng file the incoming LIVE logs are streamed to (if any).
+     */
+    private static PcapngCaptureWriter livePcapngWriter = null;
+    private static FileOutputStream livePcapngStream = null;
+    private static File livePcapngFile = null;
+
+    /**
+     * Starts streaming every LIVE log appended to the Log tab into a pcapng capture file.
+     * @param outfile
+     * @return boolean success of the operation
+     * @ref GUILogUtils.appendNewRawLog
+     */
+    public static synchronized boolean startLivePcapngCapture(File outfile) {
+        if(livePcapngWriter != null) {
+            return false;
+        }
+        try {
+            livePcapngStream = new FileOutputStream(outfile);
+            livePcapngWriter = new PcapngCaptureWriter(livePcapngStream.getChannel(), System.currentTimeMillis());
+            livePcapngWriter.writeFileHeader();
+            livePcapngWriter.flush();
+            livePcapngFile = outfile;
+            return true;
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            stopLivePcapngCapture();
+            return false;
+        }
+    }
+
+    /**
+     * @return the capture file, or null if no live capture was running
+     */
+    public static synchronized File stopLivePcapngCapture() {
+        File captureFile = livePcapngFile;
+        try {
+            if(livePcapngWriter != null) {
+                livePcapngWriter.flush();
+                AndroidLogger.i(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Live pcapng capture stopped: %d packets (%d bytes)",
+                                                   livePcapngWriter.getPacketCount(), livePcapngWriter.getBytesWritten()));
             }
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+        }
+        try {
+            if(livePcapngStream != null) {
+                livePcapngStream.close();
+            }
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+        }
+        livePcapngWriter = null;
+        livePcapngStream = null;
+        livePcapngFile = null;
+        return captureFile;
+    }
+
+    public static boolean isLivePcapngCaptureActive() {
+        return livePcapngWriter != null;
+    }
+
+    /**
+     * Appends a LIVE log to the running pcapng capture (no-op when none is running).
+     * The buffered packets are written out at most once a second.
+     */
+    public static synchronized void writeLivePcapngRecord(int logCode, int diffTimeMillis, byte[] payload, int offset, int length) {
+        if(livePcapngWriter == null) {
+            return;
+        }
+        try {
+            livePcapngWriter.writeLogRecord(logCode, diffTimeMillis, payload, offset, length);
+            livePcapngWriter.flushIfDue();
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            stopLivePcapngCapture();
         }
-        fout.close();
-        return true;
     }
 
     /**
@@ -603,9 +613,10 @@ public class ExportTools {
             System.arraycopy(dataBytes, 0, fullDataBytes, 0, dataBytes.length);
             dataBytes = fullDataBytes;
         }
-        ChameleonIO.executeChameleonMiniCommand("CONFIG=MF_ULTRALIGHT", ChameleonIO.TIMEOUT);
+        ChameleonIO.getSettingFromDevice("CONFIG=MF_ULTRALIGHT");
         ChameleonIO.deviceStatus.updateAllStatusAndPost(false);
         ChameleonIO.deviceStatus.updateAllStatusAndPost(false); /* Make sure the device returned the correct data to display */
+        String[] pageWriteCmds = new String[dataBytes.length / 4];
         for(int page = 0; page < dataBytes.length; page += 4) {
             byte[] apduSendBytesHdr = {
                     (byte) 0xff, // CLA
@@ -618,8 +629,9 @@ public class ExportTools {
             int sendBytesHdr = Utils.bytes2Integer32(apduSendBytesHdr);
             int sendBytesData = Utils.bytes2Integer32(apduSendBytesData);
             String chameleonCmd = String.format("SEND %08x%08x", sendBytesHdr, sendBytesData);
-            ChameleonIO.executeChameleonMiniCommand(chameleonCmd, ChameleonIO.TIMEOUT);
+            pageWriteCmds[page / 4] = chameleonCmd;
         }
+        ChameleonIO.executeChameleonMiniCommandsAsync(pageWriteCmds, ChameleonCommandScheduler.PRIORITY_INTERACTIVE);
         return true;
 
     }
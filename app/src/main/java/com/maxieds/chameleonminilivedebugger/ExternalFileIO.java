@@ -22,12 +22,16 @@ import android.content.Intent;
 import android.database.Cursor;
 import android.net.Uri;
 import android.os.Environment;
+import android.os.Looper;
 import android.provider.OpenableColumns;
 import android.widget.RadioButton;
 
 import com.maxieds.androidfilepickerlightlibrary.FileChooserBuilder;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.List;
 
 import static android.app.Activity.RESULT_OK;
@@ -46,10 +50,43 @@ public class ExternalFileIO {
     public static String SCRIPTS_SUBDIR = "scripts//";
     public static String FIRMWARE_SUBDIR = "firmware//";
 
+    /**
+     * The export currently running in the background (if any).
+     */
+    private static LogRecordExporter activeExporter = null;
+    private static final long EXPORT_PROGRESS_TOAST_INTERVAL = 2000;
+
+    /**
+     * Stops the background export (if one is running), e.g., before the logs are cleared.
+     * The export thread stops at its next progress check and deletes the partial file.
+     */
+    public static void cancelActiveExport() {
+        LogRecordExporter runningExporter = activeExporter;
+        if(runningExporter != null && runningExporter.isRunning()) {
+            runningExporter.cancel();
+        }
+    }
+
+    /**
+     * Writes the logs to file on a background thread. Pressing one of the export buttons
+     * again while the export is running cancels it.
+     * @param fileType out / html / bin / cols / pcapng
+     * @ref LogRecordExporter
+     */
     public static void exportOutputFile(String fileType) {
-        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        final LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        LogRecordExporter runningExporter = activeExporter;
+        if(runningExporter != null && runningExporter.isRunning()) {
+            runningExporter.cancel();
+            Utils.displayToastMessageShort("Cancelling the running export ...");
+            return;
+        }
+        int exportFormat = LogRecordExporter.getFormatByFileType(fileType);
+        if(exportFormat < 0) {
+            AndroidLogger.w(TAG, "Unknown export file type " + fileType);
+            return;
+        }
         llActivity.setStatusIcon(R.id.statusIconUlDl, R.drawable.statusdownload16);
-        String mimeType = "message/rfc822";
         String outfilePath = "logdata-" + Utils.getTimestamp().replace(":", "") + "." + fileType;
         //File downloadsFolder = new File("//sdcard//Download//");
         File downloadsFolder = new File(llActivity.getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS).getAbsolutePath() + "//Download//");
@@ -66,26 +103,69 @@ public class ExternalFileIO {
             llActivity.setStatusIcon(R.id.statusIconUlDl, R.drawable.statusxferfailed16);
             return;
         }
-        try {
-            outfile.createNewFile();
-            if (fileType.equals("out")) {
-                mimeType = "plain/text";
-                ExportTools.writeFormattedLogFile(outfile);
-            }
-            else if (fileType.equals("html")) {
-                mimeType = "text/html";
-                ExportTools.writeHTMLLogFile(outfile);
+        LogRecordExporter logExporter = new LogRecordExporter(GUILogUtils.logRecordStore, exportFormat, outfile);
+        if(exportFormat == LogRecordExporter.FORMAT_HTML) {
+            logExporter.setHTMLDefaultBackgroundColor(ThemesConfiguration.getThemeColorVariant(R.attr.colorPrimaryDarkLog));
+        }
+        activeExporter = logExporter;
+        logExporter.startExport(new LogRecordExporter.ExportListener() {
+            private long lastToastTime = System.currentTimeMillis();
+            @Override
+            public void onExportProgress(LogRecordExporter exporter, int recordsDone, int recordsTotal) {
+                long curTime = System.currentTimeMillis();
+                if(curTime - lastToastTime >= EXPORT_PROGRESS_TOAST_INTERVAL) {
+                    lastToastTime = curTime;
+                    final String progressMsg = String.format(BuildConfig.DEFAULT_LOCALE, "Exporting logs: %d of %d records ...", recordsDone, recordsTotal);
+                    llActivity.runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Utils.displayToastMessageShort(progressMsg);
+                        }
+                    });
+                }
             }
-            else if (fileType.equals("bin")) {
-                mimeType = "application/octet-stream";
-                ExportTools.writeBinaryLogFile(outfile);
+            @Override
+            public void onExportFinished(final LogRecordExporter exporter, final boolean success) {
+                llActivity.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onExportOutputFileFinished(exporter, success);
+                    }
+                });
             }
-        } catch(Exception ioe) {
-            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", ioe.getMessage()));
+        });
+    }
+
+    private static String getExportMimeType(int exportFormat) {
+        switch(exportFormat) {
+            case LogRecordExporter.FORMAT_TEXT:
+                return "plain/text";
+            case LogRecordExporter.FORMAT_HTML:
+                return "text/html";
+            case LogRecordExporter.FORMAT_PCAPNG:
+                return "application/vnd.tcpdump.pcap";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+    private static void onExportOutputFileFinished(LogRecordExporter exporter, boolean success) {
+        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        if(activeExporter == exporter) {
+            activeExporter = null;
+        }
+        if(llActivity == null) {
+            return;
+        }
+        else if(!success) {
+            String errorMsg = exporter.isCancelled() ? "Export of the logs cancelled." :
+                              (exporter.getError() != null ? exporter.getError().getMessage() : "Export of the logs failed.");
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", errorMsg));
             llActivity.setStatusIcon(R.id.statusIconUlDl, R.drawable.statusxferfailed16);
-            AndroidLogger.printStackTrace(ioe);
             return;
         }
+        File outfile = exporter.getOutputFile();
+        String mimeType = getExportMimeType(exporter.getExportFormat());
         DownloadManager downloadManager = (DownloadManager) LiveLoggerActivity.getLiveLoggerInstance().defaultContext.getSystemService(DOWNLOAD_SERVICE);
         downloadManager.addCompletedDownload(outfile.getName(), outfile.getName(), true, "text/plain",
                                              outfile.getAbsolutePath(), outfile.length(),true);
@@ -107,7 +187,137 @@ public class ExternalFileIO {
             sendIntent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
             llActivity.startActivity(Intent.createChooser(sendIntent, "Share the file ... "));
         }
-        GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("EXPORT", "Saved log file to \"" + outfilePath + "\"."));
+        String statusMsg = String.format(BuildConfig.DEFAULT_LOCALE, "Saved log file to \"%s\" (%d records in %d ms).",
+                                         outfile.getName(), exporter.getRecordsWritten(), exporter.getElapsedMillis());
+        GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("EXPORT", statusMsg));
+    }
+
+    /**
+     * Starts streaming the incoming LIVE logs to a pcapng file in the Downloads folder, or
+     * stops the running capture and registers the file with the DownloadManager.
+     * @ref ExportTools.startLivePcapngCapture
+     */
+    public static void toggleLivePcapngCapture() {
+        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        if(ExportTools.isLivePcapngCaptureActive()) {
+            File captureFile = ExportTools.stopLivePcapngCapture();
+            if(captureFile != null) {
+                DownloadManager downloadManager = (DownloadManager) llActivity.defaultContext.getSystemService(DOWNLOAD_SERVICE);
+                downloadManager.addCompletedDownload(captureFile.getName(), captureFile.getName(), true, "application/vnd.tcpdump.pcap",
+                                                     captureFile.getAbsolutePath(), captureFile.length(), true);
+                GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("PCAPNG", "Stopped the live capture to \"" + captureFile.getName() + "\"."));
+            }
+            return;
+        }
+        File downloadsFolder = new File(llActivity.getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS).getAbsolutePath() + "//Download//");
+        if(!downloadsFolder.exists() && !downloadsFolder.mkdir()) {
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "Unable to save output in Downloads folder."));
+            return;
+        }
+        File captureFile = new File(downloadsFolder.getAbsolutePath(), "livecapture-" + Utils.getTimestamp().replace(":", "") + ".pcapng");
+        if(!ExportTools.startLivePcapngCapture(captureFile)) {
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "Unable to start the live pcapng capture."));
+            return;
+        }
+        GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("PCAPNG", "Streaming the LIVE logs to \"" + captureFile.getName() + "\" ..."));
+    }
+
+    /**
+     * The raw serial capture being recorded from the connected device (if any).
+     */
+    private static SerialCaptureReplayer.CaptureRecorder serialCaptureRecorder = null;
+    private static SerialIOReceiver serialCapturePort = null;
+    private static File serialCaptureFile = null;
+
+    public static boolean isSerialCaptureRecording() {
+        return serialCaptureRecorder != null;
+    }
+
+    /**
+     * Starts recording the raw chunks read from the connected device (with their arrival
+     * times) to a capture file in the Downloads folder, or stops the running recording.
+     * @ref SerialCaptureReplayer.CaptureRecorder
+     */
+    public static void toggleSerialCaptureRecording() {
+        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        if(serialCaptureRecorder != null) {
+            serialCapturePort.setCaptureRecorder(null);
+            try {
+                serialCaptureRecorder.close();
+            } catch(IOException ioe) {
+                AndroidLogger.printStackTrace(ioe);
+            }
+            serialCaptureRecorder = null;
+            serialCapturePort = null;
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("CAPTURE", "Stopped recording the serial data to \"" + serialCaptureFile.getName() + "\"."));
+            return;
+        }
+        ChameleonSerialIOInterface activePort = ChameleonSettings.getActiveSerialIOPort();
+        if(!(activePort instanceof SerialIOReceiver) || activePort instanceof SerialReplayInterface) {
+            Utils.displayToastMessageShort("Connect to a Chameleon device to record its serial data.");
+            return;
+        }
+        File downloadsFolder = new File(llActivity.getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS).getAbsolutePath() + "//Download//");
+        if(!downloadsFolder.exists() && !downloadsFolder.mkdir()) {
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "Unable to save output in Downloads folder."));
+            return;
+        }
+        serialCaptureFile = new File(downloadsFolder.getAbsolutePath(), "serialcapture-" + Utils.getTimestamp().replace(":", "") + ".capture");
+        try {
+            serialCaptureRecorder = new SerialCaptureReplayer.CaptureRecorder(new BufferedOutputStream(new FileOutputStream(serialCaptureFile)));
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "Unable to start the serial capture: " + ioe.getMessage()));
+            return;
+        }
+        serialCapturePort = (SerialIOReceiver) activePort;
+        serialCapturePort.setCaptureRecorder(serialCaptureRecorder);
+        GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("CAPTURE", "Recording the serial data to \"" + serialCaptureFile.getName() + "\" ..."));
+    }
+
+    /**
+     * Lets the user pick a recorded serial capture (or a binary log file exported by the app)
+     * and connects the replay port, which plays it back in real time through the same
+     * framing and logging path as a connected device.
+     * @ref SerialReplayInterface
+     */
+    public static void replaySerialCapture() {
+        if(ChameleonSettings.getActiveSerialIOPort() != null) {
+            Utils.displayToastMessageShort("Disconnect the Chameleon device before replaying a capture.");
+            return;
+        }
+        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        Intent intent = new Intent(Intent.ACTION_GET_CONTENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setDataAndType(Uri.parse(llActivity.getExternalFilesDir(Environment.DIRECTORY_DOWNLOADS).getAbsolutePath() + "//Download//"), "*/*");
+        try {
+            llActivity.startActivityForResult(Intent.createChooser(intent, "Select a Serial Capture to Replay"), FILE_SELECT_CODE);
+        } catch (android.content.ActivityNotFoundException e) {
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "Unable to choose capture file: " + e.getMessage()));
+            return;
+        }
+        String captureFilePath = "";
+        try {
+            Looper.loop();
+        } catch(RuntimeException rte) {
+            String[] rteMsgParts = rte.getMessage().split("java.lang.RuntimeException: ");
+            captureFilePath = rteMsgParts[rteMsgParts.length - 1];
+            AndroidLogger.i(TAG, "Chosen Capture File: " + captureFilePath);
+        }
+        SerialReplayInterface replayPort = ChameleonSettings.getReplayIOInterface();
+        if(captureFilePath.length() == 0 || replayPort == null ||
+           !replayPort.loadCaptureFile(new File(captureFilePath), SerialCaptureReplayer.SPEED_REALTIME, 0)) {
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "Unable to load the serial capture \"" + captureFilePath + "\"."));
+            return;
+        }
+        ChameleonSettings.stopSerialIOConnectionDiscovery();
+        llActivity.registerSerialIOReceivers();
+        if(!replayPort.startScanningDevices()) {
+            GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "Unable to start the capture replay."));
+            ChameleonSettings.initializeSerialIOConnections();
+            return;
+        }
+        UITabUtils.updateConfigTabConnDeviceInfo(false);
     }
 
     /**
@@ -17,15 +17,13 @@ https://github.com/maxieds/ChameleonMiniLiveDebugger
 
 package com.maxieds.chameleonminilivedebugger;
 
+import android.content.Context;
 import android.content.DialogInterface;
-import android.graphics.drawable.Drawable;
-import android.view.View;
+import android.os.Looper;
 import android.widget.CheckBox;
 import android.widget.EditText;
-import android.widget.ImageView;
-import android.widget.LinearLayout;
+import android.widget.ListView;
 import android.widget.RadioButton;
-import android.widget.ScrollView;
 import android.widget.TextView;
 import android.widget.Toast;
 
@@ -33,8 +31,9 @@ import androidx.appcompat.app.AlertDialog;
 
 import com.google.android.material.tabs.TabLayout;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 import static com.maxieds.chameleonminilivedebugger.TabFragment.TAB_LOG;
@@ -44,32 +43,78 @@ public class GUILogUtils {
 
     private static final String TAG = GUILogUtils.class.getSimpleName();
 
-    public static LinearLayout logDataFeed;
-    public static List<LogEntryBase> logDataEntries = new ArrayList<LogEntryBase>();
+    /**
+     * The log entries are kept in a compact record store and only bound to (recycled) views
+     * by the list view adapter when they are displayed in the Log tab.
+     * @ref LogRecordStore
+     * @ref LogRecordListAdapter
+     */
+    public static final LogRecordStore logRecordStore = new LogRecordStore();
+
+    /**
+     * On-disk copy of the records in logRecordStore, so the session can be reopened after the
+     * app is killed or restarted.
+     * @ref LogSessionJournal
+     */
+    public static final LogSessionJournal sessionJournal = new LogSessionJournal();
+
+    /**
+     * Writes the new records to the session journal (and the live pcapng capture) and indexes
+     * them off the UI thread, so the appends below only fill in the store rows.
+     * @ref LogIngestWriter
+     */
+    public static final LogIngestWriter logIngestWriter = new LogIngestWriter(logRecordStore, sessionJournal, new LogIngestWriter.LiveRecordSink() {
+        @Override
+        public void writeLiveRecord(int logCode, int diffTimeMillis, byte[] payload, int offset, int length) {
+            ExportTools.writeLivePcapngRecord(logCode, diffTimeMillis, payload, offset, length);
+        }
+    });
+    public static LogRecordListAdapter logDataFeedAdapter;
+    public static ListView logDataFeed;
     public static boolean logDataFeedConfigured = false;
-    public static ScrollView logScrollView;
     public static int RECORDID = 0;
 
+    public static TextView logDataFeedSummaryBanner;
+
+    /**
+     * Scrolls the Log tab to the last record on the next frame.
+     * @ref LogFeedUpdateScheduler
+     */
     public static void moveLiveLogTabScrollerToBottom() {
-        if(logScrollView != null) {
-            logScrollView.postDelayed(new Runnable() {
+        LogFeedUpdateScheduler.getInstance().requestUpdate(true);
+    }
+
+    /**
+     * Picks up the newly appended records in the Log tab on the next frame (coalescing the
+     * appends in between). Only for appends: use notifyLogDataFeedChanged() when records are
+     * removed or hidden, so the list never binds rows that no longer exist.
+     * @ref LogFeedUpdateScheduler
+     */
+    public static void requestLogDataFeedUpdate() {
+        LogFeedUpdateScheduler.getInstance().requestUpdate(false);
+    }
+
+    /**
+     * Refreshes the rows in the Log tab. Safe to call from the serial IO threads.
+     */
+    public static void notifyLogDataFeedChanged() {
+        if(logDataFeedAdapter == null) {
+            return;
+        }
+        else if(Looper.myLooper() == Looper.getMainLooper()) {
+            logDataFeedAdapter.notifyRecordsChanged();
+            return;
+        }
+        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        if(llActivity != null) {
+            llActivity.runOnUiThread(new Runnable() {
                 @Override
                 public void run() {
-                    ScrollView logScroller = (ScrollView) LiveLoggerActivity.getLiveLoggerInstance().findViewById(R.id.log_scroll_view);
-                    if(logScroller == null) {
-                        return;
-                    }
-                    LinearLayout lastLogElt = (LinearLayout) logDataFeed.getChildAt(logDataFeed.getChildCount() - 1);
-                    if(lastLogElt == null) {
-                        return;
-                    }
-                    lastLogElt.measure(View.MeasureSpec.UNSPECIFIED, View.MeasureSpec.UNSPECIFIED);
-                    int bottomEltHeight = lastLogElt.getMeasuredHeight();
-                    if(logScroller.getBottom() > lastLogElt.getBottom()) {
-                        logScroller.scrollTo(0, logScroller.getBottom());
+                    if(logDataFeedAdapter != null) {
+                        logDataFeedAdapter.notifyRecordsChanged();
                     }
                 }
-            }, 75);
+            });
         }
     }
 
@@ -81,7 +126,7 @@ public class GUILogUtils {
      */
     public static void appendNewLog(LogEntryBase logEntry) {
         LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
-        if(llActivity == null) {
+        if(llActivity == null || logEntry == null) {
             return;
         } else if(llActivity.getSelectedTab() != TAB_LOG) {
             if(logEntry instanceof LogEntryUI) {
@@ -90,10 +135,15 @@ public class GUILogUtils {
                 llActivity.setStatusIcon(R.id.statusIconNewMsg, R.drawable.statusnewmsg16);
             }
         }
-        if(logDataFeed != null && logDataEntries != null) {
-            logDataFeed.addView(logEntry.getLayoutContainer());
-            logDataEntries.add(logEntry);
+        if(logEntry instanceof LogEntryUI) {
+            LogEntryUI logEntryUI = (LogEntryUI) logEntry;
+            logEntryUI.setRecordIndex(++RECORDID);
+            logRecordStore.appendLogEntry(logEntryUI);
+        } else if(logEntry instanceof LogEntryMetadataRecord) {
+            logRecordStore.appendMetadataRecord((LogEntryMetadataRecord) logEntry);
         }
+        logIngestWriter.requestWrite();
+        requestLogDataFeedUpdate();
         if(logEntry instanceof LogEntryMetadataRecord) { // switch to the log tab to display the results:
             TabLayout tabLayout = (TabLayout) llActivity.findViewById(R.id.tab_layout);
             if(tabLayout != null) {
@@ -102,54 +152,175 @@ public class GUILogUtils {
                     TabFragment.UITAB_DATA[TAB_LOG].selectMenuItem(TAB_LOG_MITEM_LOGS);
                 }
             }
+            moveLiveLogTabScrollerToBottom();
         }
-        moveLiveLogTabScrollerToBottom();
     }
 
-    public static void clearAllLogs() {
-        if(logDataEntries == null || logDataFeed == null) {
+    /**
+     * Appends a raw LIVE log received from the device to the Log tab. Same as
+     * appendNewLog(LogEntryUI.newInstance(logDataBytes, "")) minus the throwaway entry object.
+     * @param logDataBytes Raw LIVE log bytes (header + payload)
+     * @ref LogRecordStore.appendRawLogData
+     */
+    public static void appendNewRawLog(byte[] logDataBytes) {
+        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        if(llActivity == null || logDataBytes == null) {
+            return;
+        } else if(logDataBytes.length < 4) {
+            AndroidLogger.w(TAG, "Invalid log tag data sent.");
             return;
-        } else if (RECORDID > 0) {
-            logDataEntries.clear();
+        } else if(llActivity.getSelectedTab() != TAB_LOG) {
+            llActivity.setStatusIcon(R.id.statusIconNewXFer, R.drawable.statusxfer16);
+        }
+        logRecordStore.appendRawLogData(logDataBytes, ++RECORDID);
+        logIngestWriter.requestWrite();
+        requestLogDataFeedUpdate();
+    }
+
+    /**
+     * Collapses a repeated LIVE log into the existing entry with the same log code and payload:
+     * the entry is moved to the bottom of the log with its duplicate counter incremented.
+     * @param logDataBytes Raw LIVE log bytes (header + payload)
+     * @return whether a matching entry was found
+     * @ref ChameleonLogUtils.CONFIG_COLLAPSE_COMMON_LOG_ENTRIES
+     */
+    public static boolean appendDuplicateLog(byte[] logDataBytes) {
+        int matchingRecordIdx = logRecordStore.findMatchingLogEntry(logDataBytes);
+        if(matchingRecordIdx < 0) {
+            return false;
+        }
+        int timestamp = (((int) logDataBytes[2]) << 8) | ((int) logDataBytes[3]);
+        int dupDiffTimeMillis = LogEntryUI.nextDiffTimeMillis(timestamp);
+        logRecordStore.appendDuplicate(matchingRecordIdx, dupDiffTimeMillis);
+        logIngestWriter.requestWrite();
+        requestLogDataFeedUpdate();
+        return true;
+    }
+
+    public static void clearAllLogs() {
+        openSessionJournal();
+        if (RECORDID > 0 || logRecordStore.size() > 0 || sessionJournal.getRecordCount() > 0) {
+            /* Any record the export reads before it sees the cancel fails the store generation check */
+            ExternalFileIO.cancelActiveExport();
+            logIngestWriter.reset();
+            RECORDID = 0;
+            notifyLogDataFeedChanged();
+            clearSearchResults();
+        }
+    }
+
+    private static boolean openSessionJournal() {
+        if(sessionJournal.isOpen()) {
+            return true;
+        }
+        Context appContext = ChameleonMiniLiveDebuggerActivity.getContext();
+        if(appContext == null) {
+            return false;
+        }
+        return sessionJournal.open(new File(appContext.getFilesDir(), LogSessionJournal.JOURNAL_DIRPATH));
+    }
+
+    /**
+     * Reloads the (empty) record store from the session journal, e.g. with the records of the
+     * last session when the activity is created again after the app was killed or crashed.
+     * The payloads stay in the mapped journal segments, and the records are hashed and
+     * indexed for the searches by the LogIngestWriter thread. The rows appended since the
+     * last write (e.g., after onPause) are journaled first so they are restored as well.
+     * @return the number of records restored
+     * @ref LiveLoggerActivity.configureTabViewPager
+     */
+    public static int reopenSessionJournal() {
+        logIngestWriter.flush();
+        logRecordStore.clear();
+        RECORDID = 0;
+        if(!openSessionJournal()) {
+            logIngestWriter.skipToStoreEnd(RECORDID);
+            return 0;
+        }
+        LogSessionJournal.JournalCursor journalCursor = sessionJournal.openCursor(0);
+        if(journalCursor == null) {
+            logIngestWriter.skipToStoreEnd(RECORDID);
+            return 0;
+        }
+        int[] storeSegmentNumbers = new int[journalCursor.getSegmentCount()];
+        for(int segIdx = 0; segIdx < storeSegmentNumbers.length; segIdx++) {
+            storeSegmentNumbers[segIdx] = logRecordStore.attachPayloadSegment(journalCursor.getSegmentBuffer(segIdx));
+        }
+        while(journalCursor.next()) {
+            switch(journalCursor.getRecordType()) {
+                case LogSessionJournal.RECORD_LOGDATA:
+                    logRecordStore.appendAttachedLogRecord(journalCursor.getLogCode(), journalCursor.getDataDirection(), journalCursor.getDiffTimeMillis(),
+                                                           journalCursor.getRecordID(), storeSegmentNumbers[journalCursor.getSegmentIndex()],
+                                                           journalCursor.getPayloadOffset(), journalCursor.getPayloadLength());
+                    break;
+                case LogSessionJournal.RECORD_METADATA:
+                    String[] metadataFields = journalCursor.getMetadataFields();
+                    logRecordStore.appendMetadataRecord(LogEntryMetadataRecord.restoreRecord(metadataFields[0], metadataFields[1], metadataFields[2]));
+                    break;
+                case LogSessionJournal.RECORD_DUPLICATE:
+                    int dupRecordIdx = journalCursor.getRefRecordIndex();
+                    if(dupRecordIdx < 0 || dupRecordIdx >= logRecordStore.size() || !logRecordStore.isLogData(dupRecordIdx)) {
+                        AndroidLogger.w(TAG, "Session journal duplicate record refers to an invalid record index " + dupRecordIdx);
+                    } else {
+                        logRecordStore.appendDuplicate(dupRecordIdx, journalCursor.getDiffTimeMillis());
+                    }
+                    break;
+                default:
+                    break;
+            }
+            if(logRecordStore.size() != journalCursor.getOrdinal() + 1) {
+                /* Keep the journal ordinals lined up with the store indices for the duplicates: */
+                AndroidLogger.w(TAG, "Session journal out of step with the record store at record " + journalCursor.getOrdinal());
+                sessionJournal.truncate(logRecordStore.size());
+                break;
+            }
+            RECORDID = Math.max(RECORDID, journalCursor.getRecordID());
+        }
+        if(logRecordStore.size() == 0) {
             RECORDID = 0;
-            logDataFeed.removeAllViewsInLayout();
         }
+        logIngestWriter.skipToStoreEnd(RECORDID);
+        notifyLogDataFeedChanged();
+        return logRecordStore.size();
+    }
+
+    /**
+     * The search results refer to the records by their index in the store, so they have to
+     * go away with the records.
+     */
+    private static void clearSearchResults() {
+        final LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        if(llActivity == null) {
+            return;
+        }
+        llActivity.runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                ListView searchResultsList = (ListView) llActivity.findViewById(R.id.searchResultsListView);
+                TextView searchResultsSummary = (TextView) llActivity.findViewById(R.id.searchResultsSummary);
+                if(searchResultsList != null) {
+                    searchResultsList.setAdapter(null);
+                }
+                if(searchResultsSummary != null) {
+                    searchResultsSummary.setVisibility(TextView.GONE);
+                }
+            }
+        });
     }
 
     /**
      * Removes repeated log entries in sequential order in the logging tab.
      * Useful for pretty-fying / cleaning up the log entries when a device posts repeated
-     * APDU command requests, or zero bits.
+     * APDU command requests, or zero bits. Only the logs added since the last call are
+     * looked at again.
+     * @ref LogRecordStore.collapseSequentialRepeats
      */
     public static void collapseSimilarLogs() {
-        if(logDataEntries == null || logDataFeed == null) {
-            return;
-        } else if(RECORDID == 0) {
+        if(RECORDID == 0) {
             return;
         }
-        byte[] curBits = null;
-        boolean newBits = true;
-        for(int v = 0; v < logDataEntries.size(); v++) {
-            LogEntryBase lde = logDataEntries.get(v);
-            if(lde == null) {
-                continue;
-            }
-            if(lde instanceof LogEntryMetadataRecord) {
-                newBits = true;
-                continue;
-            } else if(lde instanceof LogEntryUI && newBits) {
-                byte[] nextDataPattern = ((LogEntryUI) lde).getEntryData();
-                curBits = new byte[nextDataPattern.length];
-                System.arraycopy(nextDataPattern, 0, curBits, 0, nextDataPattern.length);
-                newBits = false;
-            } else if(Arrays.equals(curBits, ((LogEntryUI) lde).getEntryData())) {
-                View vthLogDataFeedView = logDataFeed.getChildAt(v);
-                if(vthLogDataFeedView != null) {
-                    vthLogDataFeedView.setVisibility(LinearLayout.GONE);
-                }
-            } else {
-                newBits = true;
-            }
+        if(logRecordStore.collapseSequentialRepeats()) {
+            notifyLogDataFeedChanged();
         }
     }
 
@@ -158,40 +329,22 @@ public class GUILogUtils {
      * @param highlightColor
      */
     public static void selectedHighlightedLogs(int highlightColor) {
-        if(logDataEntries == null || logDataFeed == null) {
-            return;
-        }
-        for (int vi = 0; vi < logDataFeed.getChildCount(); vi++) {
-            View logEntryView = logDataFeed.getChildAt(vi);
-            if (logEntryView != null && logDataEntries.get(vi) instanceof LogEntryUI) {
-                CheckBox cb = (CheckBox) logEntryView.findViewById(R.id.entrySelect);
-                if(cb == null) {
-                    continue;
-                }
-                boolean isChecked = cb.isChecked();
-                if (isChecked) {
-                    logEntryView.setBackgroundColor(highlightColor);
-                }
+        for (int ridx = 0; ridx < logRecordStore.size(); ridx++) {
+            if (logRecordStore.isLogData(ridx) && logRecordStore.isSelected(ridx)) {
+                logRecordStore.setHighlightColor(ridx, highlightColor);
             }
         }
+        notifyLogDataFeedChanged();
     }
 
     /**
      * Unchecks all of the selected logs in the Log tab.
      */
     public static void uncheckAllLogs() {
-        if(logDataEntries == null || logDataFeed == null) {
-            return;
-        }
-        for (int vi = 0; vi < logDataFeed.getChildCount(); vi++) {
-            View logEntryView = logDataFeed.getChildAt(vi);
-            if (logEntryView != null && logDataEntries.get(vi) instanceof LogEntryUI) {
-                CheckBox cb = (CheckBox) logEntryView.findViewById(R.id.entrySelect);
-                if(cb != null) {
-                    cb.setChecked(false);
-                }
-            }
+        for (int ridx = 0; ridx < logRecordStore.size(); ridx++) {
+            logRecordStore.setSelected(ridx, false);
         }
+        notifyLogDataFeedChanged();
     }
 
     /**
@@ -201,34 +354,18 @@ public class GUILogUtils {
      * @param directionFlag
      */
     public static void setSelectedXFerOnLogs(int directionFlag) {
-        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
-        if(llActivity == null || llActivity.getResources() == null) {
-            return;
-        } else if(logDataEntries == null || logDataFeed == null) {
-            return;
-        }
-        Drawable dirArrowIcon = llActivity.getResources().getDrawable(R.drawable.xfer16);
+        int xferMarker = LogEntryUI.XFER_MARKER_BIDIRECTIONAL;
         if(directionFlag == 1) {
-            dirArrowIcon = llActivity.getResources().getDrawable(R.drawable.incoming16v2);
+            xferMarker = LogEntryUI.XFER_MARKER_INCOMING;
         } else if(directionFlag == 2) {
-            dirArrowIcon = llActivity.getResources().getDrawable(R.drawable.outgoing16v2);
+            xferMarker = LogEntryUI.XFER_MARKER_OUTGOING;
         }
-        for (int vi = 0; vi < logDataFeed.getChildCount(); vi++) {
-            View logEntryView = logDataFeed.getChildAt(vi);
-            if (logEntryView != null && logDataEntries.get(vi) instanceof LogEntryUI) {
-                CheckBox cb = (CheckBox) logEntryView.findViewById(R.id.entrySelect);
-                if(cb == null) {
-                    continue;
-                }
-                boolean isChecked = cb.isChecked();
-                if (isChecked) {
-                    ImageView xferMarker = (ImageView) logEntryView.findViewById(R.id.inputDirIndicatorImg);
-                    if(xferMarker != null) {
-                        xferMarker.setImageDrawable(dirArrowIcon);
-                    }
-                }
+        for (int ridx = 0; ridx < logRecordStore.size(); ridx++) {
+            if (logRecordStore.isLogData(ridx) && logRecordStore.isSelected(ridx)) {
+                logRecordStore.setXFerMarker(ridx, xferMarker);
             }
         }
+        notifyLogDataFeedChanged();
     }
 
     /**
@@ -236,51 +373,47 @@ public class GUILogUtils {
      * @param actionFlag
      */
     public static void processBatchOfSelectedLogs(String actionFlag) {
-        if(logDataEntries == null || logDataFeed == null) {
-            return;
-        }
-        for (int vi = 0; vi < logDataFeed.getChildCount(); vi++) {
-            View logEntryView = logDataFeed.getChildAt(vi);
-            if (logEntryView != null && logDataEntries.get(vi) instanceof LogEntryUI) {
-                CheckBox cb = (CheckBox) logEntryView.findViewById(R.id.entrySelect);
-                if(cb == null) {
-                    continue;
-                }
-                boolean isChecked = cb.isChecked();
-                LogEntryUI logEntryUIInst = (LogEntryUI) logDataEntries.get(vi);
-                if(logEntryUIInst == null) {
-                    continue;
-                }
-                int recordIdx = logEntryUIInst.getRecordIndex();
-                String payloadDataDesc = logEntryUIInst.getPayloadData();
-                if (isChecked && actionFlag.equals("SEND")) {
-                    String byteString = payloadDataDesc;
-                    appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("CARD INFO", "Sending: " + byteString + "..."));
-                    ChameleonIO.executeChameleonMiniCommand("SEND " + byteString, ChameleonIO.TIMEOUT);
-                }
-                else if(isChecked && actionFlag.equals("SEND_RAW")) {
-                    String byteString = payloadDataDesc;
-                    appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("CARD INFO", "Sending: " + byteString + "..."));
-                    ChameleonIO.executeChameleonMiniCommand("SEND_RAW " + byteString, ChameleonIO.TIMEOUT);
-                }
-                else if(isChecked && actionFlag.equals("CLONE_UID")) {
-                    String uid = payloadDataDesc;
-                    if(uid.length() != 2 * ChameleonIO.deviceStatus.UIDSIZE) {
-                        appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", String.format("Number of bytes for record #%d != the required %d bytes!", recordIdx, ChameleonIO.deviceStatus.UIDSIZE)));
-                    }
-                    else {
-                        ChameleonIO.executeChameleonMiniCommand("UID=" + uid, ChameleonIO.TIMEOUT);
-                    }
-                }
-                else if(isChecked && actionFlag.equals("PRINT")) {
-                    byte[] rawBytes = logEntryUIInst.getEntryData();
-                    appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("PRINT", Utils.bytes2Hex(rawBytes) + "\n------\n" + Utils.bytes2Ascii(rawBytes)));
+        LogEntryUI logEntryUIInst = new LogEntryUI();
+        List<String> deviceCmds = new ArrayList<String>();
+        int numRecords = logRecordStore.size();
+        for (int ridx = 0; ridx < numRecords; ridx++) {
+            if (!logRecordStore.isLogData(ridx) || !logRecordStore.isActive(ridx) || !logRecordStore.isSelected(ridx)) {
+                continue;
+            }
+            logRecordStore.loadLogEntry(ridx, logEntryUIInst);
+            int recordIdx = logEntryUIInst.getRecordIndex();
+            String payloadDataDesc = logEntryUIInst.getPayloadData();
+            if (actionFlag.equals("SEND")) {
+                String byteString = payloadDataDesc;
+                appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("CARD INFO", "Sending: " + byteString + "..."));
+                deviceCmds.add("SEND " + byteString);
+            }
+            else if(actionFlag.equals("SEND_RAW")) {
+                String byteString = payloadDataDesc;
+                appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("CARD INFO", "Sending: " + byteString + "..."));
+                deviceCmds.add("SEND_RAW " + byteString);
+            }
+            else if(actionFlag.equals("CLONE_UID")) {
+                String uid = payloadDataDesc;
+                if(uid.length() != 2 * ChameleonIO.deviceStatus.UIDSIZE) {
+                    appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", String.format("Number of bytes for record #%d != the required %d bytes!", recordIdx, ChameleonIO.deviceStatus.UIDSIZE)));
                 }
-                else if(isChecked && actionFlag.equals("HIDE")) {
-                    logEntryView.setVisibility(View.GONE);
+                else {
+                    deviceCmds.add("UID=" + uid);
                 }
             }
+            else if(actionFlag.equals("PRINT")) {
+                byte[] rawBytes = logEntryUIInst.getEntryData();
+                appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("PRINT", Utils.bytes2Hex(rawBytes) + "\n------\n" + Utils.bytes2Ascii(rawBytes)));
+            }
+            else if(actionFlag.equals("HIDE")) {
+                logRecordStore.setRecordFlag(ridx, LogRecordStore.FLAG_HIDDEN, true);
+            }
         }
+        if(!deviceCmds.isEmpty()) {
+            ChameleonIO.executeChameleonMiniCommandsAsync(deviceCmds.toArray(new String[0]), ChameleonCommandScheduler.PRIORITY_INTERACTIVE);
+        }
+        notifyLogDataFeedChanged();
     }
 
     /**
@@ -324,86 +457,91 @@ public class GUILogUtils {
     }
 
     public static void performLogSearch() {
-        long startTime = System.currentTimeMillis();
         LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
         if(llActivity == null) {
             return;
-        } else if(logDataEntries == null) {
-            String toastMsg = "Unable to perform search --- The main activity is not initialized --- Aborting search operation";
-            Utils.displayToastMessage(llActivity, toastMsg, Toast.LENGTH_SHORT);
         }
-        /* Clear out the existing search data first: */
-        ScrollView searchResultsScroller = (ScrollView) llActivity.findViewById(R.id.searchResultsScrollView);
-        if(searchResultsScroller == null) {
+        final ListView searchResultsList = (ListView) llActivity.findViewById(R.id.searchResultsListView);
+        final TextView searchResultsSummary = (TextView) llActivity.findViewById(R.id.searchResultsSummary);
+        if(searchResultsList == null || searchResultsSummary == null) {
             String toastMsg = "Unable to perform search --- The main activity is not initialized --- Aborting search operation";
             Utils.displayToastMessage(llActivity, toastMsg, Toast.LENGTH_SHORT);
+            return;
         }
-        if(searchResultsScroller.getChildCount() != 0) {
-            searchResultsScroller.removeViewAt(0);
-        }
-        LinearLayout searchResultsContainer = new LinearLayout(llActivity.getApplicationContext());
-        searchResultsContainer.setOrientation(LinearLayout.VERTICAL);
-        searchResultsScroller.addView(searchResultsContainer);
-        /* Perform the search: */
-        boolean selectedBytes = false;
-        String searchString = "";
-        boolean searchStatus, searchAPDU, searchLogPayload, searchLogHeaders;
+        searchResultsList.setAdapter(null);
+        searchResultsSummary.setVisibility(TextView.VISIBLE);
+        /* Parse the search parameters: */
+        final boolean selectedBytes;
+        String searchString;
+        int searchFields = 0;
         try {
             selectedBytes = ((RadioButton) llActivity.findViewById(R.id.radio_search_bytes)).isChecked();
             searchString = ((TextView) llActivity.findViewById(R.id.userInputSearchData)).getText().toString();
-            if (searchString.equals(""))
+            if(selectedBytes) {
+                searchString = searchString.replaceAll("\\s+", "");
+            }
+            if (searchString.equals("")) {
+                searchResultsSummary.setVisibility(TextView.GONE);
                 return;
-            else if (selectedBytes && !Utils.stringIsHexadecimal(searchString)) {
-                searchResultsContainer.addView(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", "Not a hexadecimal string.").getLayoutContainer());
+            }
+            else if (selectedBytes && (!Utils.stringIsHexadecimal(searchString) || searchString.length() % 2 != 0)) {
+                searchResultsSummary.setText("ERROR: Not a hexadecimal byte string.");
                 return;
-            } else if (selectedBytes) {
-                searchString = searchString.replace("[\n\t\r]+", "").replaceAll("..(?!$)", "$0 ");
             }
-            searchString = searchString.toLowerCase(BuildConfig.DEFAULT_LOCALE);
-            searchStatus = ((CheckBox) llActivity.findViewById(R.id.entrySearchIncludeStatus)).isChecked();
-            searchAPDU = ((CheckBox) llActivity.findViewById(R.id.entrySearchAPDU)).isChecked();
-            searchLogPayload = ((CheckBox) llActivity.findViewById(R.id.entrySearchRawLogData)).isChecked();
-            searchLogHeaders = ((CheckBox) llActivity.findViewById(R.id.entrySearchLogHeaders)).isChecked();
+            if(((CheckBox) llActivity.findViewById(R.id.entrySearchIncludeStatus)).isChecked()) {
+                searchFields |= LogSearchIndex.SEARCH_METADATA;
+            }
+            if(((CheckBox) llActivity.findViewById(R.id.entrySearchAPDU)).isChecked()) {
+                searchFields |= LogSearchIndex.SEARCH_APDU;
+            }
+            if(((CheckBox) llActivity.findViewById(R.id.entrySearchRawLogData)).isChecked()) {
+                searchFields |= LogSearchIndex.SEARCH_PAYLOAD;
+            }
+            if(((CheckBox) llActivity.findViewById(R.id.entrySearchLogHeaders)).isChecked()) {
+                searchFields |= LogSearchIndex.SEARCH_LOG_HEADERS;
+            }
         } catch(NullPointerException npe) {
             AndroidLogger.printStackTrace(npe);
             return;
         }
-        AndroidLogger.i(TAG, "Searching for: " + searchString);
-        int matchCount = 0;
-        for(int vi = 0; vi < logDataEntries.size(); vi++) {
-            LogEntryBase nextLogEntry = logDataEntries.get(vi);
-            if(nextLogEntry == null) {
-                continue;
-            }
-            if (nextLogEntry instanceof LogEntryMetadataRecord) {
-                if (searchStatus && nextLogEntry.toString().toLowerCase(BuildConfig.DEFAULT_LOCALE).contains(searchString)) {
-                    searchResultsContainer.addView(nextLogEntry.cloneLayoutContainer());
-                    matchCount++;
-                }
-                continue;
-            }
-            LogEntryUI nextLogEntryUI = (LogEntryUI) nextLogEntry;
-            AndroidLogger.i(TAG, nextLogEntryUI.getPayloadDataString(selectedBytes));
-            if (searchAPDU && nextLogEntryUI.getAPDUString().toLowerCase(BuildConfig.DEFAULT_LOCALE).contains(searchString) ||
-                    searchLogHeaders && nextLogEntryUI.getLogCodeName().toLowerCase(BuildConfig.DEFAULT_LOCALE).contains(searchString) ||
-                    searchLogPayload && nextLogEntryUI.getPayloadDataString(selectedBytes).toLowerCase(BuildConfig.DEFAULT_LOCALE).contains(searchString)) {
-                LinearLayout searchResult = (LinearLayout) nextLogEntryUI.cloneLayoutContainer();
-                if(searchResult != null) {
-                    searchResult.setVisibility(LinearLayout.VISIBLE);
-                    searchResult.setEnabled(true);
-                    searchResult.setMinimumWidth(350);
-                    searchResult.setMinimumHeight(150);
-                    LinearLayout.LayoutParams lllp = new LinearLayout.LayoutParams(LinearLayout.LayoutParams.WRAP_CONTENT, LinearLayout.LayoutParams.WRAP_CONTENT);
-                    searchResultsContainer.addView(searchResult, lllp);
-                    AndroidLogger.i(TAG, "Case II: Record " + vi + " matches");
-                    matchCount++;
-                }
-            }
+        final String searchText;
+        final byte[] payloadPattern;
+        if(selectedBytes) {
+            payloadPattern = Utils.hexString2Bytes(searchString);
+            searchText = searchString.toLowerCase(BuildConfig.DEFAULT_LOCALE).replaceAll("..(?!$)", "$0 ");
         }
-        /* Report stats on the search time and display the findings: */
-        double diffSeconds = (double) (System.currentTimeMillis() - startTime) / 1000.0;
-        String resultStr = String.format(BuildConfig.DEFAULT_LOCALE, "Explored #%d logs in %4g seconds for a total of #%d matching records.",
-                logDataEntries.size(), diffSeconds, matchCount);
-        searchResultsContainer.addView(LogEntryMetadataRecord.createDefaultEventRecord("SEARCH", resultStr).getLayoutContainer());
+        else {
+            searchText = searchString.toLowerCase(BuildConfig.DEFAULT_LOCALE);
+            /* Payloads are displayed as ASCII, so only printable ASCII text can match them: */
+            boolean printableText = searchText.matches("[\\x20-\\x7e]+");
+            payloadPattern = printableText ? searchText.getBytes(StandardCharsets.US_ASCII) : null;
+        }
+        searchResultsSummary.setText("Searching ...");
+        /* Run the index lookups off the UI thread, the results are bound to the list lazily: */
+        final int searchFieldMask = searchFields;
+        final LiveLoggerActivity searchActivity = llActivity;
+        Thread searchThread = new Thread() {
+            @Override
+            public void run() {
+                long startTime = System.nanoTime();
+                final int storeGeneration = logRecordStore.getGeneration();
+                final int[] matchingRecords = logRecordStore.searchRecords(payloadPattern, searchText, selectedBytes, searchFieldMask);
+                double diffSeconds = (System.nanoTime() - startTime) / 1.0e9;
+                final String resultStr = String.format(BuildConfig.DEFAULT_LOCALE, "Explored #%d logs in %4g seconds for a total of #%d matching records.",
+                        logRecordStore.size(), diffSeconds, matchingRecords.length);
+                AndroidLogger.i(TAG, "Search for \"" + searchText + "\": " + resultStr);
+                searchActivity.runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(logRecordStore.getGeneration() != storeGeneration) {
+                            return; /* The logs were cleared since the search started */
+                        }
+                        searchResultsSummary.setText(resultStr);
+                        searchResultsList.setAdapter(new LogRecordListAdapter(logRecordStore, matchingRecords));
+                    }
+                });
+            }
+        };
+        searchThread.start();
     }
 }
@@ -51,7 +51,6 @@ import android.widget.AdapterView;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.ImageView;
-import android.widget.LinearLayout;
 import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toolbar;
@@ -183,6 +182,8 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
                     }
 
                     // Start the crash report activity to display a frontend error explanation to users:
+                    GUILogUtils.logIngestWriter.flush();
+                    GUILogUtils.sessionJournal.sync();
                     ChameleonIO.DeviceStatusSettings.stopPostingStats();
                     Utils.clearToastMessage();
                     Intent startCrashRptIntent = new Intent(liveLoggerActivityContext, CrashReportActivity.class);
@@ -214,7 +215,12 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
      private static IntentFilter serialIOActionFilter = null;
      private static boolean serialIOReceiversRegistered = false;
 
-     public void reconfigureSerialIODevices() {
+     /**
+      * Registers the status intent receiver and the consumer of the serial dispatch ring
+      * (once). Ports that do not talk to a real device (e.g., the capture replay) only need this
+      * part of reconfigureSerialIODevices.
+      */
+     public void registerSerialIOReceivers() {
           if(!serialIOReceiversRegistered) {
                if(serialIOActionReceiver == null) {
                     serialIOActionReceiver = new BroadcastReceiver() {
@@ -235,15 +241,26 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
                     serialIOActionFilter.addAction(BluetoothDevice.ACTION_ACL_DISCONNECT_REQUESTED);
                     serialIOActionFilter.addAction(ChameleonSerialIOInterface.SERIALIO_NOTIFY_BTDEV_CONNECTED);
                     serialIOActionFilter.addAction(ChameleonSerialIOInterface.SERIALIO_DEVICE_CONNECTION_LOST);
-                    serialIOActionFilter.addAction(ChameleonSerialIOInterface.SERIALIO_DATA_RECEIVED);
-                    serialIOActionFilter.addAction(ChameleonSerialIOInterface.SERIALIO_LOGDATA_RECEIVED);
                     serialIOActionFilter.addAction(ChameleonSerialIOInterface.SERIALIO_NOTIFY_STATUS);
                     serialIOActionFilter.setPriority(IntentFilter.SYSTEM_HIGH_PRIORITY);
                     registerReceiver(serialIOActionReceiver, serialIOActionFilter);
+                    SerialIODispatchRing.getInstance().setFrameConsumer(new SerialIODispatchRing.FrameConsumer() {
+                         public void onDispatchedFrame(int dispatchType, byte[] frameData) {
+                              if(dispatchType == SerialIODispatchRing.DISPATCH_LOGDATA) {
+                                   onLogDataReceived(frameData);
+                              } else {
+                                   onSerialDataReceived(frameData);
+                              }
+                         }
+                    });
                     SerialUSBInterface.registerUSBPermission(null, this);
                     serialIOReceiversRegistered = true;
                }
           }
+     }
+
+     public void reconfigureSerialIODevices() {
+          registerSerialIOReceivers();
           ChameleonSettings.initializeSerialIOConnections();
           Handler configDeviceHandler = new Handler();
           Runnable configDeviceRunnable = new Runnable() {
@@ -369,15 +386,17 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
           clearStatusIcon(R.id.statusCodecRXDataEvent);
           clearStatusIcon(R.id.statusScriptingIsExec);
 
-          if(BuildConfig.PAID_APP_VERSION) {
-               String userGreeting = getString(R.string.appInitialUserGreetingMsg);
-               GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("WELCOME", userGreeting));
-               String disclaimerStmt = getString(R.string.appPaidFlavorDisclaimerEULA);
-               GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("DISCLAIMER", disclaimerStmt));
+          if(GUILogUtils.logRecordStore.size() > 0) {
+               /* The restored session already starts with the greeting records: */
+               Utils.displayToastMessageShort("Reopened the last logging session.");
           }
           else {
                String userGreeting = getString(R.string.appInitialUserGreetingMsg);
                GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("WELCOME", userGreeting));
+               if(BuildConfig.PAID_APP_VERSION) {
+                    String disclaimerStmt = getString(R.string.appPaidFlavorDisclaimerEULA);
+                    GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("DISCLAIMER", disclaimerStmt));
+               }
           }
 
           if(getIntent() != null && getIntent().getBooleanExtra(CrashReportActivity.INTENT_CMLD_RECOVERED_FROM_CRASH, false)) {
@@ -431,9 +450,12 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
      protected void configureTabViewPager() {
 
           GUILogUtils.logDataFeedConfigured = false;
-          GUILogUtils.logDataFeed = new LinearLayout(getApplicationContext());
-          if(GUILogUtils.logDataEntries != null)
-               GUILogUtils.logDataEntries.clear();
+          GUILogUtils.logDataFeed = null;
+          GUILogUtils.logDataFeedSummaryBanner = null;
+          int restoredRecords = GUILogUtils.reopenSessionJournal();
+          if(restoredRecords > 0) {
+               AndroidLogger.i(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Restored %d log records from the session journal", restoredRecords));
+          }
 
           viewPager = (ViewPager) findViewById(R.id.tab_pager);
           if(viewPager != null) {
@@ -589,37 +611,6 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
           } else if(intent.getAction().equals(ChameleonSerialIOInterface.SERIALIO_DEVICE_CONNECTION_LOST)) {
                /* Do nothing. This intent is only broadcast by the IO classes after calling shutdownSerial(). */
           }
-          else if(intent.getAction().equals(ChameleonSerialIOInterface.SERIALIO_DATA_RECEIVED)) {
-               byte[] serialByteData = intent.getByteArrayExtra(ChameleonSerialIOInterface.SERIALIO_BYTE_DATA);
-               if (ChameleonLogUtils.ResponseIsLiveLoggingBytes(serialByteData) == 0) {
-                    String dataMsg = String.format(BuildConfig.DEFAULT_LOCALE, "Unexpected serial I/O data received (data as log below)");
-                    GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", dataMsg));
-                    GUILogUtils.appendNewLog(LogEntryUI.newInstance(serialByteData, ""));
-               }
-          }
-          else if(intent.getAction().equals(ChameleonSerialIOInterface.SERIALIO_LOGDATA_RECEIVED)) {
-               byte[] logDataBytes = intent.getByteArrayExtra(ChameleonSerialIOInterface.SERIALIO_BYTE_DATA);
-               boolean duplicateLogData = false;
-               if(ChameleonLogUtils.CONFIG_COLLAPSE_COMMON_LOG_ENTRIES) {
-                    for(int chIdx = 0; chIdx < GUILogUtils.logDataEntries.size(); chIdx++) {
-                         if(!(GUILogUtils.logDataEntries.get(chIdx) instanceof LogEntryUI)) {
-                              continue;
-                         }
-                         LogEntryUI logEntryUI = (LogEntryUI) GUILogUtils.logDataEntries.get(chIdx);
-                         if(logEntryUI.logEntryDataEquals(logDataBytes)) {
-                              logEntryUI.appendDuplicate(logDataBytes[2], logDataBytes[3]);
-                              GUILogUtils.logDataFeed.removeViewAt(chIdx);
-                              GUILogUtils.logDataEntries.remove(chIdx);
-                              GUILogUtils.appendNewLog(logEntryUI);
-                              duplicateLogData = true;
-                              break;
-                         }
-                    }
-               }
-               if (!duplicateLogData) {
-                    GUILogUtils.appendNewLog(LogEntryUI.newInstance(logDataBytes, ""));
-               }
-          }
           else if(intent.getAction().equals(ChameleonSerialIOInterface.SERIALIO_NOTIFY_STATUS)) {
                String msgType = intent.getStringExtra(ChameleonSerialIOInterface.SERIALIO_STATUS_TYPE);
                String statusMsg = intent.getStringExtra(ChameleonSerialIOInterface.SERIALIO_STATUS_MSG);
@@ -627,6 +618,34 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
           }
      }
 
+     /**
+      * Handles a LIVE log frame drained from the dispatch ring (on the main thread).
+      * @param logDataBytes
+      * @ref SerialIODispatchRing
+      */
+     public void onLogDataReceived(byte[] logDataBytes) {
+          boolean duplicateLogData = false;
+          if(ChameleonLogUtils.CONFIG_COLLAPSE_COMMON_LOG_ENTRIES) {
+               duplicateLogData = GUILogUtils.appendDuplicateLog(logDataBytes);
+          }
+          if (!duplicateLogData) {
+               GUILogUtils.appendNewRawLog(logDataBytes);
+          }
+     }
+
+     /**
+      * Handles unexpected (non-response) serial data drained from the dispatch ring.
+      * @param serialByteData
+      * @ref SerialIODispatchRing
+      */
+     public void onSerialDataReceived(byte[] serialByteData) {
+          if (ChameleonLogUtils.ResponseIsLiveLoggingBytes(serialByteData) == 0) {
+               String dataMsg = String.format(BuildConfig.DEFAULT_LOCALE, "Unexpected serial I/O data received (data as log below)");
+               GUILogUtils.appendNewLog(LogEntryMetadataRecord.createDefaultEventRecord("ERROR", dataMsg));
+               GUILogUtils.appendNewLog(LogEntryUI.newInstance(serialByteData, ""));
+          }
+     }
+
      /**
       * Called when the activity is paused or put into the background.
       * @ref onResume()
@@ -644,6 +663,8 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
           }
           BluetoothUtils.resetBluetoothAdapterAtClose(this);
           AndroidLogger.closeLogDataOutputFile();
+          GUILogUtils.logIngestWriter.flush();
+          GUILogUtils.sessionJournal.sync();
           super.onPause();
      }
 
@@ -679,6 +700,10 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
           }
           BluetoothUtils.resetBluetoothAdapterAtClose(this);
           AndroidLogger.closeLogDataOutputFile();
+          GUILogUtils.logIngestWriter.flush();
+          GUILogUtils.sessionJournal.close();
+          ExportTools.stopLivePcapngCapture();
+          SerialIODispatchRing.getInstance().setFrameConsumer(null);
           super.onDestroy();
      }
 
@@ -919,8 +944,8 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
      }
 
      /**
-      * Wrapper around the first three buttons at the top of the Export tab for writing the
-      * logs to Plaintext / HTML / native binary files formats.
+      * Wrapper around the buttons at the top of the Export tab for writing the
+      * logs to Plaintext / HTML / native binary / compressed columnar files formats.
       * @param view pressed Button
       */
      public void actionButtonWriteFile(@NonNull View view) {
@@ -931,6 +956,35 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
           }
      }
 
+     /**
+      * Starts / stops streaming the LIVE logs to a pcapng capture file.
+      * @param view
+      * @ref ExternalFileIO.toggleLivePcapngCapture
+      */
+     public void actionButtonToggleLivePcapng(@NonNull View view) {
+          ExternalFileIO.toggleLivePcapngCapture();
+          ((Button) view).setText(ExportTools.isLivePcapngCaptureActive() ? "Stop PCAPNG" : "Live PCAPNG");
+     }
+
+     /**
+      * Starts / stops recording the raw serial data from the connected device.
+      * @param view
+      * @ref ExternalFileIO.toggleSerialCaptureRecording
+      */
+     public void actionButtonToggleSerialCapture(@NonNull View view) {
+          ExternalFileIO.toggleSerialCaptureRecording();
+          ((Button) view).setText(ExternalFileIO.isSerialCaptureRecording() ? "Stop Capture" : "Record Serial");
+     }
+
+     /**
+      * Plays back a recorded serial capture (or binary log file) in place of a connected device.
+      * @param view
+      * @ref ExternalFileIO.replaySerialCapture
+      */
+     public void actionButtonReplaySerialCapture(@NonNull View view) {
+          ExternalFileIO.replaySerialCapture();
+     }
+
      /**
       * Called when the Export tab button for writing the DUMP_MFU command output is requested by the user.
       * @param view
@@ -972,7 +1026,7 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
                if (sopt.substring(0, 2).equals("--"))
                     sopt = "NONE";
                String cmCmd = srcView.getTag().toString() + sopt;
-               ChameleonIO.executeChameleonMiniCommand(cmCmd, ChameleonIO.TIMEOUT);
+               ChameleonIO.executeChameleonMiniCommandAsync(cmCmd);
           }
      }
 
@@ -1197,7 +1251,7 @@ public class LiveLoggerActivity extends ChameleonMiniLiveDebuggerActivity implem
                     return;
                }
                String chamCmd = String.format(BuildConfig.DEFAULT_LOCALE, cmdTagComps[0], piccSetBytes);
-               ChameleonIO.executeChameleonMiniCommand(chamCmd, ChameleonIO.TIMEOUT);
+               ChameleonIO.executeChameleonMiniCommandAsync(chamCmd);
           }
      }
 
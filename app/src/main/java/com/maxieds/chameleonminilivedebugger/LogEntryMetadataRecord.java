@@ -36,7 +36,7 @@ import java.util.Map;
  *
  * @author  Maxie D. Schmidt
  * @since   12/31/17
- * @ref LiveLoggerActivity.logDataEntries
+ * @ref GUILogUtils.logRecordStore
  */
 public class LogEntryMetadataRecord extends LogEntryBase {
 
@@ -46,11 +46,12 @@ public class LogEntryMetadataRecord extends LogEntryBase {
     private String recordTitle;
     private String recordText;
     private String recordTimestamp;
+    private int recordIconResID;
     protected TextView tvRecTitle, tvRecData;
     private LinearLayout recordContainer;
 
     /**
-     * Constructor.
+     * Constructor. The layout is inflated lazily when the record is first displayed.
      * @param inflater
      * @param title Main summary title of the status message / annotation entry.
      * @param text Lower specific subtitle text stored with the entry.
@@ -61,20 +62,35 @@ public class LogEntryMetadataRecord extends LogEntryBase {
         recordTitle = title;
         recordText = text;
         recordTimestamp = Utils.getTimestamp();
-        recordContainer = (LinearLayout) inflater.inflate(R.layout.log_metadata_record, null);
-        recordContainer.setAlpha(LOGENTRY_GUI_ALPHA);
-        tvRecTitle = (TextView) recordContainer.findViewById(R.id.record_title_text);
+        recordIconResID = R.drawable.phonebubble24;
+        recordContainer = null;
+    }
+
+    /**
+     * Populates the inflated (possibly recycled) layout with the record data.
+     * @param recordContainerRef
+     * @see res/layout/log_metadata_record.xml
+     */
+    public void configureLayout(LinearLayout recordContainerRef) {
+        if(recordContainerRef == null) {
+            return;
+        }
+        recordContainerRef.setAlpha(LOGENTRY_GUI_ALPHA);
+        tvRecTitle = (TextView) recordContainerRef.findViewById(R.id.record_title_text);
         if(tvRecTitle != null) {
             tvRecTitle.setText(recordTitle + " | " + recordTimestamp);
+            tvRecTitle.setCompoundDrawablesWithIntrinsicBounds(recordIconResID, 0, 0, 0);
         }
-        tvRecData = (TextView) recordContainer.findViewById(R.id.record_data_text);
+        tvRecData = (TextView) recordContainerRef.findViewById(R.id.record_data_text);
         if(tvRecData != null) {
             tvRecData.setText(recordText);
             tvRecData.setAlpha(LOGENTRY_GUI_ALPHA);
             if (recordText.equals("")) {
-                tvRecData.setVisibility(TextView.INVISIBLE);
+                tvRecData.setVisibility(TextView.GONE);
                 tvRecData.setEnabled(false);
-                tvRecData.setHeight(0);
+            } else {
+                tvRecData.setVisibility(TextView.VISIBLE);
+                tvRecData.setEnabled(true);
             }
         }
     }
@@ -84,19 +100,29 @@ public class LogEntryMetadataRecord extends LogEntryBase {
         if(recordContainerClone == null) {
             return null;
         }
-        TextView tvRecTitleClone = (TextView) recordContainerClone.findViewById(R.id.record_title_text);
-        tvRecTitleClone.setText(tvRecTitle.getText());
-        tvRecTitleClone.setCompoundDrawables(tvRecTitle.getCompoundDrawables()[0], null, null, null);
-        TextView tvRecDataClone = (TextView) recordContainerClone.findViewById(R.id.record_data_text);
-        tvRecDataClone.setText(recordText);
-        if(recordText.equals("")) {
-            tvRecDataClone.setVisibility(TextView.INVISIBLE);
-            tvRecDataClone.setEnabled(false);
-            tvRecDataClone.setHeight(0);
-        }
+        configureLayout(recordContainerClone);
         return recordContainerClone;
     }
 
+    public void setIconResourceID(int iconResID) {
+        recordIconResID = iconResID;
+        if(tvRecTitle != null) {
+            tvRecTitle.setCompoundDrawablesWithIntrinsicBounds(recordIconResID, 0, 0, 0);
+        }
+    }
+
+    public String getRecordTitle() {
+        return recordTitle;
+    }
+
+    public String getRecordText() {
+        return recordText;
+    }
+
+    public String getRecordTimestamp() {
+        return recordTimestamp;
+    }
+
     /**
      * Stub method.
      * @param indentLevel
@@ -119,6 +145,9 @@ public class LogEntryMetadataRecord extends LogEntryBase {
      * @return (LinearLayout) View
      */
     public View getLayoutContainer() {
+        if(recordContainer == null) {
+            recordContainer = (LinearLayout) cloneLayoutContainer();
+        }
         return recordContainer;
     }
 
@@ -162,6 +191,23 @@ public class LogEntryMetadataRecord extends LogEntryBase {
         prefixIconMap.put("TODO LIST", R.drawable.todo26);
     }
 
+    /**
+     * Recreates a record read back from the session journal. Unlike createDefaultEventRecord,
+     * the stored text is used as is and the original timestamp is kept.
+     * @param eventID
+     * @param eventMsg
+     * @param timestamp
+     * @return LogEntryMetadataRecord record
+     * @ref LogSessionJournal
+     */
+    public static LogEntryMetadataRecord restoreRecord(@NonNull String eventID, @NonNull String eventMsg, @NonNull String timestamp) {
+        LogEntryMetadataRecord metadataRecord = new LogEntryMetadataRecord(LiveLoggerActivity.defaultInflater, eventID, eventMsg);
+        metadataRecord.recordTimestamp = timestamp;
+        Integer iconResIDInt = prefixIconMap.get(eventID);
+        metadataRecord.setIconResourceID(iconResIDInt == null ? R.drawable.msgbubble24 : iconResIDInt.intValue());
+        return metadataRecord;
+    }
+
     /**
      * Creates a new log entry of a predefined type.
      * @param eventID Type of the status message
@@ -218,7 +264,7 @@ public class LogEntryMetadataRecord extends LogEntryBase {
         }
 
         LogEntryMetadataRecord eventRecord = new LogEntryMetadataRecord(LiveLoggerActivity.defaultInflater, eventID, eventMsg);
-        eventRecord.tvRecTitle.setCompoundDrawablesWithIntrinsicBounds(iconResID, 0, 0, 0);
+        eventRecord.setIconResourceID(iconResID);
         return eventRecord;
 
     }
@@ -17,8 +17,6 @@ https://github.com/maxieds/ChameleonMiniLiveDebugger
 
 package com.maxieds.chameleonminilivedebugger;
 
-import android.content.Context;
-import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.CheckBox;
 import android.widget.ImageView;
@@ -37,7 +35,7 @@ import androidx.annotation.NonNull;
  *
  * @author  Maxie D. Schmidt
  * @since   12/31/17
- * @ref LiveLoggerActivity.logDataEntries
+ * @ref GUILogUtils.logRecordStore
  */
 public class LogEntryUI extends LogEntryBase {
 
@@ -69,6 +67,38 @@ public class LogEntryUI extends LogEntryBase {
     private byte[] entryData;
     private int dataDirection;
     private int numDuplicates;
+    private int highlightColor;
+    private int xferMarker;
+    private String apduDesc;
+
+    /**
+     * Manual transfer direction markers set from the Log Tools tab (overrides the direction
+     * given by the log code).
+     * @ref GUILogUtils.setSelectedXFerOnLogs
+     */
+    public static final int XFER_MARKER_DEFAULT = 0;
+    public static final int XFER_MARKER_BIDIRECTIONAL = 1;
+    public static final int XFER_MARKER_INCOMING = 2;
+    public static final int XFER_MARKER_OUTGOING = 3;
+
+    public static final String APDU_NONE_RECOGNIZED = "APDU: NONE RECOGNIZED";
+
+    /**
+     * Computes the offset in milliseconds to the previous log from the 16-bit device systick
+     * timestamp, falling back to the local clock when the device timer wraps around.
+     * @param timestamp
+     * @return int offset time (ms)
+     */
+    public static int nextDiffTimeMillis(int timestamp) {
+        int diffTimeMs = curSystickTimestamp == -1 ? timestamp : timestamp - curSystickTimestamp;
+        long systemTimeMillis = System.currentTimeMillis();
+        if(diffTimeMs < 0) {
+            diffTimeMs = (int) (lastSystemMillis - systemTimeMillis);
+        }
+        curSystickTimestamp = timestamp;
+        lastSystemMillis = systemTimeMillis;
+        return diffTimeMs;
+    }
 
     /**
      * Effective constructor for the class.
@@ -85,13 +115,7 @@ public class LogEntryUI extends LogEntryBase {
         int logCode = (int) rawLogBytes[0];
         int payloadNumBytes = (int) rawLogBytes[1];
         int timestamp = (((int) rawLogBytes[2]) << 8) | ((int) rawLogBytes[3]);
-        int diffTimeMs = curSystickTimestamp == -1 ? timestamp : timestamp - curSystickTimestamp;
-        long systemTimeMillis = System.currentTimeMillis();
-        if(diffTimeMs < 0) {
-            diffTimeMs = (int) (lastSystemMillis - systemTimeMillis);
-        }
-        curSystickTimestamp = timestamp;
-        lastSystemMillis = systemTimeMillis;
+        int diffTimeMs = nextDiffTimeMillis(timestamp);
         byte[] payloadBytes = new byte[rawLogBytes.length - 4];
         if(payloadBytes.length < payloadNumBytes) {
             AndroidLogger.w(TAG, "Invalid payload bytes sent.");
@@ -99,20 +123,22 @@ public class LogEntryUI extends LogEntryBase {
         else
             System.arraycopy(rawLogBytes, 4, payloadBytes, 0, payloadBytes.length);
         LogEntryUI newLogDataEntry = new LogEntryUI();
-        return newLogDataEntry.configureLogEntry(LiveLoggerActivity.defaultContext, logLabel, diffTimeMs, ChameleonLogUtils.getDataDirection(logCode), logCode, payloadBytes);
+        return newLogDataEntry.configureLogEntry(logLabel, diffTimeMs, ChameleonLogUtils.getDataDirection(logCode), logCode, payloadBytes);
     }
 
     /**
      * Configures / sets parameters based on the parsed native LIVE logging data.
-     * @param context
+     * The layout is not inflated here: the Log tab binds the entry to a recycled row when it
+     * is displayed.
      * @param label
      * @param diffTimeMs
      * @param ltype
      * @param edata
      * @return LogEntryUI the configured log entry
      * @url http://rawgit.com/emsec/ChameleonMini/master/Doc/Doxygen/html/Page_Log.html
+     * @ref LogRecordStore.loadLogEntry
      */
-    public LogEntryUI configureLogEntry(Context context, String label, int diffTimeMs, int dataDir, int ltype, byte[] edata) {
+    public LogEntryUI configureLogEntry(String label, int diffTimeMs, int dataDir, int ltype, byte[] edata) {
         numBytes = edata.length;
         diffTimeMillis = diffTimeMs;
         dataDirection = dataDir;
@@ -120,14 +146,14 @@ public class LogEntryUI extends LogEntryBase {
         logLabel = label;
         entryData = edata;
         numDuplicates = 0;
-        LayoutInflater inflater = LiveLoggerActivity.defaultInflater;
-        mainEntryContainer = (LinearLayout) inflater.inflate(R.layout.log_entry_ui, null);
-        configureLayout(mainEntryContainer);
+        highlightColor = 0;
+        xferMarker = XFER_MARKER_DEFAULT;
+        apduDesc = null;
         return this;
     }
 
     /**
-     * The GUI container for the log entry layout.
+     * The GUI container for the log entry layout (if it has been bound to one).
      * @return LinearLayout widget container
      * @see res/layout/log_entry_ui.xml
      */
@@ -140,45 +166,15 @@ public class LogEntryUI extends LogEntryBase {
         if(mainEntryContainerClone == null) {
             return null;
         }
-        try {
-            mainEntryContainerClone.setAlpha(LOGENTRY_GUI_ALPHA);
-            ImageView inoutDirIndicatorClone = (ImageView) mainEntryContainerClone.findViewById(R.id.inputDirIndicatorImg);
-            inoutDirIndicatorClone.setImageDrawable(inoutDirIndicator.getDrawable());
-            ImageView apduParseStatusClone = (ImageView) mainEntryContainerClone.findViewById(R.id.apduParseStatusImg);
-            apduParseStatusClone.setImageDrawable(apduParseStatusClone.getDrawable());
-            TextView tvLabelClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_label);
-            tvLabelClone.setText(tvLabel.getText());
-            TextView tvNumBytesClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_data_num_bytes);
-            tvNumBytesClone.setText(tvNumBytes.getText());
-            TextView tvNumMillisClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_offset_millis);
-            tvNumMillisClone.setText(tvNumMillis.getText());
-            TextView tvLogTypeClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_log_type);
-            tvLogTypeClone.setText(tvLogType.getText());
-            TextView tvEntropyClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_entropy_compression_ratio);
-            tvEntropyClone.setText(tvEntropy.getText());
-            TextView tvDataHexBytesClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_logdata_hex);
-            tvDataHexBytesClone.setText(tvDataHexBytes.getText());
-            TextView tvDataAsciiClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_logdata_ascii);
-            tvDataAsciiClone.setText(tvDataAscii.getText());
-            TextView tvApduClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_apdu);
-            TextView tvDataUint32ValuesClone = (TextView) mainEntryContainerClone.findViewById(R.id.text_logdata_uint32_values);
-            tvDataUint32ValuesClone.setText(tvDataUint32Values.getText());
-            if (tvDataUint32Values.getVisibility() == LinearLayout.INVISIBLE) {
-                tvDataUint32ValuesClone.setVisibility(LinearLayout.INVISIBLE);
-            }
-            tvApduClone.setText(tvApdu.getText());
-            if (tvApduClone.getText().toString().equals("APDU: NONE RECOGNIZED")) {
-                tvApduClone.setVisibility(TextView.GONE);
-            }
-        } catch(NullPointerException npe) {
-            AndroidLogger.printStackTrace(npe);
-            return null;
+        configureLayout(mainEntryContainerClone);
+        if(highlightColor != 0) {
+            mainEntryContainerClone.setBackgroundColor(highlightColor);
         }
         return mainEntryContainerClone;
     }
 
     /**
-     * Populates the inflated layout with log data about the entry.
+     * Populates the inflated (possibly recycled) layout with log data about the entry.
      * @param mainContainerRef
      */
     public void configureLayout(LinearLayout mainContainerRef) {
@@ -193,8 +189,7 @@ public class LogEntryUI extends LogEntryBase {
             inoutDirIndicator.setImageDrawable(LiveLoggerActivity.getLiveLoggerInstance().getResources().getDrawable(getDataDirectionMarker()));
             apduParseStatus = (ImageView) mainContainerRef.findViewById(R.id.apduParseStatusImg);
             tvLabel = (TextView) mainContainerRef.findViewById(R.id.text_label);
-            recordID = ++GUILogUtils.RECORDID;
-            tvLabel.setText(logLabel + String.format(BuildConfig.DEFAULT_LOCALE, "%06d", GUILogUtils.RECORDID));
+            tvLabel.setText(logLabel + String.format(BuildConfig.DEFAULT_LOCALE, "%06d", recordID));
             tvNumBytes = (TextView) mainContainerRef.findViewById(R.id.text_data_num_bytes);
             tvNumBytes.setText(String.valueOf(numBytes) + "B");
             tvNumMillis = (TextView) mainContainerRef.findViewById(R.id.text_offset_millis);
@@ -207,7 +202,7 @@ public class LogEntryUI extends LogEntryBase {
             tvDataHexBytes.setText(Utils.bytes2Hex(entryData));
             tvDataAscii = (TextView) mainContainerRef.findViewById(R.id.text_logdata_ascii);
             tvDataAscii.setText(Utils.bytes2Ascii(entryData));
-            TextView tvDataUint32ValuesClone = (TextView) mainContainerRef.findViewById(R.id.text_logdata_uint32_values);
+            tvDataUint32Values = (TextView) mainContainerRef.findViewById(R.id.text_logdata_uint32_values);
             if (entryData.length > 0 && entryData.length <= 4) {
                 final int base10MaxDigitsToPrint = 6;
 
@@ -226,17 +221,24 @@ public class LogEntryUI extends LogEntryBase {
                 }
                 uint32BEDesc += String.format(BuildConfig.DEFAULT_LOCALE, " (Big Endian); ");
                 tvDataUint32Values.setText(uint32LEDesc + uint32BEDesc);
+                tvDataUint32Values.setVisibility(View.VISIBLE);
             } else {
                 tvDataUint32Values.setVisibility(LinearLayout.INVISIBLE);
             }
             tvApdu = (TextView) mainContainerRef.findViewById(R.id.text_apdu);
-            tvApdu.setText(ApduUtils.classifyApdu(entryData));
+            tvApdu.setText(getAPDUString());
             tvDuplicateCount = (TextView) mainEntryContainer.findViewById(R.id.text_duplicate_count);
-            tvDuplicateCount.setVisibility(View.GONE);
-            if (tvApdu.getText().toString().equals("NONE")) {
-                tvApdu.setText("APDU: NONE RECOGNIZED");
+            if(numDuplicates > 0) {
+                tvDuplicateCount.setText(getDuplicateCountText());
+                tvDuplicateCount.setVisibility(View.VISIBLE);
+            } else {
+                tvDuplicateCount.setVisibility(View.GONE);
+            }
+            if (!isApduRecognized()) {
                 tvApdu.setVisibility(TextView.GONE);
+                apduParseStatus.setImageDrawable(LiveLoggerActivity.defaultContext.getResources().getDrawable(R.drawable.question16));
             } else {
+                tvApdu.setVisibility(TextView.VISIBLE);
                 apduParseStatus.setImageDrawable(LiveLoggerActivity.defaultContext.getResources().getDrawable(R.drawable.known16));
             }
         } catch(NullPointerException npe) {
@@ -269,6 +271,28 @@ public class LogEntryUI extends LogEntryBase {
      */
     public int getRecordIndex() { return recordID; }
 
+    public void setRecordIndex(int recordIndex) { recordID = recordIndex; }
+
+    public int getLogType() { return logType; }
+
+    public int getDataDirection() { return dataDirection; }
+
+    public int getDiffTimeMillis() { return diffTimeMillis; }
+
+    public int getDuplicateCount() { return numDuplicates; }
+
+    public void setDuplicateCount(int duplicateCount) { numDuplicates = duplicateCount; }
+
+    /**
+     * Background color to highlight the entry with in the Log tab (zero for the theme default).
+     * @return int color
+     */
+    public int getHighlightColor() { return highlightColor; }
+
+    public void setHighlightColor(int color) { highlightColor = color; }
+
+    public void setXFerMarker(int marker) { xferMarker = marker; }
+
     /**
      * Helper method for determining timing data in the log.
      * @param offsetTimeMillis
@@ -317,8 +341,23 @@ public class LogEntryUI extends LogEntryBase {
 
     public boolean appendDuplicate(short offsetTimeMillis) {
 
-        // Add one and determine how to display the +NUM marker:
+        // Add one and update the time / ms marker:
         numDuplicates += 1;
+        diffTimeMillis = nextDiffTimeMillis((int) offsetTimeMillis);
+        if(tvDuplicateCount != null && tvNumMillis != null) {
+            tvDuplicateCount.setVisibility(View.VISIBLE);
+            tvDuplicateCount.setText(getDuplicateCountText());
+            tvNumMillis.setText((diffTimeMillis >= 0 ? "+" : "~") + String.valueOf(abs(diffTimeMillis)) + "ms");
+        }
+        return true;
+
+    }
+
+    /**
+     * Determines how to display the +NUM marker for collapsed duplicate logs.
+     * @return String duplicate marker text
+     */
+    public String getDuplicateCountText() {
         boolean drawCountInHex = Math.log10(numDuplicates) > 5.0 ? true : false;
         String duplicateNumberText = "";
         if(drawCountInHex) {
@@ -327,22 +366,7 @@ public class LogEntryUI extends LogEntryBase {
         else {
             duplicateNumberText = String.format(BuildConfig.DEFAULT_LOCALE, "%06d", numDuplicates);
         }
-        duplicateNumberText += " -- IDENTICAL LOGS";
-        tvDuplicateCount.setVisibility(View.VISIBLE);
-        tvDuplicateCount.setText(duplicateNumberText);
-
-        // Update the time / ms marker:
-        int timestamp = (int) offsetTimeMillis;
-        long systemTimeMillis = System.currentTimeMillis();
-        diffTimeMillis = curSystickTimestamp == -1 ? timestamp : timestamp - curSystickTimestamp;
-        if(diffTimeMillis < 0) {
-            diffTimeMillis = (int) (lastSystemMillis - systemTimeMillis);
-        }
-        curSystickTimestamp = timestamp;
-        lastSystemMillis = systemTimeMillis;
-        tvNumMillis.setText((diffTimeMillis >=0 ? "+" : "~") + String.valueOf(abs(diffTimeMillis)) + "ms");
-
-        return true;
+        return duplicateNumberText + " -- IDENTICAL LOGS";
     }
 
     /**
@@ -364,7 +388,7 @@ public class LogEntryUI extends LogEntryBase {
         ChameleonLogUtils.LogCode logCode = ChameleonLogUtils.LogCode.lookupByLogCode(logType);
         String recordFmt = String.format(BuildConfig.DEFAULT_LOCALE, "%06d --- %-32s [%-3s bytes] (%s%-6s ms) [%s] {%s}", recordID, logCode.name(),
                 String.valueOf(entryData.length), diffTimeMillis >= 0 ? "+" : "~", String.valueOf(abs(diffTimeMillis)),
-                Utils.bytes2Hex(entryData), tvApdu.getText().toString());
+                Utils.bytes2Hex(entryData), getAPDUString());
         return recordFmt;
     }
 
@@ -372,22 +396,48 @@ public class LogEntryUI extends LogEntryBase {
         return ChameleonLogUtils.LogCode.lookupByLogCode(logType).name();
     }
 
+    /**
+     * Classification of the payload as an APDU (computed once per entry when it is displayed).
+     * @return String APDU description
+     */
     public String getAPDUString() {
-        return tvApdu.getText().toString();
+        if(apduDesc == null) {
+            apduDesc = getAPDUString(entryData);
+        }
+        return apduDesc;
+    }
+
+    /**
+     * APDU description of a payload as shown in the Log tab (also used to build the search index).
+     * @param payloadBytes
+     * @return String APDU description
+     * @ref LogRecordStore.searchRecords
+     */
+    public static String getAPDUString(byte[] payloadBytes) {
+        String apduLabel = ApduUtils.classifyApdu(payloadBytes);
+        return apduLabel.equals(ApduClassifier.NO_APDU_LABEL) ? APDU_NONE_RECOGNIZED : apduLabel;
+    }
+
+    public boolean isApduRecognized() {
+        return !getAPDUString().equals(APDU_NONE_RECOGNIZED);
     }
 
     public String getPayloadDataString(boolean byteString) {
         if(byteString) {
-            AndroidLogger.i(TAG, "Returning bytes: " + tvDataHexBytes.getText().toString());
-            return tvDataHexBytes.getText().toString();
+            return Utils.bytes2Hex(entryData);
         } else {
-            AndroidLogger.i(TAG, "Returning ascii: " + tvDataAscii.getText().toString());
-            return tvDataAscii.getText().toString();
+            return Utils.bytes2Ascii(entryData);
         }
     }
 
     public int getDataDirectionMarker() {
-        if(dataDirection == ChameleonLogUtils.DATADIR_INCOMING) {
+        if(xferMarker == XFER_MARKER_BIDIRECTIONAL) {
+            return R.drawable.xfer16;
+        } else if(xferMarker == XFER_MARKER_INCOMING) {
+            return R.drawable.incoming16v2;
+        } else if(xferMarker == XFER_MARKER_OUTGOING) {
+            return R.drawable.outgoing16v2;
+        } else if(dataDirection == ChameleonLogUtils.DATADIR_INCOMING) {
             return R.drawable.incoming_arrow16;
         } else if(dataDirection == ChameleonLogUtils.DATADIR_OUTGOING) {
             return R.drawable.outgoing_arrow16;
@@ -402,6 +452,9 @@ public class LogEntryUI extends LogEntryBase {
      */
     @Override
     public View getLayoutContainer() {
+        if(mainEntryContainer == null) {
+            mainEntryContainer = (LinearLayout) cloneLayoutContainer();
+        }
         return mainEntryContainer;
     }
 
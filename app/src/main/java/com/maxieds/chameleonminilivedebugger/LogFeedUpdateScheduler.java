@@ -0,0 +1,227 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+
+package com.maxieds.chameleonminilivedebugger;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Log Feed Update Scheduler</h1>
+ * Coalesces the Log tab refreshes into at most one per display frame: the records appended
+ * since the last frame are picked up by a single notifyRecordsChanged() call on the adapter
+ * and (if requested) a single scroll to the bottom of the list.
+ *
+ * The ingest rate and the late (dropped) frames are measured over one second windows. When
+ * the logs arrive faster than SUMMARY_MODE_ENTER_RATE, or frames are being dropped under a
+ * steady stream of records, the scheduler switches to summary mode: the list is refreshed
+ * only every SUMMARY_REFRESH_INTERVAL_MILLIS and a banner above it shows the rate counters.
+ * It switches back once the rate falls below SUMMARY_MODE_EXIT_RATE.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref GUILogUtils.requestLogDataFeedUpdate
+ * @ref GUILogUtils.moveLiveLogTabScrollerToBottom
+ */
+public class LogFeedUpdateScheduler implements Choreographer.FrameCallback {
+
+    private static final String TAG = LogFeedUpdateScheduler.class.getSimpleName();
+
+    public static final int SUMMARY_MODE_ENTER_RATE = 3000; /* records per second */
+    public static final int SUMMARY_MODE_EXIT_RATE = 1500;
+    public static final float SUMMARY_MODE_LATE_FRAME_RATIO = 0.25f;
+    public static final long SUMMARY_MODE_MIN_MILLIS = 2000;
+    public static final long SUMMARY_REFRESH_INTERVAL_MILLIS = 500;
+
+    private static final long RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long FRAME_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1) / 60;
+
+    private static final LogFeedUpdateScheduler SCHEDULER_INSTANCE = new LogFeedUpdateScheduler();
+
+    public static LogFeedUpdateScheduler getInstance() {
+        return SCHEDULER_INSTANCE;
+    }
+
+    /* All of the state below is only touched on the main thread: */
+    private boolean updatePending = false;
+    private boolean scrollPending = false;
+    private boolean frameScheduled = false;
+    private long frameRequestNanos = 0;
+    private boolean summaryMode = false;
+    private long summaryModeSinceNanos = 0;
+    private long lastRefreshNanos = 0;
+    private int lastRefreshStoreSize = 0;
+
+    private long windowStartNanos = 0;
+    private int windowStartStoreSize = 0;
+    private int windowFrames = 0;
+    private int windowLateFrames = 0;
+    private int ingestRate = 0;
+    private int lateFramesPerSecond = 0;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable requestUpdateRunnable = new Runnable() {
+        @Override
+        public void run() {
+            requestUpdate(false);
+        }
+    };
+    private final Runnable requestScrollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            requestUpdate(true);
+        }
+    };
+
+    public boolean isSummaryMode() {
+        return summaryMode;
+    }
+
+    public int getIngestRate() {
+        return ingestRate;
+    }
+
+    /**
+     * Refreshes the Log tab on the next frame. Safe to call from the serial IO threads.
+     * @param scrollToBottom Also move the list to the last record
+     */
+    public void requestUpdate(boolean scrollToBottom) {
+        if(Looper.myLooper() != Looper.getMainLooper()) {
+            mainHandler.post(scrollToBottom ? requestScrollRunnable : requestUpdateRunnable);
+            return;
+        }
+        updatePending = true;
+        scrollPending |= scrollToBottom;
+        scheduleFrame(0);
+    }
+
+    private void scheduleFrame(long delayMillis) {
+        if(frameScheduled) {
+            return;
+        }
+        frameScheduled = true;
+        frameRequestNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        if(delayMillis > 0) {
+            Choreographer.getInstance().postFrameCallbackDelayed(this, delayMillis);
+        } else {
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        int storeSize = GUILogUtils.logRecordStore.size();
+        windowFrames++;
+        if(frameTimeNanos - frameRequestNanos > 2 * FRAME_INTERVAL_NANOS) {
+            windowLateFrames++;
+        }
+        updateRateWindow(frameTimeNanos, storeSize);
+        if(summaryMode) {
+            long nextRefreshNanos = lastRefreshNanos + TimeUnit.MILLISECONDS.toNanos(SUMMARY_REFRESH_INTERVAL_MILLIS);
+            if(updatePending && (frameTimeNanos >= nextRefreshNanos || scrollPending)) {
+                applyUpdate(frameTimeNanos, storeSize);
+            }
+            /* Keep the counters ticking (and check for the way out of summary mode) */
+            scheduleFrame(updatePending ? Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextRefreshNanos - frameTimeNanos)) :
+                                          SUMMARY_REFRESH_INTERVAL_MILLIS);
+        }
+        else if(updatePending) {
+            applyUpdate(frameTimeNanos, storeSize);
+        }
+    }
+
+    private void applyUpdate(long frameTimeNanos, int storeSize) {
+        updatePending = false;
+        lastRefreshNanos = frameTimeNanos;
+        if(summaryMode) {
+            updateSummaryBanner(storeSize);
+        }
+        lastRefreshStoreSize = storeSize;
+        LogRecordListAdapter feedAdapter = GUILogUtils.logDataFeedAdapter;
+        if(feedAdapter == null) {
+            scrollPending = false;
+            return;
+        }
+        feedAdapter.notifyRecordsChanged();
+        if(scrollPending && GUILogUtils.logDataFeed != null && feedAdapter.getCount() > 0) {
+            GUILogUtils.logDataFeed.setSelection(feedAdapter.getCount() - 1);
+        }
+        scrollPending = false;
+    }
+
+    private void updateRateWindow(long frameTimeNanos, int storeSize) {
+        if(storeSize < windowStartStoreSize || windowStartNanos == 0) {
+            /* First frame, or the logs were cleared */
+            windowStartNanos = frameTimeNanos;
+            windowStartStoreSize = storeSize;
+            lastRefreshStoreSize = Math.min(lastRefreshStoreSize, storeSize);
+            windowFrames = windowLateFrames = 0;
+            return;
+        }
+        long windowNanos = frameTimeNanos - windowStartNanos;
+        if(windowNanos < RATE_WINDOW_NANOS) {
+            return;
+        }
+        ingestRate = (int) ((storeSize - windowStartStoreSize) * TimeUnit.SECONDS.toNanos(1) / windowNanos);
+        lateFramesPerSecond = (int) (windowLateFrames * TimeUnit.SECONDS.toNanos(1) / windowNanos);
+        float lateFrameRatio = windowFrames == 0 ? 0.0f : (float) windowLateFrames / windowFrames;
+        if(!summaryMode && (ingestRate >= SUMMARY_MODE_ENTER_RATE ||
+                            (ingestRate >= SUMMARY_MODE_EXIT_RATE && lateFrameRatio >= SUMMARY_MODE_LATE_FRAME_RATIO))) {
+            setSummaryMode(true, frameTimeNanos);
+        }
+        else if(summaryMode && ingestRate < SUMMARY_MODE_EXIT_RATE &&
+                frameTimeNanos - summaryModeSinceNanos >= TimeUnit.MILLISECONDS.toNanos(SUMMARY_MODE_MIN_MILLIS)) {
+            setSummaryMode(false, frameTimeNanos);
+        }
+        else if(summaryMode) {
+            updateSummaryBanner(storeSize);
+        }
+        windowStartNanos = frameTimeNanos;
+        windowStartStoreSize = storeSize;
+        windowFrames = windowLateFrames = 0;
+    }
+
+    private void setSummaryMode(boolean enable, long frameTimeNanos) {
+        summaryMode = enable;
+        summaryModeSinceNanos = frameTimeNanos;
+        AndroidLogger.i(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "%s summary mode at %d records/s (%d late frames/s)",
+                                           enable ? "Entering" : "Leaving", ingestRate, lateFramesPerSecond));
+        if(GUILogUtils.logDataFeedSummaryBanner != null) {
+            GUILogUtils.logDataFeedSummaryBanner.setVisibility(enable ? View.VISIBLE : View.GONE);
+        }
+        if(!enable) {
+            updatePending = true;
+            scrollPending = true;
+        }
+    }
+
+    private void updateSummaryBanner(int storeSize) {
+        if(GUILogUtils.logDataFeedSummaryBanner == null) {
+            return;
+        }
+        GUILogUtils.logDataFeedSummaryBanner.setText(String.format(BuildConfig.DEFAULT_LOCALE,
+                "SUMMARY MODE: %d records/s -- %d records (+%d) -- %d late frames/s -- list refreshed every %d ms",
+                ingestRate, storeSize, storeSize - lastRefreshStoreSize, lateFramesPerSecond, SUMMARY_REFRESH_INTERVAL_MILLIS));
+    }
+
+}
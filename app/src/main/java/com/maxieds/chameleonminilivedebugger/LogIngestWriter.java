@@ -0,0 +1,179 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>Log Ingest Writer</h1>
+ * Background consumer for the records appended to the LogRecordStore. The UI thread only
+ * appends the store rows and calls requestWrite(); this thread then drains the new rows in
+ * batches of up to WRITE_BATCH_RECORDS, in store order: each row is written to the session
+ * journal (so the journal ordinals stay lined up with the store indices) and the LIVE logs
+ * are passed on to the live pcapng capture, after which the batch is hashed and indexed for
+ * the duplicate lookups and searches.
+ * The rows of a store generation other than the one the writer was last synced to (see
+ * reset() and skipToStoreEnd()) are never written, so the records of a cleared log cannot
+ * end up in the journal of the next one.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref GUILogUtils.logIngestWriter
+ * @ref LogRecordStore.indexPendingRecords
+ */
+public class LogIngestWriter {
+
+    private static final String TAG = LogIngestWriter.class.getSimpleName();
+
+    public static final int WRITE_BATCH_RECORDS = 512;
+
+    /**
+     * Receives the LIVE log records in the order they are written to the journal.
+     * @ref ExportTools.writeLivePcapngRecord
+     */
+    public interface LiveRecordSink {
+        void writeLiveRecord(int logCode, int diffTimeMillis, byte[] payload, int offset, int length);
+    }
+
+    private final LogRecordStore recordStore;
+    private final LogSessionJournal sessionJournal;
+    private final LiveRecordSink liveRecordSink;
+    private final LogRecordStore.RecordRow recordRow = new LogRecordStore.RecordRow();
+
+    private int storeGeneration;
+    private int writtenRecordCount; /* Rows [0, writtenRecordCount) of storeGeneration are written out */
+    private int lastLogRecordID;    /* Record ID the metadata records are journaled under */
+    private volatile Thread writerThread;
+
+    public LogIngestWriter(@NonNull LogRecordStore recordStore, @NonNull LogSessionJournal sessionJournal, LiveRecordSink liveRecordSink) {
+        this.recordStore = recordStore;
+        this.sessionJournal = sessionJournal;
+        this.liveRecordSink = liveRecordSink;
+        storeGeneration = recordStore.getGeneration();
+    }
+
+    /**
+     * Wakes up the writer thread (starting it on the first call). Cheap enough to call after
+     * every append.
+     */
+    public void requestWrite() {
+        Thread wakeThread = writerThread;
+        if(wakeThread == null) {
+            wakeThread = startWriterThread();
+        }
+        LockSupport.unpark(wakeThread);
+    }
+
+    private synchronized Thread startWriterThread() {
+        if(writerThread != null) {
+            return writerThread;
+        }
+        Thread ingestThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while(writerThread == Thread.currentThread()) {
+                    if(writePendingRecords(WRITE_BATCH_RECORDS, true)) {
+                        Thread.yield(); /* Let the UI thread in on the store lock between the batches */
+                    } else {
+                        LockSupport.park(this);
+                    }
+                }
+            }
+        }, TAG);
+        ingestThread.setDaemon(true);
+        ingestThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread = ingestThread;
+        ingestThread.start();
+        return ingestThread;
+    }
+
+    /**
+     * Writes out the next batch of store rows, then indexes the same number of records.
+     * @param maxRecords
+     * @param indexRecords Whether to hash and index the records as well
+     * @return whether there is work left
+     */
+    public synchronized boolean writePendingRecords(int maxRecords, boolean indexRecords) {
+        if(recordStore.getGeneration() != storeGeneration) {
+            return false; /* Waiting on reset() or skipToStoreEnd() for the new generation */
+        }
+        int lastRecordIdx = Math.min(recordStore.size(), writtenRecordCount + maxRecords);
+        while(writtenRecordCount < lastRecordIdx && recordStore.readRecord(writtenRecordCount, recordRow, storeGeneration)) {
+            writeRecordRow(recordRow);
+            writtenRecordCount++;
+        }
+        boolean indexPending = indexRecords && recordStore.indexPendingRecords(maxRecords);
+        return indexPending || (writtenRecordCount < recordStore.size() && recordStore.getGeneration() == storeGeneration);
+    }
+
+    private void writeRecordRow(LogRecordStore.RecordRow row) {
+        if(row.kind == LogRecordStore.KIND_METADATA) {
+            sessionJournal.appendMetadata(lastLogRecordID, row.metadataRecord.getRecordTitle(), row.metadataRecord.getRecordText(),
+                                          row.metadataRecord.getRecordTimestamp());
+            return;
+        }
+        if(row.duplicateSourceIdx >= 0) {
+            sessionJournal.appendDuplicate(row.duplicateSourceIdx, row.recordID, row.diffTimeMillis);
+        } else {
+            sessionJournal.appendLogData(row.logCode, row.dataDirection, row.recordID, row.diffTimeMillis, row.payload, 0, row.payloadLength);
+        }
+        lastLogRecordID = Math.max(lastLogRecordID, row.recordID);
+        if(liveRecordSink != null) {
+            liveRecordSink.writeLiveRecord(row.logCode, row.diffTimeMillis, row.payload, 0, row.payloadLength);
+        }
+    }
+
+    /**
+     * Writes out all of the rows appended so far (without indexing them), e.g. before the
+     * journal is synced when the activity is paused.
+     */
+    public synchronized void flush() {
+        writePendingRecords(Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * Clears the store and the journal together, so no batch is written in between.
+     */
+    public synchronized void reset() {
+        recordStore.clear();
+        sessionJournal.reset();
+        storeGeneration = recordStore.getGeneration();
+        writtenRecordCount = 0;
+        lastLogRecordID = 0;
+    }
+
+    /**
+     * Marks the rows that are in the store now as written, after the store was reloaded from
+     * the session journal, and indexes them in the background.
+     * @param restoredRecordID Largest record ID of the restored records
+     * @ref GUILogUtils.reopenSessionJournal
+     */
+    public synchronized void skipToStoreEnd(int restoredRecordID) {
+        storeGeneration = recordStore.getGeneration();
+        writtenRecordCount = recordStore.size();
+        lastLogRecordID = restoredRecordID;
+        requestWrite();
+    }
+
+    public synchronized int getPendingWriteCount() {
+        return recordStore.getGeneration() != storeGeneration ? 0 : recordStore.size() - writtenRecordCount;
+    }
+
+}
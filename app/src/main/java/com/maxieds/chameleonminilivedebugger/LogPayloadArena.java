@@ -0,0 +1,214 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <h1>Log Payload Arena</h1>
+ * Append-only storage for the payload bytes of the LIVE log records. The payloads are
+ * packed back to back into large fixed size segments instead of one small byte[] per entry,
+ * and are referenced by a single long handle (segment index in the high word, offset into
+ * the segment in the low word). The segments are direct (off-heap) buffers, so a long
+ * sniffing session does not grow the Java heap the garbage collector has to walk, and the
+ * segments of a cleared log are kept around for reuse. The records restored from the
+ * session journal are not copied in at all: the (read-only) mapped journal segments are
+ * attached as arena segments and the handles point straight into them.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref LogRecordStore
+ */
+public class LogPayloadArena {
+
+    private static final String TAG = LogPayloadArena.class.getSimpleName();
+
+    public static final int SEGMENT_SIZE = 256 * 1024;
+    private static final int MAX_SPARE_SEGMENTS = 8;
+
+    private final List<ByteBuffer> payloadSegments = new ArrayList<ByteBuffer>();
+    private final List<ByteBuffer> spareSegments = new ArrayList<ByteBuffer>();
+    private ByteBuffer curSegment;
+    private int curSegmentPos;
+    private long totalPayloadBytes;
+
+    public LogPayloadArena() {
+        clear();
+    }
+
+    public synchronized void clear() {
+        for(ByteBuffer segment : payloadSegments) {
+            if(!segment.isReadOnly() && segment.capacity() == SEGMENT_SIZE && spareSegments.size() < MAX_SPARE_SEGMENTS) {
+                spareSegments.add(segment);
+            }
+        }
+        payloadSegments.clear();
+        curSegment = null;
+        curSegmentPos = SEGMENT_SIZE;
+        totalPayloadBytes = 0;
+    }
+
+    private ByteBuffer allocateSegment(int minSize) {
+        if(minSize <= SEGMENT_SIZE && !spareSegments.isEmpty()) {
+            return spareSegments.remove(spareSegments.size() - 1);
+        }
+        return ByteBuffer.allocateDirect(Math.max(SEGMENT_SIZE, minSize));
+    }
+
+    /**
+     * Copies the payload bytes into the arena.
+     * @param srcBytes
+     * @param srcOffset
+     * @param length
+     * @return long handle to pass to the read methods
+     */
+    public synchronized long append(@NonNull byte[] srcBytes, int srcOffset, int length) {
+        if(curSegment == null || curSegmentPos + length > curSegment.capacity()) {
+            /* Payloads never straddle two segments, oversized ones get a segment of their own: */
+            curSegment = allocateSegment(length);
+            curSegmentPos = 0;
+            payloadSegments.add(curSegment);
+        }
+        long payloadHandle = ((long) (payloadSegments.size() - 1) << 32) | curSegmentPos;
+        curSegment.position(curSegmentPos);
+        curSegment.put(srcBytes, srcOffset, length);
+        curSegmentPos += length;
+        totalPayloadBytes += length;
+        return payloadHandle;
+    }
+
+    public long append(@NonNull byte[] srcBytes) {
+        return append(srcBytes, 0, srcBytes.length);
+    }
+
+    /**
+     * Adds an existing (read-only) buffer, e.g. a mapped session journal segment, as a
+     * segment of the arena. The following appends start a new segment of their own.
+     * @param segmentData
+     * @return int segment number to pass to getAttachedHandle
+     * @ref LogSessionJournal.JournalCursor
+     */
+    public synchronized int attachSegment(@NonNull ByteBuffer segmentData) {
+        payloadSegments.add(segmentData.asReadOnlyBuffer());
+        curSegment = null;
+        curSegmentPos = SEGMENT_SIZE;
+        return payloadSegments.size() - 1;
+    }
+
+    /**
+     * @return long handle of a payload that is already stored in an attached segment
+     */
+    public synchronized long getAttachedHandle(int segmentNumber, int segmentOffset, int length) {
+        totalPayloadBytes += length;
+        return ((long) segmentNumber << 32) | segmentOffset;
+    }
+
+    public synchronized void copyOut(long payloadHandle, byte[] destBytes, int destOffset, int length) {
+        ByteBuffer segment = payloadSegments.get((int) (payloadHandle >>> 32));
+        segment.position((int) payloadHandle);
+        segment.get(destBytes, destOffset, length);
+    }
+
+    public byte[] getBytes(long payloadHandle, int length) {
+        byte[] payloadBytes = new byte[length];
+        copyOut(payloadHandle, payloadBytes, 0, length);
+        return payloadBytes;
+    }
+
+    public synchronized byte getByte(long payloadHandle, int index) {
+        return payloadSegments.get((int) (payloadHandle >>> 32)).get((int) payloadHandle + index);
+    }
+
+    /**
+     * Compares the stored payload against a range of another buffer.
+     */
+    public synchronized boolean payloadEquals(long payloadHandle, int length, byte[] cmpBytes, int cmpOffset, int cmpLength) {
+        if(length != cmpLength) {
+            return false;
+        }
+        ByteBuffer segment = payloadSegments.get((int) (payloadHandle >>> 32));
+        int segmentOffset = (int) payloadHandle;
+        for(int bidx = 0; bidx < length; bidx++) {
+            if(segment.get(segmentOffset + bidx) != cmpBytes[cmpOffset + bidx]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares two payloads of the same length stored in the arena.
+     */
+    public synchronized boolean payloadsEqual(long lhsPayloadHandle, long rhsPayloadHandle, int length) {
+        if(lhsPayloadHandle == rhsPayloadHandle) {
+            return true;
+        }
+        ByteBuffer lhsSegment = payloadSegments.get((int) (lhsPayloadHandle >>> 32));
+        ByteBuffer rhsSegment = payloadSegments.get((int) (rhsPayloadHandle >>> 32));
+        int lhsOffset = (int) lhsPayloadHandle, rhsOffset = (int) rhsPayloadHandle;
+        for(int bidx = 0; bidx < length; bidx++) {
+            if(lhsSegment.get(lhsOffset + bidx) != rhsSegment.get(rhsOffset + bidx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Searches the stored payload for the pattern, in place in its arena segment.
+     * @param foldCase Compare the ASCII letters case-insensitively (the pattern must already be in lower case)
+     * @ref LogSearchIndex.foldCase
+     */
+    public synchronized boolean payloadContains(long payloadHandle, int length, @NonNull byte[] pattern, boolean foldCase) {
+        if(pattern.length > length) {
+            return false;
+        }
+        ByteBuffer segment = payloadSegments.get((int) (payloadHandle >>> 32));
+        int segmentOffset = (int) payloadHandle;
+        for(int startPos = segmentOffset; startPos + pattern.length <= segmentOffset + length; startPos++) {
+            int pidx = 0;
+            while(pidx < pattern.length && (foldCase ? LogSearchIndex.foldCase(segment.get(startPos + pidx)) : segment.get(startPos + pidx)) == pattern[pidx]) {
+                pidx++;
+            }
+            if(pidx == pattern.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public synchronized long getTotalPayloadBytes() {
+        return totalPayloadBytes;
+    }
+
+    /**
+     * @return off-heap bytes held by the arena (including the spare segments)
+     */
+    public synchronized long getAllocatedBytes() {
+        long allocatedBytes = 0;
+        for(ByteBuffer segment : payloadSegments) {
+            allocatedBytes += segment.capacity();
+        }
+        return allocatedBytes + (long) spareSegments.size() * SEGMENT_SIZE;
+    }
+
+}
@@ -0,0 +1,655 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+
+/**
+ * <h1>Log Record Exporter</h1>
+ * Writes the records in the LogRecordStore out to file in one of the export formats (plain
+ * text, HTML, the native binary LOGDOWNLOAD format, or a compressed columnar format). The
+ * rows are read straight out of the store (one lock per record) into a reusable row and
+ * formatted by hand into a direct buffer that is written through a FileChannel. The APDU
+ * labels are streamed from the classifier tables, so the text formats allocate nothing per
+ * LIVE log record (the metadata rows still go through their toString()). The export can run
+ * on its own thread with progress callbacks and can be cancelled. Records appended after
+ * the export starts are not included, and clearing the logs fails the running export.
+ *
+ * The columnar format (".cols") is laid out as the file header "CMLDCOLS", a version and
+ * the block size (little endian ints), followed by blocks of up to COLUMNAR_BLOCK_RECORDS
+ * records: the record count, raw and compressed lengths, then the deflated columns
+ * (kinds, log codes, data directions, diff times, record ID deltas, duplicate counts,
+ * payload lengths, concatenated payloads; the integer columns as LEB128 varints). A block
+ * with a zero record count ends the file.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ExportTools.writeFormattedLogFile
+ * @ref ExternalFileIO.exportOutputFile
+ */
+public class LogRecordExporter {
+
+    private static final String TAG = LogRecordExporter.class.getSimpleName();
+
+    public static final int FORMAT_TEXT = 0;
+    public static final int FORMAT_HTML = 1;
+    public static final int FORMAT_BINARY = 2;
+    public static final int FORMAT_COLUMNAR = 3;
+    public static final int FORMAT_PCAPNG = 4;
+
+    public static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    public static final int PROGRESS_INTERVAL_RECORDS = 4096;
+    public static final int COLUMNAR_BLOCK_RECORDS = 65536;
+    private static final byte[] COLUMNAR_FILE_MAGIC = "CMLDCOLS".getBytes(StandardCharsets.US_ASCII);
+    private static final int COLUMNAR_FORMAT_VERSION = 1;
+
+    private static final String HTML_HEADER = "<html><head><title>Chameleon Mini Live Debugger --- Logging Output</title></head><body>\n\n";
+    private static final String HTML_FOOTER = "</body></html>";
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    public interface ExportListener {
+        /**
+         * Called from the export thread every PROGRESS_INTERVAL_RECORDS records.
+         */
+        void onExportProgress(LogRecordExporter exporter, int recordsDone, int recordsTotal);
+        /**
+         * Called from the export thread once the export completed, failed or was cancelled.
+         */
+        void onExportFinished(LogRecordExporter exporter, boolean success);
+    }
+
+    private final LogRecordStore recordStore;
+    private final int exportFormat;
+    private final File outputFile;
+    private int htmlDefaultBgColor;
+    private ApduClassifier apduClassifier;
+    private volatile boolean cancelRequested;
+    private volatile boolean exportRunning;
+    private volatile IOException exportError;
+    private long bytesWritten;
+    private int recordsWritten;
+    private long elapsedMillis;
+    private int storeGeneration;
+
+    private FileChannel outputChannel;
+    private ByteBuffer writeBuffer;
+    private final LogRecordStore.RecordRow recordRow = new LogRecordStore.RecordRow();
+    private final byte[] digitScratch = new byte[20];
+    private final LabelOutput apduLabelOutput = new LabelOutput();
+
+    public LogRecordExporter(@NonNull LogRecordStore store, int format, @NonNull File outfile) {
+        recordStore = store;
+        exportFormat = format;
+        outputFile = outfile;
+        htmlDefaultBgColor = 0;
+        cancelRequested = false;
+        exportRunning = false;
+        exportError = null;
+    }
+
+    /**
+     * @param fileType File extension from the Export tab buttons
+     * @return the FORMAT_* constant, or -1 if the type is not recognized
+     */
+    public static int getFormatByFileType(@NonNull String fileType) {
+        switch(fileType) {
+            case "out":
+                return FORMAT_TEXT;
+            case "html":
+                return FORMAT_HTML;
+            case "bin":
+                return FORMAT_BINARY;
+            case "cols":
+                return FORMAT_COLUMNAR;
+            case "pcapng":
+                return FORMAT_PCAPNG;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Rows highlighted in this (theme) color are written out with a white background.
+     * Look the color up on the UI thread before the export is started.
+     */
+    public void setHTMLDefaultBackgroundColor(int bgColor) {
+        htmlDefaultBgColor = bgColor;
+    }
+
+    /**
+     * Classifier for the APDU labels in the text formats (by default the one compiled from
+     * the application resources).
+     */
+    public void setApduClassifier(ApduClassifier classifier) {
+        apduClassifier = classifier;
+    }
+
+    public File getOutputFile() {
+        return outputFile;
+    }
+
+    public int getExportFormat() {
+        return exportFormat;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public int getRecordsWritten() {
+        return recordsWritten;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public IOException getError() {
+        return exportError;
+    }
+
+    public boolean isRunning() {
+        return exportRunning;
+    }
+
+    public boolean isCancelled() {
+        return cancelRequested;
+    }
+
+    /**
+     * Stops the export at the next record, the partial output file is deleted.
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    /**
+     * Runs the export on a new background thread.
+     * @param listener Callbacks (invoked on the export thread), or null
+     */
+    public void startExport(final ExportListener listener) {
+        exportRunning = true;
+        Thread exportThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean success = false;
+                try {
+                    success = runExport(listener);
+                } catch(IOException ioe) {
+                    AndroidLogger.printStackTrace(ioe);
+                    exportError = ioe;
+                } catch(RuntimeException rte) {
+                    /* Report it as a failed export instead of letting it kill the process: */
+                    AndroidLogger.printStackTrace(rte);
+                    exportError = new IOException("Export of the logs failed: " + rte.getMessage(), rte);
+                }
+                if(listener != null) {
+                    listener.onExportFinished(LogRecordExporter.this, success);
+                }
+            }
+        }, TAG);
+        exportThread.setPriority(Thread.NORM_PRIORITY - 1);
+        exportThread.start();
+    }
+
+    /**
+     * Runs the export on the calling thread.
+     * @param listener Progress callbacks, or null (onExportFinished is not called)
+     * @return false if the export was cancelled
+     * @throws IOException
+     */
+    public boolean runExport(ExportListener listener) throws IOException {
+        long startTimeMillis = System.currentTimeMillis();
+        exportRunning = true;
+        bytesWritten = 0;
+        recordsWritten = 0;
+        FileOutputStream fout = new FileOutputStream(outputFile);
+        outputChannel = fout.getChannel();
+        writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        boolean completed = false;
+        try {
+            if(apduClassifier == null) {
+                apduClassifier = ApduClassifier.getInstance();
+            }
+            storeGeneration = recordStore.getGeneration();
+            int totalRecords = recordStore.size();
+            switch(exportFormat) {
+                case FORMAT_TEXT:
+                case FORMAT_HTML:
+                    completed = writeTextRecords(totalRecords, exportFormat == FORMAT_HTML, listener);
+                    break;
+                case FORMAT_BINARY:
+                    completed = writeBinaryRecords(totalRecords, listener);
+                    break;
+                case FORMAT_COLUMNAR:
+                    completed = writeColumnarRecords(totalRecords, listener);
+                    break;
+                case FORMAT_PCAPNG:
+                    completed = writePcapngRecords(totalRecords, listener);
+                    break;
+                default:
+                    throw new IOException("Unknown export format " + exportFormat);
+            }
+            if(completed) {
+                drainWriteBuffer();
+            }
+        } finally {
+            outputChannel = null;
+            writeBuffer = null;
+            fout.close();
+            if(!completed) {
+                outputFile.delete();
+            }
+            elapsedMillis = System.currentTimeMillis() - startTimeMillis;
+            exportRunning = false;
+        }
+        AndroidLogger.i(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Exported %d records (%d bytes) to %s in %d ms%s",
+                                           recordsWritten, bytesWritten, outputFile.getName(), elapsedMillis, completed ? "" : " (CANCELLED)"));
+        return completed;
+    }
+
+    /**
+     * @throws IOException if the logs were cleared under the export
+     */
+    private void readRecordRow(int recordIdx) throws IOException {
+        if(!recordStore.readRecord(recordIdx, recordRow, storeGeneration)) {
+            throw new IOException("The logs were cleared during the export");
+        }
+    }
+
+    private boolean checkProgress(int recordIdx, int totalRecords, ExportListener listener) {
+        if(recordIdx % PROGRESS_INTERVAL_RECORDS == 0) {
+            if(cancelRequested) {
+                return false;
+            }
+            if(listener != null && recordIdx > 0) {
+                listener.onExportProgress(this, recordIdx, totalRecords);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Plain text (and HTML) lines in the same layout as LogEntryUI.toString() and
+     * LogEntryMetadataRecord.toString().
+     */
+    private boolean writeTextRecords(int totalRecords, boolean htmlOutput, ExportListener listener) throws IOException {
+        if(htmlOutput) {
+            putAscii(HTML_HEADER, false);
+        }
+        for(int recordIdx = 0; recordIdx < totalRecords; recordIdx++) {
+            if(!checkProgress(recordIdx, totalRecords, listener)) {
+                return false;
+            }
+            readRecordRow(recordIdx);
+            if((recordRow.flags & LogRecordStore.FLAG_SUPERSEDED) != 0) {
+                continue;
+            }
+            if(recordRow.kind == LogRecordStore.KIND_METADATA) {
+                putAscii(htmlOutput ? "<b><code>" : "\n## ", false);
+                putAscii(recordRow.metadataRecord.toString(), htmlOutput);
+                putAscii(htmlOutput ? "</code></b><br/>\n" : "\n", false);
+            }
+            else {
+                if(htmlOutput) {
+                    int bgColor = 0xFFFFFF & recordRow.highlightColor;
+                    if(recordRow.highlightColor == 0 || bgColor == (0xFFFFFF & htmlDefaultBgColor)) {
+                        bgColor = 0xFFFFFF;
+                    }
+                    putAscii("<code bgcolor='#", false);
+                    putHexUpper(bgColor, 6);
+                    putAscii("'>", false);
+                }
+                putLogDataLine(htmlOutput);
+                putAscii(htmlOutput ? "</code><br/>\n" : "\n", false);
+            }
+            recordsWritten++;
+        }
+        if(htmlOutput) {
+            putAscii(HTML_FOOTER, false);
+        }
+        return true;
+    }
+
+    /**
+     * "%06d --- %-32s [%-3s bytes] (%s%-6s ms) [%s] {%s}"
+     */
+    private void putLogDataLine(boolean htmlOutput) throws IOException {
+        putPaddedDecimal(recordRow.recordID, 6, '0', true);
+        putAscii(" --- ", false);
+        putPaddedString(ChameleonLogUtils.LogCode.lookupByLogCode(recordRow.logCode).name(), 32);
+        putAscii(" [", false);
+        putPaddedDecimal(recordRow.payloadLength, 3, ' ', false);
+        putAscii(" bytes] (", false);
+        putByte((byte) (recordRow.diffTimeMillis >= 0 ? '+' : '~'));
+        putPaddedDecimal(Math.abs(recordRow.diffTimeMillis), 6, ' ', false);
+        putAscii(" ms) [", false);
+        for(int bidx = 0; bidx < recordRow.payloadLength; bidx++) {
+            if(bidx > 0) {
+                putByte((byte) ' ');
+            }
+            putByte(HEX_DIGITS[(recordRow.payload[bidx] >>> 4) & 0x0f]);
+            putByte(HEX_DIGITS[recordRow.payload[bidx] & 0x0f]);
+        }
+        putAscii("] {", false);
+        apduLabelOutput.escapeHTML = htmlOutput;
+        if(apduClassifier == null || apduClassifier.appendLabels(recordRow.payload, recordRow.payloadLength, apduLabelOutput) == 0) {
+            putAscii(LogEntryUI.APDU_NONE_RECOGNIZED, htmlOutput);
+        }
+        putByte((byte) '}');
+    }
+
+    /**
+     * Streams the APDU labels (the classifier's table strings) into the write buffer.
+     */
+    private class LabelOutput implements Appendable {
+        boolean escapeHTML;
+        @Override
+        public Appendable append(CharSequence text) throws IOException {
+            putAscii(text, escapeHTML);
+            return this;
+        }
+        @Override
+        public Appendable append(CharSequence text, int start, int end) throws IOException {
+            return append(text.subSequence(start, end));
+        }
+        @Override
+        public Appendable append(char ch) throws IOException {
+            putAsciiChar(ch, escapeHTML);
+            return this;
+        }
+    }
+
+    private boolean writeBinaryRecords(int totalRecords, ExportListener listener) throws IOException {
+        short localTicks = 0;
+        for(int recordIdx = 0; recordIdx < totalRecords; recordIdx++) {
+            if(!checkProgress(recordIdx, totalRecords, listener)) {
+                return false;
+            }
+            readRecordRow(recordIdx);
+            if(recordRow.kind != LogRecordStore.KIND_LOGDATA || (recordRow.flags & LogRecordStore.FLAG_SUPERSEDED) != 0) {
+                continue;
+            }
+            /* Same layout as LogEntryUI.packageBinaryLogData: */
+            ensureWriteSpace(4 + recordRow.payloadLength);
+            writeBuffer.put((byte) ChameleonLogUtils.LogCode.lookupByLogCode(recordRow.logCode).toInteger());
+            writeBuffer.put((byte) recordRow.payloadLength);
+            writeBuffer.put((byte) ((localTicks & 0x0000ff00) >>> 8));
+            writeBuffer.put((byte) (localTicks & 0x000000ff));
+            putBytes(recordRow.payload, 0, recordRow.payloadLength);
+            localTicks = (short) (localTicks + Math.abs(recordRow.diffTimeMillis));
+            recordsWritten++;
+        }
+        return true;
+    }
+
+    /**
+     * The LOGDATA records as a pcapng capture (see PcapngCaptureWriter), timestamped
+     * relative to the start of the export.
+     */
+    private boolean writePcapngRecords(int totalRecords, ExportListener listener) throws IOException {
+        PcapngCaptureWriter pcapWriter = new PcapngCaptureWriter(outputChannel, System.currentTimeMillis());
+        pcapWriter.writeFileHeader();
+        try {
+            for(int recordIdx = 0; recordIdx < totalRecords; recordIdx++) {
+                if(!checkProgress(recordIdx, totalRecords, listener)) {
+                    return false;
+                }
+                readRecordRow(recordIdx);
+                if(recordRow.kind != LogRecordStore.KIND_LOGDATA || (recordRow.flags & LogRecordStore.FLAG_SUPERSEDED) != 0) {
+                    continue;
+                }
+                pcapWriter.writeLogRecord(recordRow.logCode, recordRow.diffTimeMillis, recordRow.payload, 0, recordRow.payloadLength);
+                recordsWritten++;
+            }
+            pcapWriter.flush();
+        } finally {
+            bytesWritten += pcapWriter.getBytesWritten();
+        }
+        return true;
+    }
+
+    /**
+     * Growable byte array for one column of a columnar block.
+     */
+    private static class ColumnBuffer {
+        byte[] data = new byte[4096];
+        int length = 0;
+        void ensureSpace(int numBytes) {
+            if(length + numBytes > data.length) {
+                byte[] nextData = new byte[Math.max(length + numBytes, 2 * data.length)];
+                System.arraycopy(data, 0, nextData, 0, length);
+                data = nextData;
+            }
+        }
+        void put(byte b) {
+            ensureSpace(1);
+            data[length++] = b;
+        }
+        void put(byte[] src, int offset, int count) {
+            ensureSpace(count);
+            System.arraycopy(src, offset, data, length, count);
+            length += count;
+        }
+        void putVarint(int value) {
+            ensureSpace(5);
+            while((value & ~0x7f) != 0) {
+                data[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+        void putSignedVarint(int value) {
+            putVarint((value << 1) ^ (value >> 31));
+        }
+    }
+
+    private boolean writeColumnarRecords(int totalRecords, ExportListener listener) throws IOException {
+        ColumnBuffer kindsCol = new ColumnBuffer(), logCodesCol = new ColumnBuffer(), dataDirsCol = new ColumnBuffer();
+        ColumnBuffer diffTimesCol = new ColumnBuffer(), recordIDsCol = new ColumnBuffer(), dupCountsCol = new ColumnBuffer();
+        ColumnBuffer payloadLengthsCol = new ColumnBuffer(), payloadsCol = new ColumnBuffer();
+        ColumnBuffer[] blockColumns = new ColumnBuffer[] {
+                kindsCol, logCodesCol, dataDirsCol, diffTimesCol, recordIDsCol, dupCountsCol, payloadLengthsCol, payloadsCol
+        };
+        Deflater blockDeflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        byte[] compressedBlock = new byte[64 * 1024];
+        ensureWriteSpace(COLUMNAR_FILE_MAGIC.length + 8);
+        writeBuffer.put(COLUMNAR_FILE_MAGIC);
+        writeBuffer.putInt(COLUMNAR_FORMAT_VERSION);
+        writeBuffer.putInt(COLUMNAR_BLOCK_RECORDS);
+        try {
+            int blockRecords = 0;
+            int prevRecordID = 0;
+            for(int recordIdx = 0; recordIdx <= totalRecords; recordIdx++) {
+                if(recordIdx == totalRecords || blockRecords == COLUMNAR_BLOCK_RECORDS) {
+                    compressedBlock = writeColumnarBlock(blockRecords, blockColumns, blockDeflater, compressedBlock);
+                    blockRecords = 0;
+                    if(recordIdx == totalRecords) {
+                        break;
+                    }
+                }
+                if(!checkProgress(recordIdx, totalRecords, listener)) {
+                    return false;
+                }
+                readRecordRow(recordIdx);
+                if((recordRow.flags & LogRecordStore.FLAG_SUPERSEDED) != 0) {
+                    continue;
+                }
+                kindsCol.put(recordRow.kind);
+                logCodesCol.put((byte) recordRow.logCode);
+                dataDirsCol.put((byte) recordRow.dataDirection);
+                diffTimesCol.putSignedVarint(recordRow.diffTimeMillis);
+                recordIDsCol.putSignedVarint(recordRow.recordID - prevRecordID);
+                prevRecordID = recordRow.recordID;
+                dupCountsCol.putVarint(recordRow.duplicateCount);
+                if(recordRow.kind == LogRecordStore.KIND_METADATA) {
+                    LogEntryMetadataRecord metadataRecord = recordRow.metadataRecord;
+                    byte[] metadataBytes = (metadataRecord.getRecordTitle() + '\0' + metadataRecord.getRecordText() + '\0' +
+                                            metadataRecord.getRecordTimestamp()).getBytes(StandardCharsets.UTF_8);
+                    payloadLengthsCol.putVarint(metadataBytes.length);
+                    payloadsCol.put(metadataBytes, 0, metadataBytes.length);
+                } else {
+                    payloadLengthsCol.putVarint(recordRow.payloadLength);
+                    payloadsCol.put(recordRow.payload, 0, recordRow.payloadLength);
+                }
+                blockRecords++;
+                recordsWritten++;
+            }
+            /* Terminating empty block: */
+            ensureWriteSpace(12);
+            writeBuffer.putInt(0).putInt(0).putInt(0);
+        } finally {
+            blockDeflater.end();
+        }
+        return true;
+    }
+
+    private byte[] writeColumnarBlock(int blockRecords, ColumnBuffer[] blockColumns, Deflater blockDeflater, byte[] compressedBlock) throws IOException {
+        if(blockRecords == 0) {
+            return compressedBlock;
+        }
+        int rawLength = 0;
+        for(ColumnBuffer column : blockColumns) {
+            rawLength += column.length;
+        }
+        byte[] rawBlock = new byte[rawLength];
+        int rawPos = 0;
+        for(ColumnBuffer column : blockColumns) {
+            System.arraycopy(column.data, 0, rawBlock, rawPos, column.length);
+            rawPos += column.length;
+            column.length = 0;
+        }
+        blockDeflater.reset();
+        blockDeflater.setInput(rawBlock, 0, rawLength);
+        blockDeflater.finish();
+        int compressedLength = 0;
+        while(!blockDeflater.finished()) {
+            if(compressedLength == compressedBlock.length) {
+                byte[] nextBlock = new byte[2 * compressedBlock.length];
+                System.arraycopy(compressedBlock, 0, nextBlock, 0, compressedLength);
+                compressedBlock = nextBlock;
+            }
+            compressedLength += blockDeflater.deflate(compressedBlock, compressedLength, compressedBlock.length - compressedLength);
+        }
+        ensureWriteSpace(12);
+        writeBuffer.putInt(blockRecords).putInt(rawLength).putInt(compressedLength);
+        putBytes(compressedBlock, 0, compressedLength);
+        return compressedBlock;
+    }
+
+    private void drainWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        bytesWritten += writeBuffer.remaining();
+        while(writeBuffer.hasRemaining()) {
+            outputChannel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+    }
+
+    private void ensureWriteSpace(int numBytes) throws IOException {
+        if(writeBuffer.remaining() < numBytes) {
+            drainWriteBuffer();
+        }
+    }
+
+    private void putByte(byte b) throws IOException {
+        if(!writeBuffer.hasRemaining()) {
+            drainWriteBuffer();
+        }
+        writeBuffer.put(b);
+    }
+
+    private void putBytes(byte[] src, int offset, int count) throws IOException {
+        while(count > 0) {
+            if(!writeBuffer.hasRemaining()) {
+                drainWriteBuffer();
+            }
+            int chunkSize = Math.min(count, writeBuffer.remaining());
+            writeBuffer.put(src, offset, chunkSize);
+            offset += chunkSize;
+            count -= chunkSize;
+        }
+    }
+
+    /**
+     * Writes the characters as ASCII ('?' for anything else, like String.getBytes(US_ASCII)).
+     * @param escapeHTML Escape the HTML markup characters
+     */
+    private void putAscii(@NonNull CharSequence text, boolean escapeHTML) throws IOException {
+        for(int cidx = 0; cidx < text.length(); cidx++) {
+            putAsciiChar(text.charAt(cidx), escapeHTML);
+        }
+    }
+
+    private void putAsciiChar(char ch, boolean escapeHTML) throws IOException {
+        if(escapeHTML && (ch == '<' || ch == '>' || ch == '&')) {
+            putAscii(ch == '<' ? "&lt;" : (ch == '>' ? "&gt;" : "&amp;"), false);
+        } else {
+            putByte(ch < 0x80 ? (byte) ch : (byte) '?');
+        }
+    }
+
+    private void putPaddedString(@NonNull String text, int width) throws IOException {
+        putAscii(text, false);
+        for(int padIdx = text.length(); padIdx < width; padIdx++) {
+            putByte((byte) ' ');
+        }
+    }
+
+    /**
+     * @param leftPad Pad on the left (right justify, like %06d) instead of on the right (%-6s)
+     */
+    private void putPaddedDecimal(int value, int width, char padChar, boolean leftPad) throws IOException {
+        long absValue = Math.abs((long) value);
+        int numDigits = 0;
+        do {
+            digitScratch[numDigits++] = (byte) ('0' + absValue % 10);
+            absValue /= 10;
+        } while(absValue > 0);
+        int fieldLength = numDigits + (value < 0 ? 1 : 0);
+        if(value < 0) {
+            putByte((byte) '-');
+        }
+        for(int padIdx = fieldLength; leftPad && padIdx < width; padIdx++) {
+            putByte((byte) padChar);
+        }
+        while(numDigits > 0) {
+            putByte(digitScratch[--numDigits]);
+        }
+        for(int padIdx = fieldLength; !leftPad && padIdx < width; padIdx++) {
+            putByte((byte) padChar);
+        }
+    }
+
+    private void putHexUpper(int value, int numDigits) throws IOException {
+        for(int digitIdx = numDigits - 1; digitIdx >= 0; digitIdx--) {
+            putByte((byte) Character.toUpperCase(HEX_DIGITS[(value >>> (4 * digitIdx)) & 0x0f]));
+        }
+    }
+
+}
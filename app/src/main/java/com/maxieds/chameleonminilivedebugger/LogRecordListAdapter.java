@@ -0,0 +1,170 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import android.graphics.drawable.Drawable;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
+import android.widget.LinearLayout;
+
+import androidx.annotation.NonNull;
+
+/**
+ * <h1>Log Record List Adapter</h1>
+ * Binds the rows of the Log tab list view on demand from the LogRecordStore, so that only
+ * the handful of rows visible on screen hold an inflated layout at any time. The same adapter
+ * shows the search results over a fixed subset of the records.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @see res/layout/log_tab_logs.xml
+ */
+public class LogRecordListAdapter extends BaseAdapter {
+
+    private static final String TAG = LogRecordListAdapter.class.getSimpleName();
+
+    private static final int VIEW_TYPE_LOGDATA = 0;
+    private static final int VIEW_TYPE_METADATA = 1;
+
+    private final LogRecordStore recordStore;
+    private final int[] recordSubset;
+
+    /**
+     * Number of rows the list view knows about. Only updated on the UI thread in
+     * notifyRecordsChanged() so that records appended from the serial IO threads do not
+     * change the adapter contents behind the list view's back.
+     */
+    private int displayedCount;
+
+    private static class LogRowViewHolder {
+        int recordIdx;
+        LogEntryUI logEntry;
+        CheckBox entrySelect;
+        Drawable defaultBackground;
+    }
+
+    public LogRecordListAdapter(@NonNull LogRecordStore store) {
+        recordStore = store;
+        recordSubset = null;
+        displayedCount = store.getVisibleCount();
+    }
+
+    /**
+     * @param store
+     * @param recordIndices Records to show (e.g., the matches returned by LogRecordStore.searchRecords)
+     */
+    public LogRecordListAdapter(@NonNull LogRecordStore store, @NonNull int[] recordIndices) {
+        recordStore = store;
+        recordSubset = recordIndices;
+        displayedCount = recordIndices.length;
+    }
+
+    /**
+     * Must be called on the UI thread after records are added, hidden or cleared.
+     */
+    public void notifyRecordsChanged() {
+        displayedCount = recordSubset != null ? recordSubset.length : recordStore.getVisibleCount();
+        notifyDataSetChanged();
+    }
+
+    private int getRecordIndex(int position) {
+        return recordSubset != null ? recordSubset[position] : recordStore.getVisibleRecordIndex(position);
+    }
+
+    @Override
+    public int getCount() {
+        return displayedCount;
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return Integer.valueOf(getRecordIndex(position));
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return getRecordIndex(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
+    }
+
+    @Override
+    public int getViewTypeCount() {
+        return 2;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return recordStore.isMetadata(getRecordIndex(position)) ? VIEW_TYPE_METADATA : VIEW_TYPE_LOGDATA;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        int recordIdx = getRecordIndex(position);
+        if(recordStore.isMetadata(recordIdx)) {
+            LinearLayout recordView = (LinearLayout) convertView;
+            if(recordView == null) {
+                recordView = (LinearLayout) LiveLoggerActivity.defaultInflater.inflate(R.layout.log_metadata_record, parent, false);
+            }
+            recordStore.getMetadataRecord(recordIdx).configureLayout(recordView);
+            return recordView;
+        }
+        LinearLayout entryView = (LinearLayout) convertView;
+        LogRowViewHolder viewHolder;
+        if(entryView == null) {
+            entryView = (LinearLayout) LiveLoggerActivity.defaultInflater.inflate(R.layout.log_entry_ui, parent, false);
+            viewHolder = new LogRowViewHolder();
+            viewHolder.logEntry = new LogEntryUI();
+            viewHolder.entrySelect = (CheckBox) entryView.findViewById(R.id.entrySelect);
+            viewHolder.defaultBackground = entryView.getBackground();
+            entryView.setTag(viewHolder);
+        }
+        else {
+            viewHolder = (LogRowViewHolder) entryView.getTag();
+        }
+        viewHolder.recordIdx = recordIdx;
+        recordStore.loadLogEntry(recordIdx, viewHolder.logEntry);
+        viewHolder.logEntry.configureLayout(entryView);
+        int highlightColor = recordStore.getHighlightColor(recordIdx);
+        if(highlightColor != 0) {
+            entryView.setBackgroundColor(highlightColor);
+        }
+        else {
+            entryView.setBackground(viewHolder.defaultBackground);
+        }
+        if(viewHolder.entrySelect != null) {
+            final LogRowViewHolder rowViewHolder = viewHolder;
+            viewHolder.entrySelect.setOnCheckedChangeListener(null);
+            viewHolder.entrySelect.setChecked(recordStore.isSelected(recordIdx));
+            viewHolder.entrySelect.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
+                @Override
+                public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
+                    recordStore.setSelected(rowViewHolder.recordIdx, isChecked);
+                }
+            });
+        }
+        return entryView;
+    }
+
+}
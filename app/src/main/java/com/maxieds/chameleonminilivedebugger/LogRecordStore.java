@@ -0,0 +1,743 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * <h1>Log Record Store</h1>
+ * Compact backing store for the entries shown in the Log tab. Each record is kept as a row
+ * of primitive columns (kind, log code, flags, timing, record ID, payload handle) with the
+ * payload bytes packed into a shared LogPayloadArena, so a record costs a few dozen bytes
+ * instead of an inflated view hierarchy. The rows are only turned back into a LogEntryUI
+ * (and bound to a recycled view) when they scroll onto the screen.
+ * The (rare) metadata / status records are kept as objects on the side.
+ * The appends only fill in the row and copy the payload: the payload hashes (duplicate
+ * table) and the LogSearchIndex entries for the searches from the Log tab are built in
+ * order by indexPendingRecords() from the LogIngestWriter thread, or before the first lookup
+ * that depends on them (the duplicate lookups only catch up on a short backlog). The records restored from the session journal keep their payloads
+ * in the mapped journal segments and are indexed the same way.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref GUILogUtils.logRecordStore
+ * @ref LogRecordListAdapter
+ */
+public class LogRecordStore {
+
+    private static final String TAG = LogRecordStore.class.getSimpleName();
+
+    public static final byte KIND_LOGDATA = 0;
+    public static final byte KIND_METADATA = 1;
+
+    public static final int FLAG_SELECTED = 0x01;
+    public static final int FLAG_HIDDEN = 0x02;
+    public static final int FLAG_SUPERSEDED = 0x04; /* Replaced by a newer copy (collapsed duplicates) */
+    private static final int FLAG_XFER_MARKER_SHIFT = 4;
+    private static final int FLAG_XFER_MARKER_MASK = 0x03 << FLAG_XFER_MARKER_SHIFT;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private byte[] recordKinds;
+    private byte[] logCodes;
+    private byte[] recordFlags;
+    private byte[] dataDirections;
+    private int[] diffTimeMillis;
+    private int[] recordIDs;
+    private int[] payloadLengths;
+    private long[] payloadHandles; /* Index into metadataRecords for KIND_METADATA */
+    private int[] duplicateCounts;
+    private int[] highlightColors;
+    private int[] payloadHashes;
+    private int[] duplicateSourceIndices; /* Row a duplicate was moved on from, -1 for the other records */
+    private int recordCount;
+    private int indexedRecordCount; /* Records [0, indexedRecordCount) are hashed and in the search index */
+    private int storeGeneration = 0; /* Bumped by clear() so the background readers notice the reset */
+
+    private final LogPayloadArena payloadArena = new LogPayloadArena();
+    private final LogSearchIndex searchIndex = new LogSearchIndex();
+    private byte[] indexScratchBuffer = new byte[256];
+    private final List<LogEntryMetadataRecord> metadataRecords = new ArrayList<LogEntryMetadataRecord>();
+
+    /**
+     * Open addressed hash table of record indices keyed by (log code, payload hash) that holds
+     * the most recent copy of each distinct LIVE log record, so the duplicate collapsing on
+     * ingest does not have to scan the log. The store never removes rows (except by clearing
+     * it), so the table needs no tombstones.
+     */
+    private static final int INITIAL_DUPLICATE_TABLE_SIZE = 2048; /* Must be a power of two */
+    /* Most records a duplicate lookup indexes itself before it only probes the indexed rows: */
+    private static final int LOOKUP_INDEX_BATCH_RECORDS = LogIngestWriter.WRITE_BATCH_RECORDS;
+    private int[] duplicateTable;
+    private int duplicateTableEntries;
+
+    /**
+     * Progress of the incremental collapseSequentialRepeats() pass.
+     */
+    private int collapseScanPos;
+    private int collapseRunStartIdx;
+
+    /**
+     * Maps the positions in the list view to the record indices that are not hidden.
+     */
+    private int[] visibleRecordIndices;
+    private int visibleCount;
+    private boolean visibleIndicesValid;
+
+    public LogRecordStore() {
+        clear();
+    }
+
+    public synchronized void clear() {
+        storeGeneration++;
+        recordKinds = new byte[INITIAL_CAPACITY];
+        logCodes = new byte[INITIAL_CAPACITY];
+        recordFlags = new byte[INITIAL_CAPACITY];
+        dataDirections = new byte[INITIAL_CAPACITY];
+        diffTimeMillis = new int[INITIAL_CAPACITY];
+        recordIDs = new int[INITIAL_CAPACITY];
+        payloadLengths = new int[INITIAL_CAPACITY];
+        payloadHandles = new long[INITIAL_CAPACITY];
+        duplicateCounts = new int[INITIAL_CAPACITY];
+        highlightColors = new int[INITIAL_CAPACITY];
+        payloadHashes = new int[INITIAL_CAPACITY];
+        duplicateSourceIndices = new int[INITIAL_CAPACITY];
+        duplicateTable = new int[INITIAL_DUPLICATE_TABLE_SIZE];
+        Arrays.fill(duplicateTable, -1);
+        duplicateTableEntries = 0;
+        collapseScanPos = 0;
+        collapseRunStartIdx = -1;
+        visibleRecordIndices = new int[INITIAL_CAPACITY];
+        recordCount = 0;
+        indexedRecordCount = 0;
+        visibleCount = 0;
+        visibleIndicesValid = true;
+        payloadArena.clear();
+        metadataRecords.clear();
+        searchIndex.clear();
+    }
+
+    private void ensureCapacity(int minCapacity) {
+        if(minCapacity <= recordKinds.length) {
+            return;
+        }
+        int newCapacity = Math.max(minCapacity, recordKinds.length * 2);
+        recordKinds = Arrays.copyOf(recordKinds, newCapacity);
+        logCodes = Arrays.copyOf(logCodes, newCapacity);
+        recordFlags = Arrays.copyOf(recordFlags, newCapacity);
+        dataDirections = Arrays.copyOf(dataDirections, newCapacity);
+        diffTimeMillis = Arrays.copyOf(diffTimeMillis, newCapacity);
+        recordIDs = Arrays.copyOf(recordIDs, newCapacity);
+        payloadLengths = Arrays.copyOf(payloadLengths, newCapacity);
+        payloadHandles = Arrays.copyOf(payloadHandles, newCapacity);
+        duplicateCounts = Arrays.copyOf(duplicateCounts, newCapacity);
+        highlightColors = Arrays.copyOf(highlightColors, newCapacity);
+        payloadHashes = Arrays.copyOf(payloadHashes, newCapacity);
+        duplicateSourceIndices = Arrays.copyOf(duplicateSourceIndices, newCapacity);
+    }
+
+    private int appendRecordRow(byte kind) {
+        ensureCapacity(recordCount + 1);
+        int recordIdx = recordCount++;
+        recordKinds[recordIdx] = kind;
+        recordFlags[recordIdx] = 0;
+        duplicateSourceIndices[recordIdx] = -1;
+        if(visibleIndicesValid) {
+            if(visibleCount == visibleRecordIndices.length) {
+                visibleRecordIndices = Arrays.copyOf(visibleRecordIndices, Math.max(INITIAL_CAPACITY, visibleCount * 2));
+            }
+            visibleRecordIndices[visibleCount++] = recordIdx;
+        }
+        return recordIdx;
+    }
+
+    /**
+     * Copies the log entry data into the store. The LogEntryUI object is not retained.
+     * @param logEntry
+     * @return int index of the new record
+     */
+    public synchronized int appendLogEntry(@NonNull LogEntryUI logEntry) {
+        byte[] entryData = logEntry.getEntryData();
+        int recordIdx = appendRecordRow(KIND_LOGDATA);
+        logCodes[recordIdx] = (byte) logEntry.getLogType();
+        dataDirections[recordIdx] = (byte) logEntry.getDataDirection();
+        diffTimeMillis[recordIdx] = logEntry.getDiffTimeMillis();
+        recordIDs[recordIdx] = logEntry.getRecordIndex();
+        payloadLengths[recordIdx] = entryData.length;
+        payloadHandles[recordIdx] = payloadArena.append(entryData);
+        duplicateCounts[recordIdx] = logEntry.getDuplicateCount();
+        highlightColors[recordIdx] = logEntry.getHighlightColor();
+        return recordIdx;
+    }
+
+    /**
+     * Copies a raw LIVE log (4 byte header + payload) straight into the store, without
+     * building the intermediate LogEntryUI and payload byte[] first.
+     * @param rawLogBytes
+     * @param recordID
+     * @return int index of the new record, or -1 if the header is truncated
+     * @ref LogEntryUI.newInstance
+     */
+    public synchronized int appendRawLogData(@NonNull byte[] rawLogBytes, int recordID) {
+        if(rawLogBytes.length < 4) {
+            return -1;
+        }
+        int logCode = (int) rawLogBytes[0];
+        int timestamp = (((int) rawLogBytes[2]) << 8) | ((int) rawLogBytes[3]);
+        return appendLogRecord(logCode, ChameleonLogUtils.getDataDirection(logCode), LogEntryUI.nextDiffTimeMillis(timestamp),
+                               recordID, rawLogBytes, 4, rawLogBytes.length - 4);
+    }
+
+    /**
+     * Appends a LIVE log record from its already decoded fields.
+     * @return int index of the new record
+     * @ref LogSessionJournal
+     */
+    public synchronized int appendLogRecord(int logCode, int dataDirection, int recordDiffTimeMillis, int recordID,
+                                            @NonNull byte[] payload, int payloadOffset, int payloadLength) {
+        int recordIdx = appendRecordRow(KIND_LOGDATA);
+        logCodes[recordIdx] = (byte) logCode;
+        dataDirections[recordIdx] = (byte) dataDirection;
+        diffTimeMillis[recordIdx] = recordDiffTimeMillis;
+        recordIDs[recordIdx] = recordID;
+        payloadLengths[recordIdx] = payloadLength;
+        payloadHandles[recordIdx] = payloadArena.append(payload, payloadOffset, payloadLength);
+        duplicateCounts[recordIdx] = 0;
+        highlightColors[recordIdx] = 0;
+        return recordIdx;
+    }
+
+    /**
+     * Appends a LIVE log record whose payload stays in a segment attached to the payload
+     * arena (a mapped session journal segment). The record is not hashed or indexed until
+     * indexPendingRecords() or a lookup gets to it.
+     * @param segmentNumber Arena segment number returned by attachPayloadSegment
+     * @return int index of the new record
+     * @ref GUILogUtils.reopenSessionJournal
+     */
+    public synchronized int appendAttachedLogRecord(int logCode, int dataDirection, int recordDiffTimeMillis, int recordID,
+                                                    int segmentNumber, int segmentOffset, int payloadLength) {
+        int recordIdx = appendRecordRow(KIND_LOGDATA);
+        logCodes[recordIdx] = (byte) logCode;
+        dataDirections[recordIdx] = (byte) dataDirection;
+        diffTimeMillis[recordIdx] = recordDiffTimeMillis;
+        recordIDs[recordIdx] = recordID;
+        payloadLengths[recordIdx] = payloadLength;
+        payloadHandles[recordIdx] = payloadArena.getAttachedHandle(segmentNumber, segmentOffset, payloadLength);
+        duplicateCounts[recordIdx] = 0;
+        highlightColors[recordIdx] = 0;
+        payloadHashes[recordIdx] = 0;
+        return recordIdx;
+    }
+
+    /**
+     * @return int arena segment number for appendAttachedLogRecord
+     * @ref LogPayloadArena.attachSegment
+     */
+    public synchronized int attachPayloadSegment(@NonNull ByteBuffer segmentData) {
+        return payloadArena.attachSegment(segmentData);
+    }
+
+    public synchronized int appendMetadataRecord(@NonNull LogEntryMetadataRecord metadataRecord) {
+        int recordIdx = appendRecordRow(KIND_METADATA);
+        logCodes[recordIdx] = 0;
+        dataDirections[recordIdx] = 0;
+        diffTimeMillis[recordIdx] = 0;
+        recordIDs[recordIdx] = 0;
+        payloadLengths[recordIdx] = 0;
+        payloadHandles[recordIdx] = metadataRecords.size();
+        duplicateCounts[recordIdx] = 0;
+        highlightColors[recordIdx] = 0;
+        payloadHashes[recordIdx] = 0;
+        metadataRecords.add(metadataRecord);
+        return recordIdx;
+    }
+
+    /**
+     * Moves a repeated log entry to the end of the log with its duplicate count incremented.
+     * The old row is only flagged as superseded, the payload bytes are shared with the new row.
+     * @param recordIdx
+     * @param updatedDiffTimeMillis
+     * @return int index of the new record
+     */
+    public synchronized int appendDuplicate(int recordIdx, int updatedDiffTimeMillis) {
+        setRecordFlag(recordIdx, FLAG_SUPERSEDED, true);
+        int dupRecordIdx = appendRecordRow(KIND_LOGDATA);
+        logCodes[dupRecordIdx] = logCodes[recordIdx];
+        recordFlags[dupRecordIdx] = (byte) (recordFlags[recordIdx] & ~FLAG_SUPERSEDED);
+        dataDirections[dupRecordIdx] = dataDirections[recordIdx];
+        diffTimeMillis[dupRecordIdx] = updatedDiffTimeMillis;
+        recordIDs[dupRecordIdx] = recordIDs[recordIdx];
+        payloadLengths[dupRecordIdx] = payloadLengths[recordIdx];
+        payloadHandles[dupRecordIdx] = payloadHandles[recordIdx];
+        duplicateCounts[dupRecordIdx] = duplicateCounts[recordIdx] + 1;
+        highlightColors[dupRecordIdx] = highlightColors[recordIdx];
+        payloadHashes[dupRecordIdx] = payloadHashes[recordIdx];
+        duplicateSourceIndices[dupRecordIdx] = recordIdx;
+        if((recordFlags[dupRecordIdx] & FLAG_HIDDEN) != 0) {
+            visibleIndicesValid = false;
+        }
+        return dupRecordIdx;
+    }
+
+    /**
+     * Hashes and indexes the next record waiting to be indexed (the search index takes the
+     * records in increasing order).
+     */
+    private void indexNewRecord(int recordIdx, byte[] payload, int payloadOffset, int payloadLength) {
+        if(indexedRecordCount != recordIdx) {
+            return;
+        }
+        if(recordKinds[recordIdx] == KIND_METADATA) {
+            searchIndex.indexMetadataRecord(recordIdx, metadataRecords.get((int) payloadHandles[recordIdx]).toString());
+        }
+        else {
+            payloadHashes[recordIdx] = hashPayload(payload, payloadOffset, payloadLength);
+            updateDuplicateTable(recordIdx);
+            searchIndex.indexLogRecord(recordIdx, logCodes[recordIdx], payload, payloadOffset, payloadLength);
+        }
+        indexedRecordCount = recordIdx + 1;
+    }
+
+    private void indexStoredRecord(int recordIdx) {
+        int payloadLength = payloadLengths[recordIdx];
+        if(recordKinds[recordIdx] == KIND_LOGDATA) {
+            if(indexScratchBuffer.length < payloadLength) {
+                indexScratchBuffer = new byte[payloadLength];
+            }
+            payloadArena.copyOut(payloadHandles[recordIdx], indexScratchBuffer, 0, payloadLength);
+        }
+        indexNewRecord(recordIdx, indexScratchBuffer, 0, payloadLength);
+    }
+
+    /**
+     * Indexes the next batch of the records that were appended without being indexed.
+     * @param maxRecords
+     * @return whether there are records left to index
+     */
+    public synchronized boolean indexPendingRecords(int maxRecords) {
+        int lastRecordIdx = Math.min(recordCount, indexedRecordCount + maxRecords);
+        while(indexedRecordCount < lastRecordIdx) {
+            indexStoredRecord(indexedRecordCount);
+        }
+        return indexedRecordCount < recordCount;
+    }
+
+    public synchronized int getPendingIndexCount() {
+        return recordCount - indexedRecordCount;
+    }
+
+    private void indexAllPendingRecords() {
+        while(indexedRecordCount < recordCount) {
+            indexStoredRecord(indexedRecordCount);
+        }
+    }
+
+    private static int hashPayload(byte[] payload, int offset, int length) {
+        int payloadHash = 0x811c9dc5;
+        for(int bidx = offset; bidx < offset + length; bidx++) {
+            payloadHash = (payloadHash ^ (payload[bidx] & 0xff)) * 0x01000193;
+        }
+        return payloadHash;
+    }
+
+    private static int duplicateTableSlot(int payloadHash, int logCode, int tableMask) {
+        int slotHash = (payloadHash ^ (logCode & 0xff) * 0x9E3779B1) * 0x85EBCA6B;
+        return (slotHash ^ (slotHash >>> 15)) & tableMask;
+    }
+
+    /**
+     * Makes the record the current copy of its (log code, payload) in the duplicate table,
+     * replacing the slot of an older identical record in place.
+     */
+    private void updateDuplicateTable(int recordIdx) {
+        if(2 * (duplicateTableEntries + 1) > duplicateTable.length) {
+            growDuplicateTable();
+        }
+        int tableMask = duplicateTable.length - 1;
+        int slot = duplicateTableSlot(payloadHashes[recordIdx], logCodes[recordIdx], tableMask);
+        while(duplicateTable[slot] != -1) {
+            int slotRecordIdx = duplicateTable[slot];
+            if(payloadHashes[slotRecordIdx] == payloadHashes[recordIdx] && logCodes[slotRecordIdx] == logCodes[recordIdx] &&
+                    payloadLengths[slotRecordIdx] == payloadLengths[recordIdx] &&
+                    payloadArena.payloadsEqual(payloadHandles[slotRecordIdx], payloadHandles[recordIdx], payloadLengths[recordIdx])) {
+                duplicateTable[slot] = recordIdx;
+                return;
+            }
+            slot = (slot + 1) & tableMask;
+        }
+        duplicateTable[slot] = recordIdx;
+        duplicateTableEntries++;
+    }
+
+    private void growDuplicateTable() {
+        int[] nextTable = new int[duplicateTable.length * 2];
+        Arrays.fill(nextTable, -1);
+        int tableMask = nextTable.length - 1;
+        for(int recordIdx : duplicateTable) {
+            if(recordIdx == -1) {
+                continue;
+            }
+            int slot = duplicateTableSlot(payloadHashes[recordIdx], logCodes[recordIdx], tableMask);
+            while(nextTable[slot] != -1) {
+                slot = (slot + 1) & tableMask;
+            }
+            nextTable[slot] = recordIdx;
+        }
+        duplicateTable = nextTable;
+    }
+
+    /**
+     * Finds the most recent (not superseded) log entry with the same log code and payload
+     * as the raw LIVE log bytes (a hash table lookup, the candidate payloads are compared
+     * byte for byte to rule out hash collisions). Called from the UI thread: only the rows
+     * already indexed are probed when more than a batch of records is waiting to be indexed
+     * (e.g., after a session journal is restored), the LogIngestWriter indexes the rest.
+     * @param rawLogBytes
+     * @return int record index, or -1 if there is no match
+     */
+    public synchronized int findMatchingLogEntry(@NonNull byte[] rawLogBytes) {
+        if(rawLogBytes.length < 4) {
+            return -1;
+        }
+        if(recordCount - indexedRecordCount <= LOOKUP_INDEX_BATCH_RECORDS) {
+            indexAllPendingRecords();
+        }
+        byte rawLogCode = rawLogBytes[0];
+        int rawPayloadLength = rawLogBytes.length - 4;
+        int rawPayloadHash = hashPayload(rawLogBytes, 4, rawPayloadLength);
+        int tableMask = duplicateTable.length - 1;
+        for(int slot = duplicateTableSlot(rawPayloadHash, rawLogCode, tableMask); duplicateTable[slot] != -1; slot = (slot + 1) & tableMask) {
+            int recordIdx = duplicateTable[slot];
+            if(payloadHashes[recordIdx] != rawPayloadHash || logCodes[recordIdx] != rawLogCode || payloadLengths[recordIdx] != rawPayloadLength ||
+                    !payloadArena.payloadEquals(payloadHandles[recordIdx], payloadLengths[recordIdx], rawLogBytes, 4, rawPayloadLength)) {
+                continue;
+            }
+            return (recordFlags[recordIdx] & FLAG_SUPERSEDED) == 0 ? recordIdx : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Hides the LIVE log records that repeat the payload of the record before them (runs of
+     * identical payloads are reduced to their first record, metadata records end a run).
+     * Incremental: each call only looks at the records appended since the last call.
+     * @return whether any records were hidden
+     * @ref GUILogUtils.collapseSimilarLogs
+     */
+    public synchronized boolean collapseSequentialRepeats() {
+        indexAllPendingRecords();
+        boolean recordsHidden = false;
+        for(; collapseScanPos < recordCount; collapseScanPos++) {
+            int recordIdx = collapseScanPos;
+            if((recordFlags[recordIdx] & FLAG_SUPERSEDED) != 0) {
+                continue;
+            }
+            else if(recordKinds[recordIdx] != KIND_LOGDATA) {
+                collapseRunStartIdx = -1;
+                continue;
+            }
+            int runStartIdx = collapseRunStartIdx;
+            if(runStartIdx >= 0 && payloadHashes[runStartIdx] == payloadHashes[recordIdx] &&
+                    payloadLengths[runStartIdx] == payloadLengths[recordIdx] &&
+                    payloadArena.payloadsEqual(payloadHandles[runStartIdx], payloadHandles[recordIdx], payloadLengths[recordIdx])) {
+                if((recordFlags[recordIdx] & FLAG_HIDDEN) == 0) {
+                    recordFlags[recordIdx] |= FLAG_HIDDEN;
+                    visibleIndicesValid = false;
+                    recordsHidden = true;
+                }
+            }
+            else {
+                collapseRunStartIdx = recordIdx;
+            }
+        }
+        return recordsHidden;
+    }
+
+    /**
+     * Searches the active records with the help of the LogSearchIndex.
+     * @param payloadPattern Bytes to find in the payloads (lower case when not hexSearch)
+     * @param searchText Lower case text to find in the log code names, APDU labels and metadata records
+     * @param hexSearch Whether the payload bytes have to match exactly (otherwise ASCII case-insensitive)
+     * @param fieldMask Combination of the LogSearchIndex.SEARCH_* fields
+     * @return ascending indices of the matching records
+     */
+    public synchronized int[] searchRecords(byte[] payloadPattern, @NonNull String searchText, boolean hexSearch, int fieldMask) {
+        indexAllPendingRecords();
+        BitSet matches = new BitSet(recordCount);
+        if((fieldMask & LogSearchIndex.SEARCH_PAYLOAD) != 0 && payloadPattern != null && payloadPattern.length > 0) {
+            int[] candidates = searchIndex.findPayloadCandidates(payloadPattern);
+            int numCandidates = candidates == null ? recordCount : candidates.length;
+            for(int cidx = 0; cidx < numCandidates; cidx++) {
+                int recordIdx = candidates == null ? cidx : candidates[cidx];
+                if(recordKinds[recordIdx] == KIND_LOGDATA &&
+                        payloadArena.payloadContains(payloadHandles[recordIdx], payloadLengths[recordIdx], payloadPattern, !hexSearch)) {
+                    matches.set(recordIdx);
+                }
+            }
+        }
+        if((fieldMask & LogSearchIndex.SEARCH_LOG_HEADERS) != 0) {
+            searchIndex.findLogHeaderMatches(searchText, matches);
+        }
+        if((fieldMask & LogSearchIndex.SEARCH_APDU) != 0) {
+            for(int recordIdx = searchIndex.getApduIndexedCount(); recordIdx < recordCount; recordIdx++) {
+                String apduLabel = recordKinds[recordIdx] != KIND_LOGDATA ? "" :
+                        LogEntryUI.getAPDUString(payloadArena.getBytes(payloadHandles[recordIdx], payloadLengths[recordIdx]));
+                searchIndex.indexApduLabel(recordIdx, apduLabel);
+            }
+            searchIndex.findApduMatches(searchText, matches);
+        }
+        if((fieldMask & LogSearchIndex.SEARCH_METADATA) != 0) {
+            searchIndex.findMetadataMatches(searchText, matches);
+        }
+        int[] matchingRecords = new int[matches.cardinality()];
+        int numMatches = 0;
+        for(int recordIdx = matches.nextSetBit(0); recordIdx >= 0; recordIdx = matches.nextSetBit(recordIdx + 1)) {
+            if((recordFlags[recordIdx] & FLAG_SUPERSEDED) == 0) {
+                matchingRecords[numMatches++] = recordIdx;
+            }
+        }
+        return Arrays.copyOf(matchingRecords, numMatches);
+    }
+
+    public synchronized int size() {
+        return recordCount;
+    }
+
+    public synchronized boolean isLogData(int recordIdx) {
+        return recordKinds[recordIdx] == KIND_LOGDATA;
+    }
+
+    public synchronized boolean isMetadata(int recordIdx) {
+        return recordKinds[recordIdx] == KIND_METADATA;
+    }
+
+    /**
+     * @return whether the record should be written out / searched (not replaced by a newer duplicate)
+     */
+    public synchronized boolean isActive(int recordIdx) {
+        return (recordFlags[recordIdx] & FLAG_SUPERSEDED) == 0;
+    }
+
+    public synchronized int getLogCode(int recordIdx) {
+        return logCodes[recordIdx];
+    }
+
+    public synchronized int getRecordID(int recordIdx) {
+        return recordIDs[recordIdx];
+    }
+
+    public synchronized int getDataDirection(int recordIdx) {
+        return dataDirections[recordIdx];
+    }
+
+    public synchronized int getDiffTimeMillis(int recordIdx) {
+        return diffTimeMillis[recordIdx];
+    }
+
+    public synchronized int getPayloadLength(int recordIdx) {
+        return payloadLengths[recordIdx];
+    }
+
+    public synchronized byte[] getPayloadBytes(int recordIdx) {
+        if(recordKinds[recordIdx] != KIND_LOGDATA) {
+            return new byte[0];
+        }
+        return payloadArena.getBytes(payloadHandles[recordIdx], payloadLengths[recordIdx]);
+    }
+
+    public synchronized int getDuplicateCount(int recordIdx) {
+        return duplicateCounts[recordIdx];
+    }
+
+    public synchronized int getHighlightColor(int recordIdx) {
+        return highlightColors[recordIdx];
+    }
+
+    public synchronized void setHighlightColor(int recordIdx, int highlightColor) {
+        highlightColors[recordIdx] = highlightColor;
+    }
+
+    public synchronized LogEntryMetadataRecord getMetadataRecord(int recordIdx) {
+        if(recordKinds[recordIdx] != KIND_METADATA) {
+            return null;
+        }
+        return metadataRecords.get((int) payloadHandles[recordIdx]);
+    }
+
+    public synchronized boolean hasRecordFlag(int recordIdx, int flagMask) {
+        return (recordFlags[recordIdx] & flagMask) != 0;
+    }
+
+    public synchronized void setRecordFlag(int recordIdx, int flagMask, boolean enable) {
+        int prevFlags = recordFlags[recordIdx];
+        int nextFlags = enable ? (prevFlags | flagMask) : (prevFlags & ~flagMask);
+        recordFlags[recordIdx] = (byte) nextFlags;
+        if(((prevFlags ^ nextFlags) & (FLAG_HIDDEN | FLAG_SUPERSEDED)) != 0) {
+            visibleIndicesValid = false;
+        }
+    }
+
+    public boolean isSelected(int recordIdx) {
+        return hasRecordFlag(recordIdx, FLAG_SELECTED);
+    }
+
+    public void setSelected(int recordIdx, boolean selected) {
+        setRecordFlag(recordIdx, FLAG_SELECTED, selected);
+    }
+
+    public synchronized int getXFerMarker(int recordIdx) {
+        return (recordFlags[recordIdx] & FLAG_XFER_MARKER_MASK) >>> FLAG_XFER_MARKER_SHIFT;
+    }
+
+    public synchronized void setXFerMarker(int recordIdx, int xferMarker) {
+        recordFlags[recordIdx] = (byte) ((recordFlags[recordIdx] & ~FLAG_XFER_MARKER_MASK) |
+                ((xferMarker << FLAG_XFER_MARKER_SHIFT) & FLAG_XFER_MARKER_MASK));
+    }
+
+    /**
+     * Reusable holder for the columns of one record, filled in by readRecord().
+     * @ref LogRecordExporter
+     */
+    public static class RecordRow {
+        public byte kind;
+        public int logCode;
+        public int flags;
+        public int dataDirection;
+        public int diffTimeMillis;
+        public int recordID;
+        public int duplicateCount;
+        public int highlightColor;
+        public int payloadLength;
+        public int duplicateSourceIdx;
+        public byte[] payload = new byte[256];
+        public LogEntryMetadataRecord metadataRecord;
+    }
+
+    public synchronized int getGeneration() {
+        return storeGeneration;
+    }
+
+    /**
+     * Copies all the columns of a record (and its payload) in one go, so the exporters do
+     * not have to take the store lock once per field.
+     * @param recordIdx
+     * @param row Holder to fill in (its payload buffer is grown as needed)
+     * @param generation Value of getGeneration() when the reader started
+     * @return false if the store was cleared since then (or the record does not exist)
+     */
+    public synchronized boolean readRecord(int recordIdx, @NonNull RecordRow row, int generation) {
+        if(generation != storeGeneration || recordIdx < 0 || recordIdx >= recordCount) {
+            return false;
+        }
+        row.kind = recordKinds[recordIdx];
+        row.logCode = logCodes[recordIdx];
+        row.flags = recordFlags[recordIdx];
+        row.dataDirection = dataDirections[recordIdx];
+        row.diffTimeMillis = diffTimeMillis[recordIdx];
+        row.recordID = recordIDs[recordIdx];
+        row.duplicateCount = duplicateCounts[recordIdx];
+        row.highlightColor = highlightColors[recordIdx];
+        row.payloadLength = payloadLengths[recordIdx];
+        row.duplicateSourceIdx = duplicateSourceIndices[recordIdx];
+        row.metadataRecord = null;
+        if(recordKinds[recordIdx] == KIND_METADATA) {
+            row.payloadLength = 0;
+            row.metadataRecord = metadataRecords.get((int) payloadHandles[recordIdx]);
+            return true;
+        }
+        if(row.payload.length < row.payloadLength) {
+            row.payload = new byte[Math.max(row.payloadLength, 2 * row.payload.length)];
+        }
+        payloadArena.copyOut(payloadHandles[recordIdx], row.payload, 0, row.payloadLength);
+        return true;
+    }
+
+    /**
+     * Unpacks a stored LIVE log record into a (reusable) LogEntryUI instance.
+     * @param recordIdx
+     * @param logEntry Instance to reuse, or null to allocate a new one
+     * @return LogEntryUI populated log entry, or null for metadata records
+     */
+    public synchronized LogEntryUI loadLogEntry(int recordIdx, LogEntryUI logEntry) {
+        if(recordKinds[recordIdx] != KIND_LOGDATA) {
+            return null;
+        }
+        if(logEntry == null) {
+            logEntry = new LogEntryUI();
+        }
+        byte[] entryData = payloadArena.getBytes(payloadHandles[recordIdx], payloadLengths[recordIdx]);
+        logEntry.configureLogEntry("", diffTimeMillis[recordIdx], dataDirections[recordIdx], logCodes[recordIdx], entryData);
+        logEntry.setRecordIndex(recordIDs[recordIdx]);
+        logEntry.setDuplicateCount(duplicateCounts[recordIdx]);
+        logEntry.setHighlightColor(highlightColors[recordIdx]);
+        logEntry.setXFerMarker(getXFerMarker(recordIdx));
+        return logEntry;
+    }
+
+    private void rebuildVisibleIndices() {
+        if(visibleRecordIndices.length < recordCount) {
+            visibleRecordIndices = new int[Math.max(INITIAL_CAPACITY, recordKinds.length)];
+        }
+        int nextVisiblePos = 0;
+        for(int recordIdx = 0; recordIdx < recordCount; recordIdx++) {
+            if((recordFlags[recordIdx] & (FLAG_HIDDEN | FLAG_SUPERSEDED)) == 0) {
+                visibleRecordIndices[nextVisiblePos++] = recordIdx;
+            }
+        }
+        visibleCount = nextVisiblePos;
+        visibleIndicesValid = true;
+    }
+
+    public synchronized int getVisibleCount() {
+        if(!visibleIndicesValid) {
+            rebuildVisibleIndices();
+        }
+        return visibleCount;
+    }
+
+    public synchronized int getVisibleRecordIndex(int listPosition) {
+        if(!visibleIndicesValid) {
+            rebuildVisibleIndices();
+        }
+        return visibleRecordIndices[listPosition];
+    }
+
+    /**
+     * @return approximate heap footprint of the store in bytes (not counting the payload bytes)
+     */
+    public synchronized long getMemoryFootprint() {
+        long columnBytes = (long) recordKinds.length * (4 * 1 + 7 * 4 + 8) + 4L * visibleRecordIndices.length + 4L * duplicateTable.length;
+        return columnBytes + searchIndex.getMemoryFootprint();
+    }
+
+    /**
+     * @return off-heap bytes reserved for the log payloads
+     * @ref LogPayloadArena
+     */
+    public long getOffHeapFootprint() {
+        return payloadArena.getAllocatedBytes();
+    }
+
+}
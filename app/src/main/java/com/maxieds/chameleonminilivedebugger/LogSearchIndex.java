@@ -0,0 +1,361 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>Log Search Index</h1>
+ * Search index over the records in the LogRecordStore, updated as the records are appended
+ * so that a search from the Log tab does not have to rescan (and re-stringify) the whole
+ * session. It keeps:
+ * <ul>
+ *     <li>a trigram index over the payload bytes (ASCII letters folded to lower case, so the
+ *         same grams serve the hex byte and the case-insensitive text searches),</li>
+ *     <li>per log code posting lists for the log header names,</li>
+ *     <li>posting lists for each distinct APDU classification label, and</li>
+ *     <li>a trigram index over the text of the metadata / status records.</li>
+ * </ul>
+ * The grams only narrow down the candidate records, which are then checked against the
+ * stored payload (or text) to weed out the false positives.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref LogRecordStore.searchRecords
+ * @ref GUILogUtils.performLogSearch
+ */
+public class LogSearchIndex {
+
+    private static final String TAG = LogSearchIndex.class.getSimpleName();
+
+    public static final int NGRAM_LENGTH = 3;
+
+    public static final int SEARCH_PAYLOAD = 0x01;
+    public static final int SEARCH_LOG_HEADERS = 0x02;
+    public static final int SEARCH_APDU = 0x04;
+    public static final int SEARCH_METADATA = 0x08;
+
+    private static final int INITIAL_POSTING_SIZE = 2;
+    private static final int INITIAL_TABLE_SIZE = 4096; /* Must be a power of two */
+    private static final int NUM_LOG_CODES = 256;
+
+    /**
+     * Ascending list of record indices (appends of the same record twice in a row are merged).
+     */
+    private static class PostingList {
+
+        int[] recordIndices = new int[INITIAL_POSTING_SIZE];
+        int size;
+
+        void add(int recordIdx) {
+            if(size > 0 && recordIndices[size - 1] == recordIdx) {
+                return;
+            }
+            if(size == recordIndices.length) {
+                recordIndices = Arrays.copyOf(recordIndices, size * 2);
+            }
+            recordIndices[size++] = recordIdx;
+        }
+
+        void setAllIn(BitSet matches) {
+            for(int pidx = 0; pidx < size; pidx++) {
+                matches.set(recordIndices[pidx]);
+            }
+        }
+
+    }
+
+    /**
+     * Open addressed map from the 24-bit gram keys to their posting lists (no boxed keys).
+     */
+    private static class GramTable {
+
+        private int[] tableKeys;
+        private PostingList[] tableLists;
+        private int numKeys;
+        private long numPostings;
+
+        GramTable() {
+            clear();
+        }
+
+        void clear() {
+            tableKeys = new int[INITIAL_TABLE_SIZE];
+            Arrays.fill(tableKeys, -1);
+            tableLists = new PostingList[INITIAL_TABLE_SIZE];
+            numKeys = 0;
+            numPostings = 0;
+        }
+
+        private int findSlot(int[] keys, int gramKey) {
+            int mask = keys.length - 1;
+            int slot = (gramKey * 0x9E3779B1) >>> 8 & mask;
+            while(keys[slot] != -1 && keys[slot] != gramKey) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        PostingList get(int gramKey) {
+            int slot = findSlot(tableKeys, gramKey);
+            return tableKeys[slot] == -1 ? null : tableLists[slot];
+        }
+
+        void add(int gramKey, int recordIdx) {
+            int slot = findSlot(tableKeys, gramKey);
+            PostingList postings = tableLists[slot];
+            if(postings == null) {
+                if(2 * (numKeys + 1) > tableKeys.length) {
+                    grow();
+                    slot = findSlot(tableKeys, gramKey);
+                }
+                postings = new PostingList();
+                tableKeys[slot] = gramKey;
+                tableLists[slot] = postings;
+                numKeys++;
+            }
+            int prevSize = postings.size;
+            postings.add(recordIdx);
+            numPostings += postings.size - prevSize;
+        }
+
+        private void grow() {
+            int[] nextKeys = new int[tableKeys.length * 2];
+            Arrays.fill(nextKeys, -1);
+            PostingList[] nextLists = new PostingList[nextKeys.length];
+            for(int slot = 0; slot < tableKeys.length; slot++) {
+                if(tableKeys[slot] != -1) {
+                    int nextSlot = findSlot(nextKeys, tableKeys[slot]);
+                    nextKeys[nextSlot] = tableKeys[slot];
+                    nextLists[nextSlot] = tableLists[slot];
+                }
+            }
+            tableKeys = nextKeys;
+            tableLists = nextLists;
+        }
+
+        long getMemoryFootprint() {
+            return 8L * tableKeys.length + numKeys * 32L + 4L * numPostings;
+        }
+
+    }
+
+    private final GramTable payloadGrams = new GramTable();
+    private final GramTable metadataGrams = new GramTable();
+    private final PostingList[] logCodePostings = new PostingList[NUM_LOG_CODES];
+    private final String[] logCodeNames = new String[NUM_LOG_CODES];
+    private final List<String> metadataTexts = new ArrayList<String>();
+    private final List<Integer> metadataRecordIndices = new ArrayList<Integer>();
+
+    /**
+     * The APDU labels are classified lazily (in order, up to apduIndexedCount) when a search
+     * needs them instead of on the serial IO threads for every appended record.
+     */
+    private final Map<String, PostingList> apduLabelPostings = new HashMap<String, PostingList>();
+    private int apduIndexedCount;
+
+    public LogSearchIndex() {
+        for(int lcode = 0; lcode < NUM_LOG_CODES; lcode++) {
+            logCodeNames[lcode] = ChameleonLogUtils.LogCode.lookupByLogCode(lcode).name().toLowerCase(BuildConfig.DEFAULT_LOCALE);
+        }
+        clear();
+    }
+
+    public void clear() {
+        payloadGrams.clear();
+        metadataGrams.clear();
+        Arrays.fill(logCodePostings, null);
+        metadataTexts.clear();
+        metadataRecordIndices.clear();
+        apduLabelPostings.clear();
+        apduIndexedCount = 0;
+    }
+
+    public static byte foldCase(byte b) {
+        return (b >= 'A' && b <= 'Z') ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static int gramKey(byte[] data, int offset) {
+        return (foldCase(data[offset]) & 0xff) << 16 | (foldCase(data[offset + 1]) & 0xff) << 8 | (foldCase(data[offset + 2]) & 0xff);
+    }
+
+    private static void addGrams(GramTable gramTable, int recordIdx, byte[] data, int offset, int length) {
+        for(int gpos = offset; gpos + NGRAM_LENGTH <= offset + length; gpos++) {
+            gramTable.add(gramKey(data, gpos), recordIdx);
+        }
+    }
+
+    /**
+     * Called by the store for each LIVE log record (records must be added in increasing order).
+     */
+    public void indexLogRecord(int recordIdx, int logCode, @NonNull byte[] payload, int offset, int length) {
+        int codeIdx = logCode & 0xff;
+        if(logCodePostings[codeIdx] == null) {
+            logCodePostings[codeIdx] = new PostingList();
+        }
+        logCodePostings[codeIdx].add(recordIdx);
+        addGrams(payloadGrams, recordIdx, payload, offset, length);
+    }
+
+    public void indexMetadataRecord(int recordIdx, @NonNull String recordText) {
+        String lowerText = recordText.toLowerCase(BuildConfig.DEFAULT_LOCALE);
+        metadataTexts.add(lowerText);
+        metadataRecordIndices.add(recordIdx);
+        byte[] textBytes = lowerText.getBytes(StandardCharsets.UTF_8);
+        addGrams(metadataGrams, recordIdx, textBytes, 0, textBytes.length);
+    }
+
+    public int getApduIndexedCount() {
+        return apduIndexedCount;
+    }
+
+    /**
+     * @param apduLabel Label as displayed by LogEntryUI.getAPDUString (empty for metadata records)
+     */
+    public void indexApduLabel(int recordIdx, @NonNull String apduLabel) {
+        if(apduLabel.length() > 0) {
+            String lowerLabel = apduLabel.toLowerCase(BuildConfig.DEFAULT_LOCALE);
+            PostingList postings = apduLabelPostings.get(lowerLabel);
+            if(postings == null) {
+                postings = new PostingList();
+                apduLabelPostings.put(lowerLabel, postings);
+            }
+            postings.add(recordIdx);
+        }
+        apduIndexedCount = recordIdx + 1;
+    }
+
+    /**
+     * Intersects the posting lists of all grams in the pattern.
+     * @return ascending candidate record indices, or null if the pattern is too short to use the index
+     */
+    private static int[] gramCandidates(GramTable gramTable, byte[] pattern) {
+        if(pattern.length < NGRAM_LENGTH) {
+            return null;
+        }
+        int numGrams = pattern.length - NGRAM_LENGTH + 1;
+        PostingList[] gramLists = new PostingList[numGrams];
+        for(int gidx = 0; gidx < numGrams; gidx++) {
+            gramLists[gidx] = gramTable.get(gramKey(pattern, gidx));
+            if(gramLists[gidx] == null) {
+                return new int[0];
+            }
+        }
+        Arrays.sort(gramLists, new Comparator<PostingList>() {
+            @Override
+            public int compare(PostingList lhs, PostingList rhs) {
+                return Integer.compare(lhs.size, rhs.size);
+            }
+        });
+        int[] candidates = Arrays.copyOf(gramLists[0].recordIndices, gramLists[0].size);
+        int numCandidates = candidates.length;
+        for(int lidx = 1; lidx < numGrams && numCandidates > 0; lidx++) {
+            numCandidates = intersectSorted(candidates, numCandidates, gramLists[lidx]);
+        }
+        return Arrays.copyOf(candidates, numCandidates);
+    }
+
+    /**
+     * In place intersection of the candidates with a (longer) posting list by galloping search.
+     */
+    private static int intersectSorted(int[] candidates, int numCandidates, PostingList postings) {
+        int nextCount = 0;
+        int searchFrom = 0;
+        for(int cidx = 0; cidx < numCandidates; cidx++) {
+            int foundPos = Arrays.binarySearch(postings.recordIndices, searchFrom, postings.size, candidates[cidx]);
+            if(foundPos >= 0) {
+                candidates[nextCount++] = candidates[cidx];
+                searchFrom = foundPos + 1;
+            }
+            else {
+                searchFrom = -foundPos - 1;
+            }
+            if(searchFrom >= postings.size) {
+                break;
+            }
+        }
+        return nextCount;
+    }
+
+    /**
+     * @param pattern Payload bytes to look for
+     * @return ascending candidate record indices to verify, or null to verify every LIVE log record
+     */
+    public int[] findPayloadCandidates(@NonNull byte[] pattern) {
+        return gramCandidates(payloadGrams, pattern);
+    }
+
+    public void findLogHeaderMatches(@NonNull String lowerQuery, @NonNull BitSet matches) {
+        for(int lcode = 0; lcode < NUM_LOG_CODES; lcode++) {
+            if(logCodePostings[lcode] != null && logCodeNames[lcode].contains(lowerQuery)) {
+                logCodePostings[lcode].setAllIn(matches);
+            }
+        }
+    }
+
+    public void findApduMatches(@NonNull String lowerQuery, @NonNull BitSet matches) {
+        for(Map.Entry<String, PostingList> labelEntry : apduLabelPostings.entrySet()) {
+            if(labelEntry.getKey().contains(lowerQuery)) {
+                labelEntry.getValue().setAllIn(matches);
+            }
+        }
+    }
+
+    public void findMetadataMatches(@NonNull String lowerQuery, @NonNull BitSet matches) {
+        int[] candidates = gramCandidates(metadataGrams, lowerQuery.getBytes(StandardCharsets.UTF_8));
+        if(candidates == null) {
+            for(int metaIdx = 0; metaIdx < metadataTexts.size(); metaIdx++) {
+                if(metadataTexts.get(metaIdx).contains(lowerQuery)) {
+                    matches.set(metadataRecordIndices.get(metaIdx));
+                }
+            }
+            return;
+        }
+        int metaIdx = 0;
+        for(int recordIdx : candidates) {
+            /* Both lists are in record order, so the metadata position only moves forward: */
+            while(metadataRecordIndices.get(metaIdx) != recordIdx) {
+                metaIdx++;
+            }
+            if(metadataTexts.get(metaIdx).contains(lowerQuery)) {
+                matches.set(recordIdx);
+            }
+        }
+    }
+
+    public long getMemoryFootprint() {
+        long postingBytes = 0;
+        for(PostingList postings : logCodePostings) {
+            postingBytes += postings == null ? 0 : 4L * postings.recordIndices.length;
+        }
+        for(PostingList postings : apduLabelPostings.values()) {
+            postingBytes += 4L * postings.recordIndices.length;
+        }
+        return payloadGrams.getMemoryFootprint() + metadataGrams.getMemoryFootprint() + postingBytes;
+    }
+
+}
@@ -0,0 +1,831 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * <h1>Log Session Journal</h1>
+ * Crash-safe, append-only copy of the records in the Log tab. Every record appended to the
+ * LogRecordStore is also written to a segmented journal in the app files directory, so the
+ * last session survives the app being killed (or restarted by the CrashReportActivity).
+ * The appends go through a write buffer; a background thread writes it out and fsyncs the
+ * active segment at most every FSYNC_INTERVAL_MILLIS. Each record carries a CRC32, and a
+ * torn record at the tail of the journal (from a crash mid-write) is cut off when the
+ * journal is reopened. A sparse index (every INDEX_INTERVAL records) maps record ordinals,
+ * record IDs and wall clock times to file offsets, and the JournalCursor reads the records
+ * back through memory-mapped segments. When the session is reopened, the mapped segments
+ * become the payload storage of the restored records (the journal files are only ever
+ * appended to or truncated past the records the store still refers to).
+ *
+ * The journal ordinal of a record is its index in the LogRecordStore: both start from zero
+ * when the logs are cleared, which is what lets the duplicate records refer to their
+ * original by index. The view state (hidden / highlighted rows) is not journaled.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref GUILogUtils.reopenSessionJournal
+ * @ref LogRecordStore
+ */
+public class LogSessionJournal {
+
+    private static final String TAG = LogSessionJournal.class.getSimpleName();
+
+    public static final String JOURNAL_DIRPATH = "session_journal";
+    private static final String SEGMENT_FILE_PREFIX = "segment-";
+    private static final String SEGMENT_FILE_SUFFIX = ".jrnl";
+
+    public static final int SEGMENT_MAX_BYTES = 8 * 1024 * 1024;
+    public static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    public static final long FSYNC_INTERVAL_MILLIS = 1000;
+    public static final int INDEX_INTERVAL = 256;
+
+    /**
+     * Segment header: magic, format version, segment number, reserved.
+     */
+    private static final int SEGMENT_MAGIC = 0x4A4C4D43; /* "CMLJ" */
+    private static final int SEGMENT_VERSION = 1;
+    private static final int SEGMENT_HEADER_SIZE = 16;
+
+    /**
+     * Record header: payload length, record type, log code, data direction, (reserved),
+     * record ID, referenced record index, diff time millis, wall time millis, CRC32 of the
+     * preceding header bytes and the payload.
+     */
+    public static final int RECORD_HEADER_SIZE = 32;
+    private static final int RECORD_CRC_OFFSET = 28;
+    public static final int MAX_RECORD_PAYLOAD = SEGMENT_MAX_BYTES - SEGMENT_HEADER_SIZE - RECORD_HEADER_SIZE;
+
+    public static final byte RECORD_LOGDATA = 1;
+    public static final byte RECORD_METADATA = 2;
+    public static final byte RECORD_DUPLICATE = 3;
+
+    private static final char METADATA_FIELD_SEP = '\0';
+
+    private static class JournalSegment {
+        final int segmentNumber;
+        final File segmentFile;
+        long endOffset;
+        MappedByteBuffer mappedData;
+        JournalSegment(int segmentNumber, File segmentFile) {
+            this.segmentNumber = segmentNumber;
+            this.segmentFile = segmentFile;
+            this.endOffset = 0;
+            this.mappedData = null;
+        }
+    }
+
+    private File journalDir;
+    private final List<JournalSegment> segments = new ArrayList<JournalSegment>();
+    private JournalSegment activeSegment;
+    private FileChannel activeChannel;
+    private long recordCount;
+    private long unsyncedRecords;
+    private boolean journalEnabled;
+    private volatile Thread syncThread;
+
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 recordCRC = new CRC32();
+
+    /**
+     * Sparse index columns, one entry per INDEX_INTERVAL records.
+     */
+    private long[] indexOrdinals = new long[64];
+    private int[] indexRecordIDs = new int[64];
+    private long[] indexWallTimes = new long[64];
+    private int[] indexSegments = new int[64];
+    private int[] indexOffsets = new int[64];
+    private int indexCount;
+
+    public LogSessionJournal() {
+        journalDir = null;
+        activeSegment = null;
+        activeChannel = null;
+        journalEnabled = false;
+    }
+
+    /**
+     * Opens the journal in the directory, validating the existing segments and cutting off
+     * anything past the last intact record. Does nothing if the journal is already open.
+     * @param dir
+     * @return whether the journal can be written to
+     */
+    public synchronized boolean open(@NonNull File dir) {
+        if(journalEnabled) {
+            return true;
+        }
+        journalDir = dir;
+        if(!journalDir.exists() && !journalDir.mkdirs()) {
+            AndroidLogger.w(TAG, "Unable to create the session journal directory " + journalDir.getAbsolutePath());
+            return false;
+        }
+        segments.clear();
+        indexCount = 0;
+        recordCount = 0;
+        File[] segmentFiles = listSegmentFiles();
+        boolean truncateRemaining = false;
+        for(File segmentFile : segmentFiles) {
+            if(truncateRemaining) {
+                AndroidLogger.w(TAG, "Dropping session journal segment after a damaged one: " + segmentFile.getName());
+                segmentFile.delete();
+                continue;
+            }
+            JournalSegment segment = new JournalSegment(parseSegmentNumber(segmentFile), segmentFile);
+            long validBytes;
+            try {
+                validBytes = scanSegment(segment);
+            } catch(IOException ioe) {
+                AndroidLogger.printStackTrace(ioe);
+                validBytes = 0;
+            }
+            if(validBytes < segmentFile.length()) {
+                AndroidLogger.w(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Session journal segment %s cut off at %d of %d bytes",
+                                                   segmentFile.getName(), validBytes, segmentFile.length()));
+                truncateRemaining = true;
+            }
+            if(segment.endOffset == 0) {
+                segmentFile.delete();
+                continue;
+            }
+            segments.add(segment);
+        }
+        try {
+            if(segments.isEmpty()) {
+                startSegment(0);
+            } else {
+                activeSegment = segments.get(segments.size() - 1);
+                activeChannel = new RandomAccessFile(activeSegment.segmentFile, "rw").getChannel();
+                activeChannel.truncate(activeSegment.endOffset);
+                activeChannel.position(activeSegment.endOffset);
+            }
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            closeActiveChannel();
+            return false;
+        }
+        writeBuffer.clear();
+        unsyncedRecords = 0;
+        journalEnabled = true;
+        startSyncThread();
+        AndroidLogger.i(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Opened session journal: %d records in %d segments",
+                                           recordCount, segments.size()));
+        return true;
+    }
+
+    public synchronized boolean isOpen() {
+        return journalEnabled;
+    }
+
+    private File[] listSegmentFiles() {
+        File[] segmentFiles = journalDir.listFiles();
+        if(segmentFiles == null) {
+            return new File[0];
+        }
+        List<File> journalFiles = new ArrayList<File>();
+        for(File segmentFile : segmentFiles) {
+            if(segmentFile.getName().startsWith(SEGMENT_FILE_PREFIX) && segmentFile.getName().endsWith(SEGMENT_FILE_SUFFIX) &&
+                    parseSegmentNumber(segmentFile) >= 0) {
+                journalFiles.add(segmentFile);
+            }
+        }
+        File[] sortedFiles = journalFiles.toArray(new File[0]);
+        Arrays.sort(sortedFiles); /* The segment numbers are zero padded */
+        return sortedFiles;
+    }
+
+    private static int parseSegmentNumber(File segmentFile) {
+        String fileName = segmentFile.getName();
+        try {
+            return Integer.parseInt(fileName.substring(SEGMENT_FILE_PREFIX.length(), fileName.length() - SEGMENT_FILE_SUFFIX.length()));
+        } catch(NumberFormatException | IndexOutOfBoundsException nfe) {
+            return -1;
+        }
+    }
+
+    private File getSegmentFile(int segmentNumber) {
+        return new File(journalDir, String.format(BuildConfig.DEFAULT_LOCALE, "%s%06d%s", SEGMENT_FILE_PREFIX, segmentNumber, SEGMENT_FILE_SUFFIX));
+    }
+
+    /**
+     * Walks the records in an existing segment, checking their CRCs and adding them to the
+     * sparse index.
+     * @return the number of leading bytes in the segment that hold intact records
+     */
+    private long scanSegment(JournalSegment segment) throws IOException {
+        RandomAccessFile segmentRAF = new RandomAccessFile(segment.segmentFile, "r");
+        try {
+            long fileLength = segmentRAF.length();
+            if(fileLength < SEGMENT_HEADER_SIZE) {
+                return 0;
+            }
+            ByteBuffer segmentData = segmentRAF.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileLength, SEGMENT_MAX_BYTES));
+            segmentData.order(ByteOrder.LITTLE_ENDIAN);
+            if(segmentData.getInt(0) != SEGMENT_MAGIC || segmentData.getInt(4) != SEGMENT_VERSION) {
+                return 0;
+            }
+            int segmentPos = SEGMENT_HEADER_SIZE;
+            int segmentLimit = segmentData.limit();
+            while(segmentPos + RECORD_HEADER_SIZE <= segmentLimit) {
+                int payloadLength = segmentData.getInt(segmentPos);
+                byte recordType = segmentData.get(segmentPos + 4);
+                if(payloadLength < 0 || payloadLength > segmentLimit - segmentPos - RECORD_HEADER_SIZE ||
+                        recordType < RECORD_LOGDATA || recordType > RECORD_DUPLICATE) {
+                    break;
+                }
+                ByteBuffer crcData = segmentData.duplicate();
+                recordCRC.reset();
+                crcData.limit(segmentPos + RECORD_CRC_OFFSET).position(segmentPos);
+                recordCRC.update(crcData);
+                crcData.limit(segmentPos + RECORD_HEADER_SIZE + payloadLength).position(segmentPos + RECORD_HEADER_SIZE);
+                recordCRC.update(crcData);
+                if((int) recordCRC.getValue() != segmentData.getInt(segmentPos + RECORD_CRC_OFFSET)) {
+                    break;
+                }
+                addIndexEntry(segments.size(), segmentPos, segmentData.getInt(segmentPos + 8), segmentData.getLong(segmentPos + 20));
+                recordCount++;
+                segmentPos += RECORD_HEADER_SIZE + payloadLength;
+            }
+            segment.endOffset = segmentPos;
+            return segmentPos;
+        } finally {
+            segmentRAF.close();
+        }
+    }
+
+    private void addIndexEntry(int segmentIdx, int segmentOffset, int recordID, long wallTimeMillis) {
+        if(recordCount % INDEX_INTERVAL != 0) {
+            return;
+        }
+        if(indexCount == indexOrdinals.length) {
+            int newCapacity = 2 * indexCount;
+            indexOrdinals = Arrays.copyOf(indexOrdinals, newCapacity);
+            indexRecordIDs = Arrays.copyOf(indexRecordIDs, newCapacity);
+            indexWallTimes = Arrays.copyOf(indexWallTimes, newCapacity);
+            indexSegments = Arrays.copyOf(indexSegments, newCapacity);
+            indexOffsets = Arrays.copyOf(indexOffsets, newCapacity);
+        }
+        indexOrdinals[indexCount] = recordCount;
+        indexRecordIDs[indexCount] = recordID;
+        indexWallTimes[indexCount] = wallTimeMillis;
+        indexSegments[indexCount] = segmentIdx;
+        indexOffsets[indexCount] = segmentOffset;
+        indexCount++;
+    }
+
+    private void startSegment(int segmentNumber) throws IOException {
+        JournalSegment segment = new JournalSegment(segmentNumber, getSegmentFile(segmentNumber));
+        activeChannel = new RandomAccessFile(segment.segmentFile, "rw").getChannel();
+        activeChannel.truncate(0);
+        ByteBuffer segmentHeader = ByteBuffer.allocate(SEGMENT_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        segmentHeader.putInt(SEGMENT_MAGIC).putInt(SEGMENT_VERSION).putInt(segmentNumber).putInt(0);
+        segmentHeader.flip();
+        while(segmentHeader.hasRemaining()) {
+            activeChannel.write(segmentHeader);
+        }
+        segment.endOffset = SEGMENT_HEADER_SIZE;
+        segments.add(segment);
+        activeSegment = segment;
+    }
+
+    /**
+     * Writes out and fsyncs the active segment before moving on to a new one.
+     */
+    private void rotateSegment() throws IOException {
+        drainWriteBuffer();
+        activeChannel.force(false);
+        unsyncedRecords = 0;
+        activeChannel.close();
+        activeChannel = null;
+        startSegment(activeSegment.segmentNumber + 1);
+    }
+
+    public boolean appendLogData(int logCode, int dataDirection, int recordID, int diffTimeMillis, byte[] payload, int payloadOffset, int payloadLength) {
+        return appendRecord(RECORD_LOGDATA, logCode, dataDirection, recordID, -1, diffTimeMillis, payload, payloadOffset, payloadLength);
+    }
+
+    public boolean appendMetadata(int recordID, @NonNull String title, @NonNull String text, @NonNull String timestamp) {
+        byte[] metadataBytes = (title + METADATA_FIELD_SEP + text + METADATA_FIELD_SEP + timestamp).getBytes(StandardCharsets.UTF_8);
+        return appendRecord(RECORD_METADATA, 0, 0, recordID, -1, 0, metadataBytes, 0, metadataBytes.length);
+    }
+
+    /**
+     * @param duplicatedRecordIdx Index (journal ordinal) of the record that was repeated
+     */
+    public boolean appendDuplicate(int duplicatedRecordIdx, int recordID, int diffTimeMillis) {
+        return appendRecord(RECORD_DUPLICATE, 0, 0, recordID, duplicatedRecordIdx, diffTimeMillis, null, 0, 0);
+    }
+
+    private synchronized boolean appendRecord(byte recordType, int logCode, int dataDirection, int recordID, int refRecordIdx,
+                                              int diffTimeMillis, byte[] payload, int payloadOffset, int payloadLength) {
+        if(!journalEnabled) {
+            return false;
+        }
+        else if(payloadLength > MAX_RECORD_PAYLOAD) {
+            AndroidLogger.w(TAG, "Record too large for the session journal, disabling the journal for this session.");
+            journalEnabled = false;
+            return false;
+        }
+        long wallTimeMillis = System.currentTimeMillis();
+        int recordSize = RECORD_HEADER_SIZE + payloadLength;
+        try {
+            if(activeSegment.endOffset + recordSize > SEGMENT_MAX_BYTES) {
+                rotateSegment();
+            }
+            recordHeader.clear();
+            recordHeader.putInt(payloadLength).put(recordType).put((byte) logCode).put((byte) dataDirection).put((byte) 0);
+            recordHeader.putInt(recordID).putInt(refRecordIdx).putInt(diffTimeMillis).putLong(wallTimeMillis);
+            recordCRC.reset();
+            recordCRC.update(recordHeader.array(), 0, RECORD_CRC_OFFSET);
+            if(payloadLength > 0) {
+                recordCRC.update(payload, payloadOffset, payloadLength);
+            }
+            recordHeader.putInt((int) recordCRC.getValue());
+            recordHeader.flip();
+            if(writeBuffer.remaining() < recordSize) {
+                drainWriteBuffer();
+            }
+            writeBuffer.put(recordHeader);
+            if(recordSize <= WRITE_BUFFER_SIZE) {
+                if(payloadLength > 0) {
+                    writeBuffer.put(payload, payloadOffset, payloadLength);
+                }
+            } else {
+                drainWriteBuffer();
+                writeFully(ByteBuffer.wrap(payload, payloadOffset, payloadLength));
+            }
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            AndroidLogger.w(TAG, "Session journal write failed, disabling the journal for this session.");
+            journalEnabled = false;
+            closeActiveChannel();
+            return false;
+        }
+        addIndexEntry(segments.size() - 1, (int) activeSegment.endOffset, recordID, wallTimeMillis);
+        activeSegment.endOffset += recordSize;
+        recordCount++;
+        unsyncedRecords++;
+        return true;
+    }
+
+    private void writeFully(ByteBuffer srcBuffer) throws IOException {
+        while(srcBuffer.hasRemaining()) {
+            activeChannel.write(srcBuffer);
+        }
+    }
+
+    private void drainWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    /**
+     * Writes out the buffered records and fsyncs the active segment. The fsync runs outside
+     * of the journal lock, so the appends from the UI thread do not wait on the disk: only
+     * the records written out before it started are counted as synced.
+     */
+    public void sync() {
+        FileChannel syncChannel;
+        long syncRecords;
+        synchronized(this) {
+            if(!journalEnabled || activeChannel == null) {
+                return;
+            }
+            try {
+                drainWriteBuffer();
+            } catch(IOException ioe) {
+                AndroidLogger.printStackTrace(ioe);
+                journalEnabled = false;
+                closeActiveChannel();
+                return;
+            }
+            if(unsyncedRecords == 0) {
+                return;
+            }
+            syncChannel = activeChannel;
+            syncRecords = unsyncedRecords;
+        }
+        try {
+            syncChannel.force(false);
+        } catch(ClosedChannelException cce) {
+            return; /* Rotated or closed meanwhile, both of which fsync the segment themselves */
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            synchronized(this) {
+                if(activeChannel == syncChannel) {
+                    journalEnabled = false;
+                    closeActiveChannel();
+                }
+            }
+            return;
+        }
+        synchronized(this) {
+            if(activeChannel == syncChannel) {
+                unsyncedRecords -= syncRecords;
+            }
+        }
+    }
+
+    private void startSyncThread() {
+        if(syncThread != null) {
+            return;
+        }
+        Thread journalSyncThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while(syncThread == Thread.currentThread()) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FSYNC_INTERVAL_MILLIS));
+                    sync();
+                }
+            }
+        }, TAG);
+        journalSyncThread.setDaemon(true);
+        journalSyncThread.setPriority(Thread.MIN_PRIORITY);
+        syncThread = journalSyncThread;
+        journalSyncThread.start();
+    }
+
+    private void closeActiveChannel() {
+        if(activeChannel != null) {
+            try {
+                activeChannel.close();
+            } catch(IOException ioe) {
+                AndroidLogger.printStackTrace(ioe);
+            }
+            activeChannel = null;
+        }
+        writeBuffer.clear();
+    }
+
+    /**
+     * Syncs and closes the journal (it can be opened again later).
+     */
+    public synchronized void close() {
+        if(journalEnabled && activeChannel != null) {
+            try {
+                drainWriteBuffer();
+                activeChannel.force(false);
+            } catch(IOException ioe) {
+                AndroidLogger.printStackTrace(ioe);
+            }
+        }
+        closeActiveChannel();
+        journalEnabled = false;
+        Thread journalSyncThread = syncThread;
+        syncThread = null;
+        if(journalSyncThread != null) {
+            LockSupport.unpark(journalSyncThread);
+        }
+    }
+
+    /**
+     * Deletes the journaled records and starts a new session.
+     */
+    public synchronized void reset() {
+        if(journalDir == null) {
+            return;
+        }
+        boolean reopenJournal = journalEnabled;
+        close();
+        for(File segmentFile : listSegmentFiles()) {
+            segmentFile.delete();
+        }
+        segments.clear();
+        activeSegment = null;
+        indexCount = 0;
+        recordCount = 0;
+        if(reopenJournal) {
+            open(journalDir);
+        }
+    }
+
+    /**
+     * Cuts the journal back to its first keepRecords records (e.g. to the last record that
+     * is consistent with the record store) and continues appending from there.
+     * @param keepRecords
+     * @return whether the journal can still be written to
+     */
+    public synchronized boolean truncate(long keepRecords) {
+        if(journalDir == null || keepRecords >= recordCount) {
+            return journalEnabled;
+        }
+        else if(keepRecords <= 0) {
+            reset();
+            return journalEnabled;
+        }
+        boolean reopenJournal = journalEnabled;
+        JournalCursor lastRecordCursor = openCursor(keepRecords - 1);
+        if(lastRecordCursor == null || !lastRecordCursor.next()) {
+            return journalEnabled;
+        }
+        int cutSegmentIdx = lastRecordCursor.getSegmentIndex();
+        long cutOffset = lastRecordCursor.getPayloadOffset() + lastRecordCursor.getPayloadLength();
+        closeActiveChannel();
+        journalEnabled = false;
+        try {
+            while(segments.size() > cutSegmentIdx + 1) {
+                segments.remove(segments.size() - 1).segmentFile.delete();
+            }
+            activeSegment = segments.get(cutSegmentIdx);
+            activeSegment.endOffset = cutOffset;
+            activeSegment.mappedData = null;
+            activeChannel = new RandomAccessFile(activeSegment.segmentFile, "rw").getChannel();
+            activeChannel.truncate(cutOffset);
+            activeChannel.position(cutOffset);
+            activeChannel.force(false);
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            closeActiveChannel();
+            return false;
+        }
+        while(indexCount > 0 && indexOrdinals[indexCount - 1] >= keepRecords) {
+            indexCount--;
+        }
+        AndroidLogger.w(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Session journal cut back from %d to %d records",
+                                           recordCount, keepRecords));
+        recordCount = keepRecords;
+        unsyncedRecords = 0;
+        journalEnabled = reopenJournal;
+        return journalEnabled;
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getJournalBytes() {
+        long journalBytes = 0;
+        for(JournalSegment segment : segments) {
+            journalBytes += segment.endOffset;
+        }
+        return journalBytes;
+    }
+
+    /**
+     * @return the ordinal of the last sparse index entry at or before the first record with this record ID
+     */
+    public synchronized long findOrdinalByRecordID(int recordID) {
+        int lowerIdx = 0, upperIdx = indexCount - 1, foundIdx = -1;
+        while(lowerIdx <= upperIdx) {
+            int midIdx = (lowerIdx + upperIdx) >>> 1;
+            if(indexRecordIDs[midIdx] < recordID) {
+                foundIdx = midIdx;
+                lowerIdx = midIdx + 1;
+            } else {
+                upperIdx = midIdx - 1;
+            }
+        }
+        return foundIdx < 0 ? 0 : indexOrdinals[foundIdx];
+    }
+
+    /**
+     * @return the ordinal of the last sparse index entry at or before the first record logged at this time
+     */
+    public synchronized long findOrdinalByTime(long wallTimeMillis) {
+        int lowerIdx = 0, upperIdx = indexCount - 1, foundIdx = -1;
+        while(lowerIdx <= upperIdx) {
+            int midIdx = (lowerIdx + upperIdx) >>> 1;
+            if(indexWallTimes[midIdx] < wallTimeMillis) {
+                foundIdx = midIdx;
+                lowerIdx = midIdx + 1;
+            } else {
+                upperIdx = midIdx - 1;
+            }
+        }
+        return foundIdx < 0 ? 0 : indexOrdinals[foundIdx];
+    }
+
+    private MappedByteBuffer mapSegment(JournalSegment segment) throws IOException {
+        if(segment.mappedData == null || segment.mappedData.capacity() != segment.endOffset) {
+            RandomAccessFile segmentRAF = new RandomAccessFile(segment.segmentFile, "r");
+            try {
+                segment.mappedData = segmentRAF.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, segment.endOffset);
+            } finally {
+                segmentRAF.close();
+            }
+        }
+        return segment.mappedData;
+    }
+
+    /**
+     * Opens a read cursor over a snapshot of the journal (records appended afterwards are not
+     * seen by the cursor). The buffered records are written out first, but not fsynced.
+     * @param fromOrdinal Ordinal of the first record the cursor returns
+     * @return JournalCursor, or null if the journal could not be mapped
+     */
+    public synchronized JournalCursor openCursor(long fromOrdinal) {
+        ByteBuffer[] segmentBuffers = new ByteBuffer[segments.size()];
+        try {
+            if(activeChannel != null) {
+                drainWriteBuffer();
+            }
+            for(int segmentIdx = 0; segmentIdx < segments.size(); segmentIdx++) {
+                segmentBuffers[segmentIdx] = mapSegment(segments.get(segmentIdx)).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            return null;
+        }
+        JournalCursor cursor = new JournalCursor(segmentBuffers);
+        int lowerIdx = 0, upperIdx = indexCount - 1, foundIdx = -1;
+        while(lowerIdx <= upperIdx) {
+            int midIdx = (lowerIdx + upperIdx) >>> 1;
+            if(indexOrdinals[midIdx] <= fromOrdinal) {
+                foundIdx = midIdx;
+                lowerIdx = midIdx + 1;
+            } else {
+                upperIdx = midIdx - 1;
+            }
+        }
+        if(foundIdx >= 0) {
+            cursor.seek(indexSegments[foundIdx], indexOffsets[foundIdx], indexOrdinals[foundIdx]);
+        }
+        while(cursor.getNextOrdinal() < fromOrdinal && cursor.next()) {}
+        return cursor;
+    }
+
+    /**
+     * Forward-only reader over memory-mapped journal segments.
+     */
+    public static class JournalCursor {
+
+        private final ByteBuffer[] segmentBuffers;
+        private int segmentIdx;
+        private int segmentPos;
+        private long nextOrdinal;
+
+        private long ordinal;
+        private int recordPos;
+        private int payloadLength;
+        private byte recordType;
+
+        private JournalCursor(ByteBuffer[] segmentBuffers) {
+            this.segmentBuffers = segmentBuffers;
+            seek(0, SEGMENT_HEADER_SIZE, 0);
+            ordinal = -1;
+        }
+
+        private void seek(int segIdx, int segPos, long recordOrdinal) {
+            segmentIdx = segIdx;
+            segmentPos = segPos;
+            nextOrdinal = recordOrdinal;
+        }
+
+        /**
+         * Advances to the next record.
+         * @return false at the end of the snapshot
+         */
+        public boolean next() {
+            while(segmentIdx < segmentBuffers.length) {
+                ByteBuffer segmentData = segmentBuffers[segmentIdx];
+                if(segmentPos + RECORD_HEADER_SIZE <= segmentData.limit()) {
+                    recordPos = segmentPos;
+                    payloadLength = segmentData.getInt(recordPos);
+                    recordType = segmentData.get(recordPos + 4);
+                    segmentPos += RECORD_HEADER_SIZE + payloadLength;
+                    ordinal = nextOrdinal++;
+                    return true;
+                }
+                segmentIdx++;
+                segmentPos = SEGMENT_HEADER_SIZE;
+            }
+            return false;
+        }
+
+        public long getNextOrdinal() {
+            return nextOrdinal;
+        }
+
+        public int getSegmentCount() {
+            return segmentBuffers.length;
+        }
+
+        /**
+         * @return the mapped (read-only) segment, e.g. to keep the payloads in place
+         */
+        public ByteBuffer getSegmentBuffer(int segIdx) {
+            return segmentBuffers[segIdx];
+        }
+
+        /**
+         * @return index of the segment that holds the current record
+         */
+        public int getSegmentIndex() {
+            return segmentIdx;
+        }
+
+        /**
+         * @return offset of the current record's payload in its segment
+         */
+        public int getPayloadOffset() {
+            return recordPos + RECORD_HEADER_SIZE;
+        }
+
+        public long getOrdinal() {
+            return ordinal;
+        }
+
+        public byte getRecordType() {
+            return recordType;
+        }
+
+        public int getLogCode() {
+            return segmentBuffers[segmentIdx].get(recordPos + 5);
+        }
+
+        public int getDataDirection() {
+            return segmentBuffers[segmentIdx].get(recordPos + 6);
+        }
+
+        public int getRecordID() {
+            return segmentBuffers[segmentIdx].getInt(recordPos + 8);
+        }
+
+        /**
+         * @return index of the repeated record for RECORD_DUPLICATE, otherwise -1
+         */
+        public int getRefRecordIndex() {
+            return segmentBuffers[segmentIdx].getInt(recordPos + 12);
+        }
+
+        public int getDiffTimeMillis() {
+            return segmentBuffers[segmentIdx].getInt(recordPos + 16);
+        }
+
+        public long getWallTimeMillis() {
+            return segmentBuffers[segmentIdx].getLong(recordPos + 20);
+        }
+
+        public int getPayloadLength() {
+            return payloadLength;
+        }
+
+        public void copyPayload(byte[] destBytes, int destOffset) {
+            ByteBuffer segmentData = segmentBuffers[segmentIdx];
+            segmentData.position(recordPos + RECORD_HEADER_SIZE);
+            segmentData.get(destBytes, destOffset, payloadLength);
+        }
+
+        public byte[] getPayloadBytes() {
+            byte[] payloadBytes = new byte[payloadLength];
+            copyPayload(payloadBytes, 0);
+            return payloadBytes;
+        }
+
+        /**
+         * @return the title, text and timestamp of a RECORD_METADATA record
+         */
+        public String[] getMetadataFields() {
+            String metadataStr = new String(getPayloadBytes(), StandardCharsets.UTF_8);
+            String[] metadataFields = new String[] { "", "", "" };
+            int fieldStart = 0;
+            for(int fieldIdx = 0; fieldIdx < metadataFields.length; fieldIdx++) {
+                int fieldEnd = metadataStr.indexOf(METADATA_FIELD_SEP, fieldStart);
+                if(fieldEnd < 0 || fieldIdx == metadataFields.length - 1) {
+                    fieldEnd = metadataStr.length();
+                }
+                metadataFields[fieldIdx] = metadataStr.substring(Math.min(fieldStart, fieldEnd), fieldEnd);
+                fieldStart = fieldEnd + 1;
+            }
+            return metadataFields;
+        }
+
+    }
+
+}
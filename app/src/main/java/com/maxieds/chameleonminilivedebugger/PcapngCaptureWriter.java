@@ -0,0 +1,318 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <h1>Pcapng Capture Writer</h1>
+ * Streams the LIVE log records out as a pcapng capture that Wireshark / tshark can open
+ * directly. The codec traffic (the CODEC RX / TX and sniffer log codes) goes to an
+ * interface with the ISO 14443 link type (LINKTYPE_ISO_14443 = 264), whose 4 byte
+ * pseudo-header holds the transfer direction (PCD to PICC or PICC to PCD). The reader field
+ * detected logs become field on events, and all of the other Chameleon log codes are kept on
+ * a second LINKTYPE_USER0 interface as the raw log code + payload. The packet timestamps are
+ * the running sum of the systick deltas (in milliseconds) from the start of the capture.
+ *
+ * The *_W_PARITY log codes carry the frame bits as received (8 data bits followed by the
+ * parity bit, LSB first). The packet data is the decoded bytes, and the parity bits (with
+ * any bytes failing the odd parity check) are noted in the packet comment.
+ *
+ * Blocks are written out incrementally through a buffer, so the capture is never built up
+ * in memory and the writer can be left open as a live capture sink.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @url https://www.ietf.org/archive/id/draft-ietf-opsawg-pcapng-01.html
+ * @url https://www.tcpdump.org/linktypes/LINKTYPE_ISO_14443.html
+ * @ref LogRecordExporter
+ * @ref ExportTools.startLivePcapngCapture
+ */
+public class PcapngCaptureWriter {
+
+    private static final String TAG = PcapngCaptureWriter.class.getSimpleName();
+
+    public static final int LINKTYPE_ISO_14443 = 264;
+    public static final int LINKTYPE_USER0 = 147;
+    public static final int INTERFACE_ISO14443 = 0;
+    public static final int INTERFACE_CHAMELEON_LOG = 1;
+
+    private static final int BLOCK_TYPE_SHB = 0x0A0D0D0A;
+    private static final int BLOCK_TYPE_IDB = 0x00000001;
+    private static final int BLOCK_TYPE_EPB = 0x00000006;
+    private static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+
+    private static final short OPT_ENDOFOPT = 0;
+    private static final short OPT_COMMENT = 1;
+    private static final short SHB_USERAPPL = 4;
+    private static final short IF_NAME = 2;
+    private static final short IF_DESCRIPTION = 3;
+    private static final short IF_TSRESOL = 9;
+    private static final short EPB_FLAGS = 2;
+
+    private static final int EPB_FLAGS_INBOUND = 0x01;
+    private static final int EPB_FLAGS_OUTBOUND = 0x02;
+
+    /**
+     * Event types in the LINKTYPE_ISO_14443 pseudo-header.
+     */
+    public static final byte ISO14443_EVENT_PICC_TO_PCD = (byte) 0xFF;
+    public static final byte ISO14443_EVENT_PCD_TO_PICC = (byte) 0xFE;
+    public static final byte ISO14443_EVENT_FIELD_OFF = (byte) 0xFD;
+    public static final byte ISO14443_EVENT_FIELD_ON = (byte) 0xFC;
+
+    public static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    public static final long LIVE_FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final WritableByteChannel outputChannel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final long captureStartMillis;
+    private long captureOffsetMillis;
+    private long packetCount;
+    private long bytesWritten;
+    private long lastFlushMillis;
+    private byte[] decodeBuffer = new byte[256];
+    private final StringBuilder commentBuilder = new StringBuilder(64);
+
+    /**
+     * @param channel Output channel (not closed by the writer)
+     * @param startTimeMillis Wall clock time of the first record
+     */
+    public PcapngCaptureWriter(@NonNull WritableByteChannel channel, long startTimeMillis) {
+        outputChannel = channel;
+        captureStartMillis = startTimeMillis;
+        captureOffsetMillis = 0;
+        packetCount = 0;
+        bytesWritten = 0;
+        lastFlushMillis = System.currentTimeMillis();
+    }
+
+    public long getPacketCount() {
+        return packetCount;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten + writeBuffer.position();
+    }
+
+    /**
+     * Writes the section header and the two interface description blocks.
+     */
+    public void writeFileHeader() throws IOException {
+        byte[] userAppl = ("Chameleon Mini Live Debugger v" + BuildConfig.VERSION_NAME).getBytes(StandardCharsets.UTF_8);
+        int shbLength = 28 + optionLength(userAppl.length) + 4;
+        ensureSpace(shbLength);
+        writeBuffer.putInt(BLOCK_TYPE_SHB).putInt(shbLength);
+        writeBuffer.putInt(BYTE_ORDER_MAGIC).putShort((short) 1).putShort((short) 0).putLong(-1L);
+        putOption(SHB_USERAPPL, userAppl, 0, userAppl.length);
+        writeBuffer.putShort(OPT_ENDOFOPT).putShort((short) 0);
+        writeBuffer.putInt(shbLength);
+        writeInterfaceBlock(LINKTYPE_ISO_14443, "chameleon-iso14443", "ISO 14443 codec traffic logged by the Chameleon");
+        writeInterfaceBlock(LINKTYPE_USER0, "chameleon-log", "Other Chameleon LIVE log records (log code + payload)");
+    }
+
+    private void writeInterfaceBlock(int linkType, String ifName, String ifDesc) throws IOException {
+        byte[] nameBytes = ifName.getBytes(StandardCharsets.UTF_8);
+        byte[] descBytes = ifDesc.getBytes(StandardCharsets.UTF_8);
+        int idbLength = 20 + optionLength(nameBytes.length) + optionLength(descBytes.length) + optionLength(1) + 4;
+        ensureSpace(idbLength);
+        writeBuffer.putInt(BLOCK_TYPE_IDB).putInt(idbLength);
+        writeBuffer.putShort((short) linkType).putShort((short) 0).putInt(0);
+        putOption(IF_NAME, nameBytes, 0, nameBytes.length);
+        putOption(IF_DESCRIPTION, descBytes, 0, descBytes.length);
+        putOption(IF_TSRESOL, new byte[] { 3 }, 0, 1); /* Millisecond timestamps */
+        writeBuffer.putShort(OPT_ENDOFOPT).putShort((short) 0);
+        writeBuffer.putInt(idbLength);
+    }
+
+    private static int optionLength(int valueLength) {
+        return 4 + ((valueLength + 3) & ~3);
+    }
+
+    private void putOption(short optionCode, byte[] value, int offset, int length) {
+        writeBuffer.putShort(optionCode).putShort((short) length);
+        writeBuffer.put(value, offset, length);
+        for(int padIdx = length; (padIdx & 3) != 0; padIdx++) {
+            writeBuffer.put((byte) 0);
+        }
+    }
+
+    private static boolean isParityLogCode(int logCode) {
+        return logCode == 0x42 || logCode == 0x43 || logCode == 0x45 || logCode == 0x47;
+    }
+
+    /**
+     * @return the ISO 14443 pseudo-header event for the log code, or 0 for the non-traffic log codes
+     */
+    public static byte getISO14443Event(int logCode) {
+        switch(ChameleonLogUtils.LogCode.lookupByLogCode(logCode)) {
+            case LOG_INFO_CODEC_RX_DATA:
+            case LOG_INFO_CODEC_RX_DATA_W_PARITY:
+            case LOG_INFO_CODEC_SNI_READER_DATA:
+            case LOG_INFO_CODEC_SNI_READER_DATA_W_PARITY:
+                return ISO14443_EVENT_PCD_TO_PICC;
+            case LOG_INFO_CODEC_TX_DATA:
+            case LOG_INFO_CODEC_TX_DATA_W_PARITY:
+            case LOG_INFO_CODEC_SNI_CARD_DATA:
+            case LOG_INFO_CODEC_SNI_CARD_DATA_W_PARITY:
+                return ISO14443_EVENT_PICC_TO_PCD;
+            case LOG_INFO_CODEC_READER_FIELD_DETECTED:
+                return ISO14443_EVENT_FIELD_ON;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Appends one LIVE log record to the capture as an enhanced packet block.
+     * @param logCode
+     * @param diffTimeMillis Systick delta from the previous record (as stored with the log entry)
+     * @param payload
+     * @param offset
+     * @param length
+     */
+    public void writeLogRecord(int logCode, int diffTimeMillis, @NonNull byte[] payload, int offset, int length) throws IOException {
+        captureOffsetMillis += Math.abs(diffTimeMillis);
+        byte isoEvent = getISO14443Event(logCode);
+        byte[] packetData = payload;
+        int packetOffset = offset, packetLength = length;
+        int interfaceID = isoEvent == 0 ? INTERFACE_CHAMELEON_LOG : INTERFACE_ISO14443;
+        int headerLength = 4;
+        commentBuilder.setLength(0);
+        if(isoEvent == ISO14443_EVENT_FIELD_ON) {
+            packetLength = 0;
+        }
+        else if(isoEvent != 0 && isParityLogCode(logCode)) {
+            packetLength = decodeParityFrame(payload, offset, length);
+            packetData = decodeBuffer;
+            packetOffset = 0;
+        }
+        int flags = 0;
+        if(isoEvent == ISO14443_EVENT_PCD_TO_PICC || isoEvent == ISO14443_EVENT_PICC_TO_PCD) {
+            flags = ChameleonLogUtils.getDataDirection(logCode) == ChameleonLogUtils.DATADIR_OUTGOING ? EPB_FLAGS_OUTBOUND : EPB_FLAGS_INBOUND;
+        }
+        else if(isoEvent == 0) {
+            headerLength = 1;
+            commentBuilder.append(ChameleonLogUtils.LogCode.lookupByLogCode(logCode).name());
+        }
+        byte[] commentBytes = commentBuilder.length() == 0 ? null : commentBuilder.toString().getBytes(StandardCharsets.UTF_8);
+        int capturedLength = headerLength + packetLength;
+        int epbLength = 28 + ((capturedLength + 3) & ~3) + (flags != 0 ? optionLength(4) : 0) +
+                        (commentBytes != null ? optionLength(commentBytes.length) : 0) + 4 + 4;
+        ensureSpace(epbLength);
+        long timestampMillis = captureStartMillis + captureOffsetMillis;
+        writeBuffer.putInt(BLOCK_TYPE_EPB).putInt(epbLength);
+        writeBuffer.putInt(interfaceID).putInt((int) (timestampMillis >>> 32)).putInt((int) timestampMillis);
+        writeBuffer.putInt(capturedLength).putInt(capturedLength);
+        if(interfaceID == INTERFACE_ISO14443) {
+            writeBuffer.put((byte) 0).put(isoEvent).put((byte) (packetLength >>> 8)).put((byte) packetLength);
+        } else {
+            writeBuffer.put((byte) logCode);
+        }
+        writeBuffer.put(packetData, packetOffset, packetLength);
+        for(int padIdx = capturedLength; (padIdx & 3) != 0; padIdx++) {
+            writeBuffer.put((byte) 0);
+        }
+        if(flags != 0) {
+            writeBuffer.putShort(EPB_FLAGS).putShort((short) 4).putInt(flags);
+        }
+        if(commentBytes != null) {
+            putOption(OPT_COMMENT, commentBytes, 0, commentBytes.length);
+        }
+        writeBuffer.putShort(OPT_ENDOFOPT).putShort((short) 0);
+        writeBuffer.putInt(epbLength);
+        packetCount++;
+    }
+
+    /**
+     * Splits the received bit stream into the data bytes (in decodeBuffer) and notes the
+     * parity bits in the packet comment.
+     * @return number of decoded data bytes
+     */
+    private int decodeParityFrame(byte[] frameBits, int offset, int length) {
+        int numBytes = (length * 8) / 9;
+        if(decodeBuffer.length < numBytes) {
+            decodeBuffer = new byte[Math.max(numBytes, 2 * decodeBuffer.length)];
+        }
+        commentBuilder.append("parity=");
+        int numParityErrors = 0;
+        for(int byteIdx = 0; byteIdx < numBytes; byteIdx++) {
+            int dataByte = 0;
+            for(int bitIdx = 0; bitIdx < 8; bitIdx++) {
+                dataByte |= readFrameBit(frameBits, offset, 9 * byteIdx + bitIdx) << bitIdx;
+            }
+            int parityBit = readFrameBit(frameBits, offset, 9 * byteIdx + 8);
+            decodeBuffer[byteIdx] = (byte) dataByte;
+            commentBuilder.append((char) ('0' + parityBit));
+            if(parityBit != ((Integer.bitCount(dataByte) & 1) ^ 1)) {
+                numParityErrors++;
+            }
+        }
+        if(numParityErrors > 0) {
+            commentBuilder.append(" (").append(numParityErrors).append(" parity errors)");
+        }
+        return numBytes;
+    }
+
+    private static int readFrameBit(byte[] frameBits, int offset, int bitPos) {
+        return (frameBits[offset + (bitPos >>> 3)] >>> (bitPos & 7)) & 0x01;
+    }
+
+    private void ensureSpace(int numBytes) throws IOException {
+        if(writeBuffer.remaining() < numBytes) {
+            drainWriteBuffer();
+            if(writeBuffer.capacity() < numBytes) {
+                throw new IOException("pcapng block of " + numBytes + " bytes exceeds the write buffer");
+            }
+        }
+    }
+
+    private void drainWriteBuffer() throws IOException {
+        writeBuffer.flip();
+        bytesWritten += writeBuffer.remaining();
+        while(writeBuffer.hasRemaining()) {
+            outputChannel.write(writeBuffer);
+        }
+        writeBuffer.clear();
+        lastFlushMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Writes out the buffered blocks.
+     */
+    public void flush() throws IOException {
+        drainWriteBuffer();
+    }
+
+    /**
+     * For the live capture: writes out the buffered blocks at most every LIVE_FLUSH_INTERVAL_MILLIS.
+     */
+    public void flushIfDue() throws IOException {
+        if(writeBuffer.position() > 0 && System.currentTimeMillis() - lastFlushMillis >= LIVE_FLUSH_INTERVAL_MILLIS) {
+            drainWriteBuffer();
+        }
+    }
+
+}
@@ -17,146 +17,217 @@ https://github.com/maxieds/ChameleonMiniLiveDebugger
 
 package com.maxieds.chameleonminilivedebugger.ScriptingAPI;
 
-import android.os.Handler;
-
 import com.maxieds.chameleonminilivedebugger.AndroidLogger;
+import com.maxieds.chameleonminilivedebugger.ChameleonCommandPipeline;
+import com.maxieds.chameleonminilivedebugger.ChameleonCommandScheduler;
 import com.maxieds.chameleonminilivedebugger.ChameleonIO;
 import com.maxieds.chameleonminilivedebugger.ChameleonLogUtils;
 import com.maxieds.chameleonminilivedebugger.ChameleonSerialIOInterface;
 import com.maxieds.chameleonminilivedebugger.ChameleonSettings;
+import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingExceptions.ChameleonScriptingException;
 import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingTypes.ScriptVariable;
+import com.maxieds.chameleonminilivedebugger.SerialDataReceiverInterface;
 import com.maxieds.chameleonminilivedebugger.Utils;
 
-import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-public class ChameleonIOHandler implements ChameleonSerialIOInterface.SerialDataReceiverInterface {
+/**
+ * <h1>Chameleon IO Handler</h1>
+ * Serial I/O channel for the running script. The commands the script issues go through the
+ * command scheduler, and the calling thread blocks on the response future until the frame
+ * arrives (or the deadline passes), so there is no polling delay between commands. The
+ * other frames redirected to the script while it runs (live logs and unsolicited device
+ * output) are handed off on the receiving thread into a bounded blocking queue, which the
+ * script reads back with ReceiveFrame([timeout]).
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ChameleonCommandScheduler
+ * @ref ChameleonCommandPipeline
+ * @ref SerialIOReceiver.setRedirectInterface
+ */
+public class ChameleonIOHandler implements SerialDataReceiverInterface {
 
     private static final String TAG = ChameleonIOHandler.class.getSimpleName();
 
-    private static boolean PAUSED = false;
-    private static boolean DOWNLOAD = false;
-    private static boolean UPLOAD = false;
-    private static boolean WAITING_FOR_XMODEM = false;
-    private static boolean WAITING_FOR_RESPONSE = false;
-
-    private static Lock incomingIOBufferAccessLock = new ReentrantLock();
-    private static Queue<Byte[]> incomingSerialIOBufferQueue = new LinkedBlockingQueue<>();
-
-    private static Thread processIncomingSerialIODataThread = new Thread() {
-        @Override
-        public void run() {
-            incomingIOBufferAccessLock.lock();
-            if(incomingSerialIOBufferQueue.size() > 0) {
-                final byte[] nextIncomingBytes = ArrayUtils.toPrimitive(incomingSerialIOBufferQueue.remove());
-                Handler delayRunHandler = new Handler();
-                Runnable delayRunner = new Runnable() {
-                    @Override
-                    public void run() {
-                        registerNewSerialIODataBuffer(nextIncomingBytes);
-                    }
-                };
-                delayRunHandler.postDelayed(delayRunner, 150);
+    /**
+     * One frame received while the script was running.
+     */
+    public static class ScriptIOFrame {
+
+        public static final int FRAME_LOGDATA = 0;
+        public static final int FRAME_RESPONSE = 1;
+        public static final int FRAME_OTHER = 2;
+
+        public int frameType;
+        public byte[] frameData;
+        public ChameleonCommandPipeline.CommandResponse commandResponse;
+        public long receivedTimeNanos;
+
+        public static ScriptIOFrame newInstance(int frameType, byte[] frameData) {
+            ScriptIOFrame ioFrame = new ScriptIOFrame();
+            ioFrame.frameType = frameType;
+            ioFrame.frameData = frameData;
+            ioFrame.receivedTimeNanos = System.nanoTime();
+            if(frameType == FRAME_RESPONSE) {
+                ioFrame.commandResponse = ChameleonCommandPipeline.CommandResponse.parseResponseFrame(frameData, false);
             }
-            incomingIOBufferAccessLock.unlock();
+            return ioFrame;
         }
-    };
 
-    public static void registerNewSerialIODataBuffer(byte[] incomingDataBytes) {
-        incomingIOBufferAccessLock.lock(); // TODO: Watch for hangs ...
-        if(processIncomingSerialIODataThread.isAlive()) {
-            incomingSerialIOBufferQueue.add(ArrayUtils.toObject(incomingDataBytes));
-        }
-        else {
-            handleChameleonSerialResults(incomingDataBytes);
-            processIncomingSerialIODataThread.start();
-        }
-        incomingIOBufferAccessLock.unlock();
     }
 
-    private static Lock statusConfigLock = new ReentrantLock();
+    public static final int SCRIPT_IO_QUEUE_CAPACITY = 256;
+
+    private static final BlockingQueue<ScriptIOFrame> receivedFrameQueue = new LinkedBlockingQueue<ScriptIOFrame>(SCRIPT_IO_QUEUE_CAPACITY);
+    private static long droppedFrameCount = 0;
 
     public void onReceivedData(byte[] dataBytes) {
-        registerNewSerialIODataBuffer(dataBytes);
+        handleChameleonSerialResults(dataBytes);
     }
 
+    /**
+     * Classifies the frame and queues it on the receiving thread (no handoff delay). When the
+     * script does not keep up, the oldest frame is dropped so the receiver never blocks.
+     * @param dataBytes
+     */
     public static void handleChameleonSerialResults(byte[] dataBytes) {
-        int loggingRespSize = ChameleonLogUtils.ResponseIsLiveLoggingBytes(dataBytes);
-        if(loggingRespSize > 0) {
-            if(!ScriptingConfig.IGNORE_LIVE_LOGGING) {
-                AndroidLogger.d(TAG, "Received LIVE logging data [" + ChameleonLogUtils.LogCode.lookupByLogCode(dataBytes[0]).toString() + "]");
+        if(dataBytes == null || dataBytes.length == 0) {
+            return;
+        }
+        int frameType;
+        if(ChameleonLogUtils.ResponseIsLiveLoggingBytes(dataBytes) > 0) {
+            if(ScriptingConfig.IGNORE_LIVE_LOGGING) {
+                return;
             }
+            frameType = ScriptIOFrame.FRAME_LOGDATA;
         }
-        else if(PAUSED) {}
-        else if(DOWNLOAD) {}
-        else if(UPLOAD) {}
-        else if (WAITING_FOR_XMODEM) {
+        else if(ChameleonIO.WAITING_FOR_XMODEM) {
             String strLogData = new String(dataBytes);
-            if (strLogData.length() >= 11 && strLogData.substring(0, 11).equals("110:WAITING")) {
+            if(strLogData.length() >= 11 && strLogData.substring(0, 11).equals("110:WAITING")) {
                 ChameleonIO.WAITING_FOR_XMODEM = false;
                 return;
             }
+            frameType = ScriptIOFrame.FRAME_OTHER;
         }
-        else if(ChameleonIO.isCommandResponse(dataBytes) && WAITING_FOR_RESPONSE) {
-            statusConfigLock.lock();
-            WAITING_FOR_RESPONSE = false;
-            final String chameleonCmdResponse = String.valueOf(dataBytes);
-            Handler execCmdResponseRtexHandler = new Handler();
-            Runnable execCmdResponseRtexRunner = new Runnable() {
-                @Override
-                public void run() {
-                    throw new RuntimeException(chameleonCmdResponse);
-                }
-            };
-            execCmdResponseRtexHandler.postDelayed(execCmdResponseRtexRunner, 200);
-            statusConfigLock.unlock();
+        else if(ChameleonIO.isCommandResponse(dataBytes)) {
+            frameType = ScriptIOFrame.FRAME_RESPONSE;
         }
         else {
             AndroidLogger.d(TAG, "Received unexpected Serial I/O @ " + Utils.bytes2Hex(dataBytes));
+            frameType = ScriptIOFrame.FRAME_OTHER;
+        }
+        ScriptIOFrame ioFrame = ScriptIOFrame.newInstance(frameType, dataBytes);
+        while(!receivedFrameQueue.offer(ioFrame)) {
+            if(receivedFrameQueue.poll() != null) {
+                synchronized(receivedFrameQueue) {
+                    droppedFrameCount++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Blocks until the next frame redirected to the script arrives.
+     * @param timeoutMillis
+     * @return ScriptIOFrame next frame, or null if none arrived before the timeout (or the thread was interrupted)
+     */
+    public static ScriptIOFrame waitForReceivedFrame(long timeoutMillis) {
+        try {
+            return receivedFrameQueue.poll(Math.max(0, timeoutMillis), TimeUnit.MILLISECONDS);
+        } catch(InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    public static int getReceivedFrameCount() {
+        return receivedFrameQueue.size();
+    }
+
+    public static long getDroppedFrameCount() {
+        synchronized(receivedFrameQueue) {
+            return droppedFrameCount;
+        }
+    }
+
+    /**
+     * Discards the frames left over from the last script run.
+     */
+    public static void resetScriptIOChannel() {
+        receivedFrameQueue.clear();
+        synchronized(receivedFrameQueue) {
+            droppedFrameCount = 0;
+        }
+    }
+
+    private static final String[] SCRIPT_IO_FRAME_TYPE_NAMES = new String[] { "LOGDATA", "RESPONSE", "OTHER" };
+
+    // Named fields in the hashed array variable returned by ReceiveFrame([timeout]):
+    // ->frameType (LOGDATA, RESPONSE, OTHER, or NONE when nothing arrived)
+    // ->data (the raw frame bytes, empty when nothing arrived)
+    // ->respCode (RESPONSE frames only)
+    // ->isTimeout
+    // ->droppedFrames (frames discarded while the queue was full since the script started)
+    public static ScriptVariable receiveFrameForResult(int timeoutMillis) throws ChameleonScriptingException {
+        ScriptIOFrame ioFrame = waitForReceivedFrame(timeoutMillis);
+        ScriptVariable frameVar = new ScriptVariable();
+        frameVar.setValueAt("frameType", ScriptVariable.newInstance().set(ioFrame == null ? "NONE" : SCRIPT_IO_FRAME_TYPE_NAMES[ioFrame.frameType]));
+        frameVar.setValueAt("data", ScriptVariable.newInstance().set(ioFrame == null ? new byte[0] : ioFrame.frameData));
+        if(ioFrame != null && ioFrame.commandResponse != null) {
+            frameVar.setValueAt("respCode", ScriptVariable.newInstance().set(ioFrame.commandResponse.responseCode));
         }
+        frameVar.setValueAt("isTimeout", ScriptVariable.newInstance().set(ioFrame == null));
+        frameVar.setValueAt("droppedFrames", ScriptVariable.newInstance().set((int) getDroppedFrameCount()));
+        return frameVar;
     }
 
     private static int CHAMELEON_TIMEOUT = ChameleonIO.TIMEOUT;
-    private static final int sleepDeltaMs = 50;
+
+    public static int getDefaultTimeout() {
+        return CHAMELEON_TIMEOUT;
+    }
 
     public static ScriptVariable executeChameleonCommandForResult(String cmdText) {
         return executeChameleonCommandForResult(cmdText, CHAMELEON_TIMEOUT);
     }
 
+    /**
+     * Runs the command through the command scheduler in the script priority class. The script
+     * waits for queue space (back-pressure) instead of failing when the link is busy, and then
+     * blocks on the response future, so back to back commands are paced by the device alone.
+     * @ref ChameleonCommandScheduler
+     */
     public static ScriptVariable executeChameleonCommandForResult(String cmdText, int timeout) {
         ChameleonSerialIOInterface serialIOPort = ChameleonSettings.getActiveSerialIOPort();
         if(serialIOPort == null) {
             /* Try to recover in the script with a user friendly error message: */
             return ScriptingTypes.ScriptVariable.newInstance().set("NO DATA --- Is the Chameleon Mini attached ???");
-        } else if(!serialIOPort.tryAcquireSerialPort(ChameleonIO.LOCK_TIMEOUT)) {
-            return parseChameleonCommandResponse(cmdText, "", true);
         }
-        String sendCmd = cmdText + (ChameleonIO.REVE_BOARD ? "\r\n" : "\n\r");
-        serialIOPort.sendDataBuffer(sendCmd.getBytes());
-        String cmdResp = "";
-        boolean isTimeout = true;
-        for(int i = 0; i < timeout / sleepDeltaMs; i++) {
-            if(!WAITING_FOR_RESPONSE) {
-                isTimeout = false;
-                break;
-            }
-            try {
-                Thread.sleep(sleepDeltaMs);
-            } catch(InterruptedException ie) {
-                WAITING_FOR_RESPONSE = false;
-                isTimeout = false;
-                cmdResp = ie.getMessage().replace("java.lang.RuntimeException: ", "");
-                break;
-            }
+        int priorityClass = ChameleonCommandScheduler.PRIORITY_SCRIPT;
+        long deadlineMillis = ChameleonCommandScheduler.DEFAULT_QUEUE_WAIT_MILLIS[priorityClass] + timeout;
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse> respFuture = ChameleonCommandScheduler.getInstance().submit(
+                cmdText, priorityClass, timeout, deadlineMillis, true);
+        try {
+            ChameleonCommandPipeline.CommandResponse cmdResp = respFuture.get(
+                    deadlineMillis + ChameleonCommandPipeline.LATE_RESPONSE_GRACE_MILLIS, TimeUnit.MILLISECONDS);
+            return parseChameleonCommandResponse(cmdText, cmdResp.responseText, false);
+        } catch(ExecutionException | CancellationException | TimeoutException ee) {
+            return parseChameleonCommandResponse(cmdText, "", true);
+        } catch(InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return parseChameleonCommandResponse(cmdText, "", true);
         }
-        return parseChameleonCommandResponse(cmdText, cmdResp, isTimeout);
     }
 
     // Named fields in the hashed array variable returned include:
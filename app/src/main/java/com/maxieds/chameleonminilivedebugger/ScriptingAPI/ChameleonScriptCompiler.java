@@ -0,0 +1,816 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+
+package com.maxieds.chameleonminilivedebugger.ScriptingAPI;
+
+import com.maxieds.chameleonminilivedebugger.AndroidLogger;
+import com.maxieds.chameleonminilivedebugger.BuildConfig;
+import com.maxieds.chameleonminilivedebugger.Utils;
+import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingFunctions.BuiltinFunction;
+import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingTypes.ScriptVariable;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>Chameleon Script Compiler</h1>
+ * Lowers the parse tree of a script to a compact stack based IR once, so that the
+ * ScriptingInterpreter loop runs it without walking (or re-evaluating) the ANTLR subtrees on
+ * every pass through a while loop. The grammar only builds the tree now, all of the semantics
+ * of the script statements live here.
+ *
+ * The variables are resolved to slot indices in a flat frame at compile time, the literals are
+ * parsed into constants, and the operations whose operands are all constants are folded. The
+ * compiled scripts are cached by the SHA-256 hash of the script file contents, so re-running an
+ * unchanged script skips the lexer and parser entirely.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ChameleonScriptParser.g4
+ * @ref ScriptingInterpreter
+ */
+public class ChameleonScriptCompiler extends ChameleonScriptParserBaseVisitor<Void> {
+
+    private static final String TAG = ChameleonScriptCompiler.class.getSimpleName();
+
+    /* The IR opcodes, followed by their operands (if any) in the code array: */
+    public static final int OP_HALT = 0;
+    public static final int OP_PUSH_CONST = 1;          /* constIdx */
+    public static final int OP_POP = 2;
+    public static final int OP_COPY = 3;
+    public static final int OP_LOAD_VAR = 4;            /* slotIdx */
+    public static final int OP_STORE_VAR = 5;           /* slotIdx */
+    public static final int OP_GET_PROPERTY = 6;        /* constIdx (property name) */
+    public static final int OP_SET_PROPERTY = 7;        /* constIdx (property name) */
+    public static final int OP_GET_INDEX = 8;
+    public static final int OP_GET_SLICE = 9;           /* sliceMode */
+    public static final int OP_INSERT_SLICE = 10;       /* sliceMode */
+    public static final int OP_BINARY_OP = 11;          /* ScriptVariable.Operation ordinal */
+    public static final int OP_UNARY_OP = 12;           /* ScriptVariable.Operation ordinal */
+    public static final int OP_CAST = 13;               /* castType */
+    public static final int OP_CMP_EQ = 14;
+    public static final int OP_CMP_NE = 15;
+    public static final int OP_LOGICAL_AND = 16;
+    public static final int OP_LOGICAL_OR = 17;
+    public static final int OP_LOGICAL_NOT = 18;
+    public static final int OP_EXEC_COMMAND = 19;
+    public static final int OP_CALL_FUNCTION = 20;      /* constIdx (builtin function), argc */
+    public static final int OP_MAKE_ARRAY = 21;         /* elementCount */
+    public static final int OP_JUMP = 22;               /* target pc */
+    public static final int OP_JUMP_IF_FALSE = 23;      /* target pc */
+    public static final int OP_LABEL = 24;              /* constIdx (label name) */
+    public static final int OP_APPEND_VAR = 25;         /* slotIdx */
+
+    private static final String[] OPCODE_NAMES = {
+            "HALT", "PUSH_CONST", "POP", "COPY", "LOAD_VAR", "STORE_VAR", "GET_PROPERTY", "SET_PROPERTY",
+            "GET_INDEX", "GET_SLICE", "INSERT_SLICE", "BINARY_OP", "UNARY_OP", "CAST", "CMP_EQ", "CMP_NE",
+            "LOGICAL_AND", "LOGICAL_OR", "LOGICAL_NOT", "EXEC_COMMAND", "CALL_FUNCTION", "MAKE_ARRAY",
+            "JUMP", "JUMP_IF_FALSE", "LABEL", "APPEND_VAR"
+    };
+    private static final int[] OPCODE_OPERAND_COUNTS = {
+            0, 1, 0, 0, 1, 1, 1, 1,
+            0, 1, 1, 1, 1, 1, 0, 0,
+            0, 0, 0, 0, 2, 1,
+            1, 1, 1, 1
+    };
+
+    /* Operands of OP_GET_SLICE and OP_INSERT_SLICE: which of the [start:length] indices are given: */
+    public static final int SLICE_START_LENGTH = 0;
+    public static final int SLICE_START_ONLY = 1;
+    public static final int SLICE_LENGTH_ONLY = 2;
+
+    /* Operands of OP_CAST: */
+    public static final int CAST_BYTE = 0;
+    public static final int CAST_SHORT = 1;
+    public static final int CAST_INT32 = 2;
+    public static final int CAST_BOOLEAN = 3;
+    public static final int CAST_STRING = 4;
+    public static final int CAST_BYTES = 5;
+
+    public static class CompiledScript {
+
+        private final String sourceHash;
+        private final int[] code;
+        private final int[] lineNumbers;
+        private final Object[] constants;
+        private final String[] slotNames;
+        private final Map<String, Integer> slotIndices;
+        private final int maxStackDepth;
+
+        private CompiledScript(String srcHash, int[] codeWords, int[] codeLines, Object[] constPool,
+                               String[] varSlotNames, Map<String, Integer> varSlotIndices, int stackDepth) {
+            sourceHash = srcHash;
+            code = codeWords;
+            lineNumbers = codeLines;
+            constants = constPool;
+            slotNames = varSlotNames;
+            slotIndices = varSlotIndices;
+            maxStackDepth = stackDepth;
+        }
+
+        public String getSourceHash() {
+            return sourceHash;
+        }
+
+        public int[] getCode() {
+            return code;
+        }
+
+        public Object[] getConstants() {
+            return constants;
+        }
+
+        public String[] getSlotNames() {
+            return slotNames;
+        }
+
+        public int getSlotCount() {
+            return slotNames.length;
+        }
+
+        /**
+         * Returns the frame slot of the named variable, or -1 when the script never references it.
+         */
+        public int getSlotIndex(String varName) {
+            Integer slotIdx = slotIndices.get(varName);
+            return slotIdx == null ? -1 : slotIdx;
+        }
+
+        public int getMaxStackDepth() {
+            return maxStackDepth;
+        }
+
+        public int getLineNumber(int pc) {
+            if(pc < 0 || pc >= lineNumbers.length) {
+                return -1;
+            }
+            return lineNumbers[pc];
+        }
+
+        public String disassemble() {
+            StringBuilder irListing = new StringBuilder();
+            irListing.append(String.format(BuildConfig.DEFAULT_LOCALE, "IR for script %s (%d words, %d constants, %d slots, stack depth %d):\n",
+                    sourceHash, code.length, constants.length, slotNames.length, maxStackDepth));
+            int pc = 0;
+            while(pc < code.length) {
+                int opcode = code[pc];
+                irListing.append(String.format(BuildConfig.DEFAULT_LOCALE, "%5d  [L%-4d] %-14s", pc, lineNumbers[pc], OPCODE_NAMES[opcode]));
+                for(int opnd = 1; opnd <= OPCODE_OPERAND_COUNTS[opcode]; opnd++) {
+                    irListing.append(' ').append(code[pc + opnd]);
+                }
+                if(opcode == OP_LOAD_VAR || opcode == OP_STORE_VAR || opcode == OP_APPEND_VAR) {
+                    irListing.append("  ; $").append(slotNames[code[pc + 1]]);
+                }
+                else if(opcode == OP_PUSH_CONST && constants[code[pc + 1]] instanceof ScriptVariable) {
+                    irListing.append("  ; ").append(((ScriptVariable) constants[code[pc + 1]]).getValueAsString());
+                }
+                else if(opcode == OP_GET_PROPERTY || opcode == OP_SET_PROPERTY || opcode == OP_CALL_FUNCTION || opcode == OP_LABEL) {
+                    irListing.append("  ; ").append(constants[code[pc + 1]]);
+                }
+                irListing.append('\n');
+                pc += 1 + OPCODE_OPERAND_COUNTS[opcode];
+            }
+            return irListing.toString();
+        }
+
+    }
+
+    public static int getInstructionLength(int opcode) {
+        return 1 + OPCODE_OPERAND_COUNTS[opcode];
+    }
+
+    /*
+     * Cache of the compiled scripts keyed by the hash of their source (least recently used first):
+     */
+    public static final int COMPILED_SCRIPT_CACHE_SIZE = 8;
+
+    private static final Map<String, CompiledScript> COMPILED_SCRIPT_CACHE =
+            new LinkedHashMap<String, CompiledScript>(COMPILED_SCRIPT_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                    return size() > COMPILED_SCRIPT_CACHE_SIZE;
+                }
+            };
+
+    public static String getScriptSourceHash(byte[] scriptSource) {
+        try {
+            MessageDigest sha256Digest = MessageDigest.getInstance("SHA-256");
+            return Utils.bytes2Hex(sha256Digest.digest(scriptSource), "");
+        } catch(NoSuchAlgorithmException nsae) {
+            AndroidLogger.printStackTrace(nsae);
+            return String.format(BuildConfig.DEFAULT_LOCALE, "%08x-%d", Arrays.hashCode(scriptSource), scriptSource.length);
+        }
+    }
+
+    /**
+     * Returns the cached IR for the script source when there is one, and otherwise parses and
+     * compiles it. Returns null when the script has syntax errors or calls a function which is
+     * not in the scripting API (or with the wrong number of arguments), which are then reported
+     * to the (optional) error listener.
+     */
+    public static CompiledScript compileScript(byte[] scriptSource, ChameleonScriptErrorListener errorListener) {
+        String sourceHash = getScriptSourceHash(scriptSource);
+        synchronized(COMPILED_SCRIPT_CACHE) {
+            CompiledScript cachedScript = COMPILED_SCRIPT_CACHE.get(sourceHash);
+            if(cachedScript != null) {
+                return cachedScript;
+            }
+        }
+        ChameleonScriptLexer scriptLexer = new ChameleonScriptLexer(CharStreams.fromString(new String(scriptSource, StandardCharsets.UTF_8)));
+        ChameleonScriptParser scriptParser = new ChameleonScriptParser(new CommonTokenStream(scriptLexer));
+        scriptParser.removeErrorListeners();
+        if(errorListener != null) {
+            scriptParser.addErrorListener(errorListener);
+        }
+        ChameleonScriptParser.File_contentsContext scriptParseTree = scriptParser.file_contents();
+        if(scriptParser.getNumberOfSyntaxErrors() > 0) {
+            return null;
+        }
+        ChameleonScriptCompiler scriptCompiler = new ChameleonScriptCompiler(errorListener);
+        scriptCompiler.visit(scriptParseTree);
+        if(scriptCompiler.compileErrorCount > 0) {
+            return null;
+        }
+        CompiledScript compiledScript = scriptCompiler.buildCompiledScript(sourceHash);
+        synchronized(COMPILED_SCRIPT_CACHE) {
+            COMPILED_SCRIPT_CACHE.put(sourceHash, compiledScript);
+        }
+        return compiledScript;
+    }
+
+    public static void clearCompiledScriptCache() {
+        synchronized(COMPILED_SCRIPT_CACHE) {
+            COMPILED_SCRIPT_CACHE.clear();
+        }
+    }
+
+    private int[] code;
+    private int[] lineNumbers;
+    private int pc;
+    private int activeLine;
+    private int stackDepth;
+    private int maxStackDepth;
+    private int trailingConstCount;
+    private int appendedValuePc;
+    private int compileErrorCount;
+    private final ChameleonScriptErrorListener errorListener;
+    private final List<Object> constants;
+    private final Map<String, Integer> namedConstIndices;
+    private final List<String> slotNames;
+    private final Map<String, Integer> slotIndices;
+
+    private ChameleonScriptCompiler(ChameleonScriptErrorListener scriptErrorListener) {
+        code = new int[64];
+        lineNumbers = new int[64];
+        pc = 0;
+        activeLine = 0;
+        stackDepth = maxStackDepth = 0;
+        trailingConstCount = 0;
+        appendedValuePc = -1;
+        compileErrorCount = 0;
+        errorListener = scriptErrorListener;
+        constants = new ArrayList<Object>();
+        namedConstIndices = new HashMap<String, Integer>();
+        slotNames = new ArrayList<String>();
+        slotIndices = new HashMap<String, Integer>();
+    }
+
+    private CompiledScript buildCompiledScript(String sourceHash) {
+        return new CompiledScript(sourceHash, Arrays.copyOf(code, pc), Arrays.copyOf(lineNumbers, pc),
+                constants.toArray(), slotNames.toArray(new String[0]), new HashMap<String, Integer>(slotIndices), maxStackDepth);
+    }
+
+    /* Code emission helpers: */
+
+    private void emitWord(int word) {
+        if(pc == code.length) {
+            code = Arrays.copyOf(code, 2 * code.length);
+            lineNumbers = Arrays.copyOf(lineNumbers, 2 * lineNumbers.length);
+        }
+        lineNumbers[pc] = activeLine;
+        code[pc++] = word;
+    }
+
+    private void emit(int opcode, int stackEffect, int... operands) {
+        emitWord(opcode);
+        for(int operand : operands) {
+            emitWord(operand);
+        }
+        stackDepth += stackEffect;
+        maxStackDepth = Math.max(maxStackDepth, stackDepth);
+        trailingConstCount = opcode == OP_PUSH_CONST ? trailingConstCount + 1 : 0;
+    }
+
+    private int emitJump(int opcode) {
+        emit(opcode, opcode == OP_JUMP_IF_FALSE ? -1 : 0, -1);
+        return pc - 1;
+    }
+
+    private int markJumpTarget() {
+        trailingConstCount = 0;
+        appendedValuePc = -1;
+        return pc;
+    }
+
+    private void patchJump(int operandPos, int targetPc) {
+        code[operandPos] = targetPc;
+    }
+
+    private void pushConst(ScriptVariable constValue) {
+        constants.add(constValue);
+        emit(OP_PUSH_CONST, 1, constants.size() - 1);
+    }
+
+    private int namedConstIndex(String constName) {
+        Integer constIdx = namedConstIndices.get(constName);
+        if(constIdx == null) {
+            constants.add(constName);
+            constIdx = constants.size() - 1;
+            namedConstIndices.put(constName, constIdx);
+        }
+        return constIdx;
+    }
+
+    /* The builtin functions are pooled under their names, which do not clash with the
+     * other named constants since those never end in a parenthesis: */
+    private int functionConstIndex(BuiltinFunction builtinFunc) {
+        String funcConstName = builtinFunc.getName() + "()";
+        Integer constIdx = namedConstIndices.get(funcConstName);
+        if(constIdx == null) {
+            constants.add(builtinFunc);
+            constIdx = constants.size() - 1;
+            namedConstIndices.put(funcConstName, constIdx);
+        }
+        return constIdx;
+    }
+
+    private void reportCompileError(Token offendingToken, String errorMsg) {
+        ++compileErrorCount;
+        if(errorListener != null) {
+            errorListener.compileError(offendingToken, errorMsg);
+        }
+    }
+
+    private int slotIndex(String varName) {
+        Integer slotIdx = slotIndices.get(varName);
+        if(slotIdx == null) {
+            slotNames.add(varName);
+            slotIdx = slotNames.size() - 1;
+            slotIndices.put(varName, slotIdx);
+        }
+        return slotIdx;
+    }
+
+    /**
+     * Removes the trailing PUSH_CONST instructions for the operands of an operation about to
+     * be emitted when all of them are constants, and returns their values (or null otherwise).
+     */
+    private ScriptVariable[] takeTrailingConstants(int operandCount) {
+        if(trailingConstCount < operandCount) {
+            return null;
+        }
+        ScriptVariable[] constOperands = new ScriptVariable[operandCount];
+        int instrPc = pc;
+        for(int opnd = operandCount - 1; opnd >= 0; opnd--) {
+            instrPc -= getInstructionLength(OP_PUSH_CONST);
+            constOperands[opnd] = (ScriptVariable) constants.get(code[instrPc + 1]);
+        }
+        return constOperands;
+    }
+
+    private void dropTrailingConstants(int operandCount) {
+        for(int opnd = 0; opnd < operandCount; opnd++) {
+            pc -= getInstructionLength(OP_PUSH_CONST);
+            /* Reclaim the constant pool entries which are no longer referenced: */
+            if(code[pc + 1] == constants.size() - 1) {
+                constants.remove(constants.size() - 1);
+            }
+        }
+        stackDepth -= operandCount;
+        trailingConstCount -= operandCount;
+    }
+
+    /**
+     * Emits an operation on the top operandCount stack values, or pushes its value directly
+     * when the operands are all constants and the operation succeeds at compile time. An
+     * operation which fails on constants is left to fail (with its line number) at runtime.
+     */
+    private void emitFoldable(int opcode, int operandCount, int... operands) {
+        ScriptVariable[] constOperands = takeTrailingConstants(operandCount);
+        if(constOperands != null) {
+            try {
+                ScriptVariable foldedValue = ScriptingInterpreter.evaluateOperation(opcode, operands.length > 0 ? operands[0] : 0, constOperands);
+                dropTrailingConstants(operandCount);
+                pushConst(foldedValue);
+                return;
+            } catch(RuntimeException rte) {
+                AndroidLogger.d(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "Not folding %s at line %d: %s",
+                        OPCODE_NAMES[opcode], activeLine, rte.getMessage()));
+            }
+        }
+        emit(opcode, 1 - operandCount, operands);
+    }
+
+    /* Literal parsing: */
+
+    private static String stripHexPrefix(String hexText) {
+        if(hexText.startsWith("0x") || hexText.startsWith("0X")) {
+            return hexText.substring(2);
+        }
+        return hexText;
+    }
+
+    private static String stripQuotes(String quotedText, int prefixLength) {
+        return quotedText.substring(prefixLength + 1, quotedText.length() - 1);
+    }
+
+    private static ScriptVariable parseTypeLiteral(ChameleonScriptParser.Type_literalContext ctx) {
+        if(ctx.dl != null) {
+            return ScriptVariable.parseInt(ctx.dl.getText());
+        }
+        else if(ctx.hs != null) {
+            return ScriptVariable.parseHexString(ctx.hs.getText());
+        }
+        else if(ctx.hb != null) {
+            return ScriptVariable.newInstance().set(Integer.parseInt(stripHexPrefix(ctx.hb.getText()), 16));
+        }
+        else if(ctx.hl != null) {
+            String hexDigits = stripHexPrefix(ctx.hl.getText());
+            if(hexDigits.length() > 8) {
+                return ScriptVariable.parseHexString(hexDigits);
+            }
+            return ScriptVariable.newInstance().set((int) Long.parseLong(hexDigits, 16));
+        }
+        else if(ctx.bl != null) {
+            return ScriptVariable.parseBoolean(ctx.bl.getText());
+        }
+        else if(ctx.qsl != null) {
+            ChameleonScriptParser.Quoted_string_literalContext qslCtx = ctx.qsl;
+            if(qslCtx.qsl != null) {
+                return ScriptVariable.newInstance().set(stripQuotes(qslCtx.qsl.getText(), 0));
+            }
+            else if(qslCtx.qhsl != null) {
+                return ScriptVariable.newInstance().set(stripQuotes(qslCtx.qhsl.getText(), 1));
+            }
+            return ScriptVariable.newInstance().set(stripQuotes(qslCtx.qrsl.getText(), 1));
+        }
+        List<String> byteLiterals = new ArrayList<String>();
+        for(ChameleonScriptParser.Byte_literal_listContext bllCtx = ctx.bll; bllCtx != null; bllCtx = bllCtx.bll) {
+            byteLiterals.add(bllCtx.hb.getText());
+        }
+        byte[] bytesArr = new byte[byteLiterals.size()];
+        for(int b = 0; b < bytesArr.length; b++) {
+            bytesArr[b] = (byte) Integer.parseInt(stripHexPrefix(byteLiterals.get(b)), 16);
+        }
+        return ScriptVariable.newInstance().set(bytesArr);
+    }
+
+    /* Statements: */
+
+    @Override
+    public Void visitFile_contents(ChameleonScriptParser.File_contentsContext ctx) {
+        for(ChameleonScriptParser.Script_lineContext lineCtx : ctx.script_line()) {
+            visit(lineCtx);
+        }
+        emit(OP_HALT, 0);
+        return null;
+    }
+
+    @Override
+    public Void visitScript_line(ChameleonScriptParser.Script_lineContext ctx) {
+        activeLine = ctx.getStart().getLine();
+        visitChildren(ctx);
+        if(ctx.label_statement() == null && ctx.while_loop() == null &&
+                ctx.if_block() == null && ctx.ifelse_block() == null) {
+            if(appendedValuePc >= 0 && appendedValuePc + getInstructionLength(OP_LOAD_VAR) == pc) {
+                /* The statement only appends to a variable, so its value is never loaded: */
+                pc = appendedValuePc;
+                stackDepth -= 1;
+                trailingConstCount = 0;
+            }
+            else {
+                /* Discard the value of an expression statement: */
+                emit(OP_POP, -1);
+            }
+        }
+        appendedValuePc = -1;
+        return null;
+    }
+
+    @Override
+    public Void visitWhile_loop(ChameleonScriptParser.While_loopContext ctx) {
+        int loopStartPc = markJumpTarget();
+        visit(ctx.oe);
+        int exitJumpPos = emitJump(OP_JUMP_IF_FALSE);
+        visit(ctx.scrLineBlk);
+        activeLine = ctx.getStart().getLine();
+        int loopJumpPos = emitJump(OP_JUMP);
+        patchJump(loopJumpPos, loopStartPc);
+        patchJump(exitJumpPos, markJumpTarget());
+        return null;
+    }
+
+    @Override
+    public Void visitIf_block(ChameleonScriptParser.If_blockContext ctx) {
+        visit(ctx.oe);
+        int skipJumpPos = emitJump(OP_JUMP_IF_FALSE);
+        visit(ctx.scrLineBlk);
+        patchJump(skipJumpPos, markJumpTarget());
+        return null;
+    }
+
+    @Override
+    public Void visitIfelse_block(ChameleonScriptParser.Ifelse_blockContext ctx) {
+        visit(ctx.ifoe);
+        int elseJumpPos = emitJump(OP_JUMP_IF_FALSE);
+        visit(ctx.scrLineBlkIf);
+        int endJumpPos = emitJump(OP_JUMP);
+        patchJump(elseJumpPos, markJumpTarget());
+        visit(ctx.scrLineBlkElse);
+        patchJump(endJumpPos, markJumpTarget());
+        return null;
+    }
+
+    @Override
+    public Void visitLabel_statement(ChameleonScriptParser.Label_statementContext ctx) {
+        String labelName = ctx.lblNameWithSep.getText().replaceAll(":", "");
+        emit(OP_LABEL, 0, namedConstIndex(labelName));
+        return null;
+    }
+
+    /* Expressions (each leaves exactly one value on the stack): */
+
+    @Override
+    public Void visitVariable_reference_v1(ChameleonScriptParser.Variable_reference_v1Context ctx) {
+        emit(OP_LOAD_VAR, 1, slotIndex(ctx.vname.getText()));
+        return null;
+    }
+
+    @Override
+    public Void visitVariable_reference_v2(ChameleonScriptParser.Variable_reference_v2Context ctx) {
+        visit(ctx.var);
+        emit(OP_GET_PROPERTY, 0, namedConstIndex(ctx.propName.getText()));
+        return null;
+    }
+
+    @Override
+    public Void visitType_literal(ChameleonScriptParser.Type_literalContext ctx) {
+        pushConst(parseTypeLiteral(ctx));
+        return null;
+    }
+
+    @Override
+    public Void visitTypecast_expression(ChameleonScriptParser.Typecast_expressionContext ctx) {
+        visit(ctx.initVar);
+        int castType;
+        switch(ctx.tctype.getType()) {
+            case ChameleonScriptParser.TypeCastByte:
+                castType = CAST_BYTE;
+                break;
+            case ChameleonScriptParser.TypeCastShort:
+                castType = CAST_SHORT;
+                break;
+            case ChameleonScriptParser.TypeCastInt32:
+                castType = CAST_INT32;
+                break;
+            case ChameleonScriptParser.TypeCastBoolean:
+                castType = CAST_BOOLEAN;
+                break;
+            case ChameleonScriptParser.TypeCastString:
+                castType = CAST_STRING;
+                break;
+            default:
+                castType = CAST_BYTES;
+                break;
+        }
+        emitFoldable(OP_CAST, 1, castType);
+        return null;
+    }
+
+    @Override
+    public Void visitOther_operation_result(ChameleonScriptParser.Other_operation_resultContext ctx) {
+        if(ctx.lhs == null) {
+            visit(ctx.rhs);
+            emitFoldable(OP_UNARY_OP, 1, ScriptVariable.Operation.UOP_BITWISE_NOT.ordinal());
+            return null;
+        }
+        ScriptVariable.Operation binaryOp;
+        if(ctx.LeftShiftOperator() != null) {
+            binaryOp = ScriptVariable.Operation.BINOP_SHIFT_LEFT;
+        }
+        else if(ctx.RightShiftOperator() != null) {
+            binaryOp = ScriptVariable.Operation.BINOP_SHIFT_RIGHT;
+        }
+        else if(ctx.BitwiseAndOperator() != null) {
+            binaryOp = ScriptVariable.Operation.BINOP_BITWISE_AND;
+        }
+        else if(ctx.BitwiseOrOperator() != null) {
+            binaryOp = ScriptVariable.Operation.BINOP_BITWISE_OR;
+        }
+        else if(ctx.BitwiseXorOperator() != null) {
+            binaryOp = ScriptVariable.Operation.BINOP_BITWISE_XOR;
+        }
+        else {
+            binaryOp = ScriptVariable.Operation.BINOP_PLUS;
+        }
+        visit(ctx.lhs);
+        visit(ctx.rhs);
+        emitFoldable(OP_BINARY_OP, 2, binaryOp.ordinal());
+        return null;
+    }
+
+    @Override
+    public Void visitBoolean_valued_operation(ChameleonScriptParser.Boolean_valued_operationContext ctx) {
+        if(ctx.lhs == null) {
+            visit(ctx.rhs);
+            emitFoldable(OP_LOGICAL_NOT, 1);
+            return null;
+        }
+        int opcode;
+        if(ctx.EqualsComparisonOperator() != null) {
+            opcode = OP_CMP_EQ;
+        }
+        else if(ctx.NotEqualsComparisonOperator() != null) {
+            opcode = OP_CMP_NE;
+        }
+        else if(ctx.LogicalAndOperator() != null) {
+            opcode = OP_LOGICAL_AND;
+        }
+        else {
+            opcode = OP_LOGICAL_OR;
+        }
+        visit(ctx.lhs);
+        visit(ctx.rhs);
+        emitFoldable(opcode, 2);
+        return null;
+    }
+
+    @Override
+    public Void visitExtract_expression_from_array_index(ChameleonScriptParser.Extract_expression_from_array_indexContext ctx) {
+        visit(ctx.varRef);
+        visit(ctx.oexpr);
+        emit(OP_GET_INDEX, -1);
+        return null;
+    }
+
+    private int emitSliceIndices(ParserRuleContext startIdxCtx, ParserRuleContext lengthIdxCtx) {
+        if(startIdxCtx != null) {
+            visit(startIdxCtx);
+        }
+        if(lengthIdxCtx != null) {
+            visit(lengthIdxCtx);
+        }
+        if(startIdxCtx == null) {
+            return SLICE_LENGTH_ONLY;
+        }
+        return lengthIdxCtx == null ? SLICE_START_ONLY : SLICE_START_LENGTH;
+    }
+
+    @Override
+    public Void visitExtract_expression_from_array_slice(ChameleonScriptParser.Extract_expression_from_array_sliceContext ctx) {
+        visit(ctx.varRef);
+        int sliceMode = emitSliceIndices(ctx.oexprStartIdx, ctx.oexprLengthIdx);
+        emit(OP_GET_SLICE, sliceMode == SLICE_START_LENGTH ? -2 : -1, sliceMode);
+        return null;
+    }
+
+    @Override
+    public Void visitExec_chameleon_command(ChameleonScriptParser.Exec_chameleon_commandContext ctx) {
+        visit(ctx.oe);
+        emit(OP_EXEC_COMMAND, 0);
+        return null;
+    }
+
+    @Override
+    public Void visitScripting_api_function_result(ChameleonScriptParser.Scripting_api_function_resultContext ctx) {
+        String funcName = ctx.funcName.getText().replaceAll("\\(", "");
+        int argCount = 0;
+        for(ChameleonScriptParser.Function_args_listContext argsCtx = ctx.funcArgs; argsCtx != null; argsCtx = argsCtx.argsList) {
+            visit(argsCtx.var);
+            ++argCount;
+        }
+        /* Resolve the function (and check its argument count) once, rather than on each call: */
+        BuiltinFunction builtinFunc = ScriptingFunctions.lookupFunction(funcName);
+        int funcConstIdx = -1;
+        if(builtinFunc == null) {
+            reportCompileError(ctx.funcName, String.format(BuildConfig.DEFAULT_LOCALE, "Unknown function %s(...)", funcName));
+        }
+        else if(!builtinFunc.acceptsArgumentCount(argCount)) {
+            reportCompileError(ctx.funcName, String.format(BuildConfig.DEFAULT_LOCALE, "%s(...) takes %s, but is called with %d",
+                    funcName, builtinFunc.getArgumentCountDesc(), argCount));
+        }
+        else {
+            funcConstIdx = functionConstIndex(builtinFunc);
+        }
+        /* A script with compile errors never runs, so the call is still emitted to keep the stack depth in step: */
+        emit(OP_CALL_FUNCTION, 1 - argCount, funcConstIdx, argCount);
+        return null;
+    }
+
+    @Override
+    public Void visitOperand_expression_v72(ChameleonScriptParser.Operand_expression_v72Context ctx) {
+        if(ctx.arr == null) {
+            return visitChildren(ctx);
+        }
+        int eltCount = 0;
+        for(ChameleonScriptParser.Array_literal_listContext arrCtx = ctx.arr; arrCtx != null; arrCtx = arrCtx.prevArrElts) {
+            visit(arrCtx.curArrElt);
+            ++eltCount;
+        }
+        emit(OP_MAKE_ARRAY, 1 - eltCount, eltCount);
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment_operation(ChameleonScriptParser.Assignment_operationContext ctx) {
+        boolean plusEquals = ctx.PlusEqualsOperator() != null;
+        if(ctx.lhs.vrtype1 != null) {
+            int slotIdx = slotIndex(ctx.lhs.vrtype1.vname.getText());
+            visit(ctx.rhs);
+            if(plusEquals) {
+                /* Append to the variable in place, then load its value as the result: */
+                emit(OP_APPEND_VAR, -1, slotIdx);
+                appendedValuePc = pc;
+                emit(OP_LOAD_VAR, 1, slotIdx);
+            }
+            else {
+                emit(OP_STORE_VAR, 0, slotIdx);
+            }
+            return null;
+        }
+        /* Assignment to the property of an array / hash map variable: */
+        int propNameIdx = namedConstIndex(ctx.lhs.vrtype2.propName.getText());
+        visit(ctx.lhs.vrtype2.var);
+        if(plusEquals) {
+            visit(ctx.lhs.vrtype2);
+        }
+        visit(ctx.rhs);
+        if(plusEquals) {
+            emit(OP_BINARY_OP, -1, ScriptVariable.Operation.BINOP_PLUS.ordinal());
+        }
+        emit(OP_SET_PROPERTY, -1, propNameIdx);
+        return null;
+    }
+
+    @Override
+    public Void visitTernary_operator_expression(ChameleonScriptParser.Ternary_operator_expressionContext ctx) {
+        visit(ctx.cond);
+        int falseJumpPos = emitJump(OP_JUMP_IF_FALSE);
+        visit(ctx.vtrue);
+        int endJumpPos = emitJump(OP_JUMP);
+        stackDepth -= 1;
+        patchJump(falseJumpPos, markJumpTarget());
+        visit(ctx.vfalse);
+        patchJump(endJumpPos, markJumpTarget());
+        return null;
+    }
+
+    @Override
+    public Void visitAssignment_by_array_slice(ChameleonScriptParser.Assignment_by_array_sliceContext ctx) {
+        int slotIdx = -1;
+        if(ctx.varRef.vrtype1 != null) {
+            /* Modify a copy of the variable's value, then store it back into the slot: */
+            slotIdx = slotIndex(ctx.varRef.vrtype1.vname.getText());
+            emit(OP_LOAD_VAR, 1, slotIdx);
+            emit(OP_COPY, 0);
+        }
+        else {
+            visit(ctx.varRef);
+        }
+        int sliceMode = emitSliceIndices(ctx.oexprStartIdx, ctx.oexprLengthIdx);
+        visit(ctx.rhsExpr);
+        emit(OP_INSERT_SLICE, sliceMode == SLICE_START_LENGTH ? -3 : -2, sliceMode);
+        if(slotIdx >= 0) {
+            emit(OP_STORE_VAR, 0, slotIdx);
+        }
+        return null;
+    }
+
+}
@@ -23,6 +23,7 @@ import org.antlr.v4.runtime.ANTLRErrorListener;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
 import org.antlr.v4.runtime.misc.Utils;
 
 import java.util.ArrayList;
@@ -74,6 +75,20 @@ public class ChameleonScriptErrorListener extends BaseErrorListener implements A
             return e;
         }
 
+        public String getErrorTypeName() {
+            return e != null ? e.getClass().getSimpleName() : (recognizer != null ? "SyntaxError" : "CompileError");
+        }
+
+        public String getOffendingTokenText() {
+            if(e != null && e.getOffendingToken() != null) {
+                return e.getOffendingToken().getText();
+            }
+            else if(offendingSymbol instanceof Token) {
+                return ((Token) offendingSymbol).getText();
+            }
+            return "";
+        }
+
     }
 
     private final List<SyntaxError> syntaxErrors = new ArrayList();
@@ -95,6 +110,15 @@ public class ChameleonScriptErrorListener extends BaseErrorListener implements A
         AndroidLogger.i(TAG, sourceFileName + "line #" + line + " @ " + charPositionInLine + ": " + msg);
     }
 
+    /**
+     * Records an error the compiler finds in a script which parses, such as a call to an
+     * unknown function or with the wrong number of arguments.
+     */
+    public void compileError(Token offendingToken, String msg) {
+        syntaxErrors.add(new SyntaxError(null, offendingToken, offendingToken.getLine(), offendingToken.getCharPositionInLine(), msg, null));
+        AndroidLogger.i(TAG, "line #" + offendingToken.getLine() + " @ " + offendingToken.getCharPositionInLine() + ": " + msg);
+    }
+
     @Override
     public String toString() {
         return Utils.join(syntaxErrors.iterator(), "\n");
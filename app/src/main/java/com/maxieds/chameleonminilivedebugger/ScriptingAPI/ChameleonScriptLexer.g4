@@ -64,9 +64,10 @@ ChameleonConnectionTypeFunctions: IsChameleonConnectedFuncName |
 CmdDownloadTagFuncName:              'DownloadTagDump(' ;
 CmdUploadTagFuncName:                'UploadTagDump(' ;
 CmdDownloadLogsFuncName:             'DownloadLogs(' ;
+CmdReceiveFrameFuncName:             'ReceiveFrame(' ;
 
 ChameleonCommandAndLogFunctions:     CmdDownloadTagFuncName | CmdUploadTagFuncName |
-                                     CmdDownloadLogsFuncName ;
+                                     CmdDownloadLogsFuncName | CmdReceiveFrameFuncName ;
 
 /**** String handling functions: ****/
 StringSearchFuncName:              'StringFind(' ;
@@ -17,12 +17,6 @@ https://github.com/maxieds/ChameleonMiniLiveDebugger
 
 parser grammar ChameleonScriptParser;
 
-@header {
-     import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingTypes.ScriptVariable;
-     import com.maxieds.chameleonminilivedebugger.AndroidLogger;
-}
-//@rulecatch {}
-
 options { tokenVocab=ChameleonScriptLexer; }
 
 /**** Start rule for the main grammar: ****/
@@ -38,433 +32,234 @@ script_line: label_statement |
 script_line_block: (script_line)* ;
 
 while_loop: whl=While op=OpenParens oe=operand_expression cp=ClosedParens
-            ob=OpenBrace scrLineBlk=script_line_block cb=ClosedBrace {
-            }
+            ob=OpenBrace scrLineBlk=script_line_block cb=ClosedBrace
             ;
 
 if_block:   ic=IfCond op=OpenParens oe=operand_expression cp=ClosedParens
-            ob=OpenBrace scrLineBlk=script_line_block cb=ClosedBrace {
-            }
+            ob=OpenBrace scrLineBlk=script_line_block cb=ClosedBrace
             ;
 ifelse_block: IfCond OpenParens ifoe=operand_expression cp=ClosedParens
               OpenBrace scrLineBlkIf=script_line_block ClosedBrace
-              ElseCond OpenBrace scrLineBlkElse=script_line_block ClosedBrace {
-              }
+              ElseCond OpenBrace scrLineBlkElse=script_line_block ClosedBrace
               ;
 
-variable_reference_v1 returns [ScriptVariable svar]:
-     vss=VariableStartSymbol vname=VariableName {
-           String varName = $vname.text;
-           if(!ChameleonScripting.getRunningInstance().variableNameExists(varName)) {
-                $svar=ScriptVariable.newInstance().set("<uninitialized>").setName(varName);
-                ChameleonScripting.getRunningInstance().setVariableByName(varName, $svar);
-           }
-           else {
-                $svar=ChameleonScripting.getRunningInstance().lookupVariableByName(varName);
-           }
-     }
+variable_reference_v1:
+     vss=VariableStartSymbol vname=VariableName
      ;
 
-variable_reference_v2 returns [ScriptVariable svar]:
-     var=variable_reference_v1 hia=HashedIndexAccessor propName=VariableName {
-          $svar=$var.svar.getValueAt($propName.text);
-     }
+variable_reference_v2:
+     var=variable_reference_v1 hia=HashedIndexAccessor propName=VariableName
      ;
 
-variable_reference returns [ScriptVariable svar]:
-     vrtype2=variable_reference_v2 {
-          $svar=$vrtype2.svar;
-     }
+variable_reference:
+     vrtype2=variable_reference_v2
      |
-     vrtype1=variable_reference_v1 {
-          $svar=$vrtype1.svar;
-     }
+     vrtype1=variable_reference_v1
      ;
 
-type_literal returns [ScriptVariable svar]:
-     dl=DecimalLiteral   { $svar=ScriptVariable.parseInt($dl.text); }
+type_literal:
+     dl=DecimalLiteral
      |
-     hs=HexString        { $svar=ScriptVariable.parseHexString($hs.text); }
+     hs=HexString
      |
-     hb=HexByte          { $svar=ScriptVariable.parseInt($hb.text); }
+     hb=HexByte
      |
-     hl=HexLiteral       { if($hl.text.length() > 8) {
-                                $svar=ScriptVariable.parseHexString($hl.text);
-                           }
-                           else if($hl.text.length() < 2 || !$hl.text.substring(0, 2).equals("0x")) {
-                                $svar=ScriptVariable.parseInt("0x" + $hl.text);
-                           }
-                           else {
-                                $svar=ScriptVariable.parseInt($hl.text);
-                           }
-                         }
+     hl=HexLiteral
      |
-     bl=BooleanLiteral   { $svar=ScriptVariable.parseBoolean($bl.text); }
+     bl=BooleanLiteral
      |
-     qsl=quoted_string_literal { $svar=$qsl.svar; }
+     qsl=quoted_string_literal
      |
-     ob=OpenBrace bll=byte_literal_list cb=ClosedBrace { $svar=$bll.svar; }
+     ob=OpenBrace bll=byte_literal_list cb=ClosedBrace
      ;
 
-quoted_string_literal returns [ScriptVariable svar]:
-     qsl=QuotedStringLiteral {
-          $svar=ScriptVariable.newInstance().set($qsl.text.substring(1, $qsl.text.length() - 1));
-     }
+quoted_string_literal:
+     qsl=QuotedStringLiteral
      |
-     qhsl=QuotedHexStringLiteral {
-          $svar=ScriptVariable.newInstance().set($qhsl.text.substring(1, $qhsl.text.length() - 1));
-     }
+     qhsl=QuotedHexStringLiteral
      |
-     qrsl=QuotedHexStringLiteral {
-          $svar=ScriptVariable.newInstance().set($qrsl.text.substring(1, $qrsl.text.length() - 1));
-     }
+     qrsl=QuotedRawStringLiteral
      ;
 
-byte_literal_list returns [ScriptVariable svar]:
-     hb=HexByte {
-          $svar=ScriptVariable.newInstance().set(new byte[] { (byte) Integer.parseInt($hb.text, 16) });
-     }
-     |
-     hb=HexByte cs=CommaSeparator bll=byte_literal_list {
-          int bllLength = $bll.svar.getValueAsBytes().length;
-          byte[] bytesArr = new byte[bllLength + 1];
-          System.arraycopy($bll.svar.getValueAsBytes(), 0, bytesArr, 0, bllLength);
-          bytesArr[bllLength] = (byte) Integer.parseInt($hb.text, 16);
-          $svar=ScriptVariable.newInstance().set(bytesArr);
-     }
+byte_literal_list:
+     hb=HexByte
+     |
+     hb=HexByte cs=CommaSeparator bll=byte_literal_list
      ;
 
-operand_expression_v1 returns [ScriptVariable svar]:
-     vr=variable_reference {
-          $svar=$vr.svar;
-     }
+operand_expression_v1:
+     vr=variable_reference
      |
-     tl=type_literal {
-          $svar=$tl.svar;
-     }
+     tl=type_literal
      ;
 
-typecast_expression returns [ScriptVariable svar]:
-     tctype=TypeCastByte initVar=operand_expression_v1 {
-          $svar=ScriptVariable.newInstance().set(new byte[] { $initVar.svar.getValueAsByte() });
-     }
+typecast_expression:
+     tctype=TypeCastByte initVar=operand_expression_v1
      |
-     tctype=TypeCastShort initVar=operand_expression_v1 {
-          $svar=ScriptVariable.newInstance().set((int) $initVar.svar.getValueAsShort());
-     }
+     tctype=TypeCastShort initVar=operand_expression_v1
      |
-     tctype=TypeCastInt32 initVar=operand_expression_v1 {
-          $svar=ScriptVariable.newInstance().set((int) $initVar.svar.getValueAsInt());
-     }
+     tctype=TypeCastInt32 initVar=operand_expression_v1
      |
-     tctype=TypeCastBoolean initVar=operand_expression_v1 {
-          $svar=ScriptVariable.newInstance().set((boolean) $initVar.svar.getValueAsBoolean());
-     }
+     tctype=TypeCastBoolean initVar=operand_expression_v1
      |
-     tctype=TypeCastString initVar=operand_expression_v1 {
-          $svar=ScriptVariable.newInstance().set($initVar.svar.getValueAsString());
-     }
+     tctype=TypeCastString initVar=operand_expression_v1
      |
-     tctype=TypeCastBytes initVar=operand_expression_v1 {
-          $svar=ScriptVariable.newInstance().set($initVar.svar.getValueAsBytes());
-     }
+     tctype=TypeCastBytes initVar=operand_expression_v1
      ;
 
-operand_expression_v2 returns [ScriptVariable svar]:
-     oe=operand_expression_v1 {
-          $svar=$oe.svar;
-     }
+operand_expression_v2:
+     oe=operand_expression_v1
      |
-     tce=typecast_expression {
-          $svar=$tce.svar;
-     }
+     tce=typecast_expression
      ;
 
-other_operation_result returns [ScriptVariable svar]:
-     lhs=operand_expression_v2 LeftShiftOperator rhs=operand_expression_v2 {
-          ScriptVariable lhsVar = $lhs.svar;
-          $svar=lhsVar.binaryOperation(ScriptVariable.Operation.BINOP_SHIFT_LEFT, $rhs.svar);
-     }
-     |
-     lhs=operand_expression_v2 RightShiftOperator rhs=operand_expression_v2 {
-          ScriptVariable lhsVar = $lhs.svar;
-          $svar=lhsVar.binaryOperation(ScriptVariable.Operation.BINOP_SHIFT_RIGHT, $rhs.svar);
-     }
-     |
-     lhs=operand_expression_v2 BitwiseAndOperator rhs=operand_expression_v2 {
-          ScriptVariable lhsVar = $lhs.svar;
-          $svar=lhsVar.binaryOperation(ScriptVariable.Operation.BINOP_BITWISE_AND, $rhs.svar);
-     }
-     |
-     lhs=operand_expression_v2 BitwiseOrOperator rhs=operand_expression_v2 {
-          ScriptVariable lhsVar = $lhs.svar;
-          $svar=lhsVar.binaryOperation(ScriptVariable.Operation.BINOP_BITWISE_OR, $rhs.svar);
-     }
-     |
-     lhs=operand_expression_v2 BitwiseXorOperator rhs=operand_expression_v2 {
-          ScriptVariable lhsVar = $lhs.svar;
-          $svar=lhsVar.binaryOperation(ScriptVariable.Operation.BINOP_BITWISE_XOR, $rhs.svar);
-     }
-     |
-     lhs=operand_expression_v2 ArithmeticPlusOperator rhs=operand_expression_v2 {
-          ScriptVariable lhsVar = $lhs.svar;
-          $svar=lhsVar.binaryOperation(ScriptVariable.Operation.BINOP_PLUS, $rhs.svar);
-     }
-     |
-     BitwiseNotOperator rhs=operand_expression_v2 {
-          ScriptVariable rhsVar = $rhs.svar;
-          $svar=rhsVar.unaryOperation(ScriptVariable.Operation.UOP_BITWISE_NOT);
-     }
+other_operation_result:
+     lhs=operand_expression_v2 LeftShiftOperator rhs=operand_expression_v2
+     |
+     lhs=operand_expression_v2 RightShiftOperator rhs=operand_expression_v2
+     |
+     lhs=operand_expression_v2 BitwiseAndOperator rhs=operand_expression_v2
+     |
+     lhs=operand_expression_v2 BitwiseOrOperator rhs=operand_expression_v2
+     |
+     lhs=operand_expression_v2 BitwiseXorOperator rhs=operand_expression_v2
+     |
+     lhs=operand_expression_v2 ArithmeticPlusOperator rhs=operand_expression_v2
+     |
+     BitwiseNotOperator rhs=operand_expression_v2
      ;
 
-operand_expression_v3 returns [ScriptVariable svar]:
-     oe=operand_expression_v2 {
-          $svar=$oe.svar;
-     }
+operand_expression_v3:
+     oe=operand_expression_v2
      |
-     oor=other_operation_result {
-          $svar=$oor.svar;
-     }
+     oor=other_operation_result
      ;
 
-boolean_valued_operation returns [ScriptVariable  opResult]:
-     lhs=operand_expression_v3 EqualsComparisonOperator rhs=operand_expression_v3 {
-          if($rhs.svar.isStringType()) {
-               $opResult=ScriptVariable.newInstance().set($lhs.svar.getValueAsString().equals($rhs.svar.getValueAsString()));
-          }
-          else if($rhs.svar.isIntegerType()) {
-               $opResult=ScriptVariable.newInstance().set($lhs.svar.getValueAsInt() == $rhs.svar.getValueAsInt());
-               AndroidLogger.i("TAG", "IS INTEGER TYPE!");
-          }
-          else {
-               $opResult=ScriptVariable.newInstance().set($lhs.svar.getValueAsBoolean() == $rhs.svar.getValueAsBoolean());
-          }
-     }
-     |
-     lhs=operand_expression_v3 NotEqualsComparisonOperator rhs=operand_expression_v3 {
-          if($rhs.svar.isStringType()) {
-                         $opResult=ScriptVariable.newInstance().set(!$lhs.svar.getValueAsString().equals($rhs.svar.getValueAsString()));
-                    }
-                    else if($rhs.svar.isIntegerType()) {
-                         $opResult=ScriptVariable.newInstance().set($lhs.svar.getValueAsInt() != $rhs.svar.getValueAsInt());
-                    }
-                    else {
-                         $opResult=ScriptVariable.newInstance().set($lhs.svar.getValueAsBoolean() != $rhs.svar.getValueAsBoolean());
-                    }
-     }
-     |
-     lhs=operand_expression_v3 LogicalAndOperator rhs=operand_expression_v3 {
-          $opResult=ScriptVariable.newInstance().set($lhs.svar.getValueAsBoolean() && $rhs.svar.getValueAsBoolean());
-     }
-     |
-     lhs=operand_expression_v3 LogicalOrOperator rhs=operand_expression_v3 {
-          $opResult=ScriptVariable.newInstance().set($lhs.svar.getValueAsBoolean() || $rhs.svar.getValueAsBoolean());
-     }
-     |
-     LogicalNotOperator rhs=operand_expression_v3 {
-          $opResult=ScriptVariable.newInstance().set(!$rhs.svar.getValueAsBoolean());
-     }
+boolean_valued_operation:
+     lhs=operand_expression_v3 EqualsComparisonOperator rhs=operand_expression_v3
+     |
+     lhs=operand_expression_v3 NotEqualsComparisonOperator rhs=operand_expression_v3
+     |
+     lhs=operand_expression_v3 LogicalAndOperator rhs=operand_expression_v3
+     |
+     lhs=operand_expression_v3 LogicalOrOperator rhs=operand_expression_v3
+     |
+     LogicalNotOperator rhs=operand_expression_v3
      ;
 
-operand_expression_v4 returns [ScriptVariable svar]:
-     oe=operand_expression_v3 {
-          $svar=$oe.svar;
-     }
+operand_expression_v4:
+     oe=operand_expression_v3
      |
-     bvo=boolean_valued_operation {
-          $svar=$bvo.opResult;
-     }
+     bvo=boolean_valued_operation
      ;
 
-extract_expression_from_array_index returns [ScriptVariable svar]:
-     varRef=variable_reference ArrayIndexOpenBracket oexpr=operand_expression_v4 ArrayIndexCloseBracket {
-          $svar=$varRef.svar.getValueAt($oexpr.svar.getValueAsInt());
-     }
+extract_expression_from_array_index:
+     varRef=variable_reference ArrayIndexOpenBracket oexpr=operand_expression_v4 ArrayIndexCloseBracket
      ;
 
-operand_expression_v5 returns [ScriptVariable svar]:
-     oe=operand_expression_v4 {
-          $svar=$oe.svar;
-     }
+operand_expression_v5:
+     oe=operand_expression_v4
      |
-     aiExpr=extract_expression_from_array_index {
-          $svar=$aiExpr.svar;
-     }
+     aiExpr=extract_expression_from_array_index
      ;
 
-extract_expression_from_array_slice returns [ScriptVariable svar]:
+extract_expression_from_array_slice:
      varRef=variable_reference ArrayIndexOpenBracket oexprStartIdx=operand_expression_v5
-     ColonSeparator oexprLengthIdx=operand_expression_v5 ArrayIndexCloseBracket {
-          $svar=$varRef.svar.getSubArray($oexprStartIdx.svar.getValueAsInt(), $oexprLengthIdx.svar.getValueAsInt());
-     }
+     ColonSeparator oexprLengthIdx=operand_expression_v5 ArrayIndexCloseBracket
      |
      varRef=variable_reference ArrayIndexOpenBracket oexprStartIdx=operand_expression_v5
-     ColonSeparator ArrayIndexCloseBracket {
-          $svar=$varRef.svar.getSubArray($oexprStartIdx.svar.getValueAsInt());
-     }
+     ColonSeparator ArrayIndexCloseBracket
      |
      varRef=variable_reference ArrayIndexOpenBracket
-     ColonSeparator oexprLengthIdx=operand_expression_v5 ArrayIndexCloseBracket {
-          $svar=$varRef.svar.getSubArray(0, $oexprLengthIdx.svar.getValueAsInt());
-     }
+     ColonSeparator oexprLengthIdx=operand_expression_v5 ArrayIndexCloseBracket
      ;
 
-operand_expression_v6 returns [ScriptVariable svar]:
-     oe=operand_expression_v5 {
-          $svar=$oe.svar;
-     }
+operand_expression_v6:
+     oe=operand_expression_v5
      |
-     asExpr=extract_expression_from_array_slice {
-          $svar=$asExpr.svar;
-     }
+     asExpr=extract_expression_from_array_slice
      ;
 
-exec_chameleon_command returns [ScriptVariable svar]:
-     ExecCommandStartSymbol oe=operand_expression_v6 ClosedParens {
-          $svar=ChameleonIOHandler.executeChameleonCommandForResult($oe.svar.getValueAsString());
-     }
+exec_chameleon_command:
+     ExecCommandStartSymbol oe=operand_expression_v6 ClosedParens
      ;
 
 
-scripting_api_function_result returns [ScriptVariable svar]:
-     funcName=ScriptingAPIFunctionName ClosedParens {
-          $svar=ScriptingFunctions.callFunction($funcName.text.replaceAll("\\(", ""), new ArrayList<ScriptVariable>());
-     }
+scripting_api_function_result:
+     funcName=ScriptingAPIFunctionName ClosedParens
      |
      funcName=ScriptingAPIFunctionName
-     funcArgs=function_args_list ClosedParens {
-          $svar=ScriptingFunctions.callFunction($funcName.text.replaceAll("\\(", ""), $funcArgs.varsList);
-     }
+     funcArgs=function_args_list ClosedParens
      ;
 
-operand_expression_v7 returns [ScriptVariable svar]:
-     oe=operand_expression_v6 {
-          $svar=$oe.svar;
-     }
+operand_expression_v7:
+     oe=operand_expression_v6
      |
-     ecc=exec_chameleon_command {
-          $svar=$ecc.svar;
-     }
+     ecc=exec_chameleon_command
      |
-     funcResult=scripting_api_function_result {
-          $svar=$funcResult.svar;
-     }
+     funcResult=scripting_api_function_result
      ;
 
-array_literal_list returns [List<ScriptVariable> arrElts]:
-     curArrElt=operand_expression_v7 {
-          $arrElts=new ArrayList<ScriptVariable>();
-          $arrElts.add($curArrElt.svar);
-     }
-     |
-      curArrElt=operand_expression_v7 CommaSeparator prevArrElts=array_literal_list {
-          $prevArrElts.arrElts.add($curArrElt.svar);
-          $arrElts=$prevArrElts.arrElts;
-          AndroidLogger.i("PARSER-G4", $curArrElt.svar.getValueAsString());
-     }
+array_literal_list:
+     curArrElt=operand_expression_v7
+     |
+      curArrElt=operand_expression_v7 CommaSeparator prevArrElts=array_literal_list
      ;
 
-operand_expression_v72 returns [ScriptVariable svar]:
-     oe=operand_expression_v7 {
-          $svar=$oe.svar;
-     }
+operand_expression_v72:
+     oe=operand_expression_v7
      |
-     DoubleOpenCurlyBrace arr=array_literal_list DoubleClosedCurlyBrace {
-          $svar=new ScriptVariable($arr.arrElts);
-     }
+     DoubleOpenCurlyBrace arr=array_literal_list DoubleClosedCurlyBrace
      ;
 
-assignment_operation returns [ScriptVariable svar]:
-     lhs=variable_reference DefEqualsOperator rhs=operand_expression_v72 {
-          $svar=$rhs.svar;
-          ChameleonScripting.getRunningInstance().setVariableByName($lhs.svar.getName(), $svar);
-          AndroidLogger.i("PARSER-G4", ":= LHS VAR NAME = " + $lhs.svar.getName() + ", NEW VALUE = " + $svar.getValueAsString());
-     }
-     |
-     lhs=variable_reference PlusEqualsOperator rhs=operand_expression_v72 {
-          $svar=$lhs.svar.binaryOperation(ScriptVariable.Operation.BINOP_PLUS, $rhs.svar);
-          ChameleonScripting.getRunningInstance().setVariableByName($lhs.svar.getName(), $svar);
-     }
+assignment_operation:
+     lhs=variable_reference DefEqualsOperator rhs=operand_expression_v72
+     |
+     lhs=variable_reference PlusEqualsOperator rhs=operand_expression_v72
      ;
 
-operand_expression_v8 returns [ScriptVariable svar]:
-     oe=operand_expression_v72 {
-          $svar=$oe.svar;
-     }
+operand_expression_v8:
+     oe=operand_expression_v72
      |
-     aop=assignment_operation {
-          $svar=$aop.svar;
-     }
+     aop=assignment_operation
      ;
 
-ternary_operator_expression returns [ScriptVariable svar]:
+ternary_operator_expression:
      cond=operand_expression_v8 TernaryOperatorFirstSymbol vtrue=operand_expression_v8
-     ColonSeparator vfalse=operand_expression_v8 {
-          boolean predicate = $cond.svar.getValueAsBoolean();
-          if(predicate) {
-               $svar=$vtrue.svar;
-          }
-          else {
-               $svar=$vfalse.svar;
-          }
-     }
+     ColonSeparator vfalse=operand_expression_v8
      ;
 
-operand_expression_v9 returns [ScriptVariable svar]:
-     oe=operand_expression_v8 {
-          $svar=$oe.svar;
-     }
+operand_expression_v9:
+     oe=operand_expression_v8
      |
-     toe=ternary_operator_expression {
-          $svar=$toe.svar;
-     }
+     toe=ternary_operator_expression
      ;
 
-operand_expression returns [ScriptVariable svar]:
-     oe=operand_expression_v9 {
-          $svar=$oe.svar;
-     }
+operand_expression:
+     oe=operand_expression_v9
      ;
 
-assignment_by_array_slice returns [ScriptVariable svar]:
+assignment_by_array_slice:
      varRef=variable_reference ArrayIndexOpenBracket oexprStartIdx=operand_expression
      ColonSeparator oexprLengthIdx=operand_expression ArrayIndexCloseBracket
-     DefEqualsOperator rhsExpr=operand_expression {
-          $varRef.svar.insertSubArray($oexprStartIdx.svar.getValueAsInt(), $oexprLengthIdx.svar.getValueAsInt(), $rhsExpr.svar);
-          $svar=$varRef.svar;
-          ChameleonScripting.getRunningInstance().setVariableByName($varRef.svar.getName(), $varRef.svar);
-     }
+     DefEqualsOperator rhsExpr=operand_expression
      |
      varRef=variable_reference ArrayIndexOpenBracket oexprStartIdx=operand_expression
      ColonSeparator ArrayIndexCloseBracket
-     DefEqualsOperator rhsExpr=operand_expression {
-          $varRef.svar.insertSubArray($oexprStartIdx.svar.getValueAsInt(), $rhsExpr.svar);
-          $svar=$varRef.svar;
-          ChameleonScripting.getRunningInstance().setVariableByName($varRef.svar.getName(), $varRef.svar);
-     }
+     DefEqualsOperator rhsExpr=operand_expression
      |
      varRef=variable_reference ArrayIndexOpenBracket
      ColonSeparator oexprLengthIdx=operand_expression ArrayIndexCloseBracket
-     DefEqualsOperator rhsExpr=operand_expression {
-          $varRef.svar.insertSubArray(0, $oexprLengthIdx.svar.getValueAsInt(), $rhsExpr.svar);
-          $svar=$varRef.svar;
-          ChameleonScripting.getRunningInstance().setVariableByName($varRef.svar.getName(), $varRef.svar);
-     }
+     DefEqualsOperator rhsExpr=operand_expression
      ;
 
-function_args_list returns [List<ScriptVariable> varsList]:
-     var=operand_expression CommaSeparator argsList=function_args_list {
-          $argsList.varsList.add($var.svar);
-          $varsList=$argsList.varsList;
-     }
+function_args_list:
+     var=operand_expression CommaSeparator argsList=function_args_list
      |
-     var=operand_expression {
-          $varsList=new ArrayList<ScriptVariable>();
-          $varsList.add($var.svar);
-     }
+     var=operand_expression
      ;
 
-label_statement: lblNameWithSep=LabelText {}
+label_statement: lblNameWithSep=LabelText
      ;
 
  /* TODO: No current support for hash indexed assignments:
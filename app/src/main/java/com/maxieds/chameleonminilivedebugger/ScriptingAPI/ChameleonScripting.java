@@ -31,19 +31,13 @@ import com.maxieds.chameleonminilivedebugger.TabFragment;
 import com.maxieds.chameleonminilivedebugger.Utils;
 import com.maxieds.chameleonminilivedebugger.BuildConfig;
 
-import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
-import org.antlr.v4.runtime.ParserRuleContext;
-import org.antlr.v4.runtime.tree.ParseTree;
-
+import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Stack;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -169,20 +163,14 @@ public class ChameleonScripting {
         private List<String> breakpointLabels;
         private List<Integer> breakpointLines;
         private boolean atBreakpoint;
-        private Map<String, ScriptingTypes.ScriptVariable> scriptVariablesHashMap;
-        private Stack< Map<String, ScriptingTypes.ScriptVariable> > nestedBlocksContextStack;
         private ScriptRuntimeState scriptState;
         private ChameleonDeviceState chameleonDeviceState;
         private Thread scriptRunnerThread;
         private Future<?> scriptRunnerThreadExecRef;
 
-        ANTLRInputStream scriptInputStream;
-        ChameleonScriptLexer scriptLexer;
-        CommonTokenStream scriptTokenStream;
-        ChameleonScriptParser scriptParser;
-        ParseTree scriptParseTree;
-        ChameleonScriptVisitorExtended scriptVisitor;
         ChameleonScriptErrorListener scriptErrorListener;
+        ChameleonScriptCompiler.CompiledScript compiledScript;
+        ScriptingInterpreter scriptInterpreter;
 
         public ChameleonScriptInstance(String scriptFile) {
             initialized = true;
@@ -218,18 +206,12 @@ public class ChameleonScripting {
             breakpointLabels = new ArrayList<String>();
             breakpointLines = new ArrayList<Integer>();
             atBreakpoint = false;
-            scriptVariablesHashMap = new HashMap<String, ScriptingTypes.ScriptVariable>();
-            nestedBlocksContextStack = new Stack<>();
             scriptState = ScriptRuntimeState.INITIALIZED;
             chameleonDeviceState = new ChameleonDeviceState();
             scriptRunnerThread = null;
-            scriptInputStream = null;
-            scriptLexer = null;
-            scriptTokenStream = null;
-            scriptParser = null;
             scriptErrorListener = null;
-            scriptParseTree = null;
-            scriptVisitor = null;
+            compiledScript = null;
+            scriptInterpreter = null;
         }
 
         public void cleanupRuntimeData(boolean restoreChameleonState) {
@@ -253,6 +235,7 @@ public class ChameleonScripting {
                 chameleonDeviceState.restoreState(true);
             }
             SerialIOReceiver.resetRedirectInterface();
+            ChameleonIOHandler.resetScriptIOChannel();
         }
 
         public boolean isInitialized() {
@@ -260,7 +243,17 @@ public class ChameleonScripting {
         }
 
         public boolean loadedScriptHasSyntaxErrors() {
-            return scriptParser.getNumberOfSyntaxErrors() > 0;
+            return scriptErrorListener != null && !scriptErrorListener.getSyntaxErrors().isEmpty();
+        }
+
+        private byte[] readScriptSource() throws IOException {
+            ByteArrayOutputStream scriptSourceBytes = new ByteArrayOutputStream();
+            byte[] readBuf = new byte[4096];
+            int readCount;
+            while((readCount = scriptFileStream.read(readBuf)) > 0) {
+                scriptSourceBytes.write(readBuf, 0, readCount);
+            }
+            return scriptSourceBytes.toByteArray();
         }
 
         public List<ChameleonScriptErrorListener.SyntaxError> getSyntaxErrors() {
@@ -272,12 +265,12 @@ public class ChameleonScripting {
                 List<ChameleonScriptErrorListener.SyntaxError> syntaxErrorsList = getSyntaxErrors();
                 for(ChameleonScriptErrorListener.SyntaxError syntaxError : syntaxErrorsList) {
                     String syntaxErrorNotifyMsg = String.format(BuildConfig.DEFAULT_LOCALE, "%s\n%s",
-                            syntaxError.getException().getClass().getSimpleName(), syntaxError.getMessage());
+                            syntaxError.getErrorTypeName(), syntaxError.getMessage());
                     String[] syntaxErrorDetailsList = new String[] {
                             String.format(BuildConfig.DEFAULT_LOCALE, "@LINE-NO:  %d", syntaxError.getLine()),
                             String.format(BuildConfig.DEFAULT_LOCALE, "@CHAR-POS: %d", syntaxError.getCharPositionInLine()),
-                            String.format(BuildConfig.DEFAULT_LOCALE, "@SYMBOL:   '%s'", syntaxError.getOffendingSymbol().toString()),
-                            String.format(BuildConfig.DEFAULT_LOCALE, "@TOKEN:    %s", syntaxError.getException().getOffendingToken().getText())
+                            String.format(BuildConfig.DEFAULT_LOCALE, "@SYMBOL:   '%s'", String.valueOf(syntaxError.getOffendingSymbol())),
+                            String.format(BuildConfig.DEFAULT_LOCALE, "@TOKEN:    %s", syntaxError.getOffendingTokenText())
                     };
                     ScriptingGUIConsole.appendConsoleOutputRecordErrorWarning(syntaxErrorNotifyMsg, syntaxErrorDetailsList, syntaxError.getLine());
                     AndroidLogger.w(TAG, "SYNTAX ERROR: " + syntaxErrorNotifyMsg + "\n" + String.join("\n  > ", syntaxErrorDetailsList));
@@ -289,6 +282,7 @@ public class ChameleonScripting {
             LiveLoggerActivity.getLiveLoggerInstance().setStatusIcon(R.id.statusScriptingIsExec, R.drawable.toolbar_paused_icon16);
             ScriptingBreakPoint.bpDisabled = true;
             ChameleonIO.DeviceStatusSettings.stopPostingStats();
+            ChameleonIOHandler.resetScriptIOChannel();
             SerialIOReceiver.setRedirectInterface(new ChameleonIOHandler());
             lastStartTime = System.currentTimeMillis();
             return true;
@@ -301,23 +295,21 @@ public class ChameleonScripting {
                 public void run() {
 
                     try {
-                        scriptInputStream = new ANTLRInputStream(scriptFileStream);
-                        scriptLexer = new ChameleonScriptLexer(scriptInputStream);
-                        scriptTokenStream = new CommonTokenStream(scriptLexer);
-                        scriptParser = new ChameleonScriptParser(scriptTokenStream);
-                        scriptParser.removeErrorListeners();
+                        /* Only parses and compiles the script when its source is not in the cache: */
                         scriptErrorListener = new ChameleonScriptErrorListener();
-                        scriptParser.addErrorListener(scriptErrorListener);
-                        //scriptParser.setBuildParseTree(true);
-                        //scriptParseTree = scriptParser.file_contents().getChild(0);
-                        scriptVisitor = new ChameleonScriptVisitorExtended(getRunningInstance());
+                        compiledScript = ChameleonScriptCompiler.compileScript(readScriptSource(), scriptErrorListener);
                     } catch(IOException ioe) {
                         AndroidLogger.printStackTrace(ioe);
                         initialized = false;
+                        return;
                     }
                     if(!runScriptPreambleActions()) {
                         return;
                     }
+                    if(ScriptingConfig.VERBOSE_ERROR_LOGGING) {
+                        writeLogFile(String.format(BuildConfig.DEFAULT_LOCALE, "COMPILED SCRIPT for file \"%s\":\n\n%s\n", scriptFilePath, compiledScript.disassemble()));
+                    }
+                    scriptInterpreter = new ScriptingInterpreter(compiledScript, ChameleonScriptInstance.this);
 
                     scriptState = ScriptRuntimeState.RUNNING;
                     Handler setTimeLimitHandler = new Handler();
@@ -336,9 +328,10 @@ public class ChameleonScripting {
                         setTimeLimitHandler.postDelayed(enforceTimeLimitRunnable, execTimeLimit * 1000);
                     }
 
-                    scriptVisitor.visit(scriptParser.file_contents());
-                    //scriptVisitor.visit(scriptParseTree);
-                    writeLogFile(String.format(BuildConfig.DEFAULT_LOCALE, "TEXT PARSE TREE for file \"%s\":\n\n%s\n", scriptFilePath, scriptParseTree.toStringTree()));
+                    if(!scriptInterpreter.runScript()) {
+                        setTimeLimitHandler.removeCallbacks(enforceTimeLimitRunnable);
+                        return;
+                    }
                     runningTime = System.currentTimeMillis() - lastStartTime;
                     setTimeLimitHandler.removeCallbacks(enforceTimeLimitRunnable);
                     scriptState = ScriptRuntimeState.FINISHED;
@@ -441,23 +434,35 @@ public class ChameleonScripting {
             scriptExecLine = nextLOC;
         }
 
+        /* The variables live in the frame slots the compiler assigned to them. Looking them
+         * up by name is only for the callers outside the interpreter loop:
+         */
+        private int getVariableSlotIndex(String varName) {
+            if(scriptInterpreter == null) {
+                return -1;
+            }
+            return scriptInterpreter.getCompiledScript().getSlotIndex(varName);
+        }
+
         public boolean variableNameExists(String varName) {
-            return scriptVariablesHashMap.get(varName) != null;
+            int slotIdx = getVariableSlotIndex(varName);
+            return slotIdx >= 0 && scriptInterpreter.getSlotValue(slotIdx) != null;
         }
 
         public ScriptingTypes.ScriptVariable lookupVariableByName(String varName) throws ScriptingExceptions.ChameleonScriptingException {
-            ScriptingTypes.ScriptVariable svar = scriptVariablesHashMap.get(varName);
-            AndroidLogger.i(TAG, String.format(BuildConfig.DEFAULT_LOCALE, "LOOKED UP (%s) -> VARBYNAME = %s", varName, svar.getName()));
-            return svar;
+            int slotIdx = getVariableSlotIndex(varName);
+            if(slotIdx < 0) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.VariableNotFoundException, varName);
+            }
+            return scriptInterpreter.getSlotValue(slotIdx);
         }
 
         public void setVariableByName(String varName, ScriptingTypes.ScriptVariable scriptVar) throws ScriptingExceptions.ChameleonScriptingException {
-            if(scriptVariablesHashMap.get(varName) == null) {
-                scriptVariablesHashMap.put(varName, scriptVar);
-            }
-            else {
-                scriptVariablesHashMap.replace(varName, scriptVar);
+            int slotIdx = getVariableSlotIndex(varName);
+            if(slotIdx < 0) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.VariableNotFoundException, varName);
             }
+            scriptInterpreter.setSlotValue(slotIdx, scriptVar);
         }
 
         public boolean writeLogFile(String logLine) {
@@ -500,10 +505,10 @@ public class ChameleonScripting {
             }
         }
 
-        public boolean postBreakpointLabel(String bpLabel, ParserRuleContext lastRuleCtx) {
+        public boolean postBreakpointLabel(String bpLabel, int lineOfCode) {
             scriptState = ScriptRuntimeState.BREAKPOINT;
             atBreakpoint = true;
-            ScriptingGUIConsole.appendConsoleOutputRecordBreakpoint(bpLabel, lastRuleCtx.getStart().getLine());
+            ScriptingGUIConsole.appendConsoleOutputRecordBreakpoint(bpLabel, lineOfCode);
             ScriptingUtils.signalStateChangeByVibration(scriptState);
             return false;
         }
@@ -21,124 +21,262 @@ import com.maxieds.chameleonminilivedebugger.AndroidLogger;
 import com.maxieds.chameleonminilivedebugger.BuildConfig;
 import com.maxieds.chameleonminilivedebugger.ChameleonIO;
 import com.maxieds.chameleonminilivedebugger.ChameleonSettings;
+import com.maxieds.chameleonminilivedebugger.Utils;
 import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingTypes.ScriptVariable;
 import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingExceptions.ChameleonScriptingException;
 import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingExceptions.ExceptionType;
 
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ScriptingFunctions {
 
     private static final String TAG = ScriptingFunctions.class.getSimpleName();
 
-    public static ScriptVariable callFunction(String funcName, List<ScriptVariable> funcArgs) throws ChameleonScriptingException {
-        // The argument list is passed in reverse default from the parser:
-        Collections.reverse(funcArgs);
-        AndroidLogger.w(TAG, "Script: Calling function '" + funcName + "'");
-        printFunctionArgumentList(funcName, funcArgs);
-        switch(funcName) {
-            case "Exit":
-                return ScriptingFunctions.ScriptingAPIFunctions.Exit(funcArgs);
-            case "Assert":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "Print":
-                return ScriptingFunctions.ScriptingAPIFunctions.Print(funcArgs);
-            case "Printf":
-                return ScriptingFunctions.ScriptingAPIFunctions.Printf(funcArgs);
-            case "Sprintf":
-                return ScriptingFunctions.ScriptingAPIFunctions.Sprintf(funcArgs);
-            case "AsHexString":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "AsBinaryString":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "AsByteArray":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "GetLength":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "GetEnv":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "IsChameleonConnected":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "IsChameleonRevG":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "IsChameleonRevE":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "GetChameleonDesc":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "DownloadTagDump":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "UploadTagDump":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "DownloadLogs":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "ExtractDataFromWrappedAPDU": /* TODO: See https://github.com/maxieds/ChameleonMiniLiveDebugger/projects/3 */
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "ExtractDataFromNativeAPDU": /* TODO: See https://github.com/maxieds/ChameleonMiniLiveDebugger/projects/3 */
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "SplitAPDUResponse":         /* TODO: See https://github.com/maxieds/ChameleonMiniLiveDebugger/projects/3 */
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "SearchAPDUStatusCodes":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "SearchAPDUInsCodes":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "SearchAPDUClaCodes":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "RandomBytes":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "RandomInt32":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "GetCRC16":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "AppendCRC16":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "CheckCRC16":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "GetCommonKeys":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "GetUserKeys":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "GetTimestamp":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "MemoryXOR":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "Max":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "Min":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "Reverse":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "PadLeft":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "PadRight":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "GetSubarray":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "ArrayToString":
-                return ScriptingFunctions.ScriptingAPIFunctions.ArrayToString(funcArgs);
-            case "GetConstantString":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "IntegerRange":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "StringFind":
-                return ScriptingFunctions.ScriptingAPIFunctions.Find(funcArgs);
-            case "StringContains":
-                return ScriptingFunctions.ScriptingAPIFunctions.Contains(funcArgs);
-            case "StringReplace":
-                return ScriptingFunctions.ScriptingAPIFunctions.Replace(funcArgs);
-            case "Strcat":
-                throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
-            case "StringSplit":
-                return ScriptingFunctions.ScriptingAPIFunctions.Split(funcArgs);
-            case "StringStrip":
-                return ScriptingFunctions.ScriptingAPIFunctions.Strip(funcArgs);
-            case "StringSubstring":
-                return ScriptingFunctions.ScriptingAPIFunctions.Substring(funcArgs);
-            default:
-                break;
+    /**
+     * A builtin function of the scripting API with the number of arguments it accepts. The
+     * compiler resolves each function call in a script to one of these when it compiles the
+     * script, so a call at runtime neither looks up the function by its name nor checks its
+     * argument count again.
+     */
+    public static abstract class BuiltinFunction {
+
+        public static final int VARIADIC_ARGS = Integer.MAX_VALUE;
+
+        private final String funcName;
+        private final int minArgCount;
+        private final int maxArgCount;
+
+        public BuiltinFunction(String name, int minArgs, int maxArgs) {
+            funcName = name;
+            minArgCount = minArgs;
+            maxArgCount = maxArgs;
+        }
+
+        public String getName() {
+            return funcName;
+        }
+
+        public boolean acceptsArgumentCount(int argCount) {
+            return argCount >= minArgCount && argCount <= maxArgCount;
+        }
+
+        public String getArgumentCountDesc() {
+            if(maxArgCount == VARIADIC_ARGS) {
+                return String.format(BuildConfig.DEFAULT_LOCALE, "at least %d argument(s)", minArgCount);
+            }
+            else if(minArgCount == maxArgCount) {
+                return String.format(BuildConfig.DEFAULT_LOCALE, "%d argument(s)", minArgCount);
+            }
+            return String.format(BuildConfig.DEFAULT_LOCALE, "%d to %d arguments", minArgCount, maxArgCount);
+        }
+
+        /**
+         * Calls the function with its arguments in source order. The argument values may be
+         * shared with the script's variables and constants, so they are never modified.
+         */
+        public ScriptVariable call(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            if(ScriptingConfig.VERBOSE_ERROR_LOGGING) {
+                printFunctionArgumentList(funcName, argList);
+            }
+            return invoke(argList);
+        }
+
+        protected abstract ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException;
+
+        @Override
+        public String toString() {
+            return funcName;
+        }
+
+    }
+
+    private static class NotImplementedFunction extends BuiltinFunction {
+
+        public NotImplementedFunction(String name) {
+            super(name, 0, VARIADIC_ARGS);
+        }
+
+        @Override
+        protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            throw new ChameleonScriptingException(ExceptionType.NotImplementedException);
+        }
+
+    }
+
+    private static final Map<String, BuiltinFunction> BUILTIN_FUNCTIONS = new HashMap<String, BuiltinFunction>();
+
+    private static void registerFunction(BuiltinFunction builtinFunc) {
+        BUILTIN_FUNCTIONS.put(builtinFunc.getName(), builtinFunc);
+    }
+
+    private static void registerNotImplementedFunctions(String[] funcNames) {
+        for(String funcName : funcNames) {
+            registerFunction(new NotImplementedFunction(funcName));
         }
-        AndroidLogger.w(TAG, "Script: Calling function '" + funcName + "'");
-        throw new ChameleonScriptingException(ExceptionType.OperationNotSupportedException);
+    }
+
+    static {
+        registerFunction(new BuiltinFunction("Exit", 1, 1) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Exit(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("Print", 0, BuiltinFunction.VARIADIC_ARGS) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Print(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("Printf", 1, BuiltinFunction.VARIADIC_ARGS) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Printf(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("Sprintf", 1, BuiltinFunction.VARIADIC_ARGS) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Sprintf(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("AsHexString", 1, 2) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.AsHexString(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("AsByteArray", 1, 1) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.AsByteArray(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("RandomBytes", 1, 1) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.RandomBytes(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("GetCRC16", 1, 2) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.GetCRC16(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("AppendCRC16", 1, 2) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.AppendCRC16(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("CheckCRC16", 1, 2) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.CheckCRC16(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("MemoryXOR", 2, 2) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.MemoryXOR(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("Reverse", 1, 1) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Reverse(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("PadLeft", 2, 3) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Pad(argList, true);
+            }
+        });
+        registerFunction(new BuiltinFunction("PadRight", 2, 3) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Pad(argList, false);
+            }
+        });
+        registerFunction(new BuiltinFunction("GetSubarray", 2, 3) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.GetSubarray(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("ArrayToString", 1, 1) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.ArrayToString(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("StringFind", 2, 2) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Find(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("StringContains", 2, 2) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Contains(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("StringReplace", 3, 3) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Replace(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("StringSplit", 2, 2) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Split(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("StringStrip", 1, 1) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Strip(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("StringSubstring", 2, 3) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.Substring(argList);
+            }
+        });
+        registerFunction(new BuiltinFunction("ReceiveFrame", 0, 1) {
+            @Override
+            protected ScriptVariable invoke(List<ScriptVariable> argList) throws ChameleonScriptingException {
+                return ScriptingAPIFunctions.ReceiveFrame(argList);
+            }
+        });
+        registerNotImplementedFunctions(new String[] {
+                "Assert", "AsBinaryString", "GetLength", "GetEnv",
+                "IsChameleonConnected", "IsChameleonRevG", "IsChameleonRevE", "GetChameleonDesc",
+                "DownloadTagDump", "UploadTagDump", "DownloadLogs",
+                /* TODO: See https://github.com/maxieds/ChameleonMiniLiveDebugger/projects/3 */
+                "ExtractDataFromWrappedAPDU", "ExtractDataFromNativeAPDU", "SplitAPDUResponse",
+                "SearchAPDUStatusCodes", "SearchAPDUInsCodes", "SearchAPDUClaCodes",
+                "RandomInt32", "GetCommonKeys", "GetUserKeys", "GetTimestamp", "Max", "Min",
+                "GetConstantString", "IntegerRange", "Strcat"
+        });
+    }
+
+    /**
+     * Returns the builtin function with the name, or null if the scripting API has no such function.
+     */
+    public static BuiltinFunction lookupFunction(String funcName) {
+        return BUILTIN_FUNCTIONS.get(funcName);
     }
 
     public static class ScriptingAPIFunctions {
@@ -153,7 +291,6 @@ public class ScriptingFunctions {
         }
 
         public static ScriptVariable Print(List<ScriptVariable> argList) throws ChameleonScriptingException {
-            printFunctionArgumentList("Print", argList);
             StringBuilder consoleOutput = new StringBuilder();
             for(int argIdx = 0; argIdx < argList.size(); argIdx++) {
                 ScriptVariable svar = argList.get(argIdx);
@@ -164,16 +301,13 @@ public class ScriptingFunctions {
         }
 
         public static ScriptVariable Printf(List<ScriptVariable> argList) throws ChameleonScriptingException {
-            printFunctionArgumentList("Printf", argList);
             ScriptVariable sprintfText = Sprintf(argList);
-            AndroidLogger.i(TAG, "Printf [sprintf var str value] -> \"" + sprintfText.getValueAsString() + "\"");
             String returnText = ScriptingUtils.rawStringToSpecialCharEncoding(sprintfText.getValueAsString());
             ChameleonScripting.getRunningInstance().writeConsoleOutput(returnText);
             return ScriptVariable.newInstance().set(returnText.length());
         }
 
         public static ScriptVariable Sprintf(List<ScriptVariable> argList) throws ChameleonScriptingException {
-            printFunctionArgumentList("Sprintf", argList);
             if(argList.size() == 0) {
                 throw new ChameleonScriptingException(ExceptionType.InvalidArgumentException, "Requires a format string parameter");
             }
@@ -185,7 +319,6 @@ public class ScriptingFunctions {
                 throw new ChameleonScriptingException(ExceptionType.InvalidArgumentException, "Not enough variables supplied");
             }
             for(String rawStringPart : fmtFlagMatches) {
-                AndroidLogger.d(TAG, "MATCHING RAW FMT PART: '" + rawStringPart + "'");
                 ++varIndex;
                 if(varIndex == 0 && fmtMsg.charAt(0) != '%') {
                     consoleOutput.append(rawStringPart);
@@ -231,7 +364,6 @@ public class ScriptingFunctions {
                     }
                 }
             }
-            AndroidLogger.i(TAG, "Sprintf -> \"" + consoleOutput.toString() + "\"");
             return ScriptVariable.newInstance().set(ScriptingUtils.rawStringToSpecialCharEncoding(consoleOutput.toString()));
         }
 
@@ -369,16 +501,204 @@ public class ScriptingFunctions {
             String arrReprStr = "{ ";
             ScriptVariable arrVar = argList.get(0);
             int arrLength = arrVar.length();
-            AndroidLogger.i(TAG,"ArrayToString -> Array Length = " + arrLength);
             for(int ai = 0; ai < arrLength; ai++) {
                 String nextSpace = (ai + 1 == arrLength) ? " " : ", ";
                 arrReprStr += String.format(BuildConfig.DEFAULT_LOCALE, "%s%s", arrVar.getValueAt(ai).getValueAsString(), nextSpace);
             }
             arrReprStr += "}";
-            AndroidLogger.i(TAG, "ArrayToString -> \"" + arrReprStr + "\"");
             return new ScriptVariable(arrReprStr);
         }
 
+        private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+        private static final SecureRandom RANDOM_BYTES_SOURCE = new SecureRandom();
+
+        /* Reads an optional count of leading bytes, which must fit in the array of maxLength bytes: */
+        private static int getByteCountArgument(List<ScriptVariable> argList, int argIdx, int maxLength) throws ChameleonScriptingException {
+            if(argList.size() <= argIdx) {
+                return maxLength;
+            }
+            int byteCount = argList.get(argIdx).getValueAsInt();
+            if(byteCount < 0 || byteCount > maxLength) {
+                throw new ChameleonScriptingException(ExceptionType.IndexOutOfBoundsException);
+            }
+            return byteCount;
+        }
+
+        public static ScriptVariable AsHexString(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            byte[] varBytes = argList.get(0).getValueAsBytes();
+            int byteCount = getByteCountArgument(argList, 1, varBytes.length);
+            char[] hexChars = new char[2 * byteCount];
+            for(int b = 0; b < byteCount; b++) {
+                hexChars[2 * b] = HEX_DIGITS[(varBytes[b] >>> 4) & 0x0f];
+                hexChars[2 * b + 1] = HEX_DIGITS[varBytes[b] & 0x0f];
+            }
+            return new ScriptVariable(new String(hexChars));
+        }
+
+        public static ScriptVariable AsByteArray(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            ScriptVariable srcVar = argList.get(0);
+            if(srcVar.isBytesType()) {
+                return srcVar;
+            }
+            else if(srcVar.getType() == ScriptVariable.VariableType.VariableTypeArrayMap) {
+                byte[] itemBytes = new byte[srcVar.length()];
+                for(int b = 0; b < itemBytes.length; b++) {
+                    itemBytes[b] = srcVar.getValueAt(b).getValueAsByte();
+                }
+                return new ScriptVariable(itemBytes);
+            }
+            else if(srcVar.isStringType()) {
+                String hexStr = srcVar.getValueAsString().replaceAll("\\s+", "");
+                if(hexStr.length() > 0 && Utils.stringIsHexadecimal(hexStr) && !hexStr.startsWith("-")) {
+                    return new ScriptVariable(Utils.hexString2Bytes(hexStr));
+                }
+                return new ScriptVariable(srcVar.getValueAsString().getBytes(StandardCharsets.US_ASCII));
+            }
+            return new ScriptVariable(srcVar.getValueAsBytes());
+        }
+
+        /**
+         * ReceiveFrame([timeoutMillis]) waits for the next LIVE log or unsolicited device frame
+         * that arrived while the script was running.
+         * @ref ChameleonIOHandler.receiveFrameForResult
+         */
+        public static ScriptVariable ReceiveFrame(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            int timeoutMillis = argList.isEmpty() ? ChameleonIOHandler.getDefaultTimeout() : argList.get(0).getValueAsInt();
+            if(timeoutMillis < 0) {
+                throw new ChameleonScriptingException(ExceptionType.InvalidArgumentException);
+            }
+            return ChameleonIOHandler.receiveFrameForResult(timeoutMillis);
+        }
+
+        public static ScriptVariable RandomBytes(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            int byteCount = argList.get(0).getValueAsInt();
+            if(byteCount < 0) {
+                throw new ChameleonScriptingException(ExceptionType.InvalidArgumentException);
+            }
+            byte[] randomBytes = new byte[byteCount];
+            RANDOM_BYTES_SOURCE.nextBytes(randomBytes);
+            return new ScriptVariable(randomBytes);
+        }
+
+        /**
+         * GetCRC16(data[, length]) returns the two CRC16 bytes (low byte first) of the first length bytes.
+         */
+        public static ScriptVariable GetCRC16(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            byte[] dataBytes = argList.get(0).getValueAsBytes();
+            int dataLength = getByteCountArgument(argList, 1, dataBytes.length);
+            int crc16 = Utils.calculateByteBufferCRC16(dataBytes, 0, dataLength);
+            return new ScriptVariable(new byte[] { (byte) crc16, (byte) (crc16 >>> 8) });
+        }
+
+        /**
+         * AppendCRC16(data[, length]) stores the CRC16 of the first length bytes right after them
+         * (as iso14443a_crc_append does in libnfc), and extends the array when it is too short.
+         */
+        public static ScriptVariable AppendCRC16(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            byte[] dataBytes = argList.get(0).getValueAsBytes();
+            int dataLength = getByteCountArgument(argList, 1, dataBytes.length);
+            byte[] crcDataBytes = Arrays.copyOf(dataBytes, Math.max(dataBytes.length, dataLength + 2));
+            int crc16 = Utils.calculateByteBufferCRC16(dataBytes, 0, dataLength);
+            crcDataBytes[dataLength] = (byte) crc16;
+            crcDataBytes[dataLength + 1] = (byte) (crc16 >>> 8);
+            return new ScriptVariable(crcDataBytes);
+        }
+
+        /**
+         * CheckCRC16(data[, length]) checks that the first length bytes end with the CRC16 of the bytes before.
+         */
+        public static ScriptVariable CheckCRC16(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            byte[] dataBytes = argList.get(0).getValueAsBytes();
+            int dataLength = getByteCountArgument(argList, 1, dataBytes.length);
+            if(dataLength < 2) {
+                return new ScriptVariable(false);
+            }
+            int crc16 = Utils.calculateByteBufferCRC16(dataBytes, 0, dataLength - 2);
+            return new ScriptVariable(dataBytes[dataLength - 2] == (byte) crc16 && dataBytes[dataLength - 1] == (byte) (crc16 >>> 8));
+        }
+
+        public static ScriptVariable MemoryXOR(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            ScriptVariable lhsVar = argList.get(0), rhsVar = argList.get(1);
+            if(!lhsVar.isBytesType() && !rhsVar.isBytesType()) {
+                throw new ChameleonScriptingException(ExceptionType.InvalidTypeException);
+            }
+            return ScriptingInterpreter.binaryOperation(ScriptVariable.Operation.BINOP_BITWISE_XOR, lhsVar, rhsVar);
+        }
+
+        public static ScriptVariable Reverse(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            ScriptVariable srcVar = argList.get(0);
+            if(srcVar.isBytesType()) {
+                byte[] srcBytes = srcVar.getValueAsBytes();
+                byte[] reversedBytes = new byte[srcBytes.length];
+                for(int b = 0; b < srcBytes.length; b++) {
+                    reversedBytes[b] = srcBytes[srcBytes.length - 1 - b];
+                }
+                return new ScriptVariable(reversedBytes);
+            }
+            else if(srcVar.getType() == ScriptVariable.VariableType.VariableTypeArrayMap) {
+                int itemCount = srcVar.length();
+                List<ScriptVariable> reversedItems = new ArrayList<ScriptVariable>(itemCount);
+                for(int idx = itemCount - 1; idx >= 0; idx--) {
+                    reversedItems.add(srcVar.getValueAt(idx));
+                }
+                return new ScriptVariable(reversedItems);
+            }
+            else if(srcVar.isStringType()) {
+                return new ScriptVariable(new StringBuilder(srcVar.getValueAsString()).reverse().toString());
+            }
+            throw new ChameleonScriptingException(ExceptionType.InvalidTypeException);
+        }
+
+        /**
+         * PadLeft/PadRight(data, length[, pad]) pads the bytes (by default with 0x00) or the string
+         * (by default with spaces) up to length. Longer values are returned unchanged.
+         */
+        public static ScriptVariable Pad(List<ScriptVariable> argList, boolean padLeft) throws ChameleonScriptingException {
+            ScriptVariable srcVar = argList.get(0);
+            int padLength = argList.get(1).getValueAsInt();
+            if(srcVar.isStringType()) {
+                String srcStr = srcVar.getValueAsString();
+                String padStr = argList.size() > 2 ? argList.get(2).getValueAsString() : " ";
+                if(srcStr.length() >= padLength || padStr.length() == 0) {
+                    return srcVar;
+                }
+                StringBuilder paddedStr = new StringBuilder(padLength);
+                if(!padLeft) {
+                    paddedStr.append(srcStr);
+                }
+                for(int padCount = padLength - srcStr.length(); padCount > 0; padCount--) {
+                    paddedStr.append(padStr.charAt(0));
+                }
+                if(padLeft) {
+                    paddedStr.append(srcStr);
+                }
+                return new ScriptVariable(paddedStr.toString());
+            }
+            byte[] srcBytes = srcVar.getValueAsBytes();
+            if(srcBytes.length >= padLength) {
+                return srcVar;
+            }
+            byte padByte = argList.size() > 2 ? argList.get(2).getValueAsByte() : 0x00;
+            byte[] paddedBytes = new byte[padLength];
+            int srcOffset = padLeft ? padLength - srcBytes.length : 0;
+            Arrays.fill(paddedBytes, padByte);
+            System.arraycopy(srcBytes, 0, paddedBytes, srcOffset, srcBytes.length);
+            return new ScriptVariable(paddedBytes);
+        }
+
+        /**
+         * GetSubarray(data, start[, length]) as the slice data[start:length].
+         */
+        public static ScriptVariable GetSubarray(List<ScriptVariable> argList) throws ChameleonScriptingException {
+            ScriptVariable srcVar = argList.get(0);
+            int startIdx = argList.get(1).getValueAsInt();
+            if(argList.size() > 2) {
+                return srcVar.getSubArray(startIdx, argList.get(2).getValueAsInt());
+            }
+            return srcVar.getSubArray(startIdx);
+        }
+
     };
 
     public static String getEnvironmentVariableByName(String envVarName) {
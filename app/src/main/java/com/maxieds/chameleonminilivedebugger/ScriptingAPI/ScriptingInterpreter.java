@@ -0,0 +1,461 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+
+package com.maxieds.chameleonminilivedebugger.ScriptingAPI;
+
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.CAST_BOOLEAN;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.CAST_BYTE;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.CAST_INT32;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.CAST_SHORT;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.CAST_STRING;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_BINARY_OP;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_CALL_FUNCTION;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_CAST;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_CMP_EQ;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_CMP_NE;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_COPY;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_EXEC_COMMAND;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_GET_INDEX;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_GET_PROPERTY;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_GET_SLICE;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_HALT;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_INSERT_SLICE;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_JUMP;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_JUMP_IF_FALSE;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_LABEL;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_LOAD_VAR;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_LOGICAL_AND;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_LOGICAL_NOT;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_LOGICAL_OR;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_MAKE_ARRAY;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_POP;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_PUSH_CONST;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_SET_PROPERTY;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_STORE_VAR;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.OP_UNARY_OP;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.SLICE_START_LENGTH;
+import static com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.SLICE_START_ONLY;
+
+import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScriptCompiler.CompiledScript;
+import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ChameleonScripting.ChameleonScriptInstance;
+import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingFunctions.BuiltinFunction;
+import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingTypes.ScriptVariable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <h1>Scripting Interpreter</h1>
+ * Runs the IR produced by the ChameleonScriptCompiler over a flat frame of variable slots and
+ * a fixed size operand stack. There is no logging and no tree walking per statement: the line
+ * of code the script is executing is only published when it calls out to a scripting API
+ * function or the device, at a label, and when an exception unwinds the loop.
+ *
+ * The values on the stack are treated as immutable, so that the constants of the compiled
+ * (and cached) script can be shared between the runs. The operations which modify a value in
+ * place are always applied to a copy of it. The one exception is appending to a variable with
+ * +=, which copies the variable's value once and then appends to the copy in place until the
+ * value is loaded onto the stack again.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ChameleonScriptCompiler
+ * @ref ChameleonScripting.ChameleonScriptInstance
+ */
+public class ScriptingInterpreter {
+
+    private static final String TAG = ScriptingInterpreter.class.getSimpleName();
+
+    private static final ScriptVariable.Operation[] OPERATIONS = ScriptVariable.Operation.values();
+
+    /*
+     * Shared instances of the boolean and the small integer values, so the loop counters and
+     * the conditions of a script do not allocate on each pass. They are safe to share because
+     * the interpreter never modifies a value on its stack in place.
+     */
+    private static final ScriptVariable TRUE_VALUE = ScriptVariable.newInstance().set(true);
+    private static final ScriptVariable FALSE_VALUE = ScriptVariable.newInstance().set(false);
+    private static final int CACHED_INT_VALUES_MIN = -128;
+    private static final int CACHED_INT_VALUES_MAX = 1023;
+    private static final ScriptVariable[] CACHED_INT_VALUES = new ScriptVariable[CACHED_INT_VALUES_MAX - CACHED_INT_VALUES_MIN + 1];
+    static {
+        for(int cacheIdx = 0; cacheIdx < CACHED_INT_VALUES.length; cacheIdx++) {
+            CACHED_INT_VALUES[cacheIdx] = ScriptVariable.newInstance().set(CACHED_INT_VALUES_MIN + cacheIdx);
+        }
+    }
+
+    public static ScriptVariable booleanValue(boolean value) {
+        return value ? TRUE_VALUE : FALSE_VALUE;
+    }
+
+    public static ScriptVariable intValue(int value) {
+        if(value >= CACHED_INT_VALUES_MIN && value <= CACHED_INT_VALUES_MAX) {
+            return CACHED_INT_VALUES[value - CACHED_INT_VALUES_MIN];
+        }
+        return ScriptVariable.newInstance().set(value);
+    }
+
+    private final CompiledScript compiledScript;
+    private final ChameleonScriptInstance scriptContext;
+    private final ScriptVariable[] slotFrame;
+    private final boolean[] slotOwned;
+    private final ScriptVariable[] operandStack;
+    private int pc;
+
+    public ScriptingInterpreter(CompiledScript script, ChameleonScriptInstance ctxInstance) {
+        compiledScript = script;
+        scriptContext = ctxInstance;
+        slotFrame = new ScriptVariable[script.getSlotCount()];
+        slotOwned = new boolean[script.getSlotCount()];
+        operandStack = new ScriptVariable[Math.max(1, script.getMaxStackDepth())];
+        pc = 0;
+    }
+
+    public CompiledScript getCompiledScript() {
+        return compiledScript;
+    }
+
+    public int getExecutingLineOfCode() {
+        return compiledScript.getLineNumber(pc);
+    }
+
+    /**
+     * Returns the value stored in the variable slot, or null if the script has not assigned it yet.
+     */
+    public ScriptVariable getSlotValue(int slotIdx) {
+        slotOwned[slotIdx] = false;
+        return slotFrame[slotIdx];
+    }
+
+    public void setSlotValue(int slotIdx, ScriptVariable svar) {
+        slotFrame[slotIdx] = svar;
+        slotOwned[slotIdx] = false;
+    }
+
+    /**
+     * Runs the script from the start until it halts. Returns false when the running thread
+     * was interrupted (the script is being killed or paused) before it finished.
+     * @throws ScriptingExceptions.ChameleonScriptingException (or another runtime exception)
+     *         thrown by the script operations, after the line where it occurred is recorded
+     *         as the active line of code.
+     */
+    public boolean runScript() throws ScriptingExceptions.ChameleonScriptingException {
+        final int[] code = compiledScript.getCode();
+        final Object[] constants = compiledScript.getConstants();
+        final ScriptVariable[] stack = operandStack;
+        int sp = 0;
+        pc = 0;
+        try {
+            while(true) {
+                switch(code[pc]) {
+                    case OP_HALT:
+                        return true;
+                    case OP_PUSH_CONST:
+                        stack[sp++] = (ScriptVariable) constants[code[pc + 1]];
+                        pc += 2;
+                        break;
+                    case OP_POP:
+                        stack[--sp] = null;
+                        pc += 1;
+                        break;
+                    case OP_COPY:
+                        stack[sp - 1] = stack[sp - 1].copy();
+                        pc += 1;
+                        break;
+                    case OP_LOAD_VAR:
+                        stack[sp++] = loadSlot(code[pc + 1]);
+                        pc += 2;
+                        break;
+                    case OP_STORE_VAR:
+                        slotFrame[code[pc + 1]] = stack[sp - 1];
+                        slotOwned[code[pc + 1]] = false;
+                        pc += 2;
+                        break;
+                    case OP_APPEND_VAR:
+                        appendSlot(code[pc + 1], stack[sp - 1]);
+                        stack[--sp] = null;
+                        pc += 2;
+                        break;
+                    case OP_GET_PROPERTY:
+                        stack[sp - 1] = stack[sp - 1].getValueAt((String) constants[code[pc + 1]]);
+                        pc += 2;
+                        break;
+                    case OP_SET_PROPERTY:
+                        stack[sp - 2].setValueAt((String) constants[code[pc + 1]], stack[sp - 1]);
+                        stack[sp - 2] = stack[sp - 1];
+                        stack[--sp] = null;
+                        pc += 2;
+                        break;
+                    case OP_GET_INDEX:
+                        stack[sp - 2] = stack[sp - 2].getValueAt(stack[sp - 1].getValueAsInt());
+                        stack[--sp] = null;
+                        pc += 1;
+                        break;
+                    case OP_GET_SLICE:
+                        sp = getSlice(stack, sp, code[pc + 1]);
+                        pc += 2;
+                        break;
+                    case OP_INSERT_SLICE:
+                        sp = insertSlice(stack, sp, code[pc + 1]);
+                        pc += 2;
+                        break;
+                    case OP_BINARY_OP:
+                        stack[sp - 2] = binaryOperation(OPERATIONS[code[pc + 1]], stack[sp - 2], stack[sp - 1]);
+                        stack[--sp] = null;
+                        pc += 2;
+                        break;
+                    case OP_UNARY_OP:
+                        stack[sp - 1] = unaryOperation(OPERATIONS[code[pc + 1]], stack[sp - 1]);
+                        pc += 2;
+                        break;
+                    case OP_CAST:
+                        stack[sp - 1] = castValue(code[pc + 1], stack[sp - 1]);
+                        pc += 2;
+                        break;
+                    case OP_CMP_EQ:
+                    case OP_CMP_NE:
+                    case OP_LOGICAL_AND:
+                    case OP_LOGICAL_OR:
+                        stack[sp - 2] = booleanOperation(code[pc], stack[sp - 2], stack[sp - 1]);
+                        stack[--sp] = null;
+                        pc += 1;
+                        break;
+                    case OP_LOGICAL_NOT:
+                        stack[sp - 1] = booleanValue(!stack[sp - 1].getValueAsBoolean());
+                        pc += 1;
+                        break;
+                    case OP_EXEC_COMMAND:
+                        scriptContext.setActiveLineOfCode(compiledScript.getLineNumber(pc));
+                        stack[sp - 1] = ChameleonIOHandler.executeChameleonCommandForResult(stack[sp - 1].getValueAsString());
+                        pc += 1;
+                        break;
+                    case OP_CALL_FUNCTION:
+                        scriptContext.setActiveLineOfCode(compiledScript.getLineNumber(pc));
+                        sp = callFunction(stack, sp, (BuiltinFunction) constants[code[pc + 1]], code[pc + 2]);
+                        pc += 3;
+                        break;
+                    case OP_MAKE_ARRAY:
+                        sp = makeArray(stack, sp, code[pc + 1]);
+                        pc += 2;
+                        break;
+                    case OP_JUMP:
+                        if(code[pc + 1] <= pc && Thread.currentThread().isInterrupted()) {
+                            return false;
+                        }
+                        pc = code[pc + 1];
+                        break;
+                    case OP_JUMP_IF_FALSE:
+                        boolean predicate = stack[--sp].getValueAsBoolean();
+                        stack[sp] = null;
+                        pc = predicate ? pc + 2 : code[pc + 1];
+                        break;
+                    case OP_LABEL:
+                        postLabel((String) constants[code[pc + 1]]);
+                        pc += 2;
+                        break;
+                    default:
+                        throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IllegalStateException,
+                                "Invalid opcode " + code[pc]);
+                }
+            }
+        } catch(RuntimeException rte) {
+            scriptContext.setActiveLineOfCode(compiledScript.getLineNumber(pc));
+            throw rte;
+        }
+    }
+
+    private ScriptVariable loadSlot(int slotIdx) {
+        ScriptVariable svar = slotFrame[slotIdx];
+        if(svar == null) {
+            svar = ScriptVariable.newInstance().set("<uninitialized>").setName(compiledScript.getSlotNames()[slotIdx]);
+            slotFrame[slotIdx] = svar;
+        }
+        slotOwned[slotIdx] = false;
+        return svar;
+    }
+
+    /*
+     * The slot owns its value after the first append copies it, so the appends which follow
+     * (as in a loop building up a byte array) grow the value in place in amortized linear time:
+     */
+    private void appendSlot(int slotIdx, ScriptVariable rhsVar) {
+        boolean lhsOwned = slotOwned[slotIdx];
+        ScriptVariable lhsVar = loadSlot(slotIdx);
+        if(lhsVar.hasIntValue() && rhsVar.hasIntValue()) {
+            slotFrame[slotIdx] = intValue(lhsVar.getValueAsInt() + rhsVar.getValueAsInt());
+            return;
+        }
+        if(!lhsOwned) {
+            lhsVar = lhsVar.copy();
+        }
+        slotFrame[slotIdx] = lhsVar.binaryOperation(ScriptVariable.Operation.BINOP_PLUS, rhsVar);
+        slotOwned[slotIdx] = true;
+    }
+
+    private void postLabel(String labelName) {
+        int lineOfCode = compiledScript.getLineNumber(pc);
+        scriptContext.setActiveLineOfCode(lineOfCode);
+        if(ScriptingBreakPoint.searchBreakpointByLineLabel(labelName)) {
+            scriptContext.postBreakpointLabel(labelName, lineOfCode);
+        }
+    }
+
+    private static int getSlice(ScriptVariable[] stack, int sp, int sliceMode) {
+        ScriptVariable sliceResult;
+        switch(sliceMode) {
+            case SLICE_START_LENGTH:
+                sliceResult = stack[sp - 3].getSubArray(stack[sp - 2].getValueAsInt(), stack[sp - 1].getValueAsInt());
+                sp -= 2;
+                break;
+            case SLICE_START_ONLY:
+                sliceResult = stack[sp - 2].getSubArray(stack[sp - 1].getValueAsInt());
+                sp -= 1;
+                break;
+            default:
+                sliceResult = stack[sp - 2].getSubArray(0, stack[sp - 1].getValueAsInt());
+                sp -= 1;
+                break;
+        }
+        Arrays.fill(stack, sp, sp + 2, null);
+        stack[sp - 1] = sliceResult;
+        return sp;
+    }
+
+    private static int insertSlice(ScriptVariable[] stack, int sp, int sliceMode) {
+        ScriptVariable rhsVar = stack[sp - 1];
+        switch(sliceMode) {
+            case SLICE_START_LENGTH:
+                stack[sp - 4].insertSubArray(stack[sp - 3].getValueAsInt(), stack[sp - 2].getValueAsInt(), rhsVar);
+                sp -= 3;
+                break;
+            case SLICE_START_ONLY:
+                stack[sp - 3].insertSubArray(stack[sp - 2].getValueAsInt(), rhsVar);
+                sp -= 2;
+                break;
+            default:
+                stack[sp - 3].insertSubArray(0, stack[sp - 2].getValueAsInt(), rhsVar);
+                sp -= 2;
+                break;
+        }
+        Arrays.fill(stack, sp, sp + 3, null);
+        return sp;
+    }
+
+    private static int callFunction(ScriptVariable[] stack, int sp, BuiltinFunction builtinFunc, int argCount) {
+        /* The arguments are passed in source order: */
+        List<ScriptVariable> funcArgs = new ArrayList<ScriptVariable>(Arrays.asList(stack).subList(sp - argCount, sp));
+        Arrays.fill(stack, sp - argCount, sp, null);
+        sp -= argCount;
+        stack[sp++] = builtinFunc.call(funcArgs);
+        return sp;
+    }
+
+    private static int makeArray(ScriptVariable[] stack, int sp, int eltCount) {
+        List<ScriptVariable> arrElts = new ArrayList<ScriptVariable>(Arrays.asList(stack).subList(sp - eltCount, sp));
+        Arrays.fill(stack, sp - eltCount, sp, null);
+        sp -= eltCount;
+        stack[sp++] = new ScriptVariable(arrElts);
+        return sp;
+    }
+
+    public static ScriptVariable binaryOperation(ScriptVariable.Operation opType, ScriptVariable lhsVar, ScriptVariable rhsVar) {
+        if(opType == ScriptVariable.Operation.BINOP_PLUS && lhsVar.hasIntValue() && rhsVar.hasIntValue()) {
+            return intValue(lhsVar.getValueAsInt() + rhsVar.getValueAsInt());
+        }
+        return lhsVar.copy().binaryOperation(opType, rhsVar);
+    }
+
+    public static ScriptVariable unaryOperation(ScriptVariable.Operation opType, ScriptVariable rhsVar) {
+        return rhsVar.copy().unaryOperation(opType);
+    }
+
+    public static ScriptVariable castValue(int castType, ScriptVariable initVar) {
+        switch(castType) {
+            case CAST_BYTE:
+                return ScriptVariable.newInstance().set(new byte[] { initVar.getValueAsByte() });
+            case CAST_SHORT:
+                return ScriptVariable.newInstance().set((int) initVar.getValueAsShort());
+            case CAST_INT32:
+                return ScriptVariable.newInstance().set(initVar.getValueAsInt());
+            case CAST_BOOLEAN:
+                return ScriptVariable.newInstance().set(initVar.getValueAsBoolean());
+            case CAST_STRING:
+                return ScriptVariable.newInstance().set(initVar.getValueAsString());
+            default:
+                return ScriptVariable.newInstance().set(initVar.getValueAsBytes());
+        }
+    }
+
+    public static ScriptVariable booleanOperation(int opcode, ScriptVariable lhsVar, ScriptVariable rhsVar) {
+        boolean opResult;
+        switch(opcode) {
+            case OP_CMP_EQ:
+            case OP_CMP_NE:
+                if(lhsVar.hasIntValue() && rhsVar.hasIntValue()) {
+                    opResult = lhsVar.getValueAsInt() == rhsVar.getValueAsInt();
+                }
+                else if(rhsVar.isStringType()) {
+                    opResult = lhsVar.getValueAsString().equals(rhsVar.getValueAsString());
+                }
+                else if(rhsVar.isIntegerType()) {
+                    opResult = lhsVar.getValueAsInt() == rhsVar.getValueAsInt();
+                }
+                else {
+                    opResult = lhsVar.getValueAsBoolean() == rhsVar.getValueAsBoolean();
+                }
+                if(opcode == OP_CMP_NE) {
+                    opResult = !opResult;
+                }
+                break;
+            case OP_LOGICAL_AND:
+                opResult = lhsVar.getValueAsBoolean() && rhsVar.getValueAsBoolean();
+                break;
+            default:
+                opResult = lhsVar.getValueAsBoolean() || rhsVar.getValueAsBoolean();
+                break;
+        }
+        return booleanValue(opResult);
+    }
+
+    /**
+     * Evaluates one of the pure (foldable) operations on its operands, as the constant folding
+     * in the ChameleonScriptCompiler does at compile time.
+     */
+    public static ScriptVariable evaluateOperation(int opcode, int operand, ScriptVariable[] operands) {
+        switch(opcode) {
+            case OP_BINARY_OP:
+                return binaryOperation(OPERATIONS[operand], operands[0], operands[1]);
+            case OP_UNARY_OP:
+                return unaryOperation(OPERATIONS[operand], operands[0]);
+            case OP_CAST:
+                return castValue(operand, operands[0]);
+            case OP_CMP_EQ:
+            case OP_CMP_NE:
+            case OP_LOGICAL_AND:
+            case OP_LOGICAL_OR:
+                return booleanOperation(opcode, operands[0], operands[1]);
+            case OP_LOGICAL_NOT:
+                return booleanValue(!operands[0].getValueAsBoolean());
+            default:
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IllegalOperationException,
+                        "Not a foldable opcode");
+        }
+    }
+
+}
@@ -26,6 +26,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ScriptingTypes {
 
@@ -38,6 +39,8 @@ public class ScriptingTypes {
      */
     public static class ScriptVariable {
 
+        private static final byte[] EMPTY_BYTES = new byte[0];
+
         public enum VariableType {
             VariableTypeNone,
             VariableTypeInteger,
@@ -56,8 +59,16 @@ public class ScriptingTypes {
         private int     varValueAsInt;
         private boolean varValueAsBoolean;
         private byte[]  varValueAsByteArray;
+        private int     varByteArrayLength;
         private String  varValueAsString;
 
+        /* The byte array may have spare capacity past varByteArrayLength for appending in place.
+         * Set when the byte array may also be referenced elsewhere, so that it is copied before
+         * it is modified in place (copy on write):
+         */
+        private boolean byteArrayShared;
+
+        /* Only allocated once the variable stores array or hash map items: */
         private ArrayList<ScriptVariable> arrayList;
         private HashMap<String, ScriptVariable> hashMap;
 
@@ -67,10 +78,72 @@ public class ScriptingTypes {
             varIsInit = false;
             varValueAsInt = 0;
             varValueAsBoolean = false;
-            varValueAsByteArray = new byte[0];
+            varValueAsByteArray = EMPTY_BYTES;
+            varByteArrayLength = 0;
             varValueAsString = "";
-            arrayList = new ArrayList<ScriptVariable>();
-            hashMap = new HashMap<String, ScriptVariable>();
+            byteArrayShared = true;
+            arrayList = null;
+            hashMap = null;
+        }
+
+        private List<ScriptVariable> getArrayListItems() {
+            if(arrayList == null) {
+                return Collections.emptyList();
+            }
+            return arrayList;
+        }
+
+        private ArrayList<ScriptVariable> getWritableArrayList() {
+            if(arrayList == null) {
+                arrayList = new ArrayList<ScriptVariable>();
+            }
+            return arrayList;
+        }
+
+        private Map<String, ScriptVariable> getHashMapItems() {
+            if(hashMap == null) {
+                return Collections.emptyMap();
+            }
+            return hashMap;
+        }
+
+        private HashMap<String, ScriptVariable> getWritableHashMap() {
+            if(hashMap == null) {
+                hashMap = new HashMap<String, ScriptVariable>();
+            }
+            return hashMap;
+        }
+
+        private byte[] getWritableBytes() {
+            if(byteArrayShared) {
+                varValueAsByteArray = Arrays.copyOf(varValueAsByteArray, varByteArrayLength);
+                byteArrayShared = false;
+            }
+            return varValueAsByteArray;
+        }
+
+        private void setBytesResult(byte[] resultBytes) {
+            varValueAsByteArray = resultBytes;
+            varByteArrayLength = resultBytes.length;
+            byteArrayShared = false;
+            varType = VariableType.VariableTypeBytes;
+            varIsInit = true;
+        }
+
+        /**
+         * Appends the first srcLength bytes of srcBytes in place. The array grows geometrically,
+         * so appending n bytes one at a time takes linear (amortized) time.
+         */
+        public ScriptVariable appendBytes(byte[] srcBytes, int srcLength) {
+            int nextLength = varByteArrayLength + srcLength;
+            if(byteArrayShared || nextLength > varValueAsByteArray.length) {
+                int nextCapacity = Math.max(nextLength, Math.max(2 * varByteArrayLength, 16));
+                varValueAsByteArray = Arrays.copyOf(varValueAsByteArray, nextCapacity);
+                byteArrayShared = false;
+            }
+            System.arraycopy(srcBytes, 0, varValueAsByteArray, varByteArrayLength, srcLength);
+            varByteArrayLength = nextLength;
+            return this;
         }
         public ScriptVariable() {
             setLocalVariableDefaults();
@@ -101,6 +174,27 @@ public class ScriptingTypes {
             setArrayListItems(listItems);
         }
 
+        /**
+         * Returns a new variable with the same type and value. The array and hash map containers
+         * are copied (their items are shared), and the byte array is shared copy on write, so
+         * modifying the copy in place leaves this variable unchanged.
+         */
+        public ScriptVariable copy() {
+            ScriptVariable varCopy = new ScriptVariable();
+            varCopy.varName = varName;
+            varCopy.varType = varType;
+            varCopy.varIsInit = varIsInit;
+            varCopy.varValueAsInt = varValueAsInt;
+            varCopy.varValueAsBoolean = varValueAsBoolean;
+            varCopy.varValueAsByteArray = varValueAsByteArray;
+            varCopy.varByteArrayLength = varByteArrayLength;
+            varCopy.varValueAsString = varValueAsString;
+            byteArrayShared = varCopy.byteArrayShared = true;
+            varCopy.arrayList = arrayList == null ? null : new ArrayList<ScriptVariable>(arrayList);
+            varCopy.hashMap = hashMap == null ? null : new HashMap<String, ScriptVariable>(hashMap);
+            return varCopy;
+        }
+
         public ScriptVariable setName(String nextVarName) {
             varName = nextVarName;
             return this;
@@ -114,6 +208,20 @@ public class ScriptingTypes {
             return varIsInit;
         }
 
+        /**
+         * True when the value is stored as an unboxed int, so getValueAsInt() needs no conversion.
+         */
+        public boolean hasIntValue() {
+            return varType == VariableType.VariableTypeInteger;
+        }
+
+        /**
+         * True when the value is stored as an unboxed boolean.
+         */
+        public boolean hasBooleanValue() {
+            return varType == VariableType.VariableTypeBoolean;
+        }
+
         public ScriptVariable set(int nextValue) {
             varValueAsInt = nextValue;
             varType = VariableType.VariableTypeInteger;
@@ -128,10 +236,11 @@ public class ScriptingTypes {
             else if(varType == VariableType.VariableTypeBoolean) {
                 return varValueAsBoolean ? 1 : 0;
             }
-            else if((varType == VariableType.VariableTypeBytes) && (varValueAsByteArray.length <= 8)) {
-                int varValue = 0, bytePosShiftLeftMost = 2 * varValueAsByteArray.length;
-                for(int bytePos = 1; bytePos <= varValueAsByteArray.length; bytePos++) {
-                    varValue |= varValueAsByteArray[bytePos] << (bytePosShiftLeftMost - 2 * bytePos);
+            else if((varType == VariableType.VariableTypeBytes) && (varByteArrayLength <= 4)) {
+                /* Big endian, as getValueAsBytes() converts the integers: */
+                int varValue = 0;
+                for(int bytePos = 0; bytePos < varByteArrayLength; bytePos++) {
+                    varValue = (varValue << 8) | (varValueAsByteArray[bytePos] & 0xff);
                 }
                 return varValue;
             }
@@ -194,13 +303,21 @@ public class ScriptingTypes {
         }
 
         public ScriptVariable set(byte[] nextValue) {
+            /* The caller keeps a reference to the array, so it is not modified in place: */
             varValueAsByteArray = nextValue;
+            varByteArrayLength = nextValue.length;
+            byteArrayShared = true;
             varType = VariableType.VariableTypeBytes;
+            varIsInit = true;
             return this;
         }
 
         public byte[] getValueAsBytes() throws ScriptingExceptions.ChameleonScriptingException {
             if(isBytesType()) {
+                if(varValueAsByteArray.length != varByteArrayLength) {
+                    varValueAsByteArray = Arrays.copyOf(varValueAsByteArray, varByteArrayLength);
+                }
+                byteArrayShared = true;
                 return varValueAsByteArray;
             }
             else if(isIntegerType()) {
@@ -211,16 +328,11 @@ public class ScriptingTypes {
                         (byte) ((varIntValue & 0x0000ff00) >> 8),
                         (byte) (varIntValue & 0x000000ff)
                 };
-                int lastByteArrayPos = 1;
-                for(int bytePos = 1; bytePos < intBytes.length; bytePos++) {
-                    if(intBytes[bytePos - 1] != 0x00) {
-                        lastByteArrayPos = bytePos;
-                        break;
-                    }
+                int firstByteArrayPos = 0;
+                while(firstByteArrayPos < intBytes.length - 1 && intBytes[firstByteArrayPos] == 0x00) {
+                    ++firstByteArrayPos;
                 }
-                byte[] returnBytes = new byte[lastByteArrayPos];
-                System.arraycopy(intBytes, 0, returnBytes, 0, lastByteArrayPos);
-                return returnBytes;
+                return Arrays.copyOfRange(intBytes, firstByteArrayPos, intBytes.length);
             }
             else if(isStringType()) {
                 return varValueAsString.getBytes();
@@ -246,20 +358,22 @@ public class ScriptingTypes {
                 case VariableTypeRawFileFilePath:
                     return ScriptingConfig.SCRIPTING_CONFIG_ACTIVITY_CONTEXT.getInstance().getResources().getResourceName(varValueAsInt);
                 case VariableTypeBytes:
-                    return Utils.bytes2Hex(varValueAsByteArray);
+                    return Utils.bytes2Hex(getValueAsBytes());
                 case VariableTypeBoolean:
                     return varValueAsBoolean ? "true" : "false";
                 case VariableTypeInteger:
                     return String.format(BuildConfig.DEFAULT_LOCALE, "%d", varValueAsInt);
                 case VariableTypeArrayMap:
-                    String[] arrayListStrDescList = new String[arrayList.size()];
-                    for(int arrListIdx = 0; arrListIdx < arrayList.size(); arrListIdx++) {
-                        arrayListStrDescList[arrListIdx] = arrayList.get(arrListIdx).getValueAsString();
+                    List<ScriptVariable> arrayListItems = getArrayListItems();
+                    Map<String, ScriptVariable> hashMapItems = getHashMapItems();
+                    String[] arrayListStrDescList = new String[arrayListItems.size()];
+                    for(int arrListIdx = 0; arrListIdx < arrayListItems.size(); arrListIdx++) {
+                        arrayListStrDescList[arrListIdx] = arrayListItems.get(arrListIdx).getValueAsString();
                     }
-                    String[] hashMapStrDescList = new String[hashMap.size()];
+                    String[] hashMapStrDescList = new String[hashMapItems.size()];
                     int hmCount = 0;
-                    for(String hashKey : hashMap.keySet()) {
-                        hashMapStrDescList[hmCount] = hashMap.get(hashKey).getValueAsString();
+                    for(String hashKey : hashMapItems.keySet()) {
+                        hashMapStrDescList[hmCount] = hashMapItems.get(hashKey).getValueAsString();
                         ++hmCount;
                     }
                     String arrValueDesc = String.format(BuildConfig.DEFAULT_LOCALE, "[ ");
@@ -290,7 +404,7 @@ public class ScriptingTypes {
                         return true;
                     }
                 case VariableTypeBytes:
-                    if(getValueAsBytes().length == 1) {
+                    if(varByteArrayLength == 1) {
                         return true;
                     }
                 default:
@@ -418,8 +532,11 @@ public class ScriptingTypes {
             if(isStringType()) {
                 return getValueAsString().length();
             }
-            else if(varType != VariableType.VariableTypeArrayMap) {
-                return arrayList.size();
+            else if(isBytesType()) {
+                return varByteArrayLength;
+            }
+            else if(varType == VariableType.VariableTypeArrayMap) {
+                return getArrayListItems().size();
             }
             return 0;
         }
@@ -429,31 +546,34 @@ public class ScriptingTypes {
                 return this;
             }
             if(getType() == VariableType.VariableTypeArrayMap) {
-                if (index < 0 || index >= arrayList.size()) {
+                List<ScriptVariable> arrayListItems = getArrayListItems();
+                if (index < 0 || index >= arrayListItems.size()) {
                     throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IndexOutOfBoundsException);
                 }
-                return arrayList.get(index);
+                return arrayListItems.get(index);
             }
             throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IllegalOperationException);
         }
 
         public ScriptVariable getValueAt(String hashIndex) throws ScriptingExceptions.ChameleonScriptingException {
             if(getType() == VariableType.VariableTypeArrayMap) {
-                if (hashIndex == null || hashMap.get(hashIndex) == null) {
+                ScriptVariable hashedValue = hashIndex == null ? null : getHashMapItems().get(hashIndex);
+                if (hashedValue == null) {
                     return newInstance().set("<null-data>");
                     //throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IndexOutOfBoundsException);
                 }
-                return hashMap.get(hashIndex);
+                return hashedValue;
             }
-            return set("<no-data>");
+            return newInstance().set("<no-data>");
         }
 
         public void setValueAt(int index, ScriptVariable varObj) throws ScriptingExceptions.ChameleonScriptingException {
             if(getType() == VariableType.VariableTypeArrayMap) {
-                if (index < 0 || index >= arrayList.size()) {
+                if (index < 0 || index >= getArrayListItems().size()) {
                     throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IndexOutOfBoundsException);
                 }
-                arrayList.set(index, varObj);
+                getWritableArrayList().set(index, varObj);
+                return;
             }
             throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IllegalOperationException);
         }
@@ -463,52 +583,89 @@ public class ScriptingTypes {
                 if (hashIndex == null) {
                     throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IllegalArgumentException);
                 }
-                hashMap.put(hashIndex, varObj);
+                getWritableHashMap().put(hashIndex, varObj);
+                return;
             }
             throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IllegalOperationException);
         }
 
         public ScriptVariable getSubArray(int startIdx) throws ScriptingExceptions.ChameleonScriptingException {
-            if(getType() == VariableType.VariableTypeArrayMap) {
-                if (startIdx < 0 || startIdx >= arrayList.size()) {
-                    throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IndexOutOfBoundsException);
-                }
-                ScriptVariable svSubArr = new ScriptVariable();
-                svSubArr.arrayList = new ArrayList<ScriptVariable>(arrayList.subList(startIdx, arrayList.size()));
-                svSubArr.hashMap = hashMap;
-                return svSubArr;
-            }
-            throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.NotImplementedException);
+            return getSubArray(startIdx, length() - startIdx);
         }
+        /**
+         * Returns the endLength items (or bytes) starting at startIdx. A negative endLength
+         * counts back from the end, so [1:-1] drops the first and the last items.
+         */
         public ScriptVariable getSubArray(int startIdx, int endLength) throws ScriptingExceptions.ChameleonScriptingException {
-            if(getType() == VariableType.VariableTypeArrayMap) {
-                if (startIdx < 0 || startIdx >= arrayList.size() ||
-                        (endLength >= 0 && endLength + startIdx > arrayList.size()) ||
-                        (endLength >= 0 && endLength <= startIdx) || (endLength < 0 && arrayList.size() + endLength <= 0)) {
-                    throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IndexOutOfBoundsException);
-                }
+            if(isBytesType()) {
+                int endArrIndex = getSliceEndIndex(startIdx, endLength, varByteArrayLength);
+                return newInstance().set(Arrays.copyOfRange(varValueAsByteArray, startIdx, endArrIndex));
+            }
+            else if(getType() == VariableType.VariableTypeArrayMap) {
+                List<ScriptVariable> arrayListItems = getArrayListItems();
+                int endArrIndex = getSliceEndIndex(startIdx, endLength, arrayListItems.size());
                 ScriptVariable svSubArr = new ScriptVariable();
-                int endArrIndex = endLength >= 0 ? startIdx + endLength : arrayList.size() + endLength;
-                svSubArr.arrayList = new ArrayList<ScriptVariable>(arrayList.subList(startIdx, endArrIndex));
-                svSubArr.hashMap = hashMap;
+                svSubArr.arrayList = new ArrayList<ScriptVariable>(arrayListItems.subList(startIdx, endArrIndex));
+                svSubArr.hashMap = hashMap == null ? null : new HashMap<String, ScriptVariable>(hashMap);
                 return svSubArr;
             }
             throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.NotImplementedException);
         }
+
+        private static int getSliceEndIndex(int startIdx, int endLength, int itemCount) throws ScriptingExceptions.ChameleonScriptingException {
+            int endArrIndex = endLength >= 0 ? startIdx + endLength : itemCount + endLength;
+            if(startIdx < 0 || startIdx > itemCount || endArrIndex < startIdx || endArrIndex > itemCount) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IndexOutOfBoundsException);
+            }
+            return endArrIndex;
+        }
         public void insertSubArray(int startIdx, ScriptVariable rhs) throws ScriptingExceptions.ChameleonScriptingException {
-            throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.NotImplementedException);
+            insertSubArray(startIdx, length() - startIdx, rhs);
         }
+        /**
+         * Replaces the endLength items (or bytes) starting at startIdx with the items of rhs.
+         * When the lengths match, a byte array value is overwritten in place (after it is copied
+         * if it is shared), otherwise the value is rebuilt around the inserted items.
+         */
         public void insertSubArray(int startIdx, int endLength, ScriptVariable rhs) throws ScriptingExceptions.ChameleonScriptingException {
-            throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.NotImplementedException);
+            if(startIdx < 0 || endLength < 0 || startIdx + endLength > length()) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IndexOutOfBoundsException);
+            }
+            if(isBytesType()) {
+                byte[] rhsBytes = rhs.getValueAsBytes();
+                if(rhsBytes.length == endLength) {
+                    System.arraycopy(rhsBytes, 0, getWritableBytes(), startIdx, endLength);
+                    return;
+                }
+                int curLength = varByteArrayLength;
+                byte[] nextBytes = new byte[curLength - endLength + rhsBytes.length];
+                System.arraycopy(varValueAsByteArray, 0, nextBytes, 0, startIdx);
+                System.arraycopy(rhsBytes, 0, nextBytes, startIdx, rhsBytes.length);
+                System.arraycopy(varValueAsByteArray, startIdx + endLength, nextBytes, startIdx + rhsBytes.length, curLength - startIdx - endLength);
+                setBytesResult(nextBytes);
+            }
+            else if(varType == VariableType.VariableTypeArrayMap) {
+                ArrayList<ScriptVariable> arrayListItems = getWritableArrayList();
+                arrayListItems.subList(startIdx, startIdx + endLength).clear();
+                if(rhs.varType == VariableType.VariableTypeArrayMap) {
+                    arrayListItems.addAll(startIdx, rhs.getArrayListItems());
+                }
+                else {
+                    arrayListItems.add(startIdx, rhs);
+                }
+            }
+            else {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.IllegalOperationException);
+            }
         }
 
         public String getBinaryString() {
             if(getType() == VariableType.VariableTypeArrayMap) {
                 StringBuilder binText = new StringBuilder();
-                for(int b = 0; b < arrayList.size(); b++) {
-                    binText.append(arrayList.get(b).getBinaryString());
+                for(ScriptVariable svar : getArrayListItems()) {
+                    binText.append(svar.getBinaryString());
                 }
-                for(ScriptVariable svar : hashMap.values()) {
+                for(ScriptVariable svar : getHashMapItems().values()) {
                     binText.append(svar.getBinaryString());
                 }
                 return binText.toString();
@@ -526,74 +683,212 @@ public class ScriptingTypes {
             UOP_BITWISE_NOT
         }
 
+        /**
+         * Stores the result of (this opType rhsVar) in this variable and returns it. Byte arrays are
+         * combined natively: PLUS appends in place into the growable byte buffer, the bitwise
+         * operations work over equal lengths or broadcast a single byte (or a byte sized integer)
+         * over the other operand, and the shifts move the bits of the whole array as one big endian
+         * bit string of unchanged length.
+         */
         public ScriptVariable binaryOperation(Operation opType, ScriptVariable rhsVar)
                                               throws ScriptingExceptions.ChameleonScriptingException {
+            switch(opType) {
+                case BINOP_PLUS:
+                    return plusOperation(rhsVar);
+                case BINOP_BITWISE_AND:
+                case BINOP_BITWISE_OR:
+                case BINOP_BITWISE_XOR:
+                    return bitwiseOperation(opType, rhsVar);
+                case BINOP_SHIFT_LEFT:
+                case BINOP_SHIFT_RIGHT:
+                    return shiftOperation(opType, rhsVar);
+                default:
+                    throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.NotImplementedException);
+            }
+        }
 
-            if(opType == Operation.BINOP_PLUS && getType() != VariableType.VariableTypeArrayMap) {
-                /*
-                 * Handle three cases, if the remainder does not degrade nicely to one of these,
-                 * then throw an exception at the non-standard use case:
-                 * (1) numeric types; (2) arrays (concat); )3) string handling (append).
-                 * Note that when the rhs is an array subclass, need to call the subclass handling
-                 * function to store the result by swapping the order of the variables:
-                 */
-                if(isArrayType() && rhsVar.isArrayType()) {
-                    if(varType != VariableType.VariableTypeArrayMap && rhsVar.getType() != VariableType.VariableTypeArrayMap) {
-                        byte[] lhsBytes = getValueAsBytes(), rhsBytes = rhsVar.getValueAsBytes();
-                        String byteStr = String.valueOf(lhsBytes) + String.valueOf(rhsBytes);
-                        set(byteStr.getBytes());
-                    }
-                    else {
-                        return rhsVar.binaryOperation(opType, this);
-                    }
+        private ScriptVariable plusOperation(ScriptVariable rhsVar) throws ScriptingExceptions.ChameleonScriptingException {
+            /*
+             * Handle four cases, if the remainder does not degrade nicely to one of these,
+             * then throw an exception at the non-standard use case:
+             * (1) arrays (append items); (2) bytes (concat); (3) numeric types; (4) strings (append).
+             */
+            if(varType == VariableType.VariableTypeBytes && rhsVar.varType == VariableType.VariableTypeBytes) {
+                return appendBytes(rhsVar.varValueAsByteArray, rhsVar.varByteArrayLength);
+            }
+            else if(varType == VariableType.VariableTypeBytes && rhsVar.varType == VariableType.VariableTypeArrayMap) {
+                byte[] lhsBytes = getValueAsBytes();
+                ArrayList<ScriptVariable> arrayListItems = new ArrayList<ScriptVariable>(lhsBytes.length + rhsVar.getArrayListItems().size());
+                for(int b = 0; b < lhsBytes.length; b++) {
+                    arrayListItems.add(ScriptVariable.newInstance().set(new byte[] { lhsBytes[b] }));
                 }
-                else if(isIntegerType() && rhsVar.isIntegerType()) {
-                    set(getValueAsInt() + rhsVar.getValueAsInt());
+                varType = VariableType.VariableTypeArrayMap;
+                varValueAsByteArray = EMPTY_BYTES;
+                varByteArrayLength = 0;
+                byteArrayShared = true;
+                arrayList = arrayListItems;
+            }
+            if(varType == VariableType.VariableTypeArrayMap) {
+                if(rhsVar.varType == VariableType.VariableTypeArrayMap) {
+                    getWritableArrayList().addAll(rhsVar.getArrayListItems());
+                    getWritableHashMap().putAll(rhsVar.getHashMapItems());
                 }
-                else if(isStringType() && rhsVar.isStringType()) {
-                    set(getValueAsString() + rhsVar.getValueAsString());
+                else if(rhsVar.varType == VariableType.VariableTypeBytes) {
+                    byte[] bytesArr = rhsVar.getValueAsBytes();
+                    ArrayList<ScriptVariable> arrayListItems = getWritableArrayList();
+                    arrayListItems.ensureCapacity(arrayListItems.size() + bytesArr.length);
+                    for(int b = 0; b < bytesArr.length; b++) {
+                        arrayListItems.add(ScriptVariable.newInstance().set(new byte[] { bytesArr[b] }));
+                    }
                 }
                 else {
-                    throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.ArithmeticErrorException);
+                    getWritableArrayList().add(rhsVar);
                 }
-                AndroidLogger.i(TAG, "BINARY-OP: New Value " + getValueAsString());
                 return this;
             }
-            else if(opType == Operation.BINOP_PLUS) {
-                if(rhsVar.getType() == VariableType.VariableTypeArrayMap) {
-                    Collections.addAll(Arrays.asList(arrayList), Arrays.asList(rhsVar.arrayList));
-                    hashMap.putAll(rhsVar.hashMap);
+            else if(isIntegerType() && rhsVar.isIntegerType()) {
+                return set(getValueAsInt() + rhsVar.getValueAsInt());
+            }
+            else if(isStringType() && rhsVar.isStringType()) {
+                return set(getValueAsString() + rhsVar.getValueAsString());
+            }
+            throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.ArithmeticErrorException);
+        }
+
+        private static int applyBitwiseOperation(Operation opType, int lhs, int rhs) {
+            switch(opType) {
+                case BINOP_BITWISE_AND:
+                    return lhs & rhs;
+                case BINOP_BITWISE_OR:
+                    return lhs | rhs;
+                default:
+                    return lhs ^ rhs;
+            }
+        }
+
+        private ScriptVariable bitwiseOperation(Operation opType, ScriptVariable rhsVar) throws ScriptingExceptions.ChameleonScriptingException {
+            if(varType == VariableType.VariableTypeBoolean && rhsVar.varType == VariableType.VariableTypeBoolean) {
+                return set(applyBitwiseOperation(opType, varValueAsBoolean ? 1 : 0, rhsVar.varValueAsBoolean ? 1 : 0) != 0);
+            }
+            else if(varType != VariableType.VariableTypeBytes && rhsVar.varType != VariableType.VariableTypeBytes) {
+                if(!isIntegerType() || !rhsVar.isIntegerType()) {
+                    throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.InvalidTypeException);
                 }
-                else if(rhsVar.getType() == VariableType.VariableTypeBytes) {
-                    byte[] bytesArr = rhsVar.getValueAsBytes();
-                    for(int b = 0; b < bytesArr.length; b++) {
-                        arrayList.add(ScriptVariable.newInstance().set(bytesArr[b]));
-                    }
+                return set(applyBitwiseOperation(opType, getValueAsInt(), rhsVar.getValueAsInt()));
+            }
+            int lhsLength = getBroadcastLength(), rhsLength = rhsVar.getBroadcastLength();
+            if(lhsLength != rhsLength && lhsLength != 1 && rhsLength != 1) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.InvalidLengthException);
+            }
+            /* A single byte is broadcast over the other operand, even an empty one: */
+            int resultLength = lhsLength == 1 ? rhsLength : lhsLength;
+            byte[] lhsBytes = getBroadcastBytes(), rhsBytes = rhsVar.getBroadcastBytes();
+            byte[] resultBytes = (varType == VariableType.VariableTypeBytes && lhsLength == resultLength) ?
+                                 getWritableBytes() : new byte[resultLength];
+            for(int b = 0; b < resultLength; b++) {
+                int lhsByte = lhsBytes[lhsLength == 1 ? 0 : b], rhsByte = rhsBytes[rhsLength == 1 ? 0 : b];
+                resultBytes[b] = (byte) applyBitwiseOperation(opType, lhsByte, rhsByte);
+            }
+            if(resultBytes != varValueAsByteArray) {
+                setBytesResult(resultBytes);
+            }
+            return this;
+        }
+
+        /* The bytes of a byte array operand, or an integer operand broadcast as a single byte: */
+        private int getBroadcastLength() {
+            return varType == VariableType.VariableTypeBytes ? varByteArrayLength : 1;
+        }
+
+        private byte[] getBroadcastBytes() throws ScriptingExceptions.ChameleonScriptingException {
+            if(varType == VariableType.VariableTypeBytes) {
+                return varValueAsByteArray;
+            }
+            else if(!isIntegerType()) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.InvalidTypeException);
+            }
+            int byteValue = getValueAsInt();
+            if(byteValue < Byte.MIN_VALUE || byteValue > 0xff) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.InvalidArgumentException);
+            }
+            return new byte[] { (byte) byteValue };
+        }
+
+        private ScriptVariable shiftOperation(Operation opType, ScriptVariable rhsVar) throws ScriptingExceptions.ChameleonScriptingException {
+            if(!rhsVar.isIntegerType()) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.InvalidTypeException);
+            }
+            int shiftBits = rhsVar.getValueAsInt();
+            if(shiftBits < 0) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.InvalidArgumentException);
+            }
+            if(varType != VariableType.VariableTypeBytes) {
+                if(!isIntegerType()) {
+                    throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.InvalidTypeException);
                 }
-                else {
-                    arrayList.add(rhsVar);
+                int intValue = getValueAsInt();
+                if(shiftBits >= Integer.SIZE) {
+                    return set(0);
+                }
+                return set(opType == Operation.BINOP_SHIFT_LEFT ? intValue << shiftBits : intValue >>> shiftBits);
+            }
+            int byteCount = varByteArrayLength;
+            int byteShift = shiftBits / 8, bitShift = shiftBits % 8;
+            byte[] srcBytes = varValueAsByteArray;
+            byte[] resultBytes = byteArrayShared ? new byte[byteCount] : srcBytes;
+            if(opType == Operation.BINOP_SHIFT_LEFT) {
+                for(int b = 0; b < byteCount; b++) {
+                    int srcIdx = b + byteShift;
+                    int hiBits = srcIdx < byteCount ? (srcBytes[srcIdx] & 0xff) << bitShift : 0;
+                    int loBits = (bitShift != 0 && srcIdx + 1 < byteCount) ? (srcBytes[srcIdx + 1] & 0xff) >>> (8 - bitShift) : 0;
+                    resultBytes[b] = (byte) (hiBits | loBits);
                 }
-                return this;
             }
-            throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.NotImplementedException);
+            else {
+                for(int b = byteCount - 1; b >= 0; b--) {
+                    int srcIdx = b - byteShift;
+                    int loBits = srcIdx >= 0 ? (srcBytes[srcIdx] & 0xff) >>> bitShift : 0;
+                    int hiBits = (bitShift != 0 && srcIdx - 1 >= 0) ? (srcBytes[srcIdx - 1] & 0xff) << (8 - bitShift) : 0;
+                    resultBytes[b] = (byte) (hiBits | loBits);
+                }
+            }
+            if(resultBytes != srcBytes) {
+                setBytesResult(resultBytes);
+            }
+            return this;
         }
 
         public ScriptVariable unaryOperation(Operation opType) throws ScriptingExceptions.ChameleonScriptingException {
-            throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.NotImplementedException);
+            if(opType != Operation.UOP_BITWISE_NOT) {
+                throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.NotImplementedException);
+            }
+            else if(varType == VariableType.VariableTypeBytes) {
+                byte[] varBytes = getWritableBytes();
+                for(int b = 0; b < varByteArrayLength; b++) {
+                    varBytes[b] = (byte) ~varBytes[b];
+                }
+                return this;
+            }
+            else if(varType == VariableType.VariableTypeInteger) {
+                return set(~varValueAsInt);
+            }
+            throw new ScriptingExceptions.ChameleonScriptingException(ScriptingExceptions.ExceptionType.InvalidTypeException);
         }
 
         public ScriptVariable setArrayListItems(ScriptVariable[] listItems) {
             varType = VariableType.VariableTypeArrayMap;
+            ArrayList<ScriptVariable> arrayListItems = getWritableArrayList();
             for(ScriptVariable svar : listItems) {
-                arrayList.add(svar);
+                arrayListItems.add(svar);
             }
             return this;
         }
 
         public ScriptVariable setArrayListItems(List<ScriptVariable> listItems) {
             varType = VariableType.VariableTypeArrayMap;
+            ArrayList<ScriptVariable> arrayListItems = getWritableArrayList();
             for(ScriptVariable svar : listItems) {
-                arrayList.add(svar);
+                arrayListItems.add(svar);
             }
             return this;
         }
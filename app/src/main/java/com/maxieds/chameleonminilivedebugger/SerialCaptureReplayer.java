@@ -0,0 +1,463 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>Serial Capture Replayer</h1>
+ * Feeds a recorded serial byte stream back into a receiver at its recorded pace, at N-times
+ * that pace, or as fast as possible, and collects ingest statistics (records per second,
+ * dropped frames and the latency from when each chunk is due until its frames are delivered).
+ * Two capture formats are understood: the binary LIVE log files written by
+ * ExportTools.writeBinaryLogFile, and raw chunk captures written by the CaptureRecorder below
+ * (the exact byte chunks handed to us by the USB / BLE callbacks, with their arrival times).
+ * Only plain Java is used here so that load tests can drive the framing and parsing stages
+ * on a desktop JVM as well as through SerialReplayInterface in the app.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref SerialReplayInterface
+ * @ref SerialIOReceiver.onReceivedData
+ */
+public class SerialCaptureReplayer {
+
+    private static final String TAG = SerialCaptureReplayer.class.getSimpleName();
+
+    public static final double SPEED_REALTIME = 1.0;
+    public static final double SPEED_MAXIMUM = 0.0;
+
+    private static final int RAW_CAPTURE_MAGIC = 0x434d4c44; /* "CMLD" */
+    private static final int RAW_CAPTURE_VERSION = 1;
+    private static final int LOG_HEADER_SIZE = 4;
+
+    /**
+     * Same as BuildConfig.DEFAULT_LOCALE (the generated BuildConfig is not around on a plain JVM).
+     */
+    private static final Locale STATS_LOCALE = Locale.ENGLISH;
+
+    /**
+     * A replayable capture: the chunks in arrival order with their offsets from the start.
+     */
+    public static class ReplayCapture {
+
+        private final List<byte[]> captureChunks = new ArrayList<byte[]>();
+        private long[] chunkOffsetNanos = new long[64];
+        private int expectedLogRecords;
+        private long totalBytes;
+
+        public int getChunkCount() {
+            return captureChunks.size();
+        }
+
+        public byte[] getChunk(int chunkIdx) {
+            return captureChunks.get(chunkIdx);
+        }
+
+        public long getChunkOffsetNanos(int chunkIdx) {
+            return chunkOffsetNanos[chunkIdx];
+        }
+
+        /**
+         * @return the number of LIVE log records in the capture (zero if unknown)
+         */
+        public int getExpectedLogRecords() {
+            return expectedLogRecords;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        public long getDurationNanos() {
+            return captureChunks.isEmpty() ? 0 : chunkOffsetNanos[captureChunks.size() - 1];
+        }
+
+        private void addChunk(byte[] chunkData, long offsetNanos) {
+            int chunkIdx = captureChunks.size();
+            if(chunkIdx == chunkOffsetNanos.length) {
+                long[] nextOffsets = new long[2 * chunkOffsetNanos.length];
+                System.arraycopy(chunkOffsetNanos, 0, nextOffsets, 0, chunkIdx);
+                chunkOffsetNanos = nextOffsets;
+            }
+            captureChunks.add(chunkData);
+            chunkOffsetNanos[chunkIdx] = offsetNanos;
+            totalBytes += chunkData.length;
+        }
+
+        /**
+         * Parses the binary LIVE log format (code, length, 16-bit millisecond timestamp,
+         * payload). The timestamps wrap around every 65.5 seconds, so they are unwrapped
+         * into a monotonic offset.
+         * @param captureStream
+         * @param chunkSize Zero to replay one record per chunk, otherwise the stream is cut into
+         *                  chunks of this many bytes (e.g., 64 to mimic the USB packets)
+         * @ref ExportTools.writeBinaryLogFile
+         */
+        public static ReplayCapture fromBinaryLogFile(@NonNull InputStream captureStream, int chunkSize) throws IOException {
+            byte[] logBytes = readFully(captureStream);
+            ReplayCapture capture = new ReplayCapture();
+            long[] recordOffsets = new long[logBytes.length / LOG_HEADER_SIZE + 1];
+            int[] recordStarts = new int[recordOffsets.length];
+            int numRecords = 0;
+            long unwrappedMillis = 0;
+            int lastTimestamp = -1;
+            int logPos = 0;
+            while(logPos + LOG_HEADER_SIZE <= logBytes.length) {
+                int payloadLength = logBytes[logPos + 1] & 0xff;
+                int recordLength = LOG_HEADER_SIZE + payloadLength;
+                if(logPos + recordLength > logBytes.length) {
+                    break;
+                }
+                int timestamp = ((logBytes[logPos + 2] & 0xff) << 8) | (logBytes[logPos + 3] & 0xff);
+                if(lastTimestamp >= 0) {
+                    unwrappedMillis += (timestamp - lastTimestamp) & 0xffff;
+                }
+                lastTimestamp = timestamp;
+                recordStarts[numRecords] = logPos;
+                recordOffsets[numRecords++] = unwrappedMillis * 1000000L;
+                logPos += recordLength;
+            }
+            capture.expectedLogRecords = numRecords;
+            if(chunkSize <= 0) {
+                for(int ridx = 0; ridx < numRecords; ridx++) {
+                    int recordEnd = ridx + 1 < numRecords ? recordStarts[ridx + 1] : logPos;
+                    byte[] recordBytes = new byte[recordEnd - recordStarts[ridx]];
+                    System.arraycopy(logBytes, recordStarts[ridx], recordBytes, 0, recordBytes.length);
+                    capture.addChunk(recordBytes, recordOffsets[ridx]);
+                }
+                return capture;
+            }
+            int ridx = 0;
+            for(int chunkPos = 0; chunkPos < logPos; chunkPos += chunkSize) {
+                int chunkEnd = Math.min(chunkPos + chunkSize, logPos);
+                /* A chunk is due at the timestamp of the last record that starts inside of it: */
+                while(ridx + 1 < numRecords && recordStarts[ridx + 1] < chunkEnd) {
+                    ridx++;
+                }
+                byte[] chunkBytes = new byte[chunkEnd - chunkPos];
+                System.arraycopy(logBytes, chunkPos, chunkBytes, 0, chunkBytes.length);
+                capture.addChunk(chunkBytes, recordOffsets[ridx]);
+            }
+            return capture;
+        }
+
+        /**
+         * Parses a raw chunk capture written by CaptureRecorder.
+         * @param captureStream
+         */
+        public static ReplayCapture fromRawChunkCapture(@NonNull InputStream captureStream) throws IOException {
+            DataInputStream dataStream = new DataInputStream(captureStream);
+            if(dataStream.readInt() != RAW_CAPTURE_MAGIC || dataStream.readInt() != RAW_CAPTURE_VERSION) {
+                throw new IOException("Not a raw serial chunk capture");
+            }
+            ReplayCapture capture = new ReplayCapture();
+            while(true) {
+                long offsetNanos;
+                try {
+                    offsetNanos = dataStream.readLong();
+                } catch(EOFException eofe) {
+                    break;
+                }
+                byte[] chunkBytes = new byte[dataStream.readInt()];
+                dataStream.readFully(chunkBytes);
+                capture.addChunk(chunkBytes, offsetNanos);
+            }
+            return capture;
+        }
+
+        private static byte[] readFully(InputStream inStream) throws IOException {
+            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+            byte[] readBuffer = new byte[8192];
+            int readCount;
+            while((readCount = inStream.read(readBuffer)) > 0) {
+                byteStream.write(readBuffer, 0, readCount);
+            }
+            return byteStream.toByteArray();
+        }
+
+    }
+
+    /**
+     * Records the raw chunks received from the serial callbacks so that a session can be
+     * replayed byte for byte (including the original chunk boundaries).
+     * @ref SerialIOReceiver.setCaptureRecorder
+     */
+    public static class CaptureRecorder {
+
+        private final DataOutputStream captureStream;
+        private final long startTimeNanos;
+        private boolean recorderClosed;
+
+        public CaptureRecorder(@NonNull OutputStream outStream) throws IOException {
+            captureStream = new DataOutputStream(outStream);
+            captureStream.writeInt(RAW_CAPTURE_MAGIC);
+            captureStream.writeInt(RAW_CAPTURE_VERSION);
+            startTimeNanos = System.nanoTime();
+        }
+
+        public synchronized void recordChunk(@NonNull byte[] chunkData) {
+            if(recorderClosed) {
+                return;
+            }
+            try {
+                captureStream.writeLong(System.nanoTime() - startTimeNanos);
+                captureStream.writeInt(chunkData.length);
+                captureStream.write(chunkData);
+            } catch(IOException ioe) {
+                ioe.printStackTrace();
+                recorderClosed = true;
+            }
+        }
+
+        public synchronized void close() throws IOException {
+            recorderClosed = true;
+            captureStream.close();
+        }
+
+    }
+
+    /**
+     * Ingest statistics for one replay run.
+     */
+    public static class ReplayStatistics {
+
+        private static final int LATENCY_BUCKETS = 24; /* log2 microsecond buckets */
+
+        private long startTimeNanos;
+        private long endTimeNanos;
+        private long chunksFed;
+        private long bytesFed;
+        private long framesDelivered;
+        private long logFramesDelivered;
+        private long expectedLogFrames;
+        private long maxPacingLagNanos;
+        private long latencySumNanos;
+        private long maxLatencyNanos;
+        private final long[] latencyBuckets = new long[LATENCY_BUCKETS];
+
+        private synchronized void reset(long expectedLogRecords) {
+            startTimeNanos = System.nanoTime();
+            endTimeNanos = 0;
+            chunksFed = bytesFed = framesDelivered = logFramesDelivered = 0;
+            expectedLogFrames = expectedLogRecords;
+            maxPacingLagNanos = latencySumNanos = maxLatencyNanos = 0;
+            for(int bidx = 0; bidx < LATENCY_BUCKETS; bidx++) {
+                latencyBuckets[bidx] = 0;
+            }
+        }
+
+        private synchronized void addChunk(int chunkLength, long pacingLagNanos) {
+            chunksFed++;
+            bytesFed += chunkLength;
+            maxPacingLagNanos = Math.max(maxPacingLagNanos, pacingLagNanos);
+        }
+
+        private synchronized void addFrame(boolean isLogFrame, long latencyNanos) {
+            framesDelivered++;
+            if(isLogFrame) {
+                logFramesDelivered++;
+            }
+            latencySumNanos += latencyNanos;
+            maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+            long latencyMicros = Math.max(1, latencyNanos / 1000);
+            int bucketIdx = Math.min(LATENCY_BUCKETS - 1, 63 - Long.numberOfLeadingZeros(latencyMicros));
+            latencyBuckets[bucketIdx]++;
+        }
+
+        private synchronized void finish() {
+            endTimeNanos = System.nanoTime();
+        }
+
+        public synchronized long getElapsedNanos() {
+            return (endTimeNanos != 0 ? endTimeNanos : System.nanoTime()) - startTimeNanos;
+        }
+
+        public synchronized long getChunksFed() { return chunksFed; }
+        public synchronized long getBytesFed() { return bytesFed; }
+        public synchronized long getFramesDelivered() { return framesDelivered; }
+        public synchronized long getLogFramesDelivered() { return logFramesDelivered; }
+
+        /**
+         * @return LIVE log records in the capture that never came out of the framing stage
+         */
+        public synchronized long getDroppedFrames() {
+            return Math.max(0, expectedLogFrames - logFramesDelivered);
+        }
+
+        public synchronized double getRecordsPerSecond() {
+            long elapsedNanos = getElapsedNanos();
+            return elapsedNanos <= 0 ? 0.0 : framesDelivered * 1.0e9 / elapsedNanos;
+        }
+
+        public synchronized long getMeanLatencyNanos() {
+            return framesDelivered == 0 ? 0 : latencySumNanos / framesDelivered;
+        }
+
+        public synchronized long getMaxLatencyNanos() { return maxLatencyNanos; }
+        public synchronized long getMaxPacingLagNanos() { return maxPacingLagNanos; }
+
+        /**
+         * @return upper bound (in microseconds) of the bucket holding the given percentile
+         */
+        public synchronized long getLatencyPercentileMicros(double percentile) {
+            long targetCount = (long) Math.ceil(percentile / 100.0 * framesDelivered);
+            long runningCount = 0;
+            for(int bidx = 0; bidx < LATENCY_BUCKETS; bidx++) {
+                runningCount += latencyBuckets[bidx];
+                if(runningCount >= targetCount && runningCount > 0) {
+                    return 1L << (bidx + 1);
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(STATS_LOCALE, "%d chunks / %d bytes -> %d frames (%d log, %d dropped) in %.1f ms -- %.0f records/s -- " +
+                                            "latency mean %d us, p50 <%d us, p99 <%d us, max %d us -- max pacing lag %d us",
+                    chunksFed, bytesFed, framesDelivered, logFramesDelivered, getDroppedFrames(), getElapsedNanos() / 1.0e6,
+                    getRecordsPerSecond(), getMeanLatencyNanos() / 1000, getLatencyPercentileMicros(50.0),
+                    getLatencyPercentileMicros(99.0), maxLatencyNanos / 1000, maxPacingLagNanos / 1000);
+        }
+
+    }
+
+    private final ReplayCapture replayCapture;
+    private final ReplayStatistics replayStats = new ReplayStatistics();
+    private double speedMultiplier = SPEED_REALTIME;
+    private volatile boolean stopRequested;
+    private volatile long curChunkDueNanos;
+    private Thread replayThread;
+
+    public SerialCaptureReplayer(@NonNull ReplayCapture capture) {
+        replayCapture = capture;
+    }
+
+    /**
+     * @param speed SPEED_REALTIME, an N-times multiplier, or SPEED_MAXIMUM to skip pacing
+     */
+    public void setSpeedMultiplier(double speed) {
+        speedMultiplier = Math.max(0.0, speed);
+    }
+
+    public double getSpeedMultiplier() {
+        return speedMultiplier;
+    }
+
+    public ReplayCapture getCapture() {
+        return replayCapture;
+    }
+
+    public ReplayStatistics getStatistics() {
+        return replayStats;
+    }
+
+    /**
+     * Called by the receiving end each time a complete frame comes out of the pipeline
+     * (from within the onReceivedData call that completed it).
+     * @param isLogFrame
+     */
+    public void onFrameDelivered(boolean isLogFrame) {
+        replayStats.addFrame(isLogFrame, System.nanoTime() - curChunkDueNanos);
+    }
+
+    /**
+     * Replays the whole capture on the calling thread.
+     * @param dataReceiver
+     * @return ReplayStatistics for the run
+     */
+    public ReplayStatistics replay(@NonNull SerialDataReceiverInterface dataReceiver) {
+        stopRequested = false;
+        replayStats.reset(replayCapture.getExpectedLogRecords());
+        long replayStartNanos = System.nanoTime();
+        double speed = speedMultiplier;
+        int numChunks = replayCapture.getChunkCount();
+        for(int cidx = 0; cidx < numChunks && !stopRequested; cidx++) {
+            long dueNanos = replayStartNanos;
+            if(speed > 0.0) {
+                dueNanos += (long) (replayCapture.getChunkOffsetNanos(cidx) / speed);
+                long waitNanos;
+                while((waitNanos = dueNanos - System.nanoTime()) > 0 && !stopRequested) {
+                    LockSupport.parkNanos(this, waitNanos);
+                }
+            }
+            long feedNanos = System.nanoTime();
+            if(speed <= 0.0) {
+                dueNanos = feedNanos;
+            }
+            curChunkDueNanos = dueNanos;
+            byte[] chunkData = replayCapture.getChunk(cidx);
+            replayStats.addChunk(chunkData.length, feedNanos - dueNanos);
+            dataReceiver.onReceivedData(chunkData);
+        }
+        replayStats.finish();
+        return replayStats;
+    }
+
+    /**
+     * Replays the capture on a background thread.
+     * @param dataReceiver
+     * @param onComplete Run on the replay thread when the capture is exhausted (may be null)
+     */
+    public synchronized void startReplay(@NonNull final SerialDataReceiverInterface dataReceiver,
+                                         final Runnable onComplete) {
+        stopReplay();
+        replayThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                replay(dataReceiver);
+                if(onComplete != null) {
+                    onComplete.run();
+                }
+            }
+        }, TAG);
+        replayThread.start();
+    }
+
+    public synchronized void stopReplay() {
+        stopRequested = true;
+        if(replayThread != null && replayThread != Thread.currentThread()) {
+            LockSupport.unpark(replayThread);
+            try {
+                replayThread.join(1000);
+            } catch(InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            replayThread = null;
+        }
+    }
+
+    public boolean isReplaying() {
+        Thread curThread = replayThread;
+        return curThread != null && curThread.isAlive();
+    }
+
+}
@@ -0,0 +1,32 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+/**
+ * <h1>Serial Data Receiver Interface</h1>
+ * Sink for the raw chunks read from the device. Kept apart from ChameleonSerialIOInterface
+ * (which pulls in the Android Context) so that the replay and emulator code can be run on a
+ * plain JVM.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref SerialIOReceiver.onReceivedData
+ */
+public interface SerialDataReceiverInterface {
+    void onReceivedData(byte[] liveLogData);
+}
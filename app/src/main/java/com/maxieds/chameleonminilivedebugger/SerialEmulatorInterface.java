@@ -0,0 +1,199 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import android.content.Context;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * <h1>Serial Emulator Interface</h1>
+ * Serial port connected to the in-process ChameleonDeviceEmulator instead of a physical
+ * Chameleon, so the command, status polling, XModem and LIVE logging paths all run unchanged
+ * (and can be timed) without any hardware attached.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ChameleonDeviceEmulator
+ */
+public class SerialEmulatorInterface extends SerialIOReceiver {
+
+    private static final String TAG = SerialEmulatorInterface.class.getSimpleName();
+
+    public String getInterfaceLoggingTag() {
+        return TAG;
+    }
+
+    private ChameleonDeviceEmulator deviceEmulator;
+    private boolean serialConfigured;
+    private Semaphore serialPortLock = new Semaphore(1, true);
+
+    public SerialEmulatorInterface(Context appContext) {
+        setListenerContext(appContext);
+        deviceEmulator = null;
+        serialConfigured = false;
+    }
+
+    /**
+     * @return the emulated device (created on demand) to adjust its latency and log rate
+     */
+    public synchronized ChameleonDeviceEmulator getDeviceEmulator() {
+        if(deviceEmulator == null) {
+            deviceEmulator = new ChameleonDeviceEmulator(this);
+        }
+        return deviceEmulator;
+    }
+
+    public boolean isWiredUSB() { return false; }
+
+    public boolean isBluetooth() { return false; }
+
+    public int setSerialBaudRate(int bdRate) {
+        return STATUS_NOT_SUPPORTED;
+    }
+
+    /**
+     * The emulated device is always there, so it connects right away (unless another port
+     * is already active) and goes through the same setup as a newly attached device.
+     * @ref ChameleonSettings.allowDeviceEmulator
+     */
+    public boolean startScanningDevices() {
+        if(ChameleonSettings.getActiveSerialIOPort() != null || configureSerial() != STATUS_TRUE) {
+            return false;
+        }
+        LiveLoggerActivity llActivity = LiveLoggerActivity.getLiveLoggerInstance();
+        if(llActivity != null) {
+            llActivity.reconfigureSerialIODevices();
+            UITabUtils.updateConfigTabConnDeviceInfo(false);
+        }
+        return true;
+    }
+
+    public boolean stopScanningDevices() {
+        return true;
+    }
+
+    public String getDeviceName() {
+        return "Chameleon Emulator";
+    }
+
+    public String getActiveDeviceInfo() {
+        ChameleonDeviceEmulator emulator = deviceEmulator;
+        if(emulator == null) {
+            return "";
+        }
+        return String.format(BuildConfig.DEFAULT_LOCALE, "Emulated:      %s\nLatency:       %d ms\nLIVE Logs:     %d / s",
+                             ChameleonDeviceEmulator.EMULATED_VERSION_STRING, emulator.getResponseLatencyMillis(), emulator.getLiveLogRate());
+    }
+
+    public int configureSerial() {
+        if(serialConfigured()) {
+            return STATUS_TRUE;
+        }
+        else if(ChameleonSettings.getActiveSerialIOPort() != null) {
+            return STATUS_RESOURCE_UNAVAILABLE;
+        }
+        getDeviceEmulator();
+        ChameleonIO.REVE_BOARD = false;
+        ChameleonIO.PAUSED = false;
+        serialConfigured = true;
+        ChameleonSettings.SERIALIO_IFACE_ACTIVE_INDEX = ChameleonSettings.EMULATORIO_IFACE_INDEX;
+        getSerialFrameAssembler().resetStatistics();
+        notifyStatus("EMULATOR STATUS: ", "Chameleon:     " + getActiveDeviceInfo());
+        return STATUS_TRUE;
+    }
+
+    public int shutdownSerial() {
+        ChameleonIO.DeviceStatusSettings.stopPostingStats();
+        synchronized(this) {
+            if(deviceEmulator != null) {
+                AndroidLogger.i(TAG, "Emulator stats: " + deviceEmulator.getStatisticsSummary());
+                deviceEmulator.shutdown();
+                deviceEmulator = null;
+            }
+        }
+        ChameleonIO.PAUSED = true;
+        ExportTools.EOT = true;
+        ChameleonIO.DOWNLOAD = false;
+        ChameleonIO.UPLOAD = false;
+        ChameleonIO.WAITING_FOR_XMODEM = false;
+        ChameleonIO.WAITING_FOR_RESPONSE = false;
+        ChameleonCommandPipeline.getInstance().cancelPendingCommands();
+        ChameleonIO.EXPECTING_BINARY_DATA = false;
+        resetSerialFrameAssembler();
+        serialConfigured = false;
+        if(ChameleonSettings.SERIALIO_IFACE_ACTIVE_INDEX == ChameleonSettings.EMULATORIO_IFACE_INDEX) {
+            ChameleonSettings.SERIALIO_IFACE_ACTIVE_INDEX = -1;
+        }
+        releaseSerialPortLock();
+        notifyDeviceConnectionTerminated();
+        return STATUS_TRUE;
+    }
+
+    public boolean serialConfigured() { return serialConfigured; }
+
+    public boolean serialReceiversRegistered() { return serialConfigured; }
+
+    public boolean acquireSerialPort() {
+        try {
+            serialPortLock.acquire();
+            return true;
+        } catch(InterruptedException inte) {
+            AndroidLogger.printStackTrace(inte);
+            return false;
+        }
+    }
+
+    public boolean acquireSerialPortNoInterrupt() {
+        serialPortLock.acquireUninterruptibly();
+        return true;
+    }
+
+    public boolean tryAcquireSerialPort(int timeout) {
+        try {
+            return serialPortLock.tryAcquire(timeout, java.util.concurrent.TimeUnit.MILLISECONDS);
+        } catch(InterruptedException inte) {
+            AndroidLogger.printStackTrace(inte);
+            return false;
+        }
+    }
+
+    /**
+     * A permit is only handed back if one is held (shutdownSerial also calls this on an idle port).
+     */
+    public boolean releaseSerialPortLock() {
+        if(serialPortLock.availablePermits() > 0) {
+            return false;
+        }
+        serialPortLock.release();
+        return true;
+    }
+
+    public int sendDataBuffer(byte[] dataWriteBuffer) {
+        if(dataWriteBuffer == null || dataWriteBuffer.length == 0) {
+            return STATUS_OK;
+        }
+        ChameleonDeviceEmulator emulator = deviceEmulator;
+        if(!serialConfigured() || emulator == null) {
+            return STATUS_ERROR;
+        }
+        emulator.receiveHostData(dataWriteBuffer);
+        return STATUS_TRUE;
+    }
+
+}
@@ -0,0 +1,263 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+
+package com.maxieds.chameleonminilivedebugger;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <h1>Serial IO Dispatch Ring</h1>
+ * In-process hand off of the received frames from the transport threads to the UI thread.
+ * The frames are published into a preallocated ring of slots (no Intent, Bundle or Binder
+ * copy per record) and the UI thread drains them once per display frame via the
+ * Choreographer, in batches capped both in count and in time so a burst of LIVE logs cannot
+ * stall the frame.
+ *
+ * The ring is multi-producer / single-consumer and lock-free: the USB, BLE, replay and
+ * emulator receive threads claim slots with a CAS on the claim sequence, and mark each slot
+ * as published with its own sequence number once the frame is in it. The consumer (the main
+ * thread) takes the slots in sequence order and stops at the first one that is claimed but
+ * not yet published. A producer never waits: when the ring is full the frame is dropped
+ * right away and counted in the statistics, so the driver callbacks are never blocked.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref SerialIOReceiver.notifyLogDataReceived
+ * @ref LiveLoggerActivity.onLogDataReceived
+ */
+public class SerialIODispatchRing {
+
+    private static final String TAG = SerialIODispatchRing.class.getSimpleName();
+
+    public static final int DISPATCH_LOGDATA = 1;
+    public static final int DISPATCH_SERIAL_DATA = 2;
+
+    public static final int RING_CAPACITY = 4096; /* Must be a power of two */
+    public static final int MAX_FRAMES_PER_DRAIN = 1024;
+    public static final long MAX_DRAIN_NANOS = TimeUnit.MILLISECONDS.toNanos(6);
+    private static final int RELEASE_BATCH_SIZE = 64;
+
+    /**
+     * Receives the dispatched frames on the main thread.
+     */
+    public interface FrameConsumer {
+        void onDispatchedFrame(int dispatchType, byte[] frameData);
+    }
+
+    private static final SerialIODispatchRing RING_INSTANCE = new SerialIODispatchRing(RING_CAPACITY);
+
+    public static SerialIODispatchRing getInstance() {
+        return RING_INSTANCE;
+    }
+
+    private final byte[][] slotData;
+    private final int[] slotTypes;
+    private final AtomicLongArray slotPublishedSeqs; /* Sequence number + 1 of the frame last published into the slot */
+    private final int indexMask;
+    /* Claimed by the producers: */
+    private final AtomicLong claimedSeq = new AtomicLong(0);
+    /* Written only by the consumer: */
+    private final AtomicLong consumedSeq = new AtomicLong(0);
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private boolean drainInProgress = false; /* Main thread only */
+    private volatile FrameConsumer frameConsumer = null;
+
+    private final AtomicLong droppedFrames = new AtomicLong(0);
+    private volatile long maxOccupancy = 0;
+    private long drainBatchCount = 0;
+    private long deferredDrainCount = 0;
+
+    private Handler mainHandler = null;
+    private final Runnable postFrameCallbackRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(drainFrameCallback);
+        }
+    };
+    private final Choreographer.FrameCallback drainFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            drainOnFrame();
+        }
+    };
+
+    public SerialIODispatchRing(int capacity) {
+        if(capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two");
+        }
+        slotData = new byte[capacity][];
+        slotTypes = new int[capacity];
+        slotPublishedSeqs = new AtomicLongArray(capacity);
+        indexMask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return slotData.length;
+    }
+
+    /**
+     * Sets the (main thread) receiver of the frames. Frames published while no consumer is set
+     * are held in the ring until one is.
+     */
+    public void setFrameConsumer(FrameConsumer consumer) {
+        frameConsumer = consumer;
+        if(consumer != null && claimedSeq.get() != consumedSeq.get()) {
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Producer side (any thread): hands the frame to the UI thread. The array must not be
+     * modified afterwards. Never blocks.
+     * @param dispatchType DISPATCH_LOGDATA / DISPATCH_SERIAL_DATA
+     * @param frameData
+     * @return false if the frame was dropped because the ring was full
+     */
+    public boolean publish(int dispatchType, byte[] frameData) {
+        long seq;
+        long occupancy;
+        do {
+            seq = claimedSeq.get();
+            occupancy = seq + 1 - consumedSeq.get();
+            if(occupancy > slotData.length && !drainFromConsumerThread()) {
+                if(droppedFrames.incrementAndGet() == 1) {
+                    AndroidLogger.w(TAG, "Dispatch ring full, dropping frames");
+                }
+                return false;
+            }
+        } while(occupancy > slotData.length || !claimedSeq.compareAndSet(seq, seq + 1));
+        int slotIdx = (int) seq & indexMask;
+        slotData[slotIdx] = frameData;
+        slotTypes[slotIdx] = dispatchType;
+        /* Volatile store then load of drainScheduled: pairs with drainOnFrame so a wakeup is never lost */
+        slotPublishedSeqs.set(slotIdx, seq + 1);
+        if(occupancy > maxOccupancy) {
+            maxOccupancy = occupancy; /* Statistics only, a lost update between producers is harmless */
+        }
+        if(!drainScheduled.get()) {
+            scheduleDrain();
+        }
+        return true;
+    }
+
+    /**
+     * Makes room in a full ring when the frame is published from the consumer thread itself
+     * (which is not a driver callback, and would otherwise drop its own frames). Nothing is
+     * freed when the frame is published from inside onDispatchedFrame, since the drain
+     * already running owns the consumer sequence.
+     * @return whether any slots were freed
+     */
+    private boolean drainFromConsumerThread() {
+        if(Looper.myLooper() != Looper.getMainLooper()) {
+            return false;
+        }
+        return drain(Integer.MAX_VALUE, Long.MAX_VALUE) > 0;
+    }
+
+    private void scheduleDrain() {
+        if(!drainScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if(Looper.myLooper() == Looper.getMainLooper()) {
+            Choreographer.getInstance().postFrameCallback(drainFrameCallback);
+            return;
+        }
+        Handler handler = mainHandler;
+        if(handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+            mainHandler = handler;
+        }
+        handler.post(postFrameCallbackRunnable);
+    }
+
+    private void drainOnFrame() {
+        drainScheduled.set(false);
+        drain(MAX_FRAMES_PER_DRAIN, System.nanoTime() + MAX_DRAIN_NANOS);
+        if(frameConsumer != null && claimedSeq.get() != consumedSeq.get()) {
+            deferredDrainCount++;
+            scheduleDrain();
+        }
+    }
+
+    /**
+     * Consumer side (main thread): passes up to maxFrames of the published frames to the consumer.
+     * Not reentrant: a drain started from inside onDispatchedFrame returns right away.
+     * @return number of frames dispatched
+     */
+    public int drain(int maxFrames, long deadlineNanos) {
+        FrameConsumer consumer = frameConsumer;
+        if(consumer == null || drainInProgress) {
+            return 0;
+        }
+        drainInProgress = true;
+        try {
+            return drainSlots(consumer, maxFrames, deadlineNanos);
+        } finally {
+            drainInProgress = false;
+        }
+    }
+
+    private int drainSlots(FrameConsumer consumer, int maxFrames, long deadlineNanos) {
+        long seq = consumedSeq.get();
+        int numDrained = 0;
+        while(numDrained < maxFrames) {
+            int slotIdx = (int) seq & indexMask;
+            if(slotPublishedSeqs.get(slotIdx) != seq + 1) {
+                break; /* Not claimed yet, or claimed by a producer that is still filling the slot */
+            }
+            byte[] frameData = slotData[slotIdx];
+            int dispatchType = slotTypes[slotIdx];
+            slotData[slotIdx] = null;
+            seq++;
+            numDrained++;
+            consumer.onDispatchedFrame(dispatchType, frameData);
+            if(numDrained % RELEASE_BATCH_SIZE == 0) {
+                consumedSeq.lazySet(seq);
+                if(System.nanoTime() > deadlineNanos) {
+                    break;
+                }
+            }
+        }
+        consumedSeq.set(seq);
+        if(numDrained > 0) {
+            drainBatchCount++;
+        }
+        return numDrained;
+    }
+
+    public long getPublishedCount() {
+        return claimedSeq.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedFrames.get();
+    }
+
+    public String getStatisticsSummary() {
+        return String.format(BuildConfig.DEFAULT_LOCALE, "Dispatched %d frames in %d batches (%d deferred) -- max %d of %d slots used, %d dropped",
+                             consumedSeq.get(), drainBatchCount, deferredDrainCount, maxOccupancy, slotData.length, droppedFrames.get());
+    }
+
+}
@@ -0,0 +1,434 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+/**
+ * <h1>Serial IO Frame Assembler</h1>
+ * Incremental framing stage for the raw chunks handed to us by the USB / BLE callbacks.
+ * At high baud rates one callback can hold several LIVE log records, or only part of one,
+ * so the bytes are queued in a fixed ring buffer and split back into complete records:
+ * LIVE log entries (header + length byte), text command responses terminated by CR/LF, and
+ * XModem blocks while a transfer is running. Bytes that cannot start any of these records
+ * are skipped until the stream resynchronizes. LIVE log records may also arrive between the
+ * blocks of a DOWNLOAD. Frames are handed to the receiver one at a time and in the order
+ * their bytes arrived, even when several callback threads append data concurrently. The
+ * device state the framing depends on (which bytes are LIVE log codes, whether an XModem
+ * transfer is running) comes in through a FramingContext, so the class itself has no
+ * Android dependencies and runs on a plain JVM.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref SerialIOReceiver.onReceivedData
+ */
+public class SerialIOFrameAssembler {
+
+    private static final String TAG = SerialIOFrameAssembler.class.getSimpleName();
+
+    public static final int FRAME_TYPE_LOGDATA = 1;
+    public static final int FRAME_TYPE_TEXT = 2;
+    public static final int FRAME_TYPE_XMODEM = 3;
+
+    /**
+     * Receives each complete frame carved out of the serial stream.
+     */
+    public interface SerialFrameReceiver {
+        void onReceivedFrame(int frameType, byte[] frameData);
+    }
+
+    public static final int XMODEM_MODE_NONE = 0;
+    public static final int XMODEM_MODE_DOWNLOAD = 1;
+    public static final int XMODEM_MODE_UPLOAD = 2;
+
+    /**
+     * Device state the framing depends on. The app backs this with ChameleonIO and the running
+     * XModemTransfer (SerialIOReceiver.DEVICE_FRAMING_CONTEXT); the JVM tests supply their own.
+     */
+    public interface FramingContext {
+        boolean isLiveLoggingCode(byte firstByte);
+        int getXModemMode();
+        /**
+         * @return the length of the XModem block frame starting with firstByte, or -1 to resync
+         */
+        int getXModemBlockFrameLength(byte firstByte);
+    }
+
+    private static final int RING_BUFFER_SIZE = 8192; /* Must be a power of two */
+    private static final int RING_BUFFER_MASK = RING_BUFFER_SIZE - 1;
+    public static final int MAX_TEXT_FRAME_SIZE = 4096;
+    private static final int LOG_HEADER_SIZE = 4;
+    private static final int XMODEM_FRAME_SIZE = XModemProtocol.BLOCK_SIZE + 4;
+    private static final Locale STATS_LOCALE = Locale.ENGLISH; /* BuildConfig.DEFAULT_LOCALE */
+
+    private static final byte BYTE_CR = (byte) '\r';
+    private static final byte BYTE_LF = (byte) '\n';
+
+    /**
+     * A frame already cut out of the ring buffer, waiting for its turn to be dispatched.
+     */
+    private static class AssembledFrame {
+        final int frameType;
+        final byte[] frameData;
+        AssembledFrame(int frameType, byte[] frameData) {
+            this.frameType = frameType;
+            this.frameData = frameData;
+        }
+    }
+
+    private final FramingContext framingContext;
+    private final byte[] ringBuffer = new byte[RING_BUFFER_SIZE];
+    private int readPos;
+    private int bufferedBytes;
+    private boolean resyncInProgress;
+    private final ArrayDeque<AssembledFrame> assembledFrames = new ArrayDeque<AssembledFrame>();
+    private boolean dispatchInProgress;
+
+    /**
+     * Statistics about the framed serial stream.
+     */
+    private long totalBytesReceived;
+    private long logFrameCount;
+    private long textFrameCount;
+    private long xmodemFrameCount;
+    private long resyncCount;
+    private long droppedByteCount;
+
+    public SerialIOFrameAssembler(@NonNull FramingContext framingContext) {
+        this.framingContext = framingContext;
+        reset();
+    }
+
+    /**
+     * Discards any partially received frame (e.g., after the device disconnects).
+     */
+    public synchronized void reset() {
+        readPos = 0;
+        bufferedBytes = 0;
+        resyncInProgress = false;
+        assembledFrames.clear();
+    }
+
+    public synchronized void resetStatistics() {
+        totalBytesReceived = 0;
+        logFrameCount = 0;
+        textFrameCount = 0;
+        xmodemFrameCount = 0;
+        resyncCount = 0;
+        droppedByteCount = 0;
+    }
+
+    public synchronized long getTotalBytesReceived() { return totalBytesReceived; }
+    public synchronized long getLogFrameCount() { return logFrameCount; }
+    public synchronized long getTextFrameCount() { return textFrameCount; }
+    public synchronized long getXModemFrameCount() { return xmodemFrameCount; }
+    public synchronized long getResyncCount() { return resyncCount; }
+    public synchronized long getDroppedByteCount() { return droppedByteCount; }
+    public synchronized int getBufferedByteCount() { return bufferedBytes; }
+
+    public synchronized String getStatisticsSummary() {
+        return String.format(STATS_LOCALE, "RX %d bytes -- LOG %d / TEXT %d / XMODEM %d frames -- %d resyncs, %d dropped bytes, %d pending",
+                totalBytesReceived, logFrameCount, textFrameCount, xmodemFrameCount, resyncCount, droppedByteCount, bufferedBytes);
+    }
+
+    /**
+     * Queues the next raw chunk of serial data and dispatches every frame it completes.
+     * All of the producers of one assembler pass the same frame receiver.
+     * @param dataBytes
+     * @param frameReceiver
+     */
+    public void appendData(@NonNull byte[] dataBytes, @NonNull SerialFrameReceiver frameReceiver) {
+        appendData(dataBytes, 0, dataBytes.length, frameReceiver);
+    }
+
+    public void appendData(@NonNull byte[] dataBytes, int offset, int length, @NonNull SerialFrameReceiver frameReceiver) {
+        synchronized(this) {
+            totalBytesReceived += length;
+            while(length > 0) {
+                if(bufferedBytes == RING_BUFFER_SIZE) {
+                    assembleNextFrame(); /* Always frees space when the buffer is full */
+                    continue;
+                }
+                int copyLength = Math.min(length, RING_BUFFER_SIZE - bufferedBytes);
+                int writePos = (readPos + bufferedBytes) & RING_BUFFER_MASK;
+                int firstPart = Math.min(copyLength, RING_BUFFER_SIZE - writePos);
+                System.arraycopy(dataBytes, offset, ringBuffer, writePos, firstPart);
+                System.arraycopy(dataBytes, offset + firstPart, ringBuffer, 0, copyLength - firstPart);
+                bufferedBytes += copyLength;
+                offset += copyLength;
+                length -= copyLength;
+            }
+            if(dispatchInProgress) {
+                return; /* The dispatching thread delivers these frames after the ones before them */
+            }
+            dispatchInProgress = true;
+        }
+        dispatchCompleteFrames(frameReceiver);
+    }
+
+    /**
+     * Frames are dispatched outside of the lock so that the receiver can write back to
+     * the device (e.g., XModem ACK/NAK) without stalling the next USB callback. Only one
+     * thread dispatches at a time, and it cuts the next frame only after the last one was
+     * handled, so a frame that switches the XModem mode applies to the frames behind it.
+     * Producers that find the dispatch running just queue their bytes and return.
+     */
+    private void dispatchCompleteFrames(SerialFrameReceiver frameReceiver) {
+        boolean dispatchFinished = false;
+        try {
+            while(true) {
+                AssembledFrame nextFrame;
+                synchronized(this) {
+                    if(assembledFrames.isEmpty()) {
+                        assembleNextFrame();
+                    }
+                    nextFrame = assembledFrames.poll();
+                    if(nextFrame == null) {
+                        dispatchInProgress = false;
+                        dispatchFinished = true;
+                        return;
+                    }
+                }
+                frameReceiver.onReceivedFrame(nextFrame.frameType, nextFrame.frameData);
+            }
+        } finally {
+            if(!dispatchFinished) {
+                synchronized(this) {
+                    dispatchInProgress = false; /* The receiver threw: the next append resumes */
+                }
+            }
+        }
+    }
+
+    /**
+     * Cuts the frame at the head of the ring buffer and queues it for dispatch. Called with
+     * the lock held.
+     * @return false if the buffered bytes do not complete a frame yet
+     */
+    private boolean assembleNextFrame() {
+        while(true) {
+            int frameType = nextFrameType();
+            if(frameType == 0) {
+                return false;
+            }
+            int frameLength = nextFrameLength(frameType);
+            if(frameLength == 0) {
+                if(bufferedBytes < RING_BUFFER_SIZE) {
+                    return false;
+                }
+                dropBytes(1); /* Buffer is full of data that never completes a frame */
+                continue;
+            }
+            else if(frameLength < 0) {
+                dropBytes(1);
+                continue;
+            }
+            byte[] frameData = copyFrame(frameLength);
+            resyncInProgress = false;
+            if(frameType == FRAME_TYPE_LOGDATA) {
+                logFrameCount++;
+            }
+            else if(frameType == FRAME_TYPE_TEXT) {
+                textFrameCount++;
+            }
+            else {
+                xmodemFrameCount++;
+            }
+            assembledFrames.add(new AssembledFrame(frameType, frameData));
+            return true;
+        }
+    }
+
+    private byte peekByte(int index) {
+        return ringBuffer[(readPos + index) & RING_BUFFER_MASK];
+    }
+
+    private static boolean isLineTerminator(byte b) {
+        return b == BYTE_CR || b == BYTE_LF;
+    }
+
+    private void consumeBytes(int numBytes) {
+        readPos = (readPos + numBytes) & RING_BUFFER_MASK;
+        bufferedBytes -= numBytes;
+    }
+
+    private void dropBytes(int numBytes) {
+        if(!resyncInProgress) {
+            resyncInProgress = true;
+            resyncCount++;
+        }
+        droppedByteCount += numBytes;
+        consumeBytes(numBytes);
+    }
+
+    private byte[] copyFrame(int frameLength) {
+        byte[] frameData = new byte[frameLength];
+        int firstPart = Math.min(frameLength, RING_BUFFER_SIZE - readPos);
+        System.arraycopy(ringBuffer, readPos, frameData, 0, firstPart);
+        System.arraycopy(ringBuffer, 0, frameData, firstPart, frameLength - firstPart);
+        consumeBytes(frameLength);
+        return frameData;
+    }
+
+    /**
+     * Determines what kind of record starts at the head of the buffer.
+     * @return frame type, or zero if more data is needed
+     */
+    private int nextFrameType() {
+        while(bufferedBytes > 0) {
+            byte firstByte = peekByte(0);
+            int xmodemMode = framingContext.getXModemMode();
+            if(xmodemMode == XMODEM_MODE_DOWNLOAD) {
+                /* The LIVE log codes never collide with SOH/STX/EOT/CAN. While resyncing after a
+                 * misaligned block, its data bytes are skipped up to the next block start instead. */
+                if(!isXModemFrameStart(xmodemMode, firstByte) && !resyncInProgress && framingContext.isLiveLoggingCode(firstByte)) {
+                    return FRAME_TYPE_LOGDATA;
+                }
+                return FRAME_TYPE_XMODEM; /* Misaligned block data is resynced in nextFrameLength */
+            }
+            else if(xmodemMode == XMODEM_MODE_UPLOAD && isXModemFrameStart(xmodemMode, firstByte)) {
+                return FRAME_TYPE_XMODEM;
+            }
+            else if(isLineTerminator(firstByte)) {
+                consumeBytes(1); /* Trailing CR/LF left over from the last text response */
+                continue;
+            }
+            else if(framingContext.isLiveLoggingCode(firstByte)) {
+                return FRAME_TYPE_LOGDATA;
+            }
+            else if(firstByte >= 0x20 && firstByte <= 0x7e) {
+                return FRAME_TYPE_TEXT;
+            }
+            dropBytes(1);
+        }
+        return 0;
+    }
+
+    private static boolean isXModemFrameStart(int xmodemMode, byte firstByte) {
+        if(xmodemMode == XMODEM_MODE_DOWNLOAD) {
+            return firstByte == XModemProtocol.BYTE_SOH || firstByte == XModemProtocol.BYTE_STX ||
+                   firstByte == XModemProtocol.BYTE_EOT || firstByte == XModemProtocol.BYTE_CAN;
+        }
+        return firstByte == XModemProtocol.BYTE_ACK || firstByte == XModemProtocol.BYTE_NAK ||
+               firstByte == XModemProtocol.BYTE_CAN || firstByte == XModemProtocol.BYTE_CRC_REQUEST;
+    }
+
+    /**
+     * Default block frame length when no transfer is there to size it: classic 128 byte
+     * blocks with the additive checksum.
+     * @param firstByte
+     * @return frame length, or -1 if firstByte does not start a block
+     */
+    public static int getDefaultXModemBlockFrameLength(byte firstByte) {
+        return firstByte == XModemProtocol.BYTE_SOH ? XMODEM_FRAME_SIZE : -1;
+    }
+
+    /**
+     * @return the length of the complete frame at the head of the buffer, zero if the frame
+     *         is not complete yet, or -1 if the first byte has to be skipped to resync
+     */
+    private int nextFrameLength(int frameType) {
+        byte firstByte = peekByte(0);
+        switch(frameType) {
+            case FRAME_TYPE_XMODEM:
+                int xmodemMode = framingContext.getXModemMode();
+                if((firstByte == XModemProtocol.BYTE_SOH || firstByte == XModemProtocol.BYTE_STX) && xmodemMode == XMODEM_MODE_DOWNLOAD) {
+                    int blockFrameLength = framingContext.getXModemBlockFrameLength(firstByte);
+                    if(blockFrameLength < 0) {
+                        return -1;
+                    }
+                    return bufferedBytes >= blockFrameLength ? blockFrameLength : 0;
+                }
+                else if(isXModemFrameStart(xmodemMode, firstByte)) {
+                    return 1;
+                }
+                return -1;
+            case FRAME_TYPE_LOGDATA:
+                if(bufferedBytes < LOG_HEADER_SIZE) {
+                    return 0;
+                }
+                int logFrameLength = LOG_HEADER_SIZE + Byte.toUnsignedInt(peekByte(1));
+                return bufferedBytes >= logFrameLength ? logFrameLength : 0;
+            case FRAME_TYPE_TEXT:
+                return nextTextFrameLength();
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Text responses are one line terminated by CR/LF, except for the
+     * "101:OK WITH TEXT" responses where the following data line belongs to the same frame.
+     */
+    private int nextTextFrameLength() {
+        if(bufferedBytes >= 3 && peekByte(0) == '1' && peekByte(1) == '0' && peekByte(2) == '1') {
+            int codeLineEnd = findLineEnd(0);
+            if(codeLineEnd < 0) {
+                return truncatedTextFrameLength();
+            }
+            int dataLineStart = codeLineEnd;
+            while(dataLineStart < bufferedBytes && isLineTerminator(peekByte(dataLineStart))) {
+                dataLineStart++;
+            }
+            if(dataLineStart - codeLineEnd > 2) {
+                return includeLineTerminators(codeLineEnd); /* Empty data line */
+            }
+            int dataLineEnd = findLineEnd(dataLineStart);
+            if(dataLineEnd < 0) {
+                return truncatedTextFrameLength();
+            }
+            return includeLineTerminators(dataLineEnd);
+        }
+        int lineEnd = findLineEnd(0);
+        if(lineEnd < 0) {
+            return truncatedTextFrameLength();
+        }
+        return includeLineTerminators(lineEnd);
+    }
+
+    private int findLineEnd(int startPos) {
+        for(int scanPos = startPos; scanPos < bufferedBytes; scanPos++) {
+            if(isLineTerminator(peekByte(scanPos))) {
+                return scanPos;
+            }
+        }
+        return -1;
+    }
+
+    private int includeLineTerminators(int lineEnd) {
+        int frameEnd = lineEnd;
+        while(frameEnd < bufferedBytes && frameEnd - lineEnd < 2 && isLineTerminator(peekByte(frameEnd))) {
+            frameEnd++;
+        }
+        return frameEnd;
+    }
+
+    private int truncatedTextFrameLength() {
+        if(bufferedBytes < MAX_TEXT_FRAME_SIZE) {
+            return 0;
+        }
+        if(!resyncInProgress) {
+            resyncCount++;
+        }
+        return MAX_TEXT_FRAME_SIZE;
+    }
+
+}
@@ -20,12 +20,11 @@ package com.maxieds.chameleonminilivedebugger;
 import android.content.Context;
 import android.content.Intent;
 
-import java.util.Arrays;
-
 import static com.maxieds.chameleonminilivedebugger.ChameleonLogUtils.LogCode.LOG_INFO_CODEC_RX_DATA;
 import static com.maxieds.chameleonminilivedebugger.ChameleonLogUtils.LogCode.LOG_INFO_CODEC_RX_DATA_W_PARITY;
 
-public class SerialIOReceiver implements ChameleonSerialIOInterface, ChameleonSerialIOInterface.SerialDataReceiverInterface {
+public class SerialIOReceiver implements ChameleonSerialIOInterface, SerialDataReceiverInterface,
+                                         SerialIOFrameAssembler.SerialFrameReceiver {
 
     private static final String TAG = SerialIOReceiver.class.getSimpleName();
 
@@ -103,9 +102,9 @@ public class SerialIOReceiver implements ChameleonSerialIOInterface, ChameleonSe
         return false;
     }
 
-    private static ChameleonSerialIOInterface.SerialDataReceiverInterface redirectSerialDataInterface = null;
+    private static SerialDataReceiverInterface redirectSerialDataInterface = null;
 
-    public static void setRedirectInterface(ChameleonSerialIOInterface.SerialDataReceiverInterface iface) {
+    public static void setRedirectInterface(SerialDataReceiverInterface iface) {
         redirectSerialDataInterface = iface;
     }
 
@@ -119,23 +118,20 @@ public class SerialIOReceiver implements ChameleonSerialIOInterface, ChameleonSe
         AndroidLogger.d(TAG, "SERIALIO_LOGDATA_RECEIVED: (LOG)   " + ChameleonLogUtils.ChameleonLogData.newInstance(serialData));
     }
 
+    /**
+     * The received frames go to the UI thread through the dispatch ring rather than as Intent
+     * broadcasts (which are left for the infrequent status events below).
+     * @ref SerialIODispatchRing
+     */
     public boolean notifySerialDataReceived(byte[] serialData) {
-        Intent notifyIntent = new Intent(ChameleonSerialIOInterface.SERIALIO_DATA_RECEIVED);
-        notifyIntent.putExtra(ChameleonSerialIOInterface.SERIALIO_BYTE_DATA, serialData);
-        notifyContext.sendBroadcast(notifyIntent);
-        printSerialDataForDebugging(serialData);
-        return true;
+        return SerialIODispatchRing.getInstance().publish(SerialIODispatchRing.DISPATCH_SERIAL_DATA, serialData);
     }
 
     public boolean notifyLogDataReceived(byte[] serialData) {
         if(serialData.length < ChameleonLogUtils.LOGGING_MIN_DATA_BYTES + 4) {
             return false;
         }
-        Intent notifyIntent = new Intent(ChameleonSerialIOInterface.SERIALIO_LOGDATA_RECEIVED);
-        notifyIntent.putExtra(ChameleonSerialIOInterface.SERIALIO_BYTE_DATA, serialData);
-        notifyContext.sendBroadcast(notifyIntent);
-        printSerialDataForDebugging(serialData);
-        return true;
+        return SerialIODispatchRing.getInstance().publish(SerialIODispatchRing.DISPATCH_LOGDATA, serialData);
     }
 
     public boolean notifyDeviceConnectionTerminated() {
@@ -152,18 +148,82 @@ public class SerialIOReceiver implements ChameleonSerialIOInterface, ChameleonSe
         return true;
     }
 
+    /**
+     * Frames the serial stream according to the live device state (LIVE log codes, and the
+     * XModem transfer started by the UPLOAD / DOWNLOAD commands).
+     */
+    public static final SerialIOFrameAssembler.FramingContext DEVICE_FRAMING_CONTEXT = new SerialIOFrameAssembler.FramingContext() {
+        public boolean isLiveLoggingCode(byte firstByte) {
+            return ChameleonLogUtils.isLiveLoggingCode(firstByte);
+        }
+        public int getXModemMode() {
+            if(ChameleonIO.DOWNLOAD) {
+                return SerialIOFrameAssembler.XMODEM_MODE_DOWNLOAD;
+            }
+            else if(ChameleonIO.UPLOAD) {
+                return SerialIOFrameAssembler.XMODEM_MODE_UPLOAD;
+            }
+            return SerialIOFrameAssembler.XMODEM_MODE_NONE;
+        }
+        /* Sized by the running transfer (CRC16 blocks carry one more trailing byte, and
+         * XModem-1K blocks start with STX instead of SOH) */
+        public int getXModemBlockFrameLength(byte firstByte) {
+            XModemTransfer transfer = XModemTransfer.getActiveTransfer();
+            if(transfer != null) {
+                return transfer.getFrameLength(firstByte);
+            }
+            return SerialIOFrameAssembler.getDefaultXModemBlockFrameLength(firstByte);
+        }
+    };
+
+    private final SerialIOFrameAssembler serialFrameAssembler = new SerialIOFrameAssembler(DEVICE_FRAMING_CONTEXT);
+
+    public SerialIOFrameAssembler getSerialFrameAssembler() {
+        return serialFrameAssembler;
+    }
+
+    protected void resetSerialFrameAssembler() {
+        AndroidLogger.i(TAG, "Serial framing stats: " + serialFrameAssembler.getStatisticsSummary());
+        AndroidLogger.i(TAG, "Serial dispatch stats: " + SerialIODispatchRing.getInstance().getStatisticsSummary());
+        serialFrameAssembler.reset();
+    }
+
+    private volatile SerialCaptureReplayer.CaptureRecorder captureRecorder = null;
+
+    /**
+     * Saves every raw chunk received from now on for later playback (null to stop recording).
+     * @ref SerialReplayInterface
+     */
+    public void setCaptureRecorder(SerialCaptureReplayer.CaptureRecorder recorder) {
+        captureRecorder = recorder;
+    }
+
+    /**
+     * Raw chunks from the USB / BLE callbacks may hold several records, or only a part of one,
+     * so they are first reassembled into complete frames.
+     * @param liveLogData
+     * @ref SerialIOReceiver.onReceivedFrame
+     */
     public void onReceivedData(byte[] liveLogData) {
+        if(liveLogData == null || liveLogData.length == 0) {
+            return;
+        }
+        SerialCaptureReplayer.CaptureRecorder recorder = captureRecorder;
+        if(recorder != null) {
+            recorder.recordChunk(liveLogData);
+        }
+        serialFrameAssembler.appendData(liveLogData, this);
+    }
+
+    public void onReceivedFrame(int frameType, byte[] liveLogData) {
         printSerialDataForDebugging(liveLogData);
-        if(redirectSerialDataInterface != null) {
+        if(redirectSerialDataInterface != null && (frameType == SerialIOFrameAssembler.FRAME_TYPE_LOGDATA ||
+                ChameleonCommandPipeline.getInstance().getPendingCommandCount() == 0)) {
+            /* Responses to the scheduled commands (including the script's own) still go to the pipeline */
             redirectSerialDataInterface.onReceivedData(liveLogData);
             return;
-        } else if(liveLogData == null || liveLogData.length == 0) {
-            return;
-        } else if (liveLogData.length == 0) {
-            return;
         }
-        int loggingRespSize = ChameleonLogUtils.ResponseIsLiveLoggingBytes(liveLogData);
-        if (loggingRespSize > 0) {
+        if (frameType == SerialIOFrameAssembler.FRAME_TYPE_LOGDATA) {
             AndroidLogger.i(TAG, "Received new LogEntry @ " + String.format(BuildConfig.DEFAULT_LOCALE, "0x%02x", liveLogData[0]));
             if(ChameleonLogUtils.LOGMODE_ENABLE_PRINTING_LIVE_LOGS) {
                 notifyLogDataReceived(liveLogData);
@@ -184,37 +244,24 @@ public class SerialIOReceiver implements ChameleonSerialIOInterface, ChameleonSe
         } else if (ChameleonIO.UPLOAD) {
             ExportTools.performXModemSerialUpload(liveLogData);
             return;
-        } else if (ChameleonIO.WAITING_FOR_XMODEM) {
-            String strLogData = new String(liveLogData);
-            if (strLogData.length() >= 11 && strLogData.substring(0, 11).equals("110:WAITING")) {
-                ChameleonIO.WAITING_FOR_XMODEM = false;
-                return;
-            }
+        } else if (ChameleonIO.WAITING_FOR_XMODEM && new String(liveLogData).startsWith("110:WAITING")) {
+            ChameleonIO.WAITING_FOR_XMODEM = false;
+            /* The status line is the response to the UPLOAD / DOWNLOAD command itself: */
+            ChameleonCommandPipeline.getInstance().onCommandResponse(ChameleonCommandPipeline.CommandResponse.parseResponseFrame(liveLogData, false));
+            return;
         } else if (ChameleonIO.isCommandResponse(liveLogData)) {
-            String[] strLogData = (new String(liveLogData)).split("[\n\r\t][\n\r\t]+");
-            ChameleonIO.DEVICE_RESPONSE_CODE = strLogData[0];
-            int respCodeStartIndex = Utils.getFirstResponseCodeIndex(ChameleonIO.DEVICE_RESPONSE_CODE);
-            ChameleonIO.DEVICE_RESPONSE_CODE = ChameleonIO.DEVICE_RESPONSE_CODE.substring(respCodeStartIndex);
-            boolean respCodeHasPreText = respCodeStartIndex > 0;
-            if (respCodeHasPreText) {
-                strLogData[0] = strLogData[0].substring(0, respCodeStartIndex - 1);
-            }
-            if (strLogData.length >= 2) {
-                if (respCodeHasPreText) {
-                    ChameleonIO.DEVICE_RESPONSE = Arrays.copyOfRange(strLogData, 0, strLogData.length);
-                } else {
-                    ChameleonIO.DEVICE_RESPONSE = Arrays.copyOfRange(strLogData, 1, strLogData.length);
-                }
-            } else
-                ChameleonIO.DEVICE_RESPONSE[0] = strLogData[0];
+            ChameleonCommandPipeline.CommandResponse cmdResp = ChameleonCommandPipeline.CommandResponse.parseResponseFrame(liveLogData, ChameleonIO.EXPECTING_BINARY_DATA);
+            ChameleonIO.DEVICE_RESPONSE_CODE = cmdResp.responseCode;
+            ChameleonIO.DEVICE_RESPONSE = cmdResp.responseData;
             if (ChameleonIO.EXPECTING_BINARY_DATA) {
-                int binaryBufSize = liveLogData.length - ChameleonIO.DEVICE_RESPONSE_CODE.length() - 2;
-                ChameleonIO.DEVICE_RESPONSE_BINARY = new byte[binaryBufSize];
-                System.arraycopy(liveLogData, liveLogData.length - binaryBufSize, ChameleonIO.DEVICE_RESPONSE_BINARY, 0, binaryBufSize);
+                ChameleonIO.DEVICE_RESPONSE_BINARY = cmdResp.binaryData;
                 ChameleonIO.EXPECTING_BINARY_DATA = false;
             }
+            if (ChameleonCommandPipeline.getInstance().onCommandResponse(cmdResp)) {
+                return;
+            }
+            /* Unsolicited response (logged by the pipeline): show it rather than drop it */
             ChameleonIO.WAITING_FOR_RESPONSE = false;
-            return;
         }
         notifySerialDataReceived(liveLogData);
     }
@@ -0,0 +1,243 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+
+/**
+ * <h1>Serial Replay Interface</h1>
+ * Serial port that plays back a recorded capture through the normal receive pipeline
+ * (frame assembler, SerialIOReceiver and the Log tab) in place of a physical Chameleon.
+ * Writes to the device are accepted and discarded, so command queries simply time out.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref SerialCaptureReplayer
+ */
+public class SerialReplayInterface extends SerialIOReceiver {
+
+    private static final String TAG = SerialReplayInterface.class.getSimpleName();
+
+    public String getInterfaceLoggingTag() {
+        return TAG;
+    }
+
+    private SerialCaptureReplayer captureReplayer;
+    private String captureName;
+    private boolean serialConfigured;
+    private Semaphore serialPortLock = new Semaphore(1, true);
+
+    public SerialReplayInterface(Context appContext) {
+        setListenerContext(appContext);
+        captureReplayer = null;
+        captureName = "";
+        serialConfigured = false;
+    }
+
+    /**
+     * Loads a capture file to play back the next time the port is configured.
+     * @param captureFile Binary LIVE log file (.bin) or raw chunk capture
+     * @param speed SerialCaptureReplayer.SPEED_REALTIME, an N-times multiplier, or SPEED_MAXIMUM
+     * @param chunkSize Chunk size to cut binary log files into (zero for one record per chunk)
+     */
+    public boolean loadCaptureFile(@NonNull File captureFile, double speed, int chunkSize) {
+        SerialCaptureReplayer.ReplayCapture capture;
+        InputStream captureStream = null;
+        try {
+            captureStream = new FileInputStream(captureFile);
+            try {
+                capture = SerialCaptureReplayer.ReplayCapture.fromRawChunkCapture(captureStream);
+            } catch(IOException notRawCapture) {
+                captureStream.close();
+                captureStream = new FileInputStream(captureFile);
+                capture = SerialCaptureReplayer.ReplayCapture.fromBinaryLogFile(captureStream, chunkSize);
+            }
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            return false;
+        } finally {
+            if(captureStream != null) {
+                try {
+                    captureStream.close();
+                } catch(IOException ioe) {
+                    AndroidLogger.printStackTrace(ioe);
+                }
+            }
+        }
+        loadCapture(capture, speed, captureFile.getName());
+        return true;
+    }
+
+    public void loadCapture(@NonNull SerialCaptureReplayer.ReplayCapture capture, double speed, String name) {
+        if(captureReplayer != null) {
+            captureReplayer.stopReplay();
+        }
+        captureReplayer = new SerialCaptureReplayer(capture);
+        captureReplayer.setSpeedMultiplier(speed);
+        captureName = name == null ? "" : name;
+    }
+
+    public SerialCaptureReplayer getCaptureReplayer() {
+        return captureReplayer;
+    }
+
+    public boolean isWiredUSB() { return false; }
+
+    public boolean isBluetooth() { return false; }
+
+    public int setSerialBaudRate(int bdRate) {
+        return STATUS_NOT_SUPPORTED;
+    }
+
+    /**
+     * There is nothing to scan for: the port connects as soon as a capture has been loaded.
+     * @ref ExternalFileIO.replaySerialCapture
+     */
+    public boolean startScanningDevices() {
+        if(captureReplayer == null || ChameleonSettings.getActiveSerialIOPort() != null) {
+            return false;
+        }
+        return configureSerial() == STATUS_TRUE;
+    }
+
+    public boolean stopScanningDevices() {
+        return true;
+    }
+
+    public String getDeviceName() {
+        return "Capture Replay";
+    }
+
+    public String getActiveDeviceInfo() {
+        if(captureReplayer == null) {
+            return "";
+        }
+        SerialCaptureReplayer.ReplayCapture capture = captureReplayer.getCapture();
+        return String.format(BuildConfig.DEFAULT_LOCALE, "Replay Capture: %s\nChunks:        %d (%d bytes)\nDuration:      %.1f s\nSpeed:         %s",
+                             captureName, capture.getChunkCount(), capture.getTotalBytes(), capture.getDurationNanos() / 1.0e9,
+                             captureReplayer.getSpeedMultiplier() <= 0.0 ? "MAX" : String.format(BuildConfig.DEFAULT_LOCALE, "%.2fx", captureReplayer.getSpeedMultiplier()));
+    }
+
+    public int configureSerial() {
+        if(serialConfigured()) {
+            return STATUS_TRUE;
+        }
+        else if(captureReplayer == null || ChameleonSettings.getActiveSerialIOPort() != null) {
+            return STATUS_RESOURCE_UNAVAILABLE;
+        }
+        ChameleonIO.REVE_BOARD = false;
+        ChameleonIO.PAUSED = false;
+        serialConfigured = true;
+        ChameleonSettings.SERIALIO_IFACE_ACTIVE_INDEX = ChameleonSettings.REPLAYIO_IFACE_INDEX;
+        getSerialFrameAssembler().resetStatistics();
+        notifyStatus("REPLAY STATUS: ", "Chameleon:     " + getActiveDeviceInfo());
+        captureReplayer.startReplay(this, new Runnable() {
+            public void run() {
+                String replayStats = captureReplayer.getStatistics().toString();
+                AndroidLogger.i(TAG, "Replay finished: " + replayStats);
+                AndroidLogger.i(TAG, "Serial framing stats: " + getSerialFrameAssembler().getStatisticsSummary());
+                notifyStatus("REPLAY STATUS: ", replayStats);
+            }
+        });
+        return STATUS_TRUE;
+    }
+
+    public int shutdownSerial() {
+        if(captureReplayer != null) {
+            captureReplayer.stopReplay();
+        }
+        ChameleonIO.PAUSED = true;
+        ChameleonIO.WAITING_FOR_RESPONSE = false;
+        ChameleonCommandPipeline.getInstance().cancelPendingCommands();
+        ChameleonIO.EXPECTING_BINARY_DATA = false;
+        resetSerialFrameAssembler();
+        serialConfigured = false;
+        if(ChameleonSettings.SERIALIO_IFACE_ACTIVE_INDEX == ChameleonSettings.REPLAYIO_IFACE_INDEX) {
+            ChameleonSettings.SERIALIO_IFACE_ACTIVE_INDEX = -1;
+        }
+        releaseSerialPortLock();
+        notifyDeviceConnectionTerminated();
+        return STATUS_TRUE;
+    }
+
+    @Override
+    public void onReceivedFrame(int frameType, byte[] liveLogData) {
+        SerialCaptureReplayer replayer = captureReplayer;
+        if(replayer != null) {
+            replayer.onFrameDelivered(frameType == SerialIOFrameAssembler.FRAME_TYPE_LOGDATA);
+        }
+        super.onReceivedFrame(frameType, liveLogData);
+    }
+
+    public boolean serialConfigured() { return serialConfigured; }
+
+    public boolean serialReceiversRegistered() { return serialConfigured; }
+
+    public boolean acquireSerialPort() {
+        try {
+            serialPortLock.acquire();
+            return true;
+        } catch(InterruptedException inte) {
+            AndroidLogger.printStackTrace(inte);
+            return false;
+        }
+    }
+
+    public boolean acquireSerialPortNoInterrupt() {
+        serialPortLock.acquireUninterruptibly();
+        return true;
+    }
+
+    public boolean tryAcquireSerialPort(int timeout) {
+        try {
+            return serialPortLock.tryAcquire(timeout, java.util.concurrent.TimeUnit.MILLISECONDS);
+        } catch(InterruptedException inte) {
+            AndroidLogger.printStackTrace(inte);
+            return false;
+        }
+    }
+
+    /**
+     * Only hands back a permit that is actually held, so shutting down an idle port does not
+     * let two later callers into the port at once.
+     */
+    public boolean releaseSerialPortLock() {
+        if(serialPortLock.availablePermits() > 0) {
+            return false;
+        }
+        serialPortLock.release();
+        return true;
+    }
+
+    public int sendDataBuffer(byte[] dataWriteBuffer) {
+        if(!serialConfigured()) {
+            return STATUS_ERROR;
+        }
+        AndroidLogger.d(TAG, "Replay discarding sent data: (TXT) " + Utils.bytes2Ascii(dataWriteBuffer));
+        return STATUS_TRUE;
+    }
+
+}
@@ -52,6 +52,7 @@ import android.widget.CheckBox;
 import android.widget.CompoundButton;
 import android.widget.EditText;
 import android.widget.LinearLayout;
+import android.widget.ListView;
 import android.widget.ScrollView;
 import android.widget.SeekBar;
 import android.widget.Spinner;
@@ -95,24 +96,22 @@ public class UITabUtils {
         }
         boolean errorOnInit = false;
         if(menuItemIdx == TAB_LOG_MITEM_LOGS && !GUILogUtils.logDataFeedConfigured) {
-            if(GUILogUtils.logDataFeed == null) {
-                GUILogUtils.logDataFeed = new LinearLayout(LiveLoggerActivity.getLiveLoggerInstance());
-            }
-            ScrollView logScroller = (ScrollView) tabMainLayoutView.findViewById(R.id.log_scroll_view);
-            if(logScroller != null) {
-                logScroller.removeAllViews();
-            } else {
+            ListView logDataFeed = (ListView) tabMainLayoutView.findViewById(R.id.log_list_view);
+            if(logDataFeed == null) {
                 errorOnInit = true;
+            } else {
+                if(GUILogUtils.logDataFeedAdapter == null) {
+                    GUILogUtils.logDataFeedAdapter = new LogRecordListAdapter(GUILogUtils.logRecordStore);
+                }
+                logDataFeed.setAdapter(GUILogUtils.logDataFeedAdapter);
+                GUILogUtils.logDataFeedAdapter.notifyRecordsChanged();
+                GUILogUtils.logDataFeed = logDataFeed;
+                GUILogUtils.logDataFeedSummaryBanner = (TextView) tabMainLayoutView.findViewById(R.id.log_summary_banner);
+                if(GUILogUtils.logDataFeedSummaryBanner != null && LogFeedUpdateScheduler.getInstance().isSummaryMode()) {
+                    GUILogUtils.logDataFeedSummaryBanner.setVisibility(View.VISIBLE);
+                }
+                GUILogUtils.logDataFeedConfigured = true;
             }
-            LinearLayout logDataFeed = GUILogUtils.logDataFeed;
-            logDataFeed.setOrientation(LinearLayout.VERTICAL);
-            if(logScroller != null) {
-                logScroller.addView(logDataFeed);
-                logScroller.setFillViewport(true);
-            }
-            GUILogUtils.logScrollView = logScroller;
-            GUILogUtils.logDataFeed = logDataFeed;
-            GUILogUtils.logDataFeedConfigured = true;
         }
         else if(menuItemIdx == TAB_LOG_MITEM_LOGTOOLS) {}
         else if(menuItemIdx == TAB_LOG_MITEM_SEARCH) {
@@ -201,13 +200,13 @@ public class UITabUtils {
                             Switch swLockTag = (Switch) slotConfigContainer.findViewById(R.id.fieldOnOffSwitch);
                             swLockTag.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
                                 public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-                                    ChameleonIO.executeChameleonMiniCommand("READONLY=" + (isChecked ? "1" : "0"), ChameleonIO.TIMEOUT);
+                                    ChameleonIO.executeChameleonMiniCommandAsync("READONLY=" + (isChecked ? "1" : "0"));
                                 }
                             });
                             Switch swField = (Switch) slotConfigContainer.findViewById(R.id.fieldOnOffSwitch);
                             swField.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
                                 public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-                                    ChameleonIO.executeChameleonMiniCommand("FIELD=" + (isChecked ? "1" : "0"), ChameleonIO.TIMEOUT);
+                                    ChameleonIO.executeChameleonMiniCommandAsync("FIELD=" + (isChecked ? "1" : "0"));
                                 }
                             });
                         }
@@ -228,7 +227,7 @@ public class UITabUtils {
                         fieldSwitch.setChecked(ChameleonIO.deviceStatus.FIELD);
                         fieldSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
                             public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-                                ChameleonIO.executeChameleonMiniCommand("FIELD=" + (isChecked ? "1" : "0"), ChameleonIO.TIMEOUT);
+                                ChameleonIO.executeChameleonMiniCommandAsync("FIELD=" + (isChecked ? "1" : "0"));
                             }
                         });
                     }
@@ -237,7 +236,7 @@ public class UITabUtils {
                         roSwitch.setChecked(ChameleonIO.deviceStatus.READONLY);
                         roSwitch.setOnCheckedChangeListener(new CompoundButton.OnCheckedChangeListener() {
                             public void onCheckedChanged(CompoundButton buttonView, boolean isChecked) {
-                                ChameleonIO.executeChameleonMiniCommand("READONLY=" + (isChecked ? "1" : "0"), ChameleonIO.TIMEOUT);
+                                ChameleonIO.executeChameleonMiniCommandAsync("READONLY=" + (isChecked ? "1" : "0"));
                             }
                         });
                     }
@@ -275,7 +274,7 @@ public class UITabUtils {
                             public void onStopTrackingTouch(@NonNull SeekBar seekBar) {
                                 int nextThreshold = seekBar.getProgress();
                                 LiveLoggerActivity.setSignalStrengthIndicator(nextThreshold);
-                                ChameleonIO.executeChameleonMiniCommand("THRESHOLD=" + String.valueOf(nextThreshold), ChameleonIO.TIMEOUT);
+                                ChameleonIO.executeChameleonMiniCommandAsync("THRESHOLD=" + String.valueOf(nextThreshold));
                                 ChameleonIO.DeviceStatusSettings.updateAllStatusAndPost(false);
                                 ChameleonIO.DeviceStatusSettings.updateAllStatusAndPost(false); /* Make sure the device returned the correct data to display */
                             }
@@ -315,7 +314,7 @@ public class UITabUtils {
                             @Override
                             public void onStopTrackingTouch(@NonNull SeekBar seekBar) {
                                 int nextTimeout = seekBar.getProgress();
-                                ChameleonIO.executeChameleonMiniCommand("TIMEOUT=" + String.valueOf(nextTimeout), ChameleonIO.TIMEOUT);
+                                ChameleonIO.executeChameleonMiniCommandAsync("TIMEOUT=" + String.valueOf(nextTimeout));
                                 ChameleonIO.deviceStatus.updateAllStatusAndPost(false);
                                 /* Make sure the device returned the correct data to display: */
                                 ChameleonIO.deviceStatus.updateAllStatusAndPost(false);
@@ -387,7 +386,14 @@ public class UITabUtils {
                 deviceNameText.setText(ChameleonSettings.getActiveSerialIOPort().getDeviceName());
                 chamTypeText.setText(ChameleonIO.getDeviceDescription(ChameleonIO.CHAMELEON_MINI_BOARD_TYPE));
                 hardwareIDText.setText(ChameleonSettings.chameleonDeviceSerialNumber);
-                connStatusText.setText(ChameleonSettings.getActiveSerialIOPort().isWiredUSB() ? "USB connection" : "BT connection");
+                ChameleonSerialIOInterface activeSerialPort = ChameleonSettings.getActiveSerialIOPort();
+                if(activeSerialPort.isWiredUSB()) {
+                    connStatusText.setText("USB connection");
+                } else if(activeSerialPort.isBluetooth()) {
+                    connStatusText.setText("BT connection");
+                } else {
+                    connStatusText.setText(activeSerialPort.getDeviceName());
+                }
             } else {
                 deviceNameText.setText(ChameleonSettings.chameleonDeviceNickname);
                 chamTypeText.setText("None");
@@ -497,6 +503,31 @@ public class UITabUtils {
                     }
                 }
             });
+            CheckBox cbUseEmulator = tabMainLayoutView.findViewById(R.id.settingsUseDeviceEmulator);
+            if(cbUseEmulator != null) {
+                cbUseEmulator.setChecked(ChameleonSettings.allowDeviceEmulator);
+                cbUseEmulator.setOnCheckedChangeListener(new CheckBox.OnCheckedChangeListener() {
+                    @Override
+                    public void onCheckedChanged(CompoundButton cb, boolean checked) {
+                        try {
+                            ChameleonSettings.allowDeviceEmulator = checked;
+                            ChameleonSerialIOInterface activeSerialPort = ChameleonSettings.getActiveSerialIOPort();
+                            if(!checked && activeSerialPort != null && activeSerialPort == ChameleonSettings.getEmulatorIOInterface()) {
+                                activeSerialPort.shutdownSerial();
+                                activeSerialPort = null;
+                            }
+                            if(activeSerialPort == null) {
+                                ChameleonSettings.stopSerialIOConnectionDiscovery();
+                                ChameleonSettings.initializeSerialIOConnections();
+                            }
+                        } catch(Exception ex) {
+                            AndroidLogger.printStackTrace(ex);
+                        }
+                    }
+                });
+            } else {
+                errorOnInit = true;
+            }
             CheckBox cbUseBidirSniff = tabMainLayoutView.findViewById(R.id.settingsUseBidirectionalSniffing);
             if(cbUseBidirSniff != null) {
                 cbUseBidirSniff.setChecked(ChameleonSettings.sniffingMode == ChameleonSettings.SNIFFING_MODE_BIDIRECTIONAL);
@@ -773,7 +804,7 @@ public class UITabUtils {
             String[] localSpinnerList = spinnerList;
             public void onItemSelected(AdapterView<?> adapterView, View view, int i, long l) {
                 String setCmd = localSpinner.getTag().toString() + localSpinnerList[i];
-                ChameleonIO.executeChameleonMiniCommand(setCmd, ChameleonIO.TIMEOUT);
+                ChameleonIO.executeChameleonMiniCommandAsync(setCmd);
             }
             public void onNothingSelected(AdapterView<?> adapterView) {
                 return;
@@ -829,7 +860,7 @@ public class UITabUtils {
                 }
                 AndroidSettingsStorage.updateValueByKey(AndroidSettingsStorage.LOGGING_CONFIG_LOGMODE_NOTIFY_STATE);
                 String setCmd = "LOGMODE=" + nextLogMode;
-                ChameleonIO.executeChameleonMiniCommand(setCmd, ChameleonIO.TIMEOUT);
+                ChameleonIO.executeChameleonMiniCommandAsync(setCmd);
             }
             public void onNothingSelected(AdapterView<?> adapterView) {
                 return;
@@ -195,8 +195,8 @@ public class Utils {
             return arr1;
         }
         byte[] mergedBytesArr = new byte[arr1.length + arr2.length];
-        System.arraycopy(mergedBytesArr, 0, arr1, 0, arr1.length);
-        System.arraycopy(mergedBytesArr, arr1.length, arr2, 0, arr2.length);
+        System.arraycopy(arr1, 0, mergedBytesArr, 0, arr1.length);
+        System.arraycopy(arr2, 0, mergedBytesArr, arr1.length, arr2.length);
         return mergedBytesArr;
     }
 
@@ -655,11 +655,7 @@ public class Utils {
         if(bufferBytes == null || bufferBytes.length == 0) {
             return new byte[0];
         }
-        int byteCount = bufferBytes.length;
-        short workingCRC = (short) 0xffff; /* x25 CCITT-CRC16 seed */
-        for (int i = 0; i < byteCount; i++) {
-            workingCRC = (short) (CRC16_LOOKUP_TABLE[(bufferBytes[i] ^ (workingCRC >>> 8)) & 0xff] ^ (workingCRC << 8));
-        }
+        int workingCRC = calculateByteBufferCRC16(bufferBytes, 0, bufferBytes.length);
         byte[] crcBytes = {
                 (byte) (workingCRC & 0x00ff),
                 (byte) ((workingCRC >> 8) & 0x00ff)
@@ -667,15 +663,25 @@ public class Utils {
         return crcBytes;
     }
 
+    /**
+     * Computes the CRC16 of the byteCount bytes at offset without copying them.
+     * @return the 16-bit CRC (the low byte is sent first)
+     */
+    public static int calculateByteBufferCRC16(@NonNull byte[] bufferBytes, int offset, int byteCount) {
+        short workingCRC = (short) 0xffff; /* x25 CCITT-CRC16 seed */
+        for (int i = offset; i < offset + byteCount; i++) {
+            workingCRC = (short) (CRC16_LOOKUP_TABLE[(bufferBytes[i] ^ (workingCRC >>> 8)) & 0xff] ^ (workingCRC << 8));
+        }
+        return workingCRC & 0xffff;
+    }
+
     public static boolean checkByteBufferCRC16(@NonNull byte[] bufferBytes) {
         if (bufferBytes.length < 2) {
             return false;
         }
         int dataLength = bufferBytes.length - 2;
-        byte[] dataBytes = new byte[dataLength];
-        System.arraycopy(dataBytes, 0, bufferBytes, 0, dataLength);
-        byte[] dataCRCBytes = calculateByteBufferCRC16(dataBytes);
-        if (bufferBytes[dataLength] == dataCRCBytes[0] && bufferBytes[dataLength + 1] == dataCRCBytes[1]) {
+        int dataCRC = calculateByteBufferCRC16(bufferBytes, 0, dataLength);
+        if (bufferBytes[dataLength] == (byte) dataCRC && bufferBytes[dataLength + 1] == (byte) (dataCRC >> 8)) {
             return true;
         } else {
             return false;
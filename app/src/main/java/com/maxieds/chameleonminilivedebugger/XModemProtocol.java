@@ -0,0 +1,78 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+/**
+ * <h1>XModem Protocol</h1>
+ * The XModem control bytes, block layout and check values shared by the transfers, the serial
+ * framing and the device emulator. Plain Java only, so the framing and emulator code also runs
+ * on a desktop JVM.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref XModemTransfer
+ * @url http://rawgit.com/emsec/ChameleonMini/master/Doc/Doxygen/html/_x_modem_8h_source.html
+ */
+public class XModemProtocol {
+
+    public static final byte BYTE_SOH = (byte) 0x01;
+    public static final byte BYTE_STX = (byte) 0x02;
+    public static final byte BYTE_EOT = (byte) 0x04;
+    public static final byte BYTE_ACK = (byte) 0x06;
+    public static final byte BYTE_NAK = (byte) 0x15;
+    public static final byte BYTE_CAN = (byte) 0x18;
+    public static final byte BYTE_EOF = (byte) 0x1A;
+    public static final byte BYTE_CRC_REQUEST = (byte) 'C';
+
+    public static final int BLOCK_SIZE = 128;
+    public static final int BLOCK_SIZE_1K = 1024;
+    public static final int MAX_FRAME_SIZE = 3 + BLOCK_SIZE_1K + 2;
+    public static final byte FIRST_FRAME_NUMBER = (byte) 1;
+    public static final byte CHECKSUM_INIT_VALUE = 0;
+
+    private static final int[] CRC16_TABLE = new int[256];
+    static {
+        for(int tidx = 0; tidx < 256; tidx++) {
+            int crc = tidx << 8;
+            for(int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[tidx] = crc & 0xffff;
+        }
+    }
+
+    /**
+     * CRC16-CCITT (polynomial 0x1021, zero initial value) as used by XModem-CRC.
+     */
+    public static int calcCRC16(byte[] buffer, int offset, int length) {
+        int crc = 0;
+        for(int bidx = offset; bidx < offset + length; bidx++) {
+            crc = ((crc << 8) ^ CRC16_TABLE[((crc >>> 8) ^ buffer[bidx]) & 0xff]) & 0xffff;
+        }
+        return crc;
+    }
+
+    public static byte calcChecksum(byte[] buffer, int offset, int length) {
+        byte checksum = CHECKSUM_INIT_VALUE;
+        for(int bidx = offset; bidx < offset + length; bidx++) {
+            checksum += buffer[bidx];
+        }
+        return checksum;
+    }
+
+}
@@ -0,0 +1,454 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import androidx.annotation.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * <h1>XModem Transfer</h1>
+ * One XModem transfer with the device, in either direction. Classic 128 byte blocks with the
+ * additive checksum are always understood; the CRC16 variant and XModem-1K (1024 byte STX
+ * blocks) are used when the other end asks for them ('C' start byte instead of NAK), so the
+ * stock firmware keeps working unchanged. The upload frame buffers are allocated once per transfer,
+ * downloaded blocks go through a buffered stream instead of a flush per frame, and the
+ * throughput, retransmissions and block round trip times are tracked for each transfer.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ * @ref ExportTools.downloadByXModem
+ * @ref ExportTools.uploadCardFileByXModem
+ * @url http://rawgit.com/emsec/ChameleonMini/master/Doc/Doxygen/html/_x_modem_8h_source.html
+ */
+public class XModemTransfer {
+
+    private static final String TAG = XModemTransfer.class.getSimpleName();
+
+    public static final int MODE_DOWNLOAD = 1;
+    public static final int MODE_UPLOAD = 2;
+
+    public static final int STATUS_RUNNING = 0;
+    public static final int STATUS_COMPLETE = 1;
+    public static final int STATUS_FAILED = 2;
+
+    public static final byte BYTE_STX = XModemProtocol.BYTE_STX;
+    public static final byte BYTE_CRC_REQUEST = XModemProtocol.BYTE_CRC_REQUEST;
+    public static final int BLOCK_SIZE = XModemProtocol.BLOCK_SIZE;
+    public static final int BLOCK_SIZE_1K = XModemProtocol.BLOCK_SIZE_1K;
+    public static final int MAX_FRAME_SIZE = XModemProtocol.MAX_FRAME_SIZE;
+
+    public static final long CRC_START_TIMEOUT_MILLIS = 1500;
+    public static final long BLOCK_TIMEOUT_MILLIS = 3000;
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private static volatile XModemTransfer activeTransfer = null;
+
+    /**
+     * @return the transfer currently running on the serial port (or null)
+     */
+    public static XModemTransfer getActiveTransfer() {
+        return activeTransfer;
+    }
+
+    private final int transferMode;
+    private final boolean allowExtensions;
+    private final OutputStream destStream;
+    private final InputStream srcStream;
+    private byte[] blockFrame;
+    private byte[] blockFrame1K;
+    private byte[] sendFrame;
+    private volatile boolean crcMode;
+    private volatile int transferStatus = STATUS_RUNNING;
+    private byte nextBlockNumber = ExportTools.FIRST_FRAME_NUMBER;
+    private boolean uploadStarted;
+    private boolean eotSent;
+    private int consecutiveErrors;
+
+    /**
+     * Transfer statistics.
+     */
+    private long startTimeNanos;
+    private long firstDataNanos;
+    private long endTimeNanos;
+    private long lastActivityNanos;
+    private long blockSentNanos;
+    private long payloadBytes;
+    private int blocksTransferred;
+    private int retransmissions;
+    private int timeouts;
+    private long blockRoundTripSumNanos;
+    private long blockRoundTripMaxNanos;
+
+    private XModemTransfer(int mode, OutputStream dest, InputStream src, boolean useExtensions) {
+        transferMode = mode;
+        destStream = dest == null ? null : new BufferedOutputStream(dest, OUTPUT_BUFFER_SIZE);
+        srcStream = src;
+        allowExtensions = useExtensions;
+        crcMode = false;
+    }
+
+    /**
+     * @param dest Where the received blocks are written (closed at the end of the transfer)
+     * @param requestCRC Start by asking the device for CRC16 / 1K blocks (falls back to the
+     *                   classic checksum if it does not answer)
+     */
+    public static XModemTransfer newDownload(@NonNull OutputStream dest, boolean requestCRC) {
+        return new XModemTransfer(MODE_DOWNLOAD, dest, null, requestCRC);
+    }
+
+    /**
+     * @param src Data to send (closed at the end of the transfer)
+     * @param allow1K Send 1024 byte blocks if the receiver asked for CRC16 mode
+     */
+    public static XModemTransfer newUpload(@NonNull InputStream src, boolean allow1K) {
+        return new XModemTransfer(MODE_UPLOAD, null, src, allow1K);
+    }
+
+    public int getTransferMode() {
+        return transferMode;
+    }
+
+    public int getStatus() {
+        return transferStatus;
+    }
+
+    public boolean isFinished() {
+        return transferStatus != STATUS_RUNNING;
+    }
+
+    public boolean isCRCMode() {
+        return crcMode;
+    }
+
+    /**
+     * Kicks off the transfer once the device has answered "110:WAITING FOR XMODEM".
+     * @param serialIOPort
+     */
+    public synchronized void start(@NonNull ChameleonSerialIOInterface serialIOPort) {
+        activeTransfer = this;
+        startTimeNanos = lastActivityNanos = System.nanoTime();
+        if(transferMode == MODE_DOWNLOAD) {
+            crcMode = allowExtensions;
+            serialIOPort.sendDataBuffer(new byte[] { crcMode ? BYTE_CRC_REQUEST : ExportTools.BYTE_NAK });
+        }
+        else {
+            /* The receiver picks the mode with its start byte, this only wakes it up: */
+            serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_NAK });
+        }
+    }
+
+    /**
+     * Length of the XModem frame starting with the given byte in the current mode
+     * (used by the serial frame assembler).
+     * @param firstByte
+     * @return frame length, or -1 if the byte cannot start a frame
+     */
+    public int getFrameLength(byte firstByte) {
+        int checkLength = crcMode ? 2 : 1;
+        if(transferMode == MODE_DOWNLOAD) {
+            if(firstByte == ExportTools.BYTE_SOH) {
+                return 3 + BLOCK_SIZE + checkLength;
+            }
+            else if(firstByte == BYTE_STX) {
+                return 3 + BLOCK_SIZE_1K + checkLength;
+            }
+            else if(firstByte == ExportTools.BYTE_EOT || firstByte == ExportTools.BYTE_CAN) {
+                return 1;
+            }
+            return -1;
+        }
+        if(firstByte == ExportTools.BYTE_ACK || firstByte == ExportTools.BYTE_NAK ||
+           firstByte == ExportTools.BYTE_CAN || (firstByte == BYTE_CRC_REQUEST && !uploadStarted)) {
+            return 1;
+        }
+        return -1;
+    }
+
+    /**
+     * Handles the next XModem frame (or control byte) received from the device.
+     */
+    public synchronized void onReceivedFrame(@NonNull byte[] frameData, @NonNull ChameleonSerialIOInterface serialIOPort) {
+        if(isFinished() || frameData.length == 0) {
+            return;
+        }
+        lastActivityNanos = System.nanoTime();
+        if(transferMode == MODE_DOWNLOAD) {
+            receiveDownloadFrame(frameData, serialIOPort);
+        }
+        else {
+            receiveUploadResponse(frameData[0], serialIOPort);
+        }
+    }
+
+    /**
+     * Called periodically while the transfer runs: falls back to the classic checksum mode
+     * if the device ignored the CRC request, and re-prompts (or gives up) on stalled blocks.
+     */
+    public synchronized void checkTimeouts(@NonNull ChameleonSerialIOInterface serialIOPort) {
+        if(isFinished()) {
+            return;
+        }
+        long idleMillis = (System.nanoTime() - lastActivityNanos) / 1000000L;
+        if(transferMode == MODE_DOWNLOAD && crcMode && blocksTransferred == 0 && idleMillis >= CRC_START_TIMEOUT_MILLIS) {
+            AndroidLogger.i(TAG, "No answer to the CRC request, falling back to the checksum mode");
+            crcMode = false;
+            lastActivityNanos = System.nanoTime();
+            serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_NAK });
+        }
+        else if(idleMillis >= BLOCK_TIMEOUT_MILLIS) {
+            timeouts++;
+            lastActivityNanos = System.nanoTime();
+            if(++consecutiveErrors > ExportTools.MAX_NAK_COUNT) {
+                cancelTransfer(serialIOPort);
+            }
+            else if(transferMode == MODE_DOWNLOAD) {
+                serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_NAK });
+            }
+        }
+    }
+
+    private void receiveDownloadFrame(byte[] frameData, ChameleonSerialIOInterface serialIOPort) {
+        byte startByte = frameData[0];
+        if(startByte == ExportTools.BYTE_EOT) {
+            serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_ACK });
+            finishTransfer(STATUS_COMPLETE);
+            return;
+        }
+        else if(startByte == ExportTools.BYTE_CAN) {
+            finishTransfer(STATUS_FAILED);
+            return;
+        }
+        int blockSize = startByte == BYTE_STX ? BLOCK_SIZE_1K : BLOCK_SIZE;
+        int checkLength = crcMode ? 2 : 1;
+        boolean frameValid = (startByte == ExportTools.BYTE_SOH || startByte == BYTE_STX) &&
+                             frameData.length == 3 + blockSize + checkLength &&
+                             frameData[2] == (byte) (255 - frameData[1]);
+        if(frameValid && crcMode) {
+            int frameCRC = ((frameData[3 + blockSize] & 0xff) << 8) | (frameData[4 + blockSize] & 0xff);
+            frameValid = frameCRC == XModemProtocol.calcCRC16(frameData, 3, blockSize);
+        }
+        else if(frameValid) {
+            frameValid = frameData[3 + blockSize] == XModemProtocol.calcChecksum(frameData, 3, blockSize);
+        }
+        if(frameValid && frameData[1] == (byte) (nextBlockNumber - 1)) {
+            retransmissions++; /* Our last ACK was lost, the device resent the previous block */
+            serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_ACK });
+            return;
+        }
+        else if(!frameValid || frameData[1] != nextBlockNumber) {
+            retransmissions++;
+            if(++consecutiveErrors > ExportTools.MAX_NAK_COUNT) {
+                cancelTransfer(serialIOPort);
+                return;
+            }
+            serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_NAK });
+            return;
+        }
+        try {
+            destStream.write(frameData, 3, blockSize);
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            cancelTransfer(serialIOPort);
+            return;
+        }
+        recordBlockTransferred(blockSize);
+        nextBlockNumber++;
+        blockSentNanos = System.nanoTime();
+        serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_ACK });
+    }
+
+    private void receiveUploadResponse(byte statusByte, ChameleonSerialIOInterface serialIOPort) {
+        if(statusByte == ExportTools.BYTE_CAN) {
+            finishTransfer(STATUS_FAILED);
+            return;
+        }
+        else if(!uploadStarted) {
+            if(statusByte != ExportTools.BYTE_NAK && statusByte != BYTE_CRC_REQUEST && statusByte != ExportTools.BYTE_ACK) {
+                return;
+            }
+            uploadStarted = true;
+            crcMode = statusByte == BYTE_CRC_REQUEST;
+            blockFrame = new byte[3 + BLOCK_SIZE + (crcMode ? 2 : 1)];
+            blockFrame1K = (allowExtensions && crcMode) ? new byte[MAX_FRAME_SIZE] : null;
+            sendNextUploadBlock(serialIOPort);
+            return;
+        }
+        else if(statusByte == ExportTools.BYTE_ACK) {
+            if(eotSent) {
+                finishTransfer(STATUS_COMPLETE);
+                return;
+            }
+            recordBlockTransferred(sendFrame.length - (crcMode ? 5 : 4));
+            nextBlockNumber++;
+            sendNextUploadBlock(serialIOPort);
+            return;
+        }
+        else if(statusByte == ExportTools.BYTE_NAK || statusByte == BYTE_CRC_REQUEST) {
+            retransmissions++;
+            if(++consecutiveErrors > ExportTools.MAX_NAK_COUNT) {
+                cancelTransfer(serialIOPort);
+                return;
+            }
+            blockSentNanos = System.nanoTime();
+            if(eotSent) {
+                serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_EOT });
+            }
+            else {
+                serialIOPort.sendDataBuffer(sendFrame);
+            }
+        }
+    }
+
+    /**
+     * Reads the next block from the source (until it is full or the stream ends, instead of
+     * trusting InputStream.available()) and sends it, or sends EOT at the end of the data.
+     */
+    private void sendNextUploadBlock(ChameleonSerialIOInterface serialIOPort) {
+        byte[] readFrame = blockFrame1K != null ? blockFrame1K : blockFrame;
+        int maxBlockSize = blockFrame1K != null ? BLOCK_SIZE_1K : BLOCK_SIZE;
+        int readCount = 0;
+        try {
+            while(readCount < maxBlockSize) {
+                int nextCount = srcStream.read(readFrame, 3 + readCount, maxBlockSize - readCount);
+                if(nextCount < 0) {
+                    break;
+                }
+                readCount += nextCount;
+            }
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            cancelTransfer(serialIOPort);
+            return;
+        }
+        blockSentNanos = System.nanoTime();
+        if(readCount == 0) {
+            eotSent = true;
+            serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_EOT });
+            return;
+        }
+        int blockSize = BLOCK_SIZE;
+        sendFrame = blockFrame;
+        if(readCount > BLOCK_SIZE) {
+            blockSize = BLOCK_SIZE_1K;
+            sendFrame = blockFrame1K;
+        }
+        else if(readFrame != blockFrame) {
+            /* Short tail of the data: a plain 128 byte block wastes less padding */
+            System.arraycopy(readFrame, 3, blockFrame, 3, readCount);
+        }
+        Arrays.fill(sendFrame, 3 + readCount, 3 + blockSize, ExportTools.BYTE_EOF);
+        sendFrame[0] = blockSize == BLOCK_SIZE_1K ? BYTE_STX : ExportTools.BYTE_SOH;
+        sendFrame[1] = nextBlockNumber;
+        sendFrame[2] = (byte) (255 - nextBlockNumber);
+        if(crcMode) {
+            int blockCRC = XModemProtocol.calcCRC16(sendFrame, 3, blockSize);
+            sendFrame[3 + blockSize] = (byte) (blockCRC >>> 8);
+            sendFrame[4 + blockSize] = (byte) blockCRC;
+        }
+        else {
+            sendFrame[3 + blockSize] = XModemProtocol.calcChecksum(sendFrame, 3, blockSize);
+        }
+        serialIOPort.sendDataBuffer(sendFrame);
+    }
+
+    private void recordBlockTransferred(int blockSize) {
+        long curTimeNanos = System.nanoTime();
+        if(blocksTransferred == 0) {
+            firstDataNanos = curTimeNanos;
+        }
+        else {
+            long roundTripNanos = curTimeNanos - blockSentNanos;
+            blockRoundTripSumNanos += roundTripNanos;
+            blockRoundTripMaxNanos = Math.max(blockRoundTripMaxNanos, roundTripNanos);
+        }
+        blocksTransferred++;
+        payloadBytes += blockSize;
+        consecutiveErrors = 0;
+    }
+
+    private void cancelTransfer(ChameleonSerialIOInterface serialIOPort) {
+        serialIOPort.sendDataBuffer(new byte[] { ExportTools.BYTE_CAN });
+        finishTransfer(STATUS_FAILED);
+    }
+
+    private void finishTransfer(int finalStatus) {
+        endTimeNanos = System.nanoTime();
+        try {
+            if(destStream != null) {
+                destStream.close();
+            }
+            if(srcStream != null) {
+                srcStream.close();
+            }
+        } catch(IOException ioe) {
+            AndroidLogger.printStackTrace(ioe);
+            finalStatus = STATUS_FAILED;
+        }
+        transferStatus = finalStatus;
+        if(activeTransfer == this) {
+            activeTransfer = null;
+        }
+        AndroidLogger.i(TAG, getStatisticsSummary());
+    }
+
+    /**
+     * Aborts the transfer locally (e.g., when the device disconnects).
+     */
+    public synchronized void abort() {
+        if(!isFinished()) {
+            finishTransfer(STATUS_FAILED);
+        }
+    }
+
+    public synchronized long getPayloadBytes() { return payloadBytes; }
+    public synchronized int getBlocksTransferred() { return blocksTransferred; }
+    public synchronized int getRetransmissions() { return retransmissions; }
+    public synchronized int getTimeouts() { return timeouts; }
+
+    public synchronized long getElapsedNanos() {
+        return (endTimeNanos != 0 ? endTimeNanos : System.nanoTime()) - startTimeNanos;
+    }
+
+    /**
+     * @return time until the first block arrived / was acknowledged
+     */
+    public synchronized long getStartupNanos() {
+        return firstDataNanos == 0 ? 0 : firstDataNanos - startTimeNanos;
+    }
+
+    public synchronized double getThroughputBytesPerSecond() {
+        long elapsedNanos = getElapsedNanos();
+        return elapsedNanos <= 0 ? 0.0 : payloadBytes * 1.0e9 / elapsedNanos;
+    }
+
+    public synchronized String getStatisticsSummary() {
+        long meanRoundTripMicros = blocksTransferred <= 1 ? 0 : blockRoundTripSumNanos / (blocksTransferred - 1) / 1000;
+        return String.format(BuildConfig.DEFAULT_LOCALE, "XMODEM %s%s %s: %d bytes in %d blocks, %.1f ms (startup %.1f ms) -- %.0f B/s -- " +
+                                                         "%d retransmissions, %d timeouts -- block RTT mean %d us / max %d us",
+                transferMode == MODE_DOWNLOAD ? "DOWNLOAD" : "UPLOAD", crcMode ? " (CRC16)" : "",
+                transferStatus == STATUS_COMPLETE ? "complete" : transferStatus == STATUS_FAILED ? "failed" : "running",
+                payloadBytes, blocksTransferred, getElapsedNanos() / 1.0e6, getStartupNanos() / 1.0e6, getThroughputBytesPerSecond(),
+                retransmissions, timeouts, meanRoundTripMicros, blockRoundTripMaxNanos / 1000);
+    }
+
+}
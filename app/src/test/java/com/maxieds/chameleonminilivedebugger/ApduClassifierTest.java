@@ -0,0 +1,208 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h1>APDU Classifier Tests</h1>
+ * Checks the precompiled ApduClassifier tables against the linear CSV scan it replaced
+ * (the steps of ApduUtils.classifyApduLinear, reading the res/raw tables straight from the
+ * source tree) over a corpus of table-derived and random payloads. The benchmark of the
+ * classification rate of both only runs with -Dcmld.bench=true (see UnitTestBenchmarks).
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class ApduClassifierTest {
+
+    private static final String TAG = ApduClassifierTest.class.getSimpleName();
+
+    private static final String RAW_RESOURCES_DIR = "src/main/res/raw/";
+    private static final int RANDOM_PAYLOAD_COUNT = 2000;
+    private static final int LINEAR_BENCHMARK_PAYLOADS = 500;
+    private static final int BENCHMARK_CLASSIFICATIONS = 1000000;
+
+    private ApduClassifier apduClassifier;
+
+    @Before
+    public void loadApduClassifier() throws IOException {
+        apduClassifier = ApduClassifier.fromStreams(
+                new FileInputStream(RAW_RESOURCES_DIR + "desfire_ins"),
+                new FileInputStream(RAW_RESOURCES_DIR + "desfire_status"),
+                new FileInputStream(RAW_RESOURCES_DIR + "common_ins"),
+                new FileInputStream(RAW_RESOURCES_DIR + "response_codes_status"),
+                new FileInputStream(RAW_RESOURCES_DIR + "detailed_common_ins")
+        );
+    }
+
+    private static List<String[]> readRawTable(String tableName) throws IOException {
+        return Utils.readCSVFile(new FileInputStream(RAW_RESOURCES_DIR + tableName));
+    }
+
+    private static void addTwoByteMatches(List<String> apduLabels, List<String[]> csvLines, byte firstByte, byte secondByte) {
+        for(String[] csvLine : csvLines) {
+            if(Utils.hexString2Byte(csvLine[0]) == firstByte && Utils.hexString2Byte(csvLine[1]) == secondByte) {
+                apduLabels.add(csvLine[2]);
+            }
+        }
+    }
+
+    /**
+     * The pre-ApduClassifier lookup: re-reads every table and scans it row by row.
+     */
+    private static String classifyLinear(byte[] dataBytes) throws IOException {
+        List<String> apduLabels = new ArrayList<String>();
+        int dataLength = dataBytes.length;
+        if(dataLength >= 2) {
+            addTwoByteMatches(apduLabels, readRawTable("desfire_ins"), dataBytes[ApduUtils.CLSIDX], dataBytes[ApduUtils.INSIDX]);
+            addTwoByteMatches(apduLabels, readRawTable("desfire_status"), dataBytes[dataLength - 2], dataBytes[dataLength - 1]);
+        }
+        for(String[] csvLine : readRawTable("common_ins")) {
+            byte ins = Utils.hexString2Byte(csvLine[0]);
+            if(dataLength >= 2 && dataBytes[ApduUtils.INSIDX] == ins || ((dataLength == 1 || dataLength == 2) && dataBytes[ApduUtils.CLSIDX] == ins)) {
+                apduLabels.add(csvLine[1]);
+            }
+        }
+        if(dataLength >= 2) {
+            addTwoByteMatches(apduLabels, readRawTable("response_codes_status"), dataBytes[dataLength - 2], dataBytes[dataLength - 1]);
+        }
+        for(String[] csvLine : readRawTable("detailed_common_ins")) {
+            int checkNumBytes = csvLine.length - 1;
+            if(dataLength < checkNumBytes) {
+                continue;
+            }
+            boolean tagApplies = true;
+            for(int b = 0; b < checkNumBytes; b++) {
+                if(!csvLine[b].equals("xx") && dataBytes[b] != Utils.hexString2Byte(csvLine[b])) {
+                    tagApplies = false;
+                    break;
+                }
+            }
+            if(tagApplies) {
+                apduLabels.add(csvLine[checkNumBytes]);
+            }
+        }
+        if(apduLabels.isEmpty()) {
+            return ApduClassifier.NO_APDU_LABEL;
+        }
+        StringBuilder apduList = new StringBuilder();
+        for(String apduLabel : apduLabels) {
+            if(apduList.length() > 0) {
+                apduList.append(", ");
+            }
+            apduList.append(apduLabel);
+        }
+        return apduList.toString();
+    }
+
+    /**
+     * Payloads built from the table rows (so that every row matches at least once, with the
+     * "xx" bytes filled in at random), short payloads, and random ones.
+     */
+    private static List<byte[]> buildCorpus(long seed) throws IOException {
+        Random rng = new Random(seed);
+        List<byte[]> apduCorpus = new ArrayList<byte[]>();
+        for(String tableName : new String[] { "desfire_ins", "common_ins", "detailed_common_ins" }) {
+            for(String[] csvLine : readRawTable(tableName)) {
+                int prefixLength = csvLine.length - 1;
+                byte[] dataBytes = new byte[prefixLength + rng.nextInt(12)];
+                rng.nextBytes(dataBytes);
+                for(int b = 0; b < prefixLength; b++) {
+                    if(!csvLine[b].equals("xx")) {
+                        dataBytes[b] = Utils.hexString2Byte(csvLine[b]);
+                    }
+                }
+                apduCorpus.add(dataBytes);
+            }
+        }
+        for(String tableName : new String[] { "desfire_status", "response_codes_status" }) {
+            for(String[] csvLine : readRawTable(tableName)) {
+                byte[] dataBytes = new byte[2 + rng.nextInt(12)];
+                rng.nextBytes(dataBytes);
+                dataBytes[dataBytes.length - 2] = Utils.hexString2Byte(csvLine[0]);
+                dataBytes[dataBytes.length - 1] = Utils.hexString2Byte(csvLine[1]);
+                apduCorpus.add(dataBytes);
+            }
+        }
+        for(int b = 0; b < 256; b++) {
+            apduCorpus.add(new byte[] { (byte) b });
+        }
+        apduCorpus.add(new byte[0]);
+        for(int pldIdx = 0; pldIdx < RANDOM_PAYLOAD_COUNT; pldIdx++) {
+            byte[] dataBytes = new byte[rng.nextInt(24)];
+            rng.nextBytes(dataBytes);
+            apduCorpus.add(dataBytes);
+        }
+        return apduCorpus;
+    }
+
+    @Test
+    public void compiledTablesMatchTheLinearScan() throws IOException {
+        for(byte[] dataBytes : buildCorpus(3L)) {
+            assertEquals(Utils.bytes2Hex(dataBytes), classifyLinear(dataBytes), apduClassifier.classify(dataBytes));
+        }
+    }
+
+    @Test
+    public void appendLabelsOnlyReadsThePayloadLength() throws IOException {
+        Random rng = new Random(8L);
+        for(byte[] dataBytes : buildCorpus(5L)) {
+            byte[] paddedBytes = new byte[dataBytes.length + 1 + rng.nextInt(8)];
+            rng.nextBytes(paddedBytes);
+            System.arraycopy(dataBytes, 0, paddedBytes, 0, dataBytes.length);
+            StringBuilder apduList = new StringBuilder();
+            int labelCount = apduClassifier.appendLabels(paddedBytes, dataBytes.length, apduList);
+            String expectedLabels = apduClassifier.classify(dataBytes);
+            assertEquals(ApduClassifier.NO_APDU_LABEL.equals(expectedLabels) ? "" : expectedLabels, apduList.toString());
+            assertEquals(labelCount == 0, apduList.length() == 0);
+        }
+    }
+
+    @Test
+    public void benchmarkCompiledAgainstLinearScan() throws IOException {
+        UnitTestBenchmarks.assumeBenchmarksEnabled();
+        List<byte[]> apduCorpus = buildCorpus(1L);
+        long linearStartNanos = System.nanoTime();
+        for(int pldIdx = 0; pldIdx < LINEAR_BENCHMARK_PAYLOADS; pldIdx++) {
+            classifyLinear(apduCorpus.get(pldIdx * 7 % apduCorpus.size()));
+        }
+        long linearNanos = System.nanoTime() - linearStartNanos;
+        long labelLengthSum = 0;
+        long compiledStartNanos = System.nanoTime();
+        for(int classIdx = 0; classIdx < BENCHMARK_CLASSIFICATIONS; classIdx++) {
+            labelLengthSum += apduClassifier.classify(apduCorpus.get(classIdx % apduCorpus.size())).length();
+        }
+        long compiledNanos = System.nanoTime() - compiledStartNanos;
+        UnitTestBenchmarks.printResult(TAG, "APDU linear scan: %d payloads in %.1f ms = %.1f us/payload",
+                                            LINEAR_BENCHMARK_PAYLOADS, linearNanos / 1.0e6, linearNanos / 1.0e3 / LINEAR_BENCHMARK_PAYLOADS);
+        UnitTestBenchmarks.printResult(TAG, "APDU compiled tables: %d payloads in %.1f ms = %.3f us/payload (%d label chars)",
+                                            BENCHMARK_CLASSIFICATIONS, compiledNanos / 1.0e6, compiledNanos / 1.0e3 / BENCHMARK_CLASSIFICATIONS,
+                                            labelLengthSum);
+    }
+
+}
@@ -0,0 +1,256 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>BLE Packet Codec Tests</h1>
+ * Round trips through the BluetoothUtils.BLEPacket encoder and decoder over random
+ * payloads, with the packet stream cut into notifications at random points the way the
+ * BLE devices split long responses. The codec throughput benchmark needs -Dcmld.bench=true.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class BLEPacketCodecTest {
+
+    private static final String TAG = BLEPacketCodecTest.class.getSimpleName();
+
+    private static final int PROPERTY_TRIAL_COUNT = 500;
+    private static final int BENCHMARK_PACKET_COUNT = 200000;
+    private static final int BLE_NOTIFY_SIZE_MAX = 244; /* ATT payload with the largest MTU the devices negotiate */
+
+    private static final byte[] PACKET_COMMANDS = new byte[] {
+            BluetoothUtils.BLEPacket.CMD_UART_RXTX,
+            BluetoothUtils.BLEPacket.CMD_BLE_INFO,
+            BluetoothUtils.BLEPacket.CMD_SEND_ACK,
+            BluetoothUtils.BLEPacket.CMD_TYPE_ALIVE
+    };
+
+    /**
+     * Keeps a copy of each decoded packet (the payload views are only valid during the call).
+     */
+    private static class PacketCollector implements BluetoothUtils.BLEPacket.PacketConsumer {
+
+        final List<Byte> commands = new ArrayList<Byte>();
+        final List<byte[]> payloads = new ArrayList<byte[]>();
+
+        public void onPacketDecoded(byte command, ByteBuffer payload) {
+            byte[] payloadBytes = new byte[payload.remaining()];
+            payload.get(payloadBytes);
+            commands.add(command);
+            payloads.add(payloadBytes);
+        }
+
+    }
+
+    private static byte[] randomPayload(Random rng) {
+        int payloadLength;
+        switch(rng.nextInt(4)) {
+            case 0:
+                payloadLength = 0;
+                break;
+            case 1:
+                payloadLength = BluetoothUtils.BLEPacket.MAX_PACKET_PAYLOAD_SIZE;
+                break;
+            default:
+                payloadLength = rng.nextInt(BluetoothUtils.BLEPacket.MAX_PACKET_PAYLOAD_SIZE + 1);
+                break;
+        }
+        byte[] payload = new byte[payloadLength];
+        rng.nextBytes(payload);
+        return payload;
+    }
+
+    private static byte[] encodeStream(Random rng, int packetCount, List<Byte> commands, List<byte[]> payloads) {
+        ByteBuffer pktStream = ByteBuffer.allocate(packetCount * (BluetoothUtils.BLEPacket.PACKET_HEADER_SIZE +
+                                                                  BluetoothUtils.BLEPacket.MAX_PACKET_PAYLOAD_SIZE));
+        for(int pktIdx = 0; pktIdx < packetCount; pktIdx++) {
+            byte command = PACKET_COMMANDS[rng.nextInt(PACKET_COMMANDS.length)];
+            byte[] payload = randomPayload(rng);
+            assertEquals(BluetoothUtils.BLEPacket.PACKET_HEADER_SIZE + payload.length,
+                         BluetoothUtils.BLEPacket.encodePacket(pktStream, command, ByteBuffer.wrap(payload)));
+            commands.add(command);
+            payloads.add(payload);
+        }
+        byte[] streamBytes = new byte[pktStream.position()];
+        pktStream.flip();
+        pktStream.get(streamBytes);
+        return streamBytes;
+    }
+
+    private static void assertPacketsEqual(List<Byte> commands, List<byte[]> payloads, PacketCollector collector) {
+        assertEquals(commands.size(), collector.commands.size());
+        for(int pktIdx = 0; pktIdx < commands.size(); pktIdx++) {
+            assertEquals(commands.get(pktIdx), collector.commands.get(pktIdx));
+            assertArrayEquals(payloads.get(pktIdx), collector.payloads.get(pktIdx));
+        }
+    }
+
+    @Test
+    public void concatenatedPacketsDecodeInOneCall() {
+        Random rng = new Random(5L);
+        for(int trialIdx = 0; trialIdx < PROPERTY_TRIAL_COUNT; trialIdx++) {
+            List<Byte> commands = new ArrayList<Byte>();
+            List<byte[]> payloads = new ArrayList<byte[]>();
+            byte[] pktStream = encodeStream(rng, 1 + rng.nextInt(8), commands, payloads);
+            PacketCollector collector = new PacketCollector();
+            ByteBuffer srcBuffer = ByteBuffer.wrap(pktStream);
+            assertEquals(commands.size(), BluetoothUtils.BLEPacket.decodePackets(srcBuffer, collector));
+            assertEquals(0, srcBuffer.remaining());
+            assertPacketsEqual(commands, payloads, collector);
+        }
+    }
+
+    @Test
+    public void truncatedPacketIsLeftInTheBuffer() {
+        byte[] pktStream = encodeStream(new Random(9L), 3, new ArrayList<Byte>(), new ArrayList<byte[]>());
+        for(int cutPos = 0; cutPos <= pktStream.length; cutPos++) {
+            ByteBuffer srcBuffer = ByteBuffer.wrap(pktStream, 0, cutPos);
+            int packetCount = BluetoothUtils.BLEPacket.decodePackets(srcBuffer, new PacketCollector());
+            int packetEnd = 0;
+            for(int pktIdx = 0; pktIdx < packetCount; pktIdx++) {
+                packetEnd += BluetoothUtils.BLEPacket.PACKET_HEADER_SIZE + (pktStream[packetEnd + 2] & 0xff);
+            }
+            assertEquals(packetEnd, srcBuffer.position());
+        }
+    }
+
+    @Test
+    public void packetsSplitAcrossNotificationsAreReassembled() {
+        Random rng = new Random(13L);
+        for(int trialIdx = 0; trialIdx < PROPERTY_TRIAL_COUNT; trialIdx++) {
+            List<Byte> commands = new ArrayList<Byte>();
+            List<byte[]> payloads = new ArrayList<byte[]>();
+            byte[] pktStream = encodeStream(rng, 1 + rng.nextInt(16), commands, payloads);
+            BluetoothUtils.BLEPacket.PacketReassembler reassembler = new BluetoothUtils.BLEPacket.PacketReassembler();
+            PacketCollector collector = new PacketCollector();
+            int notifyPos = 0;
+            while(notifyPos < pktStream.length) {
+                int notifySize = trialIdx % 10 == 0 ? BluetoothUtils.BLEPacket.PacketReassembler.REASSEMBLY_BUFFER_SIZE + rng.nextInt(4096) :
+                                                      1 + rng.nextInt(BLE_NOTIFY_SIZE_MAX);
+                int notifyEnd = Math.min(pktStream.length, notifyPos + notifySize);
+                byte[] notifyData = new byte[notifyEnd - notifyPos];
+                System.arraycopy(pktStream, notifyPos, notifyData, 0, notifyData.length);
+                reassembler.appendData(notifyData, collector);
+                notifyPos = notifyEnd;
+            }
+            assertEquals(0, reassembler.getPendingByteCount());
+            assertPacketsEqual(commands, payloads, collector);
+        }
+    }
+
+    @Test
+    public void resetDropsThePartialPacket() {
+        byte[] pktStream = BluetoothUtils.BLEPacket.packageData("VERSION?".getBytes(StandardCharsets.US_ASCII));
+        assertNotNull(pktStream);
+        BluetoothUtils.BLEPacket.PacketReassembler reassembler = new BluetoothUtils.BLEPacket.PacketReassembler();
+        PacketCollector collector = new PacketCollector();
+        byte[] partialPacket = new byte[pktStream.length - 3];
+        System.arraycopy(pktStream, 0, partialPacket, 0, partialPacket.length);
+        assertEquals(0, reassembler.appendData(partialPacket, collector));
+        assertEquals(partialPacket.length, reassembler.getPendingByteCount());
+        reassembler.reset();
+        assertEquals(1, reassembler.appendData(pktStream, collector));
+        assertArrayEquals("VERSION?\r\n".getBytes(StandardCharsets.US_ASCII), collector.payloads.get(0));
+    }
+
+    @Test
+    public void packagedFragmentsCarryTheWholeCommand() {
+        Random rng = new Random(21L);
+        for(int trialIdx = 0; trialIdx < PROPERTY_TRIAL_COUNT; trialIdx++) {
+            byte[] cmdData = new byte[rng.nextInt(1024)];
+            rng.nextBytes(cmdData);
+            int maxPacketSize = BluetoothUtils.BLEPacket.PACKET_HEADER_SIZE + 2 + rng.nextInt(BLE_NOTIFY_SIZE_MAX);
+            byte[][] blePackets = BluetoothUtils.BLEPacket.packageFragments(cmdData, maxPacketSize);
+            ByteArrayOutputStream uartData = new ByteArrayOutputStream();
+            for(byte[] blePacket : blePackets) {
+                assertTrue(blePacket.length <= maxPacketSize);
+                byte[] fragmentData = BluetoothUtils.BLEPacket.unpackageData(blePacket);
+                assertNotNull(fragmentData);
+                uartData.write(fragmentData, 0, fragmentData.length);
+            }
+            byte[] expectedData = new byte[cmdData.length + 2];
+            System.arraycopy(cmdData, 0, expectedData, 0, cmdData.length);
+            expectedData[cmdData.length] = 0x0d;
+            expectedData[cmdData.length + 1] = 0x0a;
+            assertArrayEquals(expectedData, uartData.toByteArray());
+        }
+    }
+
+    @Test
+    public void benchmarkEncodeAndReassemble() {
+        UnitTestBenchmarks.assumeBenchmarksEnabled();
+        Random rng = new Random(1L);
+        byte[][] benchmarkPayloads = new byte[256][];
+        for(int pldIdx = 0; pldIdx < benchmarkPayloads.length; pldIdx++) {
+            benchmarkPayloads[pldIdx] = new byte[1 + rng.nextInt(64)];
+            rng.nextBytes(benchmarkPayloads[pldIdx]);
+        }
+        ByteBuffer pktStream = ByteBuffer.allocate(BENCHMARK_PACKET_COUNT * (BluetoothUtils.BLEPacket.PACKET_HEADER_SIZE + 64));
+        long encodeStartNanos = System.nanoTime();
+        for(int pktIdx = 0; pktIdx < BENCHMARK_PACKET_COUNT; pktIdx++) {
+            BluetoothUtils.BLEPacket.encodePacket(pktStream, BluetoothUtils.BLEPacket.CMD_UART_RXTX,
+                                                  ByteBuffer.wrap(benchmarkPayloads[pktIdx & 0xff]));
+        }
+        long encodeNanos = System.nanoTime() - encodeStartNanos;
+        byte[] streamBytes = new byte[pktStream.position()];
+        pktStream.flip();
+        pktStream.get(streamBytes);
+
+        final long[] payloadBytesDecoded = new long[] { 0 };
+        BluetoothUtils.BLEPacket.PacketConsumer countingConsumer = new BluetoothUtils.BLEPacket.PacketConsumer() {
+            public void onPacketDecoded(byte command, ByteBuffer payload) {
+                payloadBytesDecoded[0] += payload.remaining();
+            }
+        };
+        byte[][] notifications = new byte[(streamBytes.length + BLE_NOTIFY_SIZE_MAX - 1) / BLE_NOTIFY_SIZE_MAX][];
+        for(int notifyIdx = 0; notifyIdx < notifications.length; notifyIdx++) {
+            int notifyPos = notifyIdx * BLE_NOTIFY_SIZE_MAX;
+            notifications[notifyIdx] = new byte[Math.min(BLE_NOTIFY_SIZE_MAX, streamBytes.length - notifyPos)];
+            System.arraycopy(streamBytes, notifyPos, notifications[notifyIdx], 0, notifications[notifyIdx].length);
+        }
+        BluetoothUtils.BLEPacket.PacketReassembler reassembler = new BluetoothUtils.BLEPacket.PacketReassembler();
+        int packetCount = 0;
+        long decodeStartNanos = System.nanoTime();
+        for(byte[] notifyData : notifications) {
+            packetCount += reassembler.appendData(notifyData, countingConsumer);
+        }
+        long decodeNanos = System.nanoTime() - decodeStartNanos;
+        assertEquals(BENCHMARK_PACKET_COUNT, packetCount);
+        UnitTestBenchmarks.printResult(TAG, "BLE encode: %d packets in %.1f ms = %.0f packets/s",
+                                            BENCHMARK_PACKET_COUNT, encodeNanos / 1.0e6, BENCHMARK_PACKET_COUNT * 1.0e9 / encodeNanos);
+        UnitTestBenchmarks.printResult(TAG, "BLE reassemble (%d byte notifications): %d packets, %d payload bytes in %.1f ms = %.1f MB/s",
+                                            BLE_NOTIFY_SIZE_MAX, packetCount, payloadBytesDecoded[0], decodeNanos / 1.0e6,
+                                            streamBytes.length * 1.0e3 / decodeNanos);
+    }
+
+}
@@ -0,0 +1,129 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <h1>Chameleon Command Pipeline Tests</h1>
+ * Matches the responses to the pending commands in FIFO order with the writes to the device
+ * recorded in place of the serial port, including a command that is never answered and
+ * responses that race the command timeouts.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class ChameleonCommandPipelineTest {
+
+    private static final int SHORT_TIMEOUT_MILLIS = 50;
+    private static final int RESPONSE_WAIT_MILLIS = 2000;
+    private static final int RACE_TRIAL_COUNT = 2000;
+
+    private final List<String> commandsWritten = new ArrayList<String>();
+    private final ChameleonCommandPipeline cmdPipeline = new ChameleonCommandPipeline(new ChameleonCommandPipeline.CommandWriter() {
+        @Override
+        public boolean writeCommand(String cmdText) {
+            commandsWritten.add(cmdText);
+            return true;
+        }
+    });
+
+    private static ChameleonCommandPipeline.CommandResponse newResponse(String respCode) {
+        ChameleonCommandPipeline.CommandResponse cmdResp = ChameleonCommandPipeline.CommandResponse.newEmptyResponse(null);
+        cmdResp.responseCode = respCode;
+        cmdResp.responseText = respCode;
+        return cmdResp;
+    }
+
+    @Test
+    public void responsesCompleteTheCommandsInOrder() throws Exception {
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse> firstFuture = cmdPipeline.submitCommand("VERSION?", RESPONSE_WAIT_MILLIS);
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse> secondFuture = cmdPipeline.submitCommand("CONFIG?", RESPONSE_WAIT_MILLIS);
+        assertTrue(cmdPipeline.onCommandResponse(newResponse("101:OK WITH TEXT")));
+        assertTrue(cmdPipeline.onCommandResponse(newResponse("100:OK")));
+        assertEquals("VERSION?", firstFuture.get(RESPONSE_WAIT_MILLIS, TimeUnit.MILLISECONDS).commandText);
+        assertEquals("CONFIG?", secondFuture.get(RESPONSE_WAIT_MILLIS, TimeUnit.MILLISECONDS).commandText);
+        assertEquals(0, cmdPipeline.getPendingCommandCount());
+        assertEquals(2, commandsWritten.size());
+    }
+
+    @Test
+    public void unansweredCommandDoesNotTakeTheNextResponse() throws Exception {
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse> lostFuture = cmdPipeline.submitCommand("NOT_A_COMMAND?", SHORT_TIMEOUT_MILLIS);
+        try {
+            lostFuture.get(RESPONSE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            fail("The unanswered command did not time out");
+        } catch(ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof TimeoutException);
+        }
+        /* The next command is sent right away and answered well within the late response grace period: */
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse> nextFuture = cmdPipeline.submitCommand("UID?", RESPONSE_WAIT_MILLIS);
+        assertTrue(cmdPipeline.onCommandResponse(newResponse("101:OK WITH TEXT")));
+        ChameleonCommandPipeline.CommandResponse nextResp = nextFuture.get(RESPONSE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals("UID?", nextResp.commandText);
+        assertEquals(101, nextResp.getResponseCodeValue());
+        assertEquals(0, cmdPipeline.getPendingCommandCount());
+    }
+
+    @Test
+    public void lateResponseIsAbsorbedBeforeTheNextCommand() throws Exception {
+        CompletableFuture<ChameleonCommandPipeline.CommandResponse> slowFuture = cmdPipeline.submitCommand("SYSTICK?", SHORT_TIMEOUT_MILLIS);
+        try {
+            slowFuture.get(RESPONSE_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            fail("The slow command did not time out");
+        } catch(ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof TimeoutException);
+        }
+        assertTrue(cmdPipeline.onCommandResponse(newResponse("101:OK WITH TEXT")));
+        assertEquals(0, cmdPipeline.getPendingCommandCount());
+        assertEquals(0, cmdPipeline.getUnmatchedResponseCount());
+    }
+
+    @Test
+    public void responseRacingTheTimeoutCompletesTheCommandOnce() throws Exception {
+        int answeredCount = 0, timedOutCount = 0;
+        for(int trialIdx = 0; trialIdx < RACE_TRIAL_COUNT; trialIdx++) {
+            /* The 1 ms timeout fires before, during or after the response is matched: */
+            CompletableFuture<ChameleonCommandPipeline.CommandResponse> raceFuture = cmdPipeline.submitCommand("SYSTICK?", 1);
+            cmdPipeline.onCommandResponse(newResponse("101:OK WITH TEXT"));
+            try {
+                assertEquals("SYSTICK?", raceFuture.get(RESPONSE_WAIT_MILLIS, TimeUnit.MILLISECONDS).commandText);
+                answeredCount++;
+            } catch(ExecutionException ee) {
+                assertTrue(ee.getCause() instanceof TimeoutException);
+                timedOutCount++;
+            }
+        }
+        ChameleonCommandPipeline.LatencyHistogram raceHistogram = cmdPipeline.getLatencyHistogram("SYSTICK?");
+        assertEquals(answeredCount, raceHistogram.getSampleCount());
+        assertEquals(timedOutCount, raceHistogram.getTimeoutCount());
+        assertEquals(0, cmdPipeline.getUnmatchedResponseCount());
+    }
+
+}
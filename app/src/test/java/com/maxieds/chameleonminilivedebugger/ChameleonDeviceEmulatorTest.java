@@ -0,0 +1,220 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>Chameleon Device Emulator Tests</h1>
+ * Drives the emulated device through the frame assembler on the plain JVM: command
+ * responses, a DOWNLOAD over XModem, and the LIVE log stream. The benchmark of the command
+ * round trip times and the LIVE log throughput is skipped without -Dcmld.bench=true.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class ChameleonDeviceEmulatorTest {
+
+    private static final String TAG = ChameleonDeviceEmulatorTest.class.getSimpleName();
+
+    private static final long FRAME_TIMEOUT_MILLIS = 2000;
+    private static final int BENCHMARK_COMMAND_COUNT = 5000;
+
+    /**
+     * Host end of the emulated serial line, framed the same way as by SerialIOReceiver.
+     */
+    private static class EmulatorHost implements SerialDataReceiverInterface, SerialIOFrameAssembler.SerialFrameReceiver,
+                                                 SerialIOFrameAssembler.FramingContext {
+
+        volatile int xmodemMode = SerialIOFrameAssembler.XMODEM_MODE_NONE;
+        final BlockingQueue<byte[]> deviceFrames = new LinkedBlockingQueue<byte[]>();
+        final AtomicLong logFrameCount = new AtomicLong();
+        final SerialIOFrameAssembler frameAssembler = new SerialIOFrameAssembler(this);
+
+        public boolean isLiveLoggingCode(byte firstByte) {
+            return ChameleonLogUtils.isLiveLoggingCode(firstByte);
+        }
+
+        public int getXModemMode() {
+            return xmodemMode;
+        }
+
+        public int getXModemBlockFrameLength(byte firstByte) {
+            return SerialIOFrameAssembler.getDefaultXModemBlockFrameLength(firstByte);
+        }
+
+        public void onReceivedData(byte[] liveLogData) {
+            frameAssembler.appendData(liveLogData, this);
+        }
+
+        public void onReceivedFrame(int frameType, byte[] frameData) {
+            if(frameType == SerialIOFrameAssembler.FRAME_TYPE_LOGDATA) {
+                logFrameCount.incrementAndGet();
+                return;
+            }
+            deviceFrames.add(frameData);
+        }
+
+        byte[] nextFrame() throws InterruptedException {
+            byte[] frameData = deviceFrames.poll(FRAME_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            assertNotNull("No response from the emulated device", frameData);
+            return frameData;
+        }
+
+        String nextTextFrame() throws InterruptedException {
+            return new String(nextFrame(), StandardCharsets.US_ASCII);
+        }
+
+    }
+
+    private EmulatorHost emulatorHost;
+    private ChameleonDeviceEmulator deviceEmulator;
+
+    @Before
+    public void startEmulator() {
+        emulatorHost = new EmulatorHost();
+        deviceEmulator = new ChameleonDeviceEmulator(emulatorHost);
+        deviceEmulator.setResponseLatencyMillis(0);
+    }
+
+    @After
+    public void stopEmulator() {
+        deviceEmulator.shutdown();
+    }
+
+    private void sendCommand(String cmdText) {
+        deviceEmulator.receiveHostData((cmdText + "\r\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void sendControlByte(byte controlByte) {
+        deviceEmulator.receiveHostData(new byte[] { controlByte });
+    }
+
+    @Test
+    public void commandsGetTheFirmwareResponses() throws InterruptedException {
+        sendCommand("VERSION?");
+        assertEquals("101:OK WITH TEXT\r\n" + ChameleonDeviceEmulator.EMULATED_VERSION_STRING + "\r\n", emulatorHost.nextTextFrame());
+        sendCommand("CONFIG=MF_CLASSIC_1K");
+        assertEquals("100:OK\r\n", emulatorHost.nextTextFrame());
+        sendCommand("config?"); /* RevE style lowercase command */
+        assertEquals("101:OK WITH TEXT\r\nMF_CLASSIC_1K\r\n", emulatorHost.nextTextFrame());
+        sendCommand("CONFIG=NOT_A_CONFIG");
+        assertEquals("202:INVALID PARAMETER\r\n", emulatorHost.nextTextFrame());
+        sendCommand("NOT_A_COMMAND?");
+        assertEquals("200:UNKNOWN COMMAND\r\n", emulatorHost.nextTextFrame());
+        sendCommand("CHARGING?");
+        assertEquals("120:FALSE\r\n", emulatorHost.nextTextFrame());
+        assertEquals(6, deviceEmulator.getCommandsProcessed());
+    }
+
+    @Test
+    public void downloadSendsTheSlotMemoryOverXModem() throws InterruptedException {
+        sendCommand("CONFIG=MF_CLASSIC_4K");
+        assertEquals("100:OK\r\n", emulatorHost.nextTextFrame());
+        sendCommand("DOWNLOAD");
+        assertEquals("110:WAITING FOR XMODEM\r\n", emulatorHost.nextTextFrame());
+        emulatorHost.xmodemMode = SerialIOFrameAssembler.XMODEM_MODE_DOWNLOAD;
+        sendControlByte(XModemProtocol.BYTE_NAK);
+        byte[] downloadedData = new byte[0];
+        byte expectedBlockNumber = XModemProtocol.FIRST_FRAME_NUMBER;
+        while(true) {
+            byte[] frameData = emulatorHost.nextFrame();
+            if(frameData[0] == XModemProtocol.BYTE_EOT) {
+                sendControlByte(XModemProtocol.BYTE_ACK);
+                break;
+            }
+            assertEquals(XModemProtocol.BYTE_SOH, frameData[0]);
+            assertEquals(XModemProtocol.BLOCK_SIZE + 4, frameData.length);
+            assertEquals(expectedBlockNumber, frameData[1]);
+            assertEquals((byte) ~expectedBlockNumber, frameData[2]);
+            assertEquals(XModemProtocol.calcChecksum(frameData, 3, XModemProtocol.BLOCK_SIZE), frameData[3 + XModemProtocol.BLOCK_SIZE]);
+            int downloadedLength = downloadedData.length;
+            downloadedData = Arrays.copyOf(downloadedData, downloadedLength + XModemProtocol.BLOCK_SIZE);
+            System.arraycopy(frameData, 3, downloadedData, downloadedLength, XModemProtocol.BLOCK_SIZE);
+            expectedBlockNumber++;
+            sendControlByte(XModemProtocol.BYTE_ACK);
+        }
+        emulatorHost.xmodemMode = SerialIOFrameAssembler.XMODEM_MODE_NONE;
+        assertEquals(4096, downloadedData.length);
+        assertEquals(0x04, downloadedData[0]); /* The emulated UID starts the card memory */
+        assertEquals(0x15, downloadedData[1]);
+        assertEquals(32, deviceEmulator.getXModemBlocksSent());
+        sendCommand("VERSION?"); /* Back in command mode */
+        assertTrue(emulatorHost.nextTextFrame().startsWith("101:OK WITH TEXT"));
+    }
+
+    @Test
+    public void liveLogsArriveAsWholeFrames() throws InterruptedException {
+        sendCommand("LOGMODE=LIVE");
+        assertEquals("100:OK\r\n", emulatorHost.nextTextFrame());
+        deviceEmulator.setLiveLogRate(2000);
+        Thread.sleep(300);
+        deviceEmulator.setLiveLogRate(0);
+        sendCommand("LOGMODE=OFF"); /* Answered after any log records already queued */
+        assertEquals("100:OK\r\n", emulatorHost.nextTextFrame());
+        assertTrue(emulatorHost.logFrameCount.get() > 0);
+        assertEquals(deviceEmulator.getLiveLogRecordsSent(), emulatorHost.logFrameCount.get());
+        assertEquals(0, emulatorHost.frameAssembler.getDroppedByteCount());
+    }
+
+    @Test
+    public void benchmarkCommandsAndLiveLogs() throws InterruptedException {
+        UnitTestBenchmarks.assumeBenchmarksEnabled();
+        long[] roundTripNanos = new long[BENCHMARK_COMMAND_COUNT];
+        long startTimeNanos = System.nanoTime();
+        for(int cmdIdx = 0; cmdIdx < BENCHMARK_COMMAND_COUNT; cmdIdx++) {
+            long sendTimeNanos = System.nanoTime();
+            sendCommand("SYSTICK?");
+            emulatorHost.nextFrame();
+            roundTripNanos[cmdIdx] = System.nanoTime() - sendTimeNanos;
+        }
+        long totalNanos = System.nanoTime() - startTimeNanos;
+        Arrays.sort(roundTripNanos);
+        UnitTestBenchmarks.printResult(TAG, "Emulator commands: %d in %.1f ms = %.0f commands/s -- round trip p50 %d us, p99 %d us, max %d us",
+                                            BENCHMARK_COMMAND_COUNT, totalNanos / 1.0e6, BENCHMARK_COMMAND_COUNT * 1.0e9 / totalNanos,
+                                            roundTripNanos[BENCHMARK_COMMAND_COUNT / 2] / 1000, roundTripNanos[BENCHMARK_COMMAND_COUNT * 99 / 100] / 1000,
+                                            roundTripNanos[BENCHMARK_COMMAND_COUNT - 1] / 1000);
+
+        sendCommand("LOGMODE=LIVE");
+        emulatorHost.nextFrame();
+        long logStartNanos = System.nanoTime();
+        deviceEmulator.setLiveLogRate(100000);
+        Thread.sleep(1000);
+        deviceEmulator.setLiveLogRate(0);
+        sendCommand("LOGMODE=OFF");
+        emulatorHost.nextFrame();
+        long logNanos = System.nanoTime() - logStartNanos;
+        assertEquals(deviceEmulator.getLiveLogRecordsSent(), emulatorHost.logFrameCount.get());
+        UnitTestBenchmarks.printResult(TAG, "Emulator LIVE logs: %d records framed in %.1f ms = %.0f records/s",
+                                            emulatorHost.logFrameCount.get(), logNanos / 1.0e6, emulatorHost.logFrameCount.get() * 1.0e9 / logNanos);
+    }
+
+}
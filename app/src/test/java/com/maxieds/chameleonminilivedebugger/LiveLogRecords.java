@@ -0,0 +1,104 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <h1>Live Log Records</h1>
+ * Seeded random LIVE log records in the raw layout the device sends them in (log code,
+ * payload length, 16-bit millisecond timestamp, payload), shared by the unit tests of the
+ * serial framing, capture replay, record store, journal and export code.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class LiveLogRecords {
+
+    public static final int LOGCODE_RX_DATA = ChameleonLogUtils.LogCode.LOG_INFO_CODEC_RX_DATA.toInteger();
+    public static final int LOGCODE_TX_DATA = ChameleonLogUtils.LogCode.LOG_INFO_CODEC_TX_DATA.toInteger();
+
+    /**
+     * Random raw LIVE log record with the given header fields (the timestamp is random too).
+     * @param rng
+     * @param logCode
+     * @param payloadLength
+     * @return byte[] raw log record
+     */
+    public static byte[] newLogRecord(Random rng, int logCode, int payloadLength) {
+        byte[] logRecord = new byte[4 + payloadLength];
+        rng.nextBytes(logRecord);
+        logRecord[0] = (byte) logCode;
+        logRecord[1] = (byte) payloadLength;
+        return logRecord;
+    }
+
+    /**
+     * Next record of a seeded log stream: received and sent data in turns, stamped with
+     * the record index.
+     * @param rng
+     * @param recordIdx
+     * @return byte[] raw log record
+     */
+    public static byte[] nextLogRecord(Random rng, int recordIdx) {
+        byte[] logRecord = newLogRecord(rng, recordIdx % 2 == 0 ? LOGCODE_RX_DATA : LOGCODE_TX_DATA, rng.nextInt(48));
+        logRecord[2] = (byte) (recordIdx >>> 8);
+        logRecord[3] = (byte) recordIdx;
+        return logRecord;
+    }
+
+    /**
+     * Received data record seeded by its record ID, so a test can build the same record
+     * again to compare against.
+     * @param recordID
+     * @return byte[] raw log record with a non-empty payload
+     */
+    public static byte[] seededLogRecord(int recordID) {
+        Random rng = new Random(recordID);
+        return newLogRecord(rng, LOGCODE_RX_DATA, 1 + rng.nextInt(40));
+    }
+
+    public static byte[] seededPayload(int recordID) {
+        return payloadOf(seededLogRecord(recordID));
+    }
+
+    public static byte[] payloadOf(byte[] logRecord) {
+        return Arrays.copyOfRange(logRecord, 4, logRecord.length);
+    }
+
+    /**
+     * Appends the first recordCount records of the seeded log stream (see nextLogRecord),
+     * with recordIdx % 1000 as their time difference and recordIdx as their ID.
+     * @param recordCount
+     * @param seed
+     * @return LogRecordStore
+     */
+    public static LogRecordStore fillRecordStore(int recordCount, long seed) {
+        LogRecordStore recordStore = new LogRecordStore();
+        Random rng = new Random(seed);
+        for(int recordIdx = 0; recordIdx < recordCount; recordIdx++) {
+            byte[] logRecord = nextLogRecord(rng, recordIdx);
+            int logCode = logRecord[0];
+            recordStore.appendLogRecord(logCode, ChameleonLogUtils.getDataDirection(logCode), recordIdx % 1000,
+                                        recordIdx, logRecord, 4, logRecord.length - 4);
+        }
+        return recordStore;
+    }
+
+}
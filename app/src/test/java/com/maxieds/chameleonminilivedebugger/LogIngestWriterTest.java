@@ -0,0 +1,172 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * <h1>Log Ingest Writer Tests</h1>
+ * The background writer has to journal the store rows (including the collapsed duplicates)
+ * in store order, pass the LIVE logs on to the pcapng sink, and never write the rows of a
+ * cleared store. The benchmark (run with -Dcmld.bench=true) feeds raw LIVE logs in from the
+ * calling thread the way the UI thread does (store append + requestWrite per record) and
+ * prints the append rate and the rate at which the writer thread has them journaled and
+ * indexed, next to the 5000 records/s target.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class LogIngestWriterTest {
+
+    private static final String TAG = LogIngestWriterTest.class.getSimpleName();
+
+    private static final int TARGET_RECORDS_PER_SECOND = 5000;
+    private static final int BENCHMARK_RECORDS = 200000;
+    private static final long DRAIN_TIMEOUT_MILLIS = 60000; /* Well below the target rate, so only a stalled writer fails */
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static class RecordingSink implements LogIngestWriter.LiveRecordSink {
+        final List<byte[]> livePayloads = new ArrayList<byte[]>();
+        @Override
+        public void writeLiveRecord(int logCode, int diffTimeMillis, byte[] payload, int offset, int length) {
+            livePayloads.add(Arrays.copyOfRange(payload, offset, offset + length));
+        }
+    }
+
+    @Test
+    public void journalFollowsTheStoreOrder() throws IOException {
+        File journalDir = tempFolder.newFolder("journal");
+        LogRecordStore recordStore = new LogRecordStore();
+        LogSessionJournal journal = new LogSessionJournal();
+        assertTrue(journal.open(journalDir));
+        RecordingSink liveSink = new RecordingSink();
+        LogIngestWriter ingestWriter = new LogIngestWriter(recordStore, journal, liveSink);
+        for(int recordID = 1; recordID <= 2000; recordID++) {
+            recordStore.appendRawLogData(LiveLogRecords.seededLogRecord(recordID), recordID);
+            if(recordID % 100 == 0) {
+                recordStore.appendDuplicate(recordStore.findMatchingLogEntry(LiveLogRecords.seededLogRecord(recordID / 2)), recordID);
+            }
+        }
+        while(ingestWriter.writePendingRecords(LogIngestWriter.WRITE_BATCH_RECORDS, true)) {}
+        assertEquals(0, ingestWriter.getPendingWriteCount());
+        assertEquals(0, recordStore.getPendingIndexCount());
+        assertEquals(recordStore.size(), journal.getRecordCount());
+        assertEquals(recordStore.size(), liveSink.livePayloads.size());
+
+        LogSessionJournal.JournalCursor journalCursor = journal.openCursor(0);
+        for(int recordIdx = 0; recordIdx < recordStore.size(); recordIdx++) {
+            assertTrue(journalCursor.next());
+            assertEquals(recordStore.getRecordID(recordIdx), journalCursor.getRecordID());
+            assertArrayEquals(recordStore.getPayloadBytes(recordIdx), liveSink.livePayloads.get(recordIdx));
+            if(journalCursor.getRecordType() == LogSessionJournal.RECORD_DUPLICATE) {
+                int dupRecordIdx = journalCursor.getRefRecordIndex();
+                assertTrue(recordStore.hasRecordFlag(dupRecordIdx, LogRecordStore.FLAG_SUPERSEDED));
+                assertArrayEquals(recordStore.getPayloadBytes(dupRecordIdx), recordStore.getPayloadBytes(recordIdx));
+            } else {
+                assertEquals(LogSessionJournal.RECORD_LOGDATA, journalCursor.getRecordType());
+                assertArrayEquals(recordStore.getPayloadBytes(recordIdx), journalCursor.getPayloadBytes());
+            }
+        }
+        journal.close();
+    }
+
+    @Test
+    public void resetDropsTheUnwrittenRecords() throws IOException {
+        File journalDir = tempFolder.newFolder("journal");
+        LogRecordStore recordStore = new LogRecordStore();
+        LogSessionJournal journal = new LogSessionJournal();
+        assertTrue(journal.open(journalDir));
+        LogIngestWriter ingestWriter = new LogIngestWriter(recordStore, journal, null);
+        for(int recordID = 1; recordID <= 300; recordID++) {
+            recordStore.appendRawLogData(LiveLogRecords.seededLogRecord(recordID), recordID);
+        }
+        ingestWriter.writePendingRecords(100, true);
+        ingestWriter.reset();
+        assertEquals(0, journal.getRecordCount());
+        recordStore.appendRawLogData(LiveLogRecords.seededLogRecord(777), 1);
+        ingestWriter.flush();
+        assertEquals(1, journal.getRecordCount());
+        LogSessionJournal.JournalCursor journalCursor = journal.openCursor(0);
+        assertTrue(journalCursor.next());
+        assertArrayEquals(LiveLogRecords.seededPayload(777), journalCursor.getPayloadBytes());
+
+        /* A store cleared without going through the writer stays unwritten until it is synced: */
+        recordStore.clear();
+        recordStore.appendRawLogData(LiveLogRecords.seededLogRecord(778), 1);
+        ingestWriter.flush();
+        assertEquals(1, journal.getRecordCount());
+        ingestWriter.skipToStoreEnd(1);
+        assertEquals(0, ingestWriter.getPendingWriteCount());
+        journal.close();
+    }
+
+    @Test
+    public void benchmarkIngestThroughput() throws IOException, InterruptedException {
+        UnitTestBenchmarks.assumeBenchmarksEnabled();
+        File journalDir = tempFolder.newFolder("journal");
+        LogRecordStore recordStore = new LogRecordStore();
+        LogSessionJournal journal = new LogSessionJournal();
+        assertTrue(journal.open(journalDir));
+        LogIngestWriter ingestWriter = new LogIngestWriter(recordStore, journal, new LogIngestWriter.LiveRecordSink() {
+            @Override
+            public void writeLiveRecord(int logCode, int diffTimeMillis, byte[] payload, int offset, int length) {}
+        });
+        byte[][] logCorpus = new byte[1024][];
+        for(int logIdx = 0; logIdx < logCorpus.length; logIdx++) {
+            logCorpus[logIdx] = LiveLogRecords.seededLogRecord(logIdx + 1);
+        }
+        long startNanos = System.nanoTime();
+        for(int recordID = 1; recordID <= BENCHMARK_RECORDS; recordID++) {
+            recordStore.appendRawLogData(logCorpus[recordID % logCorpus.length], recordID);
+            ingestWriter.requestWrite();
+        }
+        long appendNanos = System.nanoTime() - startNanos;
+        long drainDeadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+        while(ingestWriter.getPendingWriteCount() > 0 || recordStore.getPendingIndexCount() > 0) {
+            if(System.nanoTime() > drainDeadlineNanos) {
+                fail(String.format(BuildConfig.DEFAULT_LOCALE, "Writer stalled with %d records unwritten and %d unindexed",
+                                   ingestWriter.getPendingWriteCount(), recordStore.getPendingIndexCount()));
+            }
+            Thread.sleep(1);
+        }
+        long drainNanos = System.nanoTime() - startNanos;
+        assertEquals(BENCHMARK_RECORDS, journal.getRecordCount());
+        UnitTestBenchmarks.printResult(TAG, "Log ingest: %d records appended in %.1f ms = %.0f records/s on the calling thread",
+                                            BENCHMARK_RECORDS, appendNanos / 1.0e6, BENCHMARK_RECORDS / (appendNanos / 1.0e9));
+        UnitTestBenchmarks.printResult(TAG, "Log ingest: journaled and indexed after %.1f ms = %.0f records/s (target %d records/s)",
+                                            drainNanos / 1.0e6, BENCHMARK_RECORDS / (drainNanos / 1.0e9), TARGET_RECORDS_PER_SECOND);
+        journal.close();
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>Log Payload Arena Tests</h1>
+ * The in-place payload comparisons and searches against the same operations on heap copies
+ * of the payloads, for payloads in the arena's own segments and in an attached read-only
+ * segment (at nonzero offsets, next to other payloads that must not leak into a match).
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class LogPayloadArenaTest {
+
+    private static final int PAYLOAD_COUNT = 3000;
+    private static final byte[] PAYLOAD_ALPHABET = new byte[] { 'a', 'b', 'c', 'A', 'B', 'C', 0x00, (byte) 0xff };
+
+    private static boolean heapContains(byte[] payload, byte[] pattern, boolean foldCase) {
+        for(int startPos = 0; startPos + pattern.length <= payload.length; startPos++) {
+            int pidx = 0;
+            while(pidx < pattern.length && (foldCase ? LogSearchIndex.foldCase(payload[startPos + pidx]) : payload[startPos + pidx]) == pattern[pidx]) {
+                pidx++;
+            }
+            if(pidx == pattern.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] randomPayload(Random rng) {
+        byte[] payload = new byte[rng.nextInt(48)];
+        for(int bidx = 0; bidx < payload.length; bidx++) {
+            payload[bidx] = PAYLOAD_ALPHABET[rng.nextInt(PAYLOAD_ALPHABET.length)];
+        }
+        return payload;
+    }
+
+    @Test
+    public void inPlaceComparisonsMatchTheHeapCopies() {
+        Random rng = new Random(10L);
+        LogPayloadArena payloadArena = new LogPayloadArena();
+        List<byte[]> payloads = new ArrayList<byte[]>();
+        List<Long> payloadHandles = new ArrayList<Long>();
+        ByteBuffer attachedData = ByteBuffer.allocate(64 * 1024);
+        int attachedSegment = -1;
+        for(int pldIdx = 0; pldIdx < PAYLOAD_COUNT; pldIdx++) {
+            byte[] payload = randomPayload(rng);
+            payloads.add(payload);
+            if(pldIdx < PAYLOAD_COUNT / 2) {
+                payloadHandles.add(payloadArena.append(payload));
+            } else {
+                if(attachedSegment < 0) {
+                    attachedSegment = payloadArena.attachSegment(attachedData);
+                }
+                int segmentOffset = attachedData.position();
+                attachedData.put(payload);
+                payloadHandles.add(payloadArena.getAttachedHandle(attachedSegment, segmentOffset, payload.length));
+            }
+        }
+        for(int pldIdx = 0; pldIdx < PAYLOAD_COUNT; pldIdx++) {
+            byte[] payload = payloads.get(pldIdx);
+            long payloadHandle = payloadHandles.get(pldIdx);
+            byte[] pattern = Arrays.copyOf(randomPayload(rng), 1 + rng.nextInt(3));
+            for(int bidx = 0; bidx < pattern.length; bidx++) {
+                pattern[bidx] = LogSearchIndex.foldCase(pattern[bidx]);
+            }
+            assertEquals(heapContains(payload, pattern, true), payloadArena.payloadContains(payloadHandle, payload.length, pattern, true));
+            assertEquals(heapContains(payload, pattern, false), payloadArena.payloadContains(payloadHandle, payload.length, pattern, false));
+            assertTrue(payloadArena.payloadEquals(payloadHandle, payload.length, payload, 0, payload.length));
+
+            int otherIdx = rng.nextInt(PAYLOAD_COUNT);
+            byte[] otherPayload = payloads.get(otherIdx);
+            if(otherPayload.length == payload.length) {
+                assertEquals(Arrays.equals(payload, otherPayload), payloadArena.payloadsEqual(payloadHandle, payloadHandles.get(otherIdx), payload.length));
+                assertEquals(Arrays.equals(payload, otherPayload), payloadArena.payloadEquals(payloadHandle, payload.length, otherPayload, 0, payload.length));
+            }
+            if(payload.length > 0) {
+                assertTrue(payloadArena.payloadContains(payloadHandle, payload.length, payload, false));
+                byte[] changedPayload = payload.clone();
+                changedPayload[rng.nextInt(payload.length)] ^= 0x10;
+                assertFalse(payloadArena.payloadEquals(payloadHandle, payload.length, changedPayload, 0, payload.length));
+            }
+        }
+    }
+
+}
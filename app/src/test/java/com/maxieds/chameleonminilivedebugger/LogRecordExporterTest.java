@@ -0,0 +1,145 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>Log Record Exporter Tests</h1>
+ * Text export layout and clearing the logs under a running export. The export throughput is
+ * only measured when the tests run with -Dcmld.bench=true.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class LogRecordExporterTest {
+
+    private static final String TAG = LogRecordExporterTest.class.getSimpleName();
+
+    private static final String RAW_RESOURCES_DIR = "src/main/res/raw/";
+    private static final int BENCHMARK_RECORD_COUNT = 1000000;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ApduClassifier apduClassifier;
+
+    @Before
+    public void loadApduClassifier() throws IOException {
+        apduClassifier = ApduClassifier.fromStreams(
+                new FileInputStream(RAW_RESOURCES_DIR + "desfire_ins"),
+                new FileInputStream(RAW_RESOURCES_DIR + "desfire_status"),
+                new FileInputStream(RAW_RESOURCES_DIR + "common_ins"),
+                new FileInputStream(RAW_RESOURCES_DIR + "response_codes_status"),
+                new FileInputStream(RAW_RESOURCES_DIR + "detailed_common_ins")
+        );
+    }
+
+    @Test
+    public void textExportMatchesTheLogEntryLayout() throws IOException {
+        final int recordCount = 500;
+        LogRecordStore recordStore = LiveLogRecords.fillRecordStore(recordCount, 17L);
+        File outfile = tempFolder.newFile("logs.txt");
+        LogRecordExporter exporter = new LogRecordExporter(recordStore, LogRecordExporter.FORMAT_TEXT, outfile);
+        exporter.setApduClassifier(apduClassifier);
+        assertTrue(exporter.runExport(null));
+        assertEquals(recordCount, exporter.getRecordsWritten());
+        List<String> exportLines = Files.readAllLines(outfile.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(recordCount, exportLines.size());
+        Random rng = new Random(17L);
+        for(int recordIdx = 0; recordIdx < recordCount; recordIdx++) {
+            byte[] payload = LiveLogRecords.payloadOf(LiveLogRecords.nextLogRecord(rng, recordIdx));
+            String apduLabel = apduClassifier.classify(payload);
+            if(ApduClassifier.NO_APDU_LABEL.equals(apduLabel)) {
+                apduLabel = LogEntryUI.APDU_NONE_RECOGNIZED;
+            }
+            String logCodeName = ChameleonLogUtils.LogCode.lookupByLogCode(recordStore.getLogCode(recordIdx)).name();
+            String expectedLine = String.format(BuildConfig.DEFAULT_LOCALE, "%06d --- %-32s [%-3s bytes] (+%-6s ms) [%s] {%s}",
+                                                recordIdx, logCodeName, Integer.toString(payload.length),
+                                                Integer.toString(recordIdx % 1000), Utils.bytes2Hex(payload), apduLabel);
+            assertEquals(expectedLine, exportLines.get(recordIdx));
+        }
+    }
+
+    @Test
+    public void clearingTheLogsFailsTheRunningExport() throws InterruptedException {
+        final LogRecordStore recordStore = LiveLogRecords.fillRecordStore(4 * LogRecordExporter.PROGRESS_INTERVAL_RECORDS, 5L);
+        File outfile = new File(tempFolder.getRoot(), "cleared.txt");
+        LogRecordExporter exporter = new LogRecordExporter(recordStore, LogRecordExporter.FORMAT_TEXT, outfile);
+        exporter.setApduClassifier(apduClassifier);
+        final boolean[] exportResult = new boolean[] { true };
+        final Object exportDone = new Object();
+        exporter.startExport(new LogRecordExporter.ExportListener() {
+            @Override
+            public void onExportProgress(LogRecordExporter exporter, int recordsDone, int recordsTotal) {
+                recordStore.clear();
+            }
+            @Override
+            public void onExportFinished(LogRecordExporter exporter, boolean success) {
+                synchronized(exportDone) {
+                    exportResult[0] = success;
+                    exportDone.notifyAll();
+                }
+            }
+        });
+        synchronized(exportDone) {
+            long deadlineMillis = System.currentTimeMillis() + 10000;
+            while(exporter.isRunning() && System.currentTimeMillis() < deadlineMillis) {
+                exportDone.wait(100);
+            }
+        }
+        assertFalse(exporter.isRunning());
+        assertFalse(exportResult[0]);
+        assertNotNull(exporter.getError());
+        assertFalse(outfile.exists());
+    }
+
+    @Test
+    public void benchmarkTextExport() throws IOException {
+        UnitTestBenchmarks.assumeBenchmarksEnabled();
+        LogRecordStore recordStore = LiveLogRecords.fillRecordStore(BENCHMARK_RECORD_COUNT, 1L);
+        for(int format : new int[] { LogRecordExporter.FORMAT_TEXT, LogRecordExporter.FORMAT_BINARY }) {
+            File outfile = tempFolder.newFile("benchmark." + format);
+            LogRecordExporter exporter = new LogRecordExporter(recordStore, format, outfile);
+            exporter.setApduClassifier(apduClassifier);
+            assertTrue(exporter.runExport(null));
+            assertEquals(BENCHMARK_RECORD_COUNT, exporter.getRecordsWritten());
+            long elapsedMillis = Math.max(1, exporter.getElapsedMillis());
+            UnitTestBenchmarks.printResult(TAG, "Export format %d: %d records (%d bytes) in %d ms = %d records/s",
+                                                format, BENCHMARK_RECORD_COUNT, exporter.getBytesWritten(), elapsedMillis,
+                                                BENCHMARK_RECORD_COUNT * 1000L / elapsedMillis);
+        }
+    }
+
+}
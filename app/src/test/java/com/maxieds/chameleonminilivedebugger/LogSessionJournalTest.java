@@ -0,0 +1,150 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>Log Session Journal Tests</h1>
+ * Reopening a journaled session into a record store with the payloads left in the mapped
+ * segments (the same steps as GUILogUtils.reopenSessionJournal), and cutting the journal
+ * back to a consistent prefix.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class LogSessionJournalTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static void writeSession(LogSessionJournal journal, int recordCount) {
+        for(int recordID = 1; recordID <= recordCount; recordID++) {
+            byte[] payload = LiveLogRecords.seededPayload(recordID);
+            assertTrue(journal.appendLogData(LiveLogRecords.LOGCODE_RX_DATA, 0, recordID, recordID % 100, payload, 0, payload.length));
+        }
+    }
+
+    private static LogRecordStore restoreSession(LogSessionJournal journal) {
+        LogRecordStore recordStore = new LogRecordStore();
+        LogSessionJournal.JournalCursor journalCursor = journal.openCursor(0);
+        int[] storeSegmentNumbers = new int[journalCursor.getSegmentCount()];
+        for(int segIdx = 0; segIdx < storeSegmentNumbers.length; segIdx++) {
+            storeSegmentNumbers[segIdx] = recordStore.attachPayloadSegment(journalCursor.getSegmentBuffer(segIdx));
+        }
+        while(journalCursor.next()) {
+            if(journalCursor.getRecordType() == LogSessionJournal.RECORD_LOGDATA) {
+                recordStore.appendAttachedLogRecord(journalCursor.getLogCode(), journalCursor.getDataDirection(), journalCursor.getDiffTimeMillis(),
+                                                    journalCursor.getRecordID(), storeSegmentNumbers[journalCursor.getSegmentIndex()],
+                                                    journalCursor.getPayloadOffset(), journalCursor.getPayloadLength());
+            } else if(journalCursor.getRecordType() == LogSessionJournal.RECORD_DUPLICATE) {
+                recordStore.appendDuplicate(journalCursor.getRefRecordIndex(), journalCursor.getDiffTimeMillis());
+            }
+        }
+        return recordStore;
+    }
+
+    @Test
+    public void reopenedSessionKeepsThePayloadsInTheJournal() throws IOException {
+        File journalDir = tempFolder.newFolder("journal");
+        final int recordCount = 200000; /* Spans more than one journal segment */
+        LogSessionJournal journal = new LogSessionJournal();
+        assertTrue(journal.open(journalDir));
+        writeSession(journal, recordCount);
+        journal.appendDuplicate(7, 8, 0);
+        journal.close();
+
+        LogSessionJournal reopenedJournal = new LogSessionJournal();
+        assertTrue(reopenedJournal.open(journalDir));
+        assertEquals(recordCount + 1, reopenedJournal.getRecordCount());
+        assertTrue(reopenedJournal.getSegmentCount() > 1);
+        LogRecordStore recordStore = restoreSession(reopenedJournal);
+        assertEquals(recordCount + 1, recordStore.size());
+        assertEquals(recordCount + 1, recordStore.getPendingIndexCount());
+        for(int recordIdx = 0; recordIdx < recordCount; recordIdx++) {
+            assertEquals(recordIdx + 1, recordStore.getRecordID(recordIdx));
+            assertArrayEquals(LiveLogRecords.seededPayload(recordIdx + 1), recordStore.getPayloadBytes(recordIdx));
+        }
+        assertTrue(recordStore.hasRecordFlag(7, LogRecordStore.FLAG_SUPERSEDED));
+        assertArrayEquals(LiveLogRecords.seededPayload(8), recordStore.getPayloadBytes(recordCount));
+
+        /* The lookups leave the restored records to the background indexing: */
+        byte[] rawLogBytes = LiveLogRecords.seededLogRecord(recordCount + 1);
+        recordStore.appendRawLogData(rawLogBytes, recordCount + 1);
+        assertEquals(-1, recordStore.findMatchingLogEntry(rawLogBytes));
+        assertEquals(recordCount + 2, recordStore.getPendingIndexCount());
+        while(recordStore.indexPendingRecords(LogIngestWriter.WRITE_BATCH_RECORDS)) {}
+        assertEquals(recordCount + 1, recordStore.findMatchingLogEntry(rawLogBytes));
+        assertEquals(0, recordStore.getPendingIndexCount());
+        reopenedJournal.close();
+    }
+
+    @Test
+    public void backgroundIndexingMatchesTheEagerIndex() throws IOException {
+        File journalDir = tempFolder.newFolder("journal");
+        LogSessionJournal journal = new LogSessionJournal();
+        assertTrue(journal.open(journalDir));
+        writeSession(journal, 5000);
+        LogRecordStore recordStore = restoreSession(journal);
+        while(recordStore.indexPendingRecords(512)) {}
+        byte[] searchPattern = new byte[3];
+        System.arraycopy(LiveLogRecords.seededPayload(1234), 0, searchPattern, 0, Math.min(3, LiveLogRecords.seededPayload(1234).length));
+        LogRecordStore eagerStore = new LogRecordStore();
+        for(int recordID = 1; recordID <= 5000; recordID++) {
+            byte[] payload = LiveLogRecords.seededPayload(recordID);
+            eagerStore.appendLogRecord(LiveLogRecords.LOGCODE_RX_DATA, 0, recordID % 100, recordID, payload, 0, payload.length);
+        }
+        assertArrayEquals(eagerStore.searchRecords(searchPattern, "", true, LogSearchIndex.SEARCH_PAYLOAD),
+                          recordStore.searchRecords(searchPattern, "", true, LogSearchIndex.SEARCH_PAYLOAD));
+        journal.close();
+    }
+
+    @Test
+    public void truncateKeepsTheConsistentRecords() throws IOException {
+        File journalDir = tempFolder.newFolder("journal");
+        LogSessionJournal journal = new LogSessionJournal();
+        assertTrue(journal.open(journalDir));
+        writeSession(journal, 200000);
+        assertTrue(journal.truncate(600));
+        assertEquals(600, journal.getRecordCount());
+        assertEquals(1, journal.getSegmentCount());
+        byte[] payload = LiveLogRecords.seededPayload(9999);
+        assertTrue(journal.appendLogData(LiveLogRecords.LOGCODE_RX_DATA, 0, 9999, 0, payload, 0, payload.length));
+        journal.close();
+
+        LogSessionJournal reopenedJournal = new LogSessionJournal();
+        assertTrue(reopenedJournal.open(journalDir));
+        assertEquals(601, reopenedJournal.getRecordCount());
+        LogRecordStore recordStore = restoreSession(reopenedJournal);
+        assertEquals(599 + 1, recordStore.getRecordID(599));
+        assertEquals(9999, recordStore.getRecordID(600));
+        assertArrayEquals(payload, recordStore.getPayloadBytes(600));
+        assertTrue(reopenedJournal.truncate(601));
+        reopenedJournal.close();
+    }
+
+}
@@ -0,0 +1,244 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger.ScriptingAPI;
+
+import com.maxieds.chameleonminilivedebugger.BuildConfig;
+import com.maxieds.chameleonminilivedebugger.ScriptingAPI.ScriptingTypes.ScriptVariable;
+import com.maxieds.chameleonminilivedebugger.UnitTestBenchmarks;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * <h1>Scripting Types Tests</h1>
+ * The native byte array operations of ScriptVariable (append, slicing, the bitwise and shift
+ * operations, NOT) checked against plain Java references over random tag dumps. With
+ * -Dcmld.bench=true, the benchmark prints the append and XOR cost per byte at growing dump
+ * sizes to show that it stays flat.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class ScriptingTypesTest {
+
+    private static final String TAG = ScriptingTypesTest.class.getSimpleName();
+
+    private static final int PROPERTY_TRIAL_COUNT = 300;
+    private static final int BENCHMARK_BLOCK_SIZE = 16; /* One MIFARE Classic block per append */
+    private static final int[] BENCHMARK_DUMP_SIZES = new int[] { 1024, 4096, 16384, 65536, 262144 };
+
+    private static byte[] randomBytes(Random rng, int byteCount) {
+        byte[] dataBytes = new byte[byteCount];
+        rng.nextBytes(dataBytes);
+        return dataBytes;
+    }
+
+    private static byte[] concatBytes(byte[] lhsBytes, byte[] rhsBytes) {
+        byte[] resultBytes = Arrays.copyOf(lhsBytes, lhsBytes.length + rhsBytes.length);
+        System.arraycopy(rhsBytes, 0, resultBytes, lhsBytes.length, rhsBytes.length);
+        return resultBytes;
+    }
+
+    /* The shifts keep the array length, so the reference drops the bits shifted out the top: */
+    private static byte[] shiftReference(byte[] dataBytes, int shiftBits, boolean shiftLeft) {
+        BigInteger bitString = new BigInteger(1, dataBytes);
+        bitString = shiftLeft ? bitString.shiftLeft(shiftBits) : bitString.shiftRight(shiftBits);
+        byte[] shiftedBytes = bitString.toByteArray();
+        byte[] resultBytes = new byte[dataBytes.length];
+        int copyLength = Math.min(shiftedBytes.length, resultBytes.length);
+        System.arraycopy(shiftedBytes, shiftedBytes.length - copyLength, resultBytes, resultBytes.length - copyLength, copyLength);
+        return resultBytes;
+    }
+
+    @Test
+    public void plusAppendsTheBytesInOrder() {
+        Random rng = new Random(3L);
+        for(int trialIdx = 0; trialIdx < PROPERTY_TRIAL_COUNT; trialIdx++) {
+            byte[] expectedBytes = randomBytes(rng, rng.nextInt(8));
+            ScriptVariable bytesVar = new ScriptVariable(expectedBytes.clone());
+            int appendCount = 1 + rng.nextInt(20);
+            for(int appendIdx = 0; appendIdx < appendCount; appendIdx++) {
+                byte[] rhsBytes = randomBytes(rng, rng.nextInt(40));
+                bytesVar.binaryOperation(ScriptVariable.Operation.BINOP_PLUS, new ScriptVariable(rhsBytes));
+                expectedBytes = concatBytes(expectedBytes, rhsBytes);
+            }
+            assertArrayEquals(expectedBytes, bytesVar.getValueAsBytes());
+            assertEquals(expectedBytes.length, bytesVar.length());
+        }
+    }
+
+    @Test
+    public void copiesAreNotChangedInPlace() {
+        byte[] literalBytes = new byte[] { 0x01, 0x02, 0x03 };
+        ScriptVariable bytesVar = new ScriptVariable(literalBytes);
+        ScriptVariable varCopy = bytesVar.copy();
+        bytesVar.binaryOperation(ScriptVariable.Operation.BINOP_PLUS, new ScriptVariable(new byte[] { 0x04 }));
+        bytesVar.binaryOperation(ScriptVariable.Operation.BINOP_BITWISE_XOR, new ScriptVariable(0xff));
+        bytesVar.unaryOperation(ScriptVariable.Operation.UOP_BITWISE_NOT);
+        varCopy.binaryOperation(ScriptVariable.Operation.BINOP_SHIFT_LEFT, new ScriptVariable(4));
+        assertArrayEquals(new byte[] { 0x01, 0x02, 0x03 }, literalBytes);
+        assertArrayEquals(new byte[] { 0x01, 0x02, 0x03, 0x04 }, bytesVar.getValueAsBytes());
+        assertArrayEquals(new byte[] { 0x10, 0x20, 0x30 }, varCopy.getValueAsBytes());
+    }
+
+    @Test
+    public void bitwiseOperationsMatchTheBytewiseReference() {
+        Random rng = new Random(5L);
+        ScriptVariable.Operation[] bitwiseOps = new ScriptVariable.Operation[] {
+                ScriptVariable.Operation.BINOP_BITWISE_AND,
+                ScriptVariable.Operation.BINOP_BITWISE_OR,
+                ScriptVariable.Operation.BINOP_BITWISE_XOR
+        };
+        for(int trialIdx = 0; trialIdx < PROPERTY_TRIAL_COUNT; trialIdx++) {
+            ScriptVariable.Operation opType = bitwiseOps[trialIdx % bitwiseOps.length];
+            byte[] lhsBytes = randomBytes(rng, 1 + rng.nextInt(64));
+            byte[] rhsBytes = randomBytes(rng, lhsBytes.length);
+            int broadcastByte = rng.nextInt(256);
+            byte[] expectedBytes = new byte[lhsBytes.length];
+            byte[] expectedBroadcast = new byte[lhsBytes.length];
+            for(int b = 0; b < lhsBytes.length; b++) {
+                switch(opType) {
+                    case BINOP_BITWISE_AND:
+                        expectedBytes[b] = (byte) (lhsBytes[b] & rhsBytes[b]);
+                        expectedBroadcast[b] = (byte) (lhsBytes[b] & broadcastByte);
+                        break;
+                    case BINOP_BITWISE_OR:
+                        expectedBytes[b] = (byte) (lhsBytes[b] | rhsBytes[b]);
+                        expectedBroadcast[b] = (byte) (lhsBytes[b] | broadcastByte);
+                        break;
+                    default:
+                        expectedBytes[b] = (byte) (lhsBytes[b] ^ rhsBytes[b]);
+                        expectedBroadcast[b] = (byte) (lhsBytes[b] ^ broadcastByte);
+                        break;
+                }
+            }
+            ScriptVariable lhsVar = new ScriptVariable(lhsBytes);
+            assertSame(lhsVar, lhsVar.binaryOperation(opType, new ScriptVariable(rhsBytes)));
+            assertArrayEquals(expectedBytes, lhsVar.getValueAsBytes());
+            assertArrayEquals(expectedBroadcast, new ScriptVariable(lhsBytes).binaryOperation(opType, new ScriptVariable(broadcastByte)).getValueAsBytes());
+            assertArrayEquals(expectedBroadcast, new ScriptVariable(new byte[] { (byte) broadcastByte }).binaryOperation(opType, new ScriptVariable(lhsBytes)).getValueAsBytes());
+        }
+    }
+
+    @Test
+    public void bitwiseBroadcastOverAnEmptyArrayIsEmpty() {
+        ScriptVariable.Operation[] bitwiseOps = new ScriptVariable.Operation[] {
+                ScriptVariable.Operation.BINOP_BITWISE_AND,
+                ScriptVariable.Operation.BINOP_BITWISE_OR,
+                ScriptVariable.Operation.BINOP_BITWISE_XOR
+        };
+        for(ScriptVariable.Operation opType : bitwiseOps) {
+            assertEquals(0, new ScriptVariable(new byte[0]).binaryOperation(opType, new ScriptVariable(0x01)).length());
+            assertEquals(0, new ScriptVariable(0x01).binaryOperation(opType, new ScriptVariable(new byte[0])).length());
+            assertEquals(0, new ScriptVariable(new byte[] { 0x01 }).binaryOperation(opType, new ScriptVariable(new byte[0])).length());
+        }
+        try {
+            new ScriptVariable(new byte[0]).binaryOperation(ScriptVariable.Operation.BINOP_BITWISE_XOR, new ScriptVariable(new byte[] { 0x01, 0x02 }));
+            fail("Mismatched byte array lengths were accepted");
+        } catch(ScriptingExceptions.ChameleonScriptingException cse) {
+            assertEquals(ScriptingExceptions.ExceptionType.InvalidLengthException.name(), cse.getMessage());
+        }
+    }
+
+    @Test
+    public void shiftsMoveTheWholeBitString() {
+        Random rng = new Random(7L);
+        for(int trialIdx = 0; trialIdx < PROPERTY_TRIAL_COUNT; trialIdx++) {
+            byte[] dataBytes = randomBytes(rng, 1 + rng.nextInt(32));
+            int shiftBits = rng.nextInt(8 * dataBytes.length + 9);
+            ScriptVariable leftVar = new ScriptVariable(dataBytes).binaryOperation(ScriptVariable.Operation.BINOP_SHIFT_LEFT, new ScriptVariable(shiftBits));
+            ScriptVariable rightVar = new ScriptVariable(dataBytes).binaryOperation(ScriptVariable.Operation.BINOP_SHIFT_RIGHT, new ScriptVariable(shiftBits));
+            assertArrayEquals(shiftReference(dataBytes, shiftBits, true), leftVar.getValueAsBytes());
+            assertArrayEquals(shiftReference(dataBytes, shiftBits, false), rightVar.getValueAsBytes());
+        }
+        assertEquals(0x0ffffff0, new ScriptVariable(0xffffff00).binaryOperation(ScriptVariable.Operation.BINOP_SHIFT_RIGHT, new ScriptVariable(4)).getValueAsInt());
+        assertEquals(0x00012340, new ScriptVariable(0x1234).binaryOperation(ScriptVariable.Operation.BINOP_SHIFT_LEFT, new ScriptVariable(4)).getValueAsInt());
+    }
+
+    @Test
+    public void notAndSlicesWorkOnTheBytes() {
+        Random rng = new Random(11L);
+        for(int trialIdx = 0; trialIdx < PROPERTY_TRIAL_COUNT; trialIdx++) {
+            byte[] dataBytes = randomBytes(rng, 1 + rng.nextInt(48));
+            byte[] notBytes = new byte[dataBytes.length];
+            for(int b = 0; b < dataBytes.length; b++) {
+                notBytes[b] = (byte) ~dataBytes[b];
+            }
+            assertArrayEquals(notBytes, new ScriptVariable(dataBytes).unaryOperation(ScriptVariable.Operation.UOP_BITWISE_NOT).getValueAsBytes());
+            int startIdx = rng.nextInt(dataBytes.length + 1);
+            int sliceLength = rng.nextInt(dataBytes.length - startIdx + 1);
+            ScriptVariable bytesVar = new ScriptVariable(dataBytes);
+            assertArrayEquals(Arrays.copyOfRange(dataBytes, startIdx, startIdx + sliceLength),
+                              bytesVar.getSubArray(startIdx, sliceLength).getValueAsBytes());
+            if(startIdx + sliceLength < dataBytes.length) { /* A zero length keeps its meaning */
+                assertArrayEquals(Arrays.copyOfRange(dataBytes, startIdx, startIdx + sliceLength),
+                                  bytesVar.getSubArray(startIdx, startIdx + sliceLength - dataBytes.length).getValueAsBytes());
+            }
+        }
+        assertEquals(~0x1234, new ScriptVariable(0x1234).unaryOperation(ScriptVariable.Operation.UOP_BITWISE_NOT).getValueAsInt());
+    }
+
+    @Test
+    public void integersConvertBigEndian() {
+        assertEquals(0x01020304, new ScriptVariable(new byte[] { 0x01, 0x02, 0x03, 0x04 }).getValueAsInt());
+        assertEquals(0xa5, new ScriptVariable(new byte[] { (byte) 0xa5 }).getValueAsInt());
+        assertArrayEquals(new byte[] { 0x12, 0x34 }, new ScriptVariable(0x1234).getValueAsBytes());
+        assertArrayEquals(new byte[] { 0x00 }, new ScriptVariable(0).getValueAsBytes());
+    }
+
+    @Test
+    public void benchmarkAppendAndXorOnTagDumps() {
+        UnitTestBenchmarks.assumeBenchmarksEnabled();
+        Random rng = new Random(1L);
+        byte[] dumpBlock = randomBytes(rng, BENCHMARK_BLOCK_SIZE);
+        ScriptVariable blockVar = new ScriptVariable(dumpBlock);
+        for(int dumpIdx = 0; dumpIdx < 2 * BENCHMARK_DUMP_SIZES.length; dumpIdx++) {
+            int dumpSize = BENCHMARK_DUMP_SIZES[dumpIdx % BENCHMARK_DUMP_SIZES.length];
+            int repeatCount = Math.max(1, BENCHMARK_DUMP_SIZES[BENCHMARK_DUMP_SIZES.length - 1] / dumpSize);
+            long appendNanos = 0, xorNanos = 0;
+            for(int repeatIdx = 0; repeatIdx < repeatCount; repeatIdx++) {
+                ScriptVariable dumpVar = new ScriptVariable(new byte[0]);
+                long appendStartNanos = System.nanoTime();
+                for(int dumpPos = 0; dumpPos < dumpSize; dumpPos += BENCHMARK_BLOCK_SIZE) {
+                    dumpVar.binaryOperation(ScriptVariable.Operation.BINOP_PLUS, blockVar);
+                }
+                appendNanos += System.nanoTime() - appendStartNanos;
+                assertEquals(dumpSize, dumpVar.length());
+                ScriptVariable keyStream = new ScriptVariable(randomBytes(rng, dumpSize));
+                long xorStartNanos = System.nanoTime();
+                dumpVar.binaryOperation(ScriptVariable.Operation.BINOP_BITWISE_XOR, keyStream);
+                xorNanos += System.nanoTime() - xorStartNanos;
+            }
+            if(dumpIdx < BENCHMARK_DUMP_SIZES.length) {
+                continue; /* Warm up pass */
+            }
+            long bytesProcessed = (long) dumpSize * repeatCount;
+            UnitTestBenchmarks.printResult(TAG, "Script bytes %7d byte dump: append %.2f ns/byte, XOR %.2f ns/byte",
+                                                dumpSize, appendNanos / (double) bytesProcessed, xorNanos / (double) bytesProcessed);
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * <h1>Serial Capture Replayer Tests</h1>
+ * Plays recorded captures through the frame assembler on the plain JVM (no device, no
+ * Android classes) and checks that every LIVE log record comes out whole and in order.
+ * The replay throughput benchmark only runs with -Dcmld.bench=true (see UnitTestBenchmarks).
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class SerialCaptureReplayerTest {
+
+    private static final String TAG = SerialCaptureReplayerTest.class.getSimpleName();
+
+    private static final int BENCHMARK_RECORD_COUNT = 500000;
+
+    /**
+     * Frames the stream the way SerialIOReceiver does when no XModem transfer is running.
+     */
+    private static final SerialIOFrameAssembler.FramingContext LIVE_LOG_FRAMING = new SerialIOFrameAssembler.FramingContext() {
+        public boolean isLiveLoggingCode(byte firstByte) {
+            return ChameleonLogUtils.isLiveLoggingCode(firstByte);
+        }
+        public int getXModemMode() {
+            return SerialIOFrameAssembler.XMODEM_MODE_NONE;
+        }
+        public int getXModemBlockFrameLength(byte firstByte) {
+            return SerialIOFrameAssembler.getDefaultXModemBlockFrameLength(firstByte);
+        }
+    };
+
+    /**
+     * Collects the frames coming out of the assembler while the capture is replayed.
+     */
+    private static class FrameCollector implements SerialDataReceiverInterface, SerialIOFrameAssembler.SerialFrameReceiver {
+
+        private final SerialIOFrameAssembler frameAssembler = new SerialIOFrameAssembler(LIVE_LOG_FRAMING);
+        private final SerialCaptureReplayer captureReplayer;
+        private final boolean keepFrames;
+        private final List<byte[]> logFrames = new ArrayList<byte[]>();
+        private int logFrameCount;
+
+        FrameCollector(SerialCaptureReplayer replayer, boolean keepFrames) {
+            captureReplayer = replayer;
+            this.keepFrames = keepFrames;
+        }
+
+        public void onReceivedData(byte[] liveLogData) {
+            frameAssembler.appendData(liveLogData, this);
+        }
+
+        public void onReceivedFrame(int frameType, byte[] frameData) {
+            boolean isLogFrame = frameType == SerialIOFrameAssembler.FRAME_TYPE_LOGDATA;
+            captureReplayer.onFrameDelivered(isLogFrame);
+            if(isLogFrame) {
+                logFrameCount++;
+                if(keepFrames) {
+                    logFrames.add(frameData);
+                }
+            }
+        }
+
+    }
+
+    private static byte[] writeBinaryLog(int recordCount, long seed) {
+        ByteArrayOutputStream logStream = new ByteArrayOutputStream();
+        Random rng = new Random(seed);
+        for(int recordIdx = 0; recordIdx < recordCount; recordIdx++) {
+            byte[] logRecord = LiveLogRecords.nextLogRecord(rng, recordIdx);
+            logStream.write(logRecord, 0, logRecord.length);
+        }
+        return logStream.toByteArray();
+    }
+
+    @Test
+    public void replayedBinaryLogComesOutWholeAndInOrder() throws IOException {
+        final int recordCount = 5000;
+        byte[] binaryLog = writeBinaryLog(recordCount, 7L);
+        for(int chunkSize : new int[] { 0, 1, 7, 64, 512 }) {
+            SerialCaptureReplayer.ReplayCapture capture = SerialCaptureReplayer.ReplayCapture.fromBinaryLogFile(
+                    new ByteArrayInputStream(binaryLog), chunkSize);
+            assertEquals(recordCount, capture.getExpectedLogRecords());
+            assertEquals(binaryLog.length, capture.getTotalBytes());
+            SerialCaptureReplayer replayer = new SerialCaptureReplayer(capture);
+            replayer.setSpeedMultiplier(SerialCaptureReplayer.SPEED_MAXIMUM);
+            FrameCollector frameCollector = new FrameCollector(replayer, true);
+            SerialCaptureReplayer.ReplayStatistics replayStats = replayer.replay(frameCollector);
+            assertEquals(recordCount, frameCollector.logFrames.size());
+            assertEquals(0, replayStats.getDroppedFrames());
+            assertEquals(0, frameCollector.frameAssembler.getDroppedByteCount());
+            Random rng = new Random(7L);
+            for(int recordIdx = 0; recordIdx < recordCount; recordIdx++) {
+                assertArrayEquals(LiveLogRecords.nextLogRecord(rng, recordIdx), frameCollector.logFrames.get(recordIdx));
+            }
+        }
+    }
+
+    @Test
+    public void recordedChunksReplayWithTheirBoundaries() throws IOException {
+        byte[] binaryLog = writeBinaryLog(300, 11L);
+        ByteArrayOutputStream captureBytes = new ByteArrayOutputStream();
+        SerialCaptureReplayer.CaptureRecorder recorder = new SerialCaptureReplayer.CaptureRecorder(captureBytes);
+        List<byte[]> recordedChunks = new ArrayList<byte[]>();
+        Random rng = new Random(3L);
+        for(int chunkPos = 0; chunkPos < binaryLog.length; ) {
+            int chunkEnd = Math.min(binaryLog.length, chunkPos + 1 + rng.nextInt(100));
+            byte[] chunkData = new byte[chunkEnd - chunkPos];
+            System.arraycopy(binaryLog, chunkPos, chunkData, 0, chunkData.length);
+            recorder.recordChunk(chunkData);
+            recordedChunks.add(chunkData);
+            chunkPos = chunkEnd;
+        }
+        recorder.close();
+        SerialCaptureReplayer.ReplayCapture capture = SerialCaptureReplayer.ReplayCapture.fromRawChunkCapture(
+                new ByteArrayInputStream(captureBytes.toByteArray()));
+        assertEquals(recordedChunks.size(), capture.getChunkCount());
+        for(int chunkIdx = 0; chunkIdx < recordedChunks.size(); chunkIdx++) {
+            assertArrayEquals(recordedChunks.get(chunkIdx), capture.getChunk(chunkIdx));
+        }
+        SerialCaptureReplayer replayer = new SerialCaptureReplayer(capture);
+        replayer.setSpeedMultiplier(SerialCaptureReplayer.SPEED_MAXIMUM);
+        FrameCollector frameCollector = new FrameCollector(replayer, false);
+        replayer.replay(frameCollector);
+        assertEquals(300, frameCollector.logFrameCount);
+    }
+
+    @Test
+    public void benchmarkReplayThroughTheFrameAssembler() throws IOException {
+        UnitTestBenchmarks.assumeBenchmarksEnabled();
+        byte[] binaryLog = writeBinaryLog(BENCHMARK_RECORD_COUNT, 1L);
+        SerialCaptureReplayer.ReplayCapture capture = SerialCaptureReplayer.ReplayCapture.fromBinaryLogFile(
+                new ByteArrayInputStream(binaryLog), 64);
+        SerialCaptureReplayer replayer = new SerialCaptureReplayer(capture);
+        replayer.setSpeedMultiplier(SerialCaptureReplayer.SPEED_MAXIMUM);
+        FrameCollector frameCollector = new FrameCollector(replayer, false);
+        SerialCaptureReplayer.ReplayStatistics replayStats = replayer.replay(frameCollector);
+        assertEquals(BENCHMARK_RECORD_COUNT, frameCollector.logFrameCount);
+        UnitTestBenchmarks.printResult(TAG, "Replay (64 byte chunks): %s", replayStats);
+    }
+
+}
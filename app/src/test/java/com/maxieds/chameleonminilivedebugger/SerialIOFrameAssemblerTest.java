@@ -0,0 +1,300 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * <h1>Serial IO Frame Assembler Tests</h1>
+ * Splits streams of LIVE log records, text responses and XModem blocks into random chunk
+ * sizes (the way the USB / BLE callbacks hand them over) and checks that every frame comes
+ * out whole and in order, including LIVE logs between the blocks of a DOWNLOAD and several
+ * threads appending at once. The framing throughput benchmark is skipped unless the tests
+ * run with -Dcmld.bench=true.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class SerialIOFrameAssemblerTest {
+
+    private static final String TAG = SerialIOFrameAssemblerTest.class.getSimpleName();
+
+    private static final int BENCHMARK_RECORD_COUNT = 1000000;
+    private static final int PRODUCER_THREAD_COUNT = 4;
+    private static final int PRODUCER_RECORD_COUNT = 20000;
+
+    /**
+     * Framing with the XModem mode set by the test.
+     */
+    private static class TestFramingContext implements SerialIOFrameAssembler.FramingContext {
+
+        volatile int xmodemMode = SerialIOFrameAssembler.XMODEM_MODE_NONE;
+
+        public boolean isLiveLoggingCode(byte firstByte) {
+            return ChameleonLogUtils.isLiveLoggingCode(firstByte);
+        }
+
+        public int getXModemMode() {
+            return xmodemMode;
+        }
+
+        public int getXModemBlockFrameLength(byte firstByte) {
+            return SerialIOFrameAssembler.getDefaultXModemBlockFrameLength(firstByte);
+        }
+
+    }
+
+    /**
+     * Records the delivered frames and checks that the receiver is never entered twice at once.
+     */
+    private static class FrameCollector implements SerialIOFrameAssembler.SerialFrameReceiver {
+
+        final List<Integer> frameTypes = new ArrayList<Integer>();
+        final List<byte[]> frames = new ArrayList<byte[]>();
+        final AtomicInteger receiversActive = new AtomicInteger();
+        volatile boolean overlappingDispatch;
+
+        public void onReceivedFrame(int frameType, byte[] frameData) {
+            if(receiversActive.incrementAndGet() != 1) {
+                overlappingDispatch = true;
+            }
+            frameTypes.add(frameType);
+            frames.add(frameData);
+            receiversActive.decrementAndGet();
+        }
+
+    }
+
+    private static byte[] xmodemBlock(Random rng, int blockNumber) {
+        byte[] blockBytes = new byte[XModemProtocol.BLOCK_SIZE + 4];
+        rng.nextBytes(blockBytes);
+        blockBytes[0] = XModemProtocol.BYTE_SOH;
+        blockBytes[1] = (byte) blockNumber;
+        blockBytes[2] = (byte) ~blockNumber;
+        blockBytes[blockBytes.length - 1] = XModemProtocol.calcChecksum(blockBytes, 3, XModemProtocol.BLOCK_SIZE);
+        return blockBytes;
+    }
+
+    /* A CR/LF split off by the chunking is skipped in front of the next frame instead: */
+    private static byte[] trimLineEnd(byte[] frameData) {
+        int frameLength = frameData.length;
+        while(frameLength > 0 && (frameData[frameLength - 1] == '\r' || frameData[frameLength - 1] == '\n')) {
+            frameLength--;
+        }
+        return Arrays.copyOf(frameData, frameLength);
+    }
+
+    private static void appendInChunks(SerialIOFrameAssembler frameAssembler, byte[] streamBytes, Random rng,
+                                       int maxChunkSize, SerialIOFrameAssembler.SerialFrameReceiver frameReceiver) {
+        int chunkPos = 0;
+        while(chunkPos < streamBytes.length) {
+            int chunkLength = Math.min(streamBytes.length - chunkPos, 1 + rng.nextInt(maxChunkSize));
+            frameAssembler.appendData(streamBytes, chunkPos, chunkLength, frameReceiver);
+            chunkPos += chunkLength;
+        }
+    }
+
+    @Test
+    public void logsAndResponsesSurviveAnyChunking() {
+        Random rng = new Random(3L);
+        List<byte[]> expectedFrames = new ArrayList<byte[]>();
+        List<Integer> expectedTypes = new ArrayList<Integer>();
+        ByteArrayOutputStream serialStream = new ByteArrayOutputStream();
+        for(int frameIdx = 0; frameIdx < 3000; frameIdx++) {
+            byte[] frameBytes;
+            int frameType;
+            if(frameIdx % 5 == 0) {
+                frameBytes = (frameIdx % 2 == 0 ? "100:OK\r\n" : "101:OK WITH TEXT\r\nMF_CLASSIC_1K\r\n").getBytes(StandardCharsets.US_ASCII);
+                frameType = SerialIOFrameAssembler.FRAME_TYPE_TEXT;
+            }
+            else {
+                frameBytes = LiveLogRecords.newLogRecord(rng, LiveLogRecords.LOGCODE_RX_DATA, rng.nextInt(64));
+                frameType = SerialIOFrameAssembler.FRAME_TYPE_LOGDATA;
+            }
+            serialStream.write(frameBytes, 0, frameBytes.length);
+            expectedFrames.add(frameBytes);
+            expectedTypes.add(frameType);
+        }
+        byte[] streamBytes = serialStream.toByteArray();
+        for(int maxChunkSize : new int[] { 1, 3, 64, 512, 16384 }) {
+            SerialIOFrameAssembler frameAssembler = new SerialIOFrameAssembler(new TestFramingContext());
+            FrameCollector frameCollector = new FrameCollector();
+            appendInChunks(frameAssembler, streamBytes, rng, maxChunkSize, frameCollector);
+            assertEquals(expectedTypes, frameCollector.frameTypes);
+            for(int frameIdx = 0; frameIdx < expectedFrames.size(); frameIdx++) {
+                assertArrayEquals(trimLineEnd(expectedFrames.get(frameIdx)), trimLineEnd(frameCollector.frames.get(frameIdx)));
+            }
+            assertEquals(0, frameAssembler.getDroppedByteCount());
+            assertEquals(0, frameAssembler.getBufferedByteCount());
+        }
+    }
+
+    @Test
+    public void noiseIsSkippedUpToTheNextFrame() {
+        SerialIOFrameAssembler frameAssembler = new SerialIOFrameAssembler(new TestFramingContext());
+        FrameCollector frameCollector = new FrameCollector();
+        byte[] logBytes = LiveLogRecords.newLogRecord(new Random(5L), LiveLogRecords.LOGCODE_TX_DATA, 6);
+        frameAssembler.appendData(new byte[] { 0x01, 0x02, 0x03 }, frameCollector);
+        frameAssembler.appendData(logBytes, frameCollector);
+        assertEquals(1, frameCollector.frames.size());
+        assertArrayEquals(logBytes, frameCollector.frames.get(0));
+        assertEquals(3, frameAssembler.getDroppedByteCount());
+        assertEquals(1, frameAssembler.getResyncCount());
+    }
+
+    @Test
+    public void liveLogsBetweenDownloadBlocksAreKept() {
+        Random rng = new Random(7L);
+        TestFramingContext framingContext = new TestFramingContext();
+        framingContext.xmodemMode = SerialIOFrameAssembler.XMODEM_MODE_DOWNLOAD;
+        List<byte[]> expectedFrames = new ArrayList<byte[]>();
+        ByteArrayOutputStream serialStream = new ByteArrayOutputStream();
+        int logRecordCount = 0;
+        for(int blockNumber = 1; blockNumber <= 64; blockNumber++) {
+            byte[] blockBytes = xmodemBlock(rng, blockNumber);
+            serialStream.write(blockBytes, 0, blockBytes.length);
+            expectedFrames.add(blockBytes);
+            for(int logIdx = rng.nextInt(3); logIdx > 0; logIdx--) {
+                byte[] logBytes = LiveLogRecords.newLogRecord(rng, ChameleonLogUtils.LogCode.LOG_INFO_CODEC_SNI_READER_DATA.toInteger(), rng.nextInt(32));
+                serialStream.write(logBytes, 0, logBytes.length);
+                expectedFrames.add(logBytes);
+                logRecordCount++;
+            }
+        }
+        serialStream.write(XModemProtocol.BYTE_EOT);
+        expectedFrames.add(new byte[] { XModemProtocol.BYTE_EOT });
+        SerialIOFrameAssembler frameAssembler = new SerialIOFrameAssembler(framingContext);
+        FrameCollector frameCollector = new FrameCollector();
+        appendInChunks(frameAssembler, serialStream.toByteArray(), rng, 100, frameCollector);
+        assertEquals(expectedFrames.size(), frameCollector.frames.size());
+        for(int frameIdx = 0; frameIdx < expectedFrames.size(); frameIdx++) {
+            assertArrayEquals(expectedFrames.get(frameIdx), frameCollector.frames.get(frameIdx));
+        }
+        assertEquals(logRecordCount, frameAssembler.getLogFrameCount());
+        assertEquals(64 + 1, frameAssembler.getXModemFrameCount());
+        assertEquals(0, frameAssembler.getDroppedByteCount());
+    }
+
+    @Test
+    public void framesAppendedFromTheReceiverFollowTheCurrentOne() {
+        final SerialIOFrameAssembler frameAssembler = new SerialIOFrameAssembler(new TestFramingContext());
+        final byte[] firstLine = "100:OK\r\n".getBytes(StandardCharsets.US_ASCII);
+        final byte[] secondLine = "120:FALSE\r\n".getBytes(StandardCharsets.US_ASCII);
+        final byte[] thirdLine = "200:UNKNOWN COMMAND\r\n".getBytes(StandardCharsets.US_ASCII);
+        final FrameCollector frameCollector = new FrameCollector() {
+            @Override
+            public void onReceivedFrame(int frameType, byte[] frameData) {
+                frameTypes.add(frameType);
+                frames.add(frameData);
+                if(frames.size() == 1) {
+                    frameAssembler.appendData(thirdLine, this); /* Queued behind the second line */
+                }
+            }
+        };
+        byte[] firstTwoLines = new byte[firstLine.length + secondLine.length];
+        System.arraycopy(firstLine, 0, firstTwoLines, 0, firstLine.length);
+        System.arraycopy(secondLine, 0, firstTwoLines, firstLine.length, secondLine.length);
+        frameAssembler.appendData(firstTwoLines, frameCollector);
+        assertEquals(3, frameCollector.frames.size());
+        assertArrayEquals(firstLine, frameCollector.frames.get(0));
+        assertArrayEquals(secondLine, frameCollector.frames.get(1));
+        assertArrayEquals(thirdLine, frameCollector.frames.get(2));
+    }
+
+    @Test
+    public void concurrentProducersKeepTheirFramesInOrder() throws InterruptedException {
+        final SerialIOFrameAssembler frameAssembler = new SerialIOFrameAssembler(new TestFramingContext());
+        final FrameCollector frameCollector = new FrameCollector();
+        Thread[] producerThreads = new Thread[PRODUCER_THREAD_COUNT];
+        for(int threadIdx = 0; threadIdx < PRODUCER_THREAD_COUNT; threadIdx++) {
+            final int producerID = threadIdx;
+            producerThreads[threadIdx] = new Thread(new Runnable() {
+                public void run() {
+                    /* Each chunk holds a few whole records: [producer ID, 32-bit sequence number] */
+                    byte[] chunkBytes = new byte[4 * 9];
+                    for(int seqNum = 0; seqNum < PRODUCER_RECORD_COUNT; seqNum += 4) {
+                        for(int recIdx = 0; recIdx < 4; recIdx++) {
+                            int recPos = 9 * recIdx;
+                            chunkBytes[recPos] = (byte) ChameleonLogUtils.LogCode.LOG_INFO_GENERIC.toInteger();
+                            chunkBytes[recPos + 1] = 5;
+                            chunkBytes[recPos + 4] = (byte) producerID;
+                            for(int b = 0; b < 4; b++) {
+                                chunkBytes[recPos + 5 + b] = (byte) ((seqNum + recIdx) >>> (24 - 8 * b));
+                            }
+                        }
+                        frameAssembler.appendData(chunkBytes, frameCollector);
+                    }
+                }
+            });
+        }
+        for(Thread producerThread : producerThreads) {
+            producerThread.start();
+        }
+        for(Thread producerThread : producerThreads) {
+            producerThread.join();
+        }
+        assertTrue("The receiver was entered concurrently", !frameCollector.overlappingDispatch);
+        assertEquals(PRODUCER_THREAD_COUNT * PRODUCER_RECORD_COUNT, frameCollector.frames.size());
+        int[] nextSeqNum = new int[PRODUCER_THREAD_COUNT];
+        for(byte[] frameData : frameCollector.frames) {
+            int seqNum = ((frameData[5] & 0xff) << 24) | ((frameData[6] & 0xff) << 16) | ((frameData[7] & 0xff) << 8) | (frameData[8] & 0xff);
+            assertEquals(nextSeqNum[frameData[4]]++, seqNum);
+        }
+    }
+
+    @Test
+    public void benchmarkLiveLogFraming() {
+        UnitTestBenchmarks.assumeBenchmarksEnabled();
+        Random rng = new Random(1L);
+        ByteArrayOutputStream serialStream = new ByteArrayOutputStream();
+        for(int recordIdx = 0; recordIdx < BENCHMARK_RECORD_COUNT; recordIdx++) {
+            byte[] logBytes = LiveLogRecords.newLogRecord(rng, LiveLogRecords.LOGCODE_RX_DATA, rng.nextInt(24));
+            serialStream.write(logBytes, 0, logBytes.length);
+        }
+        byte[] streamBytes = serialStream.toByteArray();
+        final long[] frameCount = new long[] { 0 };
+        SerialIOFrameAssembler.SerialFrameReceiver countingReceiver = new SerialIOFrameAssembler.SerialFrameReceiver() {
+            public void onReceivedFrame(int frameType, byte[] frameData) {
+                frameCount[0]++;
+            }
+        };
+        SerialIOFrameAssembler frameAssembler = new SerialIOFrameAssembler(new TestFramingContext());
+        long startTimeNanos = System.nanoTime();
+        for(int chunkPos = 0; chunkPos < streamBytes.length; chunkPos += 64) {
+            frameAssembler.appendData(streamBytes, chunkPos, Math.min(64, streamBytes.length - chunkPos), countingReceiver);
+        }
+        long elapsedNanos = System.nanoTime() - startTimeNanos;
+        assertEquals(BENCHMARK_RECORD_COUNT, frameCount[0]);
+        UnitTestBenchmarks.printResult(TAG, "Frame assembler (64 byte chunks): %d records, %d bytes in %.1f ms = %.0f records/s, %.1f MB/s",
+                                            BENCHMARK_RECORD_COUNT, streamBytes.length, elapsedNanos / 1.0e6,
+                                            BENCHMARK_RECORD_COUNT * 1.0e9 / elapsedNanos, streamBytes.length * 1.0e3 / elapsedNanos);
+    }
+
+}
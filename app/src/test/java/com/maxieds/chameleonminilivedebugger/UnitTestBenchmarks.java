@@ -0,0 +1,56 @@
+/*
+This program (The Chameleon Mini Live Debugger) is free software written by
+Maxie Dion Schmidt: you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation, either version 3 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+The complete license provided with source distributions of this library is
+available at the following link:
+https://github.com/maxieds/ChameleonMiniLiveDebugger
+*/
+
+package com.maxieds.chameleonminilivedebugger;
+
+import org.junit.Assume;
+
+/**
+ * <h1>Unit Test Benchmarks</h1>
+ * The timing loops next to the unit tests are skipped in the default test run and only run
+ * when the cmld.bench system property is set (passed through to the test JVM by the
+ * testOptions in app/build.gradle):
+ * ./gradlew testDebugUnitTest -Dcmld.bench=true
+ * Their results are printed to stdout by printResult (android.util.Log is only a stub on
+ * the JVM), which Gradle shows with the test output when the property is set. Nothing
+ * about the timing is asserted.
+ *
+ * @author  Maxie D. Schmidt
+ * @since   10/17/26
+ */
+public class UnitTestBenchmarks {
+
+    public static final String BENCHMARK_PROPERTY = "cmld.bench";
+
+    /**
+     * Skips the calling benchmark unless -Dcmld.bench=true was given.
+     */
+    public static void assumeBenchmarksEnabled() {
+        Assume.assumeTrue("Benchmarks only run with -D" + BENCHMARK_PROPERTY + "=true", Boolean.getBoolean(BENCHMARK_PROPERTY));
+    }
+
+    /**
+     * Prints one line of benchmark results, prefixed with the name of the benchmark.
+     * @param benchmarkTag
+     * @param format String.format pattern of the results
+     * @param args
+     */
+    public static void printResult(String benchmarkTag, String format, Object... args) {
+        System.out.println("[" + benchmarkTag + "] " + String.format(BuildConfig.DEFAULT_LOCALE, format, args));
+    }
+
+}